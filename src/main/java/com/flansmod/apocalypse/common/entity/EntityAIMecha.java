@@ -5,7 +5,6 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.DamageSource;
 import net.minecraft.util.EnumHand;
-import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
@@ -13,6 +12,7 @@ import com.flansmod.common.driveables.DriveableData;
 import com.flansmod.common.driveables.EnumDriveablePart;
 import com.flansmod.common.driveables.mechas.EntityMecha;
 import com.flansmod.common.driveables.mechas.MechaType;
+import com.flansmod.common.guns.TargetTracker;
 import com.flansmod.common.vector.Vector3f;
 
 public class EntityAIMecha extends EntityMecha
@@ -20,6 +20,10 @@ public class EntityAIMecha extends EntityMecha
 	private Entity target;
 	private float targetingRange = 20F;
 	private int targetAcquireInterval = 40;
+	/**
+	 * This mecha's interest in nearby players, server side
+	 */
+	private TargetTracker.Subscription targeting;
 	
 	private boolean usingLeft = false;
 	
@@ -60,19 +64,14 @@ public class EntityAIMecha extends EntityMecha
 		MechaType type = getMechaType();
 		DriveableData data = getDriveableData();
 		
+		if(target != null && target.isDead)
+			target = null;
 		//Acquire target
-		if(target == null && (this.ticksExisted + this.getEntityId()) % targetAcquireInterval == 0)
+		if(!world.isRemote && target == null && (this.ticksExisted + this.getEntityId()) % targetAcquireInterval == 0)
 		{
-			double distToCurrentTarget = 999D;
-			for(Object obj : world.getEntitiesWithinAABBExcludingEntity(this, getEntityBoundingBox().expand(targetingRange, targetingRange, targetingRange)))
-			{
-				double distToPotentialTarget = this.getDistanceSq((Entity)obj);
-				if(isBetterTarget(target, distToCurrentTarget, (Entity)obj, distToPotentialTarget))
-				{
-					target = (Entity)obj;
-					distToCurrentTarget = distToPotentialTarget;
-				}
-			}
+			if(targeting == null)
+				targeting = new TargetTracker.Subscription(this, targetingRange, entity -> entity instanceof EntityPlayer);
+			target = TargetTracker.get(world).findNearestTarget(targeting);
 		}
 
 		//And if we have line of sight, shoot it
@@ -92,19 +91,13 @@ public class EntityAIMecha extends EntityMecha
 				getSeat(0).prevLooking.setAngles(0F, -(float)Math.atan2(dY, Math.sqrt(dX * dX + dZ * dZ)) * 180F / 3.14159F, 0F);
 			}
 			
-			RayTraceResult hit = world.rayTraceBlocks(rightArmOrigin, targetOrigin, false);
-			
 			if(world.isRemote)
 			{
 				//world.spawnEntity(new EntityDebugVector(world, new Vector3f(rightArmOrigin), new Vector3f(dX, dY, dZ), 2));
 			}
 			{
-				double blockHitX = hit == null ? 0 : hit.hitVec.x - rightArmOrigin.x;
-				double blockHitY = hit == null ? 0 : hit.hitVec.y - rightArmOrigin.y;
-				double blockHitZ = hit == null ? 0 : hit.hitVec.z - rightArmOrigin.z;
-				
-				//If the target is nearer than the block hit or there was no block
-				if(hit == null || hit.typeOfHit != RayTraceResult.Type.BLOCK || dX * dX + dY * dY + dZ * dZ < blockHitX * blockHitX + blockHitY * blockHitY + blockHitZ * blockHitZ)
+				//If the target is nearer than any block in the way
+				if(TargetTracker.get(world).hasLineOfSight(targeting, target, rightArmOrigin, targetOrigin))
 				{
 					useItem(usingLeft);
 					if(rand.nextInt(5) == 0)
@@ -164,13 +157,6 @@ public class EntityAIMecha extends EntityMecha
 		return false;
 	}
 	
-	private boolean isBetterTarget(Entity currentTarget, double distToCurrentTarget, Entity potentialTarget, double distToPotentialTarget)
-	{
-		if(potentialTarget instanceof EntityPlayer && distToPotentialTarget < distToCurrentTarget && distToPotentialTarget < targetingRange * targetingRange)
-			return true;
-		return false;
-	}
-	
 	@Override
 	public boolean hasFuel()
 	{
@@ -398,8 +398,8 @@ public class ClientRenderHooks
 			PlayerData data = PlayerHandler.getPlayerData(player);
 			if(FlansMod.DEBUG && data != null)
 			{
-				if(data.snapshots[0] != null)
-					data.snapshots[0].renderSnapshot();
+				if(!data.snapshots.isEmpty())
+					data.snapshots.getLatest().renderSnapshot();
 			}
 		}
 	}
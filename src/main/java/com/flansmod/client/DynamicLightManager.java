@@ -0,0 +1,263 @@
+package com.flansmod.client;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.flansmod.common.FlansMod;
+import com.flansmod.common.util.BlockUtil;
+
+/**
+ * Overrides the light level of blocks around flashlights, glowing bullets and mechas.
+ * <p>
+ * The light sources are gathered every so often between {@link #begin} and {@link #end}, and compared with the ones from
+ * last time. Only sources that are new, have moved or have changed brightness are written to the world, and the light
+ * around them is checked again. Sources that are gone have their real light level restored, and so do sources that have
+ * dimmed, before being lit again at their new level. Those checks are the expensive part, so they are queued up by chunk
+ * section and at most {@link FlansMod#dynamicLightUpdatesPerFrame} of them are done each frame.
+ */
+@SideOnly(Side.CLIENT)
+public class DynamicLightManager
+{
+	private World world;
+	private Long2IntOpenHashMap blockLights = new Long2IntOpenHashMap();
+	private Long2IntOpenHashMap skyLights = new Long2IntOpenHashMap();
+	private Long2IntOpenHashMap nextBlockLights = new Long2IntOpenHashMap();
+	private Long2IntOpenHashMap nextSkyLights = new Long2IntOpenHashMap();
+	/**
+	 * Blocks waiting to have their light checked, by chunk section, in the order the sections were first queued
+	 */
+	private final Long2ObjectLinkedOpenHashMap<PendingSection> pending = new Long2ObjectLinkedOpenHashMap<>();
+	/**
+	 * Block light sources that are darker than last time, so their own block has to be reset before being lit again
+	 */
+	private final LongOpenHashSet dimmedSources = new LongOpenHashSet();
+	
+	/**
+	 * Starts gathering light sources for this world. If the world has changed since last time, everything to do with the
+	 * old one is forgotten
+	 */
+	public void begin(World world)
+	{
+		if(this.world != world)
+		{
+			this.world = world;
+			blockLights.clear();
+			skyLights.clear();
+			pending.clear();
+			dimmedSources.clear();
+		}
+		nextBlockLights.clear();
+		nextSkyLights.clear();
+	}
+	
+	/**
+	 * Lights this block to at least the given level. If more than one source lights the same block, the brightest wins
+	 */
+	public void addBlockLight(BlockPos pos, int level)
+	{
+		long key = pos.toLong();
+		if(nextBlockLights.get(key) < level)
+			nextBlockLights.put(key, level);
+	}
+	
+	/**
+	 * Darkens the sky light of this block to the given level. If more than one source darkens the same block, the darkest
+	 * wins
+	 */
+	public void addSkyDarkness(BlockPos pos, int level)
+	{
+		long key = pos.toLong();
+		if(!nextSkyLights.containsKey(key) || nextSkyLights.get(key) > level)
+			nextSkyLights.put(key, level);
+	}
+	
+	/**
+	 * Compares the light sources gathered since {@link #begin} with the previous ones and applies the differences
+	 */
+	public void end()
+	{
+		for(Long2IntMap.Entry entry : nextBlockLights.long2IntEntrySet())
+		{
+			long key = entry.getLongKey();
+			int level = entry.getIntValue();
+			BlockPos pos = BlockPos.fromLong(key);
+			boolean changed = !blockLights.containsKey(key) || blockLights.get(key) != level;
+			//Lighting only ever raises the level here, so a source that has dimmed is reset like one that has gone, and
+			//lit again at its new level when its turn comes
+			if(blockLights.containsKey(key) && blockLights.get(key) > level)
+			{
+				dimmedSources.add(key);
+				queueCheck(EnumSkyBlock.BLOCK, pos.getX(), pos.getY(), pos.getZ());
+			}
+			//Never darkens a block, and unchanged sources are only written again if something else, like a block update,
+			//has reset them
+			if(getLight(EnumSkyBlock.BLOCK, pos) < level)
+				setLight(EnumSkyBlock.BLOCK, pos, level);
+			if(changed)
+			{
+				//Spread the new light out to the neighbouring blocks
+				queueNeighbourChecks(EnumSkyBlock.BLOCK, pos);
+			}
+		}
+		for(long key : blockLights.keySet())
+		{
+			//Gone, so put back the light this block really has, which also darkens its neighbours
+			if(!nextBlockLights.containsKey(key))
+			{
+				BlockPos pos = BlockPos.fromLong(key);
+				queueCheck(EnumSkyBlock.BLOCK, pos.getX(), pos.getY(), pos.getZ());
+			}
+		}
+		
+		for(Long2IntMap.Entry entry : nextSkyLights.long2IntEntrySet())
+		{
+			BlockPos pos = BlockPos.fromLong(entry.getLongKey());
+			if(getLight(EnumSkyBlock.SKY, pos) != entry.getIntValue())
+				setLight(EnumSkyBlock.SKY, pos, entry.getIntValue());
+		}
+		for(long key : skyLights.keySet())
+		{
+			if(!nextSkyLights.containsKey(key))
+			{
+				BlockPos pos = BlockPos.fromLong(key);
+				queueCheck(EnumSkyBlock.SKY, pos.getX(), pos.getY(), pos.getZ());
+			}
+		}
+		
+		Long2IntOpenHashMap swap = blockLights;
+		blockLights = nextBlockLights;
+		nextBlockLights = swap;
+		swap = skyLights;
+		skyLights = nextSkyLights;
+		nextSkyLights = swap;
+	}
+	
+	/**
+	 * Does as many of the queued light checks as this frame allows, a chunk section at a time
+	 */
+	public void updateLighting(World world)
+	{
+		if(world != this.world)
+			return;
+		
+		int budget = getUpdatesPerFrame();
+		while(budget > 0 && !pending.isEmpty())
+		{
+			PendingSection section = pending.get(pending.firstLongKey());
+			budget = check(section.blockChecks, EnumSkyBlock.BLOCK, blockLights, budget);
+			budget = check(section.skyChecks, EnumSkyBlock.SKY, skyLights, budget);
+			if(section.blockChecks.isEmpty() && section.skyChecks.isEmpty())
+				pending.removeFirst();
+		}
+	}
+	
+	private int check(LongOpenHashSet checks, EnumSkyBlock type, Long2IntOpenHashMap sources, int budget)
+	{
+		boolean checked = false;
+		LongIterator iterator = checks.iterator();
+		while(budget > 0 && iterator.hasNext())
+		{
+			long key = iterator.nextLong();
+			iterator.remove();
+			boolean dimmed = type == EnumSkyBlock.BLOCK && dimmedSources.remove(key);
+			//Checking a block that is still being lit would undo it, unless it needs resetting to a lower level
+			if(sources.containsKey(key) && !dimmed)
+				continue;
+			checkLight(type, BlockPos.fromLong(key));
+			checked = true;
+			budget--;
+		}
+		//Done once the iteration is over, as the neighbours queued may be in this section
+		if(checked)
+			restoreSources(type, sources);
+		return budget;
+	}
+	
+	/**
+	 * Writes again any source that the light checks have undone, and spreads its light back out. A check takes away all
+	 * the light that came from the block checked, which can reach sources nearby, as when a source moves off a block
+	 * that was lit brighter than its new one. A dimmed source is undone like this on purpose, to be lit at its new level
+	 */
+	private void restoreSources(EnumSkyBlock type, Long2IntOpenHashMap sources)
+	{
+		for(Long2IntMap.Entry entry : sources.long2IntEntrySet())
+		{
+			BlockPos pos = BlockPos.fromLong(entry.getLongKey());
+			int level = entry.getIntValue();
+			if(type == EnumSkyBlock.BLOCK && getLight(type, pos) < level)
+			{
+				setLight(type, pos, level);
+				queueNeighbourChecks(type, pos);
+			}
+			else if(type == EnumSkyBlock.SKY && getLight(type, pos) != level)
+				setLight(type, pos, level);
+		}
+	}
+	
+	int getUpdatesPerFrame()
+	{
+		return FlansMod.dynamicLightUpdatesPerFrame;
+	}
+	
+	/**
+	 * @return The light level of this block as the world has it now
+	 */
+	int getLight(EnumSkyBlock type, BlockPos pos)
+	{
+		return world.getLightFor(type, pos);
+	}
+	
+	void setLight(EnumSkyBlock type, BlockPos pos, int level)
+	{
+		world.setLightFor(type, pos, level);
+	}
+	
+	/**
+	 * Puts back the light this block really has, and spreads any change out to the blocks around it
+	 */
+	void checkLight(EnumSkyBlock type, BlockPos pos)
+	{
+		world.checkLightFor(type, pos);
+	}
+	
+	private void queueNeighbourChecks(EnumSkyBlock type, BlockPos pos)
+	{
+		for(int i = -1; i <= 1; i++)
+		{
+			for(int j = -1; j <= 1; j++)
+			{
+				for(int k = -1; k <= 1; k++)
+				{
+					if(i != 0 || j != 0 || k != 0)
+						queueCheck(type, pos.getX() + i, pos.getY() + j, pos.getZ() + k);
+				}
+			}
+		}
+	}
+	
+	private void queueCheck(EnumSkyBlock type, int x, int y, int z)
+	{
+		long sectionKey = BlockUtil.toLong(x >> 4, y >> 4, z >> 4);
+		PendingSection section = pending.get(sectionKey);
+		if(section == null)
+		{
+			section = new PendingSection();
+			pending.put(sectionKey, section);
+		}
+		(type == EnumSkyBlock.BLOCK ? section.blockChecks : section.skyChecks).add(BlockUtil.toLong(x, y, z));
+	}
+	
+	private static class PendingSection
+	{
+		private final LongOpenHashSet blockChecks = new LongOpenHashSet();
+		private final LongOpenHashSet skyChecks = new LongOpenHashSet();
+	}
+}
@@ -27,8 +27,6 @@ import net.minecraft.util.EnumParticleTypes;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.RayTraceResult;
-import net.minecraft.util.math.Vec3i;
-import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.client.FMLClientHandler;
 import net.minecraftforge.fml.relauncher.Side;
@@ -131,7 +129,7 @@ public class FlansModClient extends FlansMod
 	
 	public static int hitMarkerTime = 0;
 	
-	public static List<BlockPos> blockLightOverrides = new ArrayList<>();
+	public static DynamicLightManager dynamicLights = new DynamicLightManager();
 	public static int lightOverrideRefreshRate = 5;
 	
 	private static WorldRenderer wr;
@@ -575,7 +573,8 @@ public class FlansModClient extends FlansMod
 	}
 	
 	/**
-	 * Handle flashlight block light override
+	 * Gather the light sources for flashlights, glowing bullets and mechas. Lighting them up is left to
+	 * {@link DynamicLightManager}
 	 */
 	public static void updateFlashlights(Minecraft mc)
 	{
@@ -585,10 +584,7 @@ public class FlansModClient extends FlansMod
 			// Check graphics setting and adjust refresh rate
 			lightOverrideRefreshRate = mc.gameSettings.fancyGraphics ? 10 : 20;
 			
-			// Reset old light values
-			blockLightOverrides.forEach(blockPos -> mc.world.checkLightFor(EnumSkyBlock.BLOCK, blockPos));
-			// Clear the list
-			blockLightOverrides.clear();
+			dynamicLights.begin(mc.world);
 			
 			//Find all flashlights
 			for(EntityPlayer player : mc.world.playerEntities)
@@ -630,9 +626,7 @@ public class FlansModClient extends FlansMod
 										x++;
 										break;
 								}
-								BlockPos blockPos = new BlockPos(x, y, z);
-								blockLightOverrides.add(blockPos);
-								lightBlock(mc, blockPos, 12);
+								dynamicLights.addBlockLight(new BlockPos(x, y, z), 12);
 							}
 						}
 					}
@@ -649,9 +643,7 @@ public class FlansModClient extends FlansMod
 						int x = MathHelper.floor(bullet.posX);
 						int y = MathHelper.floor(bullet.posY);
 						int z = MathHelper.floor(bullet.posZ);
-						BlockPos blockPos = new BlockPos(x, y, z);
-						blockLightOverrides.add(blockPos);
-						lightBlock(mc, blockPos, 15);
+						dynamicLights.addBlockLight(new BlockPos(x, y, z), 15);
 					}
 				}
 				else if(entity instanceof EntityMecha)
@@ -662,11 +654,7 @@ public class FlansModClient extends FlansMod
 					int z = MathHelper.floor(mecha.posZ);
 					if(mecha.lightLevel() > 0)
 					{
-						BlockPos blockPos = new BlockPos(x, y, z);
-						int lightLevel = Math
-							.max(mc.world.getLightFor(EnumSkyBlock.BLOCK, blockPos), mecha.lightLevel());
-						blockLightOverrides.add(blockPos);
-						lightBlock(mc, blockPos, lightLevel);
+						dynamicLights.addBlockLight(new BlockPos(x, y, z), mecha.lightLevel());
 					}
 					if(mecha.forceDark())
 					{
@@ -679,9 +667,7 @@ public class FlansModClient extends FlansMod
 									int xd = i + x;
 									int yd = j + y;
 									int zd = k + z;
-									BlockPos blockPos = new BlockPos(xd, yd, zd);
-									blockLightOverrides.add(blockPos);
-									mc.world.setLightFor(EnumSkyBlock.SKY, blockPos,
+									dynamicLights.addSkyDarkness(new BlockPos(xd, yd, zd),
 										Math.abs(i) + Math.abs(j) + Math.abs(k));
 								}
 							}
@@ -689,21 +675,8 @@ public class FlansModClient extends FlansMod
 					}
 				}
 			}
+			
+			dynamicLights.end();
 		}
 	}
-	
-	private static void lightBlock(Minecraft mc, BlockPos blockPos, int lightValue)
-	{
-		mc.world.setLightFor(EnumSkyBlock.BLOCK, blockPos, lightValue);
-		Vec3i diffVec = new Vec3i(1, 1, 1);
-		BlockPos
-			.getAllInBox(blockPos.subtract(diffVec), blockPos.add(diffVec))
-			.forEach(posToUpdate ->
-			{
-				if(!posToUpdate.equals(blockPos))
-				{
-					mc.world.checkLightFor(EnumSkyBlock.BLOCK, posToUpdate);
-				}
-			});
-	}
 }
@@ -2,7 +2,6 @@ package com.flansmod.client.gui;
 
 import java.awt.*;
 import java.io.IOException;
-import java.util.HashMap;
 
 import org.apache.commons.lang3.NotImplementedException;
 
@@ -21,10 +20,8 @@ import com.flansmod.client.handlers.FlansModResourceHandler;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.driveables.DriveableType;
 import com.flansmod.common.driveables.mechas.MechaType;
-import com.flansmod.common.parts.EnumPartCategory;
-import com.flansmod.common.parts.ItemPart;
 import com.flansmod.common.parts.PartType;
-import com.flansmod.common.types.EnumType;
+import com.flansmod.common.util.InventoryHistogram;
 
 public class GuiDriveableCrafting extends GuiScreen
 {
@@ -70,6 +67,23 @@ public class GuiDriveableCrafting extends GuiScreen
 	 * Whether or not the currently selected driveable can be crafted
 	 */
 	private boolean canCraft = false;
+	/**
+	 * The player's items as of the last time craftability was worked out. It is only worked out again when the
+	 * inventory or the selected blueprint changes, rather than every frame
+	 */
+	private InventoryHistogram inventoryCounts;
+	/**
+	 * The blueprint craftability was last worked out for
+	 */
+	private int craftabilityBlueprint = -1;
+	/**
+	 * For each item in the selected recipe, whether the player has too few of it
+	 */
+	private boolean[] recipeItemsMissing = new boolean[0];
+	/**
+	 * The best engines the player has for the selected driveable, or an empty stack if there are not enough of any
+	 */
+	private ItemStack engineStack = ItemStack.EMPTY;
 	public static final int BLUEPRINT_ROW_COUNT = 4;
 	public static final int BLUEPRINT_COLUMN_COUNT = 8;
 	public static final int BLUEPRINT_WIDTH = 18;
@@ -218,17 +232,13 @@ public class GuiDriveableCrafting extends GuiScreen
 		drawString(fontRenderer, "Engine", engineTextX, engineTextY, WHITE);
 		drawString(fontRenderer, selectedType.numEngines() + "x", engineTextX - 14, engineTextY, WHITE);
 
-		canCraft = true;
+		updateCraftability(selectedType);
 
 		// Recipe items
 		itemsToRender = itemsToRender.pushAll(getRecipeItemsToRender(selectedType));
 
-		// Collect up all the engines into neat and tidy stacks so we can find if any of them are big enough
-		// and which of those stacks are best
-		ItemStack bestEngineStack = getBestEngineStackForType(selectedType);
-
 		// Draw engine slot
-		itemsToRender = itemsToRender.pushAll(getEngineItemToRender(bestEngineStack));
+		itemsToRender = itemsToRender.pushAll(getEngineItemToRender(engineStack));
 
 		craftButton.enabled = canCraft;
 		
@@ -239,6 +249,32 @@ public class GuiDriveableCrafting extends GuiScreen
 		itemsToRender.forEach(item -> drawSlotInventory(item.itemStack, item.x, item.y, mouseX, mouseY));
 	}
 
+	/**
+	 * Works out which recipe items are missing, which engine would be used and whether the selected driveable can be
+	 * crafted, if the inventory or the selected blueprint has changed since this was last done
+	 */
+	private void updateCraftability(DriveableType selectedType)
+	{
+		boolean inventoryChanged = inventoryCounts == null || !inventoryCounts.matches(inventory);
+		if(!inventoryChanged && craftabilityBlueprint == selectedBlueprint)
+			return;
+		if(inventoryChanged)
+			inventoryCounts = new InventoryHistogram(inventory);
+		craftabilityBlueprint = selectedBlueprint;
+
+		recipeItemsMissing = new boolean[selectedType.driveableRecipe.size()];
+		for(int i = 0; i < recipeItemsMissing.length; i++)
+		{
+			recipeItemsMissing[i] = !inventoryCounts.contains(selectedType.driveableRecipe.get(i));
+		}
+
+		//Find the fastest engine that the player has enough of
+		PartType bestEngine = selectedType.getBestEngine(inventoryCounts);
+		engineStack = bestEngine == null ? ItemStack.EMPTY : new ItemStack(bestEngine.item, inventoryCounts.countIgnoringDamage(bestEngine.item));
+
+		canCraft = bestEngine != null && inventoryCounts.containsAll(selectedType.driveableRecipe);
+	}
+
 	private List<ItemToRender> getEngineItemToRender(ItemStack engineStack)
 	{
 		List<ItemToRender> itemsToRender = List.empty();
@@ -246,7 +282,6 @@ public class GuiDriveableCrafting extends GuiScreen
 		if(engineStack.isEmpty())
 		{
 			drawTexturedModalRect(engineOriginX, engineOriginY, 195, 11, 16, 16);
-			canCraft = false;
 		}
 		else
 		{
@@ -255,52 +290,6 @@ public class GuiDriveableCrafting extends GuiScreen
 		return itemsToRender;
 	}
 
-	private ItemStack getBestEngineStackForType(DriveableType selectedType)
-	{
-		HashMap<PartType, ItemStack> engines = getPlayersEnginesForType(selectedType);
-
-		//Find the stack of engines that is fastest but which also has enough for this driveable
-		float bestEngineSpeed = -1F;
-		ItemStack bestEngineStack = ItemStack.EMPTY.copy();
-		for(PartType part : engines.keySet())
-		{
-			//If this engine outperforms the currently selected best one and there are enough of them, swap
-			if(part.engineSpeed > bestEngineSpeed && engines.get(part).getCount() >= selectedType.numEngines())
-			{
-				bestEngineSpeed = part.engineSpeed;
-				bestEngineStack = engines.get(part);
-			}
-		}
-		return bestEngineStack;
-	}
-
-	private HashMap<PartType, ItemStack> getPlayersEnginesForType(DriveableType selectedType)
-	{
-		HashMap<PartType, ItemStack> engines = new HashMap<>();
-
-		//Find some suitable engines
-		for(ItemStack itemStack : inventory.mainInventory)
-		{
-			if(itemStack.getItem() instanceof ItemPart)
-			{
-				PartType partType = ((ItemPart)itemStack.getItem()).type;
-				//Check its an engine that we can use
-				if(partType.category == EnumPartCategory.ENGINE
-						&& partType.worksWith.contains(EnumType.getFromObject(selectedType)))
-				{
-					//If we already have engines of this type, add these ones to the stack
-					if(engines.containsKey(partType))
-					{
-						engines.get(partType).setCount(engines.get(partType).getCount() + itemStack.getCount());
-					}
-					//Else, make this the first stack
-					else engines.put(partType, itemStack);
-				}
-			}
-		}
-		return engines;
-	}
-
 	private List<ItemToRender> getRecipeItemsToRender(DriveableType selectedType)
 	{
 		List<ItemToRender> itemsToRender = List.empty();
@@ -315,19 +304,8 @@ public class GuiDriveableCrafting extends GuiScreen
 				if(recipeItemNumber < selectedType.driveableRecipe.size())
 				{
 					ItemStack recipeStack = selectedType.driveableRecipe.get(recipeItemNumber);
-					int totalAmountFound = 0;
-					for(ItemStack itemStack : inventory.mainInventory)
-					{
-						if(itemStack.getItem() == recipeStack.getItem()
-								&& itemStack.getItemDamage() == recipeStack.getItemDamage())
-						{
-							totalAmountFound += itemStack.getCount();
-							if(totalAmountFound == recipeStack.getCount())
-								break;
-						}
-					}
 					//If we didn't find enough, give the stack a red outline
-					if(totalAmountFound < recipeStack.getCount())
+					if(recipeItemsMissing[recipeItemNumber])
 					{
 						mc.renderEngine.bindTexture(texture);
 						drawTexturedModalRect(
@@ -337,7 +315,6 @@ public class GuiDriveableCrafting extends GuiScreen
 								11,
 								16,
 								16);
-						canCraft = false;
 					}
 					//Draw the actual item we want
 					itemsToRender = itemsToRender.push(new ItemToRender(
@@ -56,6 +56,7 @@ public class ClientEventHandler
 			}
 			case END:
 			{
+				FlansModClient.dynamicLights.updateLighting(Minecraft.getMinecraft().world);
 				break;
 			}
 		}
@@ -0,0 +1,337 @@
+package com.flansmod.client.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.lwjgl.opengl.GL11;
+
+import net.minecraft.client.renderer.GLAllocation;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.util.math.Vec3d;
+
+import com.flansmod.client.tmt.ModelRendererTurbo;
+import com.flansmod.client.tmt.PositionTextureVertex;
+import com.flansmod.client.tmt.PositionTransformVertex;
+import com.flansmod.client.tmt.TextureGroup;
+import com.flansmod.client.tmt.TexturedPolygon;
+import com.flansmod.client.tmt.TmtTessellator;
+
+/**
+ * A group of model pieces that do not move relative to each other, such as the body of a vehicle, merged into one mesh
+ * that is drawn with a single display list. Each piece's rotation point and angles are applied to its vertices when the
+ * mesh is baked, so drawing the group takes one call rather than a matrix push, a few rotations and a display list for
+ * every piece.
+ * <p>
+ * Only pieces drawn with whatever texture is bound, which is nearly all of them, are merged. Pieces with textures of
+ * their own, child models or the legacy compiler are still rendered one by one after the mesh. The pose of every piece
+ * is remembered, and if any piece is moved, rotated, shown or hidden the mesh is baked again. A group that keeps
+ * changing is animated after all, and goes back to rendering its pieces one by one.
+ * <p>
+ * Baking only reads the pieces and does not touch OpenGL, so the mesh can be checked without a game window.
+ */
+public class BakedModelGroup
+{
+	/**
+	 * Floats stored for each vertex: the position, texture coordinates (u, v, w) and normal
+	 */
+	public static final int VERTEX_SIZE = 9;
+	/**
+	 * How many times a group may be baked again before it is treated as animated
+	 */
+	private static final int MAX_REBAKES = 4;
+	//Floats stored for the pose of each piece: whether it is drawn, its rotation point and its angles
+	private static final int POSE_SIZE = 7;
+	
+	private final ModelRendererTurbo[] pieces;
+	private final float scale;
+	private final boolean oldRotateOrder;
+	
+	private final List<ModelRendererTurbo> unbakedPieces = new ArrayList<>();
+	private float[] poses;
+	private float[] vertices = new float[0];
+	private int vertexCount = 0;
+	private int rebakes = 0;
+	private boolean animated = false;
+	private int displayList = -1;
+	
+	public BakedModelGroup(ModelRendererTurbo[] pieces, float scale, boolean oldRotateOrder)
+	{
+		this.pieces = pieces;
+		this.scale = scale;
+		this.oldRotateOrder = oldRotateOrder;
+		bake();
+	}
+	
+	/**
+	 * @return Whether the piece can be merged into a mesh, rather than having to be rendered on its own
+	 */
+	public static boolean canBake(ModelRendererTurbo piece)
+	{
+		if(piece.useLegacyCompiler || piece.forcedRecompile || !piece.getDefaultTexture().isEmpty())
+			return false;
+		if(piece.childModels != null && !piece.childModels.isEmpty())
+			return false;
+		for(TextureGroup group : piece.getTextureGroups())
+		{
+			if(!group.texture.isEmpty())
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return Whether the mesh was baked with the given scale and rotation order, which cannot be changed afterwards
+	 */
+	public boolean isBakedFor(float scale, boolean oldRotateOrder)
+	{
+		return this.scale == scale && this.oldRotateOrder == oldRotateOrder;
+	}
+	
+	/**
+	 * Merges the pieces as they are posed now into a new mesh
+	 */
+	public void bake()
+	{
+		poses = getPoses();
+		unbakedPieces.clear();
+		vertexCount = 0;
+		for(ModelRendererTurbo piece : pieces)
+		{
+			if(!piece.showModel || piece.field_1402_i)
+				continue;
+			if(!canBake(piece))
+			{
+				unbakedPieces.add(piece);
+				continue;
+			}
+			Rotation rotation = new Rotation(piece, oldRotateOrder);
+			for(TextureGroup group : piece.getTextureGroups())
+			{
+				for(TexturedPolygon polygon : group.poly)
+				{
+					bakePolygon(polygon, piece, rotation);
+				}
+			}
+		}
+		vertices = Arrays.copyOf(vertices, vertexCount * VERTEX_SIZE);
+	}
+	
+	/**
+	 * Adds a polygon to the mesh as triangles fanned out from its first vertex, which covers the triangles, quads and
+	 * convex polygons that {@link TexturedPolygon#draw} draws
+	 */
+	private void bakePolygon(TexturedPolygon polygon, ModelRendererTurbo piece, Rotation rotation)
+	{
+		int n = polygon.nVertices;
+		if(n < 3 || polygon.getNormal(0) == null)
+			return;
+		//Polygons get their normals before their vertices are transformed, so do the same here
+		Vec3d[] normals = new Vec3d[n];
+		for(int i = 0; i < n; i++)
+		{
+			normals[i] = rotation.apply(polygon.getNormal(i));
+		}
+		Vec3d[] positions = new Vec3d[n];
+		for(int i = 0; i < n; i++)
+		{
+			PositionTextureVertex vertex = polygon.vertexPositions[i];
+			if(vertex instanceof PositionTransformVertex)
+				((PositionTransformVertex)vertex).setTransformation();
+			positions[i] = rotation.apply(vertex.vector3D.scale(scale))
+					.addVector(piece.rotationPointX * scale, piece.rotationPointY * scale, piece.rotationPointZ * scale);
+		}
+		for(int i = 1; i < n - 1; i++)
+		{
+			addVertex(polygon.vertexPositions[0], positions[0], normals[0]);
+			addVertex(polygon.vertexPositions[i], positions[i], normals[i]);
+			addVertex(polygon.vertexPositions[i + 1], positions[i + 1], normals[i + 1]);
+		}
+	}
+	
+	private void addVertex(PositionTextureVertex vertex, Vec3d position, Vec3d normal)
+	{
+		int index = vertexCount * VERTEX_SIZE;
+		if(index + VERTEX_SIZE > vertices.length)
+			vertices = Arrays.copyOf(vertices, Math.max(vertices.length * 2, 64 * VERTEX_SIZE));
+		vertices[index] = (float)position.x;
+		vertices[index + 1] = (float)position.y;
+		vertices[index + 2] = (float)position.z;
+		vertices[index + 3] = vertex.texturePositionX;
+		vertices[index + 4] = vertex.texturePositionY;
+		vertices[index + 5] = vertex.texturePositionW;
+		vertices[index + 6] = (float)normal.x;
+		vertices[index + 7] = (float)normal.y;
+		vertices[index + 8] = (float)normal.z;
+		vertexCount++;
+	}
+	
+	private float[] getPoses()
+	{
+		float[] pose = new float[pieces.length * POSE_SIZE];
+		for(int i = 0; i < pieces.length; i++)
+		{
+			ModelRendererTurbo piece = pieces[i];
+			int index = i * POSE_SIZE;
+			pose[index] = piece.showModel && !piece.field_1402_i ? 1F : 0F;
+			pose[index + 1] = piece.rotationPointX;
+			pose[index + 2] = piece.rotationPointY;
+			pose[index + 3] = piece.rotationPointZ;
+			pose[index + 4] = piece.rotateAngleX;
+			pose[index + 5] = piece.rotateAngleY;
+			pose[index + 6] = piece.rotateAngleZ;
+		}
+		return pose;
+	}
+	
+	/**
+	 * @return Whether every piece is posed as it was when the mesh was baked
+	 */
+	public boolean isCurrent()
+	{
+		for(int i = 0; i < pieces.length; i++)
+		{
+			ModelRendererTurbo piece = pieces[i];
+			int index = i * POSE_SIZE;
+			if(poses[index] != (piece.showModel && !piece.field_1402_i ? 1F : 0F)
+					|| poses[index + 1] != piece.rotationPointX || poses[index + 2] != piece.rotationPointY
+					|| poses[index + 3] != piece.rotationPointZ || poses[index + 4] != piece.rotateAngleX
+					|| poses[index + 5] != piece.rotateAngleY || poses[index + 6] != piece.rotateAngleZ)
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The mesh as triangles, {@link #VERTEX_SIZE} floats per vertex
+	 */
+	public float[] getVertices()
+	{
+		return vertices;
+	}
+	
+	public int getVertexCount()
+	{
+		return vertexCount;
+	}
+	
+	/**
+	 * @return The pieces that could not be merged into the mesh and are rendered one by one
+	 */
+	public List<ModelRendererTurbo> getUnbakedPieces()
+	{
+		return unbakedPieces;
+	}
+	
+	public boolean isAnimated()
+	{
+		return animated;
+	}
+	
+	/**
+	 * Renders the group, baking the mesh again first if any piece has moved
+	 */
+	public void render()
+	{
+		if(!animated && !isCurrent())
+		{
+			deleteDisplayList();
+			if(++rebakes > MAX_REBAKES)
+				animated = true;
+			else bake();
+		}
+		if(animated)
+		{
+			for(ModelRendererTurbo piece : pieces)
+			{
+				piece.render(scale, oldRotateOrder);
+			}
+			return;
+		}
+		
+		if(displayList == -1)
+			compileDisplayList();
+		GlStateManager.callList(displayList);
+		for(ModelRendererTurbo piece : unbakedPieces)
+		{
+			piece.render(scale, oldRotateOrder);
+		}
+	}
+	
+	private void compileDisplayList()
+	{
+		displayList = GLAllocation.generateDisplayLists(1);
+		GlStateManager.glNewList(displayList, GL11.GL_COMPILE);
+		if(vertexCount > 0)
+		{
+			TmtTessellator tessellator = TmtTessellator.instance;
+			tessellator.startDrawing(GL11.GL_TRIANGLES);
+			for(int i = 0; i < vertexCount * VERTEX_SIZE; i += VERTEX_SIZE)
+			{
+				tessellator.setNormal(vertices[i + 6], vertices[i + 7], vertices[i + 8]);
+				tessellator.addVertexWithUVW(vertices[i], vertices[i + 1], vertices[i + 2], vertices[i + 3], vertices[i + 4], vertices[i + 5]);
+			}
+			tessellator.draw();
+		}
+		GlStateManager.glEndList();
+	}
+	
+	/**
+	 * Frees the display list of the mesh. It is compiled again the next time the group is rendered
+	 */
+	public void deleteDisplayList()
+	{
+		if(displayList != -1)
+		{
+			GLAllocation.deleteDisplayLists(displayList);
+			displayList = -1;
+		}
+	}
+	
+	/**
+	 * The rotations {@link ModelRendererTurbo#render(float, boolean)} applies to a piece, in the same order
+	 */
+	private static class Rotation
+	{
+		private final double cosX, sinX, cosY, sinY, cosZ, sinZ;
+		private final boolean oldRotateOrder;
+		
+		private Rotation(ModelRendererTurbo piece, boolean oldRotateOrder)
+		{
+			this.oldRotateOrder = oldRotateOrder;
+			//The old order rotates the other way about Y and Z
+			double angleY = oldRotateOrder ? -piece.rotateAngleY : piece.rotateAngleY;
+			double angleZ = oldRotateOrder ? -piece.rotateAngleZ : piece.rotateAngleZ;
+			cosX = Math.cos(piece.rotateAngleX);
+			sinX = Math.sin(piece.rotateAngleX);
+			cosY = Math.cos(angleY);
+			sinY = Math.sin(angleY);
+			cosZ = Math.cos(angleZ);
+			sinZ = Math.sin(angleZ);
+		}
+		
+		/**
+		 * The last rotation applied to the matrix is the first applied to the vertex, so X always comes first
+		 */
+		private Vec3d apply(Vec3d v)
+		{
+			v = rotateX(v);
+			return oldRotateOrder ? rotateZ(rotateY(v)) : rotateY(rotateZ(v));
+		}
+		
+		private Vec3d rotateX(Vec3d v)
+		{
+			return new Vec3d(v.x, v.y * cosX - v.z * sinX, v.y * sinX + v.z * cosX);
+		}
+		
+		private Vec3d rotateY(Vec3d v)
+		{
+			return new Vec3d(v.x * cosY + v.z * sinY, v.y, -v.x * sinY + v.z * cosY);
+		}
+		
+		private Vec3d rotateZ(Vec3d v)
+		{
+			return new Vec3d(v.x * cosZ - v.y * sinZ, v.x * sinZ + v.y * cosZ, v.z);
+		}
+	}
+}
@@ -1,151 +1,87 @@
 package com.flansmod.client.model;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.lwjgl.opengl.GL11;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.BufferBuilder;
 import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.renderer.texture.TextureManager;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.ResourceLocation;
 
-import com.flansmod.client.FlansModClient;
 import com.flansmod.client.handlers.FlansModResourceHandler;
-import com.flansmod.client.util.WorldRenderer;
 import com.flansmod.common.vector.Vector3f;
 
+/**
+ * Renders the trails of instant bullets. Trails are kept in one {@link TrailBatch} per texture, and each batch is drawn
+ * in a single call
+ */
 public class InstantBulletRenderer
 {
 	private static TextureManager textureManager;
-	private static ArrayList<InstantShotTrail> trails = new ArrayList<>();
+	private static Map<ResourceLocation, TrailBatch> batches = new HashMap<>();
+	private static float[] vertexData = new float[0];
 	
-	public static void AddTrail(InstantShotTrail trail)
+	public static void AddTrail(Vector3f origin, Vector3f hitPos, float width, float length, float bulletSpeed, String trailTexture)
 	{
-		trails.add(trail);
+		ResourceLocation texture = FlansModResourceHandler.getTrailTexture(trailTexture);
+		batches.computeIfAbsent(texture, t -> new TrailBatch()).add(origin, hitPos, width, length, bulletSpeed);
 	}
 	
 	public static void RenderAllTrails(float partialTicks)
 	{
-		for(InstantShotTrail trail : trails)
-		{
-			trail.Render(partialTicks);
-		}
-	}
-	
-	public static void UpdateAllTrails()
-	{
-		for(int i = trails.size() - 1; i >= 0; i--)
-		{
-			if(trails.get(i).Update())
-			{
-				trails.remove(i);
-			}
-		}
-	}
-	
-	public static class InstantShotTrail
-	{
-		private Vector3f origin;
-		private Vector3f hitPos;
-		private float width;
-		private float length;
-		private float distanceToTarget;
-		private float bulletSpeed;
-		private int ticksExisted;
+		//Make sure we actually have the renderEngine
+		if(textureManager == null)
+			textureManager = Minecraft.getMinecraft().renderEngine;
+		
+		Entity camera = Minecraft.getMinecraft().getRenderViewEntity();
+		EntityPlayer player = Minecraft.getMinecraft().player;
+		if(camera == null || player == null)
+			return;
+		double x = camera.lastTickPosX + (camera.posX - camera.lastTickPosX) * partialTicks;
+		double y = camera.lastTickPosY + (camera.posY - camera.lastTickPosY) * partialTicks;
+		double z = camera.lastTickPosZ + (camera.posZ - camera.lastTickPosZ) * partialTicks;
 		
-		private ResourceLocation texture;
+		GlStateManager.color(1.0F, 1.0F, 1.0F, 1.0F);
+		GlStateManager.enableRescaleNormal();
 		
-		public InstantShotTrail(Vector3f origin, Vector3f hitPos, float width, float length, float bulletSpeed, String trailTexture)
+		Tessellator tessellator = Tessellator.getInstance();
+		BufferBuilder buffer = tessellator.getBuffer();
+		for(Map.Entry<ResourceLocation, TrailBatch> entry : batches.entrySet())
 		{
-			this.origin = origin;
-			this.hitPos = hitPos;
-			this.width = width;
-			this.length = length;
-			this.bulletSpeed = bulletSpeed;
+			TrailBatch batch = entry.getValue();
+			if(batch.size() == 0)
+				continue;
 			
-			this.ticksExisted = 0;
-			this.texture = FlansModResourceHandler.getTrailTexture(trailTexture);
+			vertexData = batch.buildQuads(partialTicks, x, y, z, player.posX, player.posY, player.posZ, vertexData);
 			
-			Vector3f dPos = Vector3f.sub(hitPos, origin, null);
-			this.distanceToTarget = dPos.length();
-			
-			if(Math.abs(distanceToTarget) > 300.0f)
+			textureManager.bindTexture(entry.getKey());
+			buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_TEX_NORMAL);
+			int end = batch.size() * TrailBatch.FLOATS_PER_TRAIL;
+			for(int i = 0; i < end; i += TrailBatch.FLOATS_PER_VERTEX)
 			{
-				distanceToTarget = 300.0f;
+				buffer.pos(vertexData[i], vertexData[i + 1], vertexData[i + 2])
+						.tex(vertexData[i + 3], vertexData[i + 4])
+						.normal(vertexData[i + 5], vertexData[i + 6], vertexData[i + 7])
+						.endVertex();
 			}
+			tessellator.draw();
 		}
 		
-		// Return true if this needs deleting
-		public boolean Update()
-		{
-			ticksExisted++;
-			return (ticksExisted) * bulletSpeed >= distanceToTarget - length;
-		}
-		
-		public void Render(float partialTicks)
+		GlStateManager.disableRescaleNormal();
+	}
+	
+	public static void UpdateAllTrails()
+	{
+		for(TrailBatch batch : batches.values())
 		{
-			//Make sure we actually have the renderEngine
-			if(textureManager == null)
-				textureManager = Minecraft.getMinecraft().renderEngine;
-			
-			textureManager.bindTexture(texture);
-			
-			GlStateManager.color(1.0F, 1.0F, 1.0F, 1.0F);
-			
-			GlStateManager.pushMatrix();
-			
-			//Get the camera frustrum for clipping
-			Entity camera = Minecraft.getMinecraft().getRenderViewEntity();
-			double x = camera.lastTickPosX + (camera.posX - camera.lastTickPosX) * partialTicks;
-			double y = camera.lastTickPosY + (camera.posY - camera.lastTickPosY) * partialTicks;
-			double z = camera.lastTickPosZ + (camera.posZ - camera.lastTickPosZ) * partialTicks;
-			
-			GlStateManager.translate(-(float)x, -(float)y, -(float)z);
-			
-			float parametric = ((float)(ticksExisted) + partialTicks) * bulletSpeed;
-			
-			Vector3f dPos = Vector3f.sub(hitPos, origin, null);
-			dPos.normalise();
-			
-			float startParametric = parametric - length * 0.5f;
-			Vector3f startPos = new Vector3f(origin.x + dPos.x * startParametric, origin.y + dPos.y * startParametric, origin.z + dPos.z * startParametric);
-			float endParametric = parametric + length * 0.5f;
-			Vector3f endPos = new Vector3f(origin.x + dPos.x * endParametric, origin.y + dPos.y * endParametric, origin.z + dPos.z * endParametric);
-			
-			WorldRenderer worldrenderer = FlansModClient.getWorldRenderer();
-			
-			dPos.normalise();
-			
-			EntityPlayer player = Minecraft.getMinecraft().player;
-			Vector3f vectorToPlayer = new Vector3f(player.posX - hitPos.x, player.posY - hitPos.y, player.posZ - hitPos.z);
-			
-			vectorToPlayer.normalise();
-			
-			Vector3f trailTangent = Vector3f.cross(dPos, vectorToPlayer, null);
-			trailTangent.normalise();
-			trailTangent.scale(-width * 0.5f);
-			
-			Vector3f normal = Vector3f.cross(trailTangent, dPos, null);
-			normal.normalise();
-			
-			GlStateManager.enableRescaleNormal();
-			GlStateManager.glNormal3f(normal.x, normal.y, normal.z);
-			
-			worldrenderer.startDrawingQuads();
-			worldrenderer.addVertexWithUV(startPos.x + trailTangent.x, startPos.y + trailTangent.y, startPos.z + trailTangent.z, 0.0f, 0.0f);
-			worldrenderer.addVertexWithUV(startPos.x - trailTangent.x, startPos.y - trailTangent.y, startPos.z - trailTangent.z, 0.0f, 1.0f);
-			worldrenderer.addVertexWithUV(endPos.x - trailTangent.x, endPos.y - trailTangent.y, endPos.z - trailTangent.z, 1.0f, 1.0f);
-			worldrenderer.addVertexWithUV(endPos.x + trailTangent.x, endPos.y + trailTangent.y, endPos.z + trailTangent.z, 1.0f, 0.0f);
-			
-//			worldrenderer.addVertexWithUV(endPos.x + trailTangent.x*10, endPos.y + trailTangent.y*10, endPos.z + trailTangent.z*10, 1.0f, 0.0f);
-			
-			worldrenderer.draw();
-			
-			GlStateManager.disableRescaleNormal();
-			
-			GlStateManager.popMatrix();
+			batch.update();
 		}
 	}
 }
@@ -1,6 +1,10 @@
 package com.flansmod.client.model;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import net.minecraft.client.model.ModelBase;
 import net.minecraft.client.renderer.BufferBuilder;
@@ -28,6 +32,12 @@ public class ModelDriveable extends ModelBase
 	 */
 	public boolean oldRotateOrder = false;
 	
+	/**
+	 * The baked meshes of static parts, by the array of pieces they were baked from. The scale and rotation order are
+	 * baked into the mesh, so a part drawn with more than one has a mesh for each
+	 */
+	private final Map<ModelRendererTurbo[], List<BakedModelGroup>> bakedParts = new IdentityHashMap<>();
+	
 	/**
 	 * For rendering a specific entity
 	 */
@@ -58,6 +68,39 @@ public class ModelDriveable extends ModelBase
 		}
 	}
 	
+	/**
+	 * Renders parts that do not move relative to the model, such as the body, as one baked mesh. Parts that are animated
+	 * by setting the angles of their pieces should use {@link #renderPart} instead
+	 */
+	public void renderBakedPart(ModelRendererTurbo[] part, float scale, boolean oldRotateOrder)
+	{
+		if(part.length == 0)
+			return;
+		List<BakedModelGroup> bakes = bakedParts.computeIfAbsent(part, k -> new ArrayList<>(1));
+		for(BakedModelGroup baked : bakes)
+		{
+			if(baked.isBakedFor(scale, oldRotateOrder))
+			{
+				baked.render();
+				return;
+			}
+		}
+		BakedModelGroup baked = new BakedModelGroup(part, scale, oldRotateOrder);
+		bakes.add(baked);
+		baked.render();
+	}
+	
+	/**
+	 * Throws away the baked meshes, so that they are baked again from the pieces as they are now
+	 */
+	public void clearBakedParts()
+	{
+		for(List<BakedModelGroup> bakes : bakedParts.values())
+			for(BakedModelGroup baked : bakes)
+				baked.deleteDisplayList();
+		bakedParts.clear();
+	}
+	
 	public void registerGunModel(String name, ModelRendererTurbo[][] gunModel)
 	{
 		gunModels.put(name, gunModel);
@@ -74,6 +117,7 @@ public class ModelDriveable extends ModelBase
 
 	public void flipAll()
 	{
+		clearBakedParts();
 		flip(bodyModel);
 		flip(bodyDoorOpenModel);
 		flip(bodyDoorCloseModel);
@@ -98,6 +142,7 @@ public class ModelDriveable extends ModelBase
 	
 	public void translateAll(float x, float y, float z)
 	{
+		clearBakedParts();
 		translate(bodyModel, x, y, z);
 		translate(bodyDoorOpenModel, x, y, z);
 		translate(bodyDoorCloseModel, x, y, z);
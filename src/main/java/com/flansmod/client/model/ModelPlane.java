@@ -123,37 +123,21 @@ public class ModelPlane extends ModelDriveable
 		if(plane.isPartIntact(EnumDriveablePart.nose))
 		{
 			//Nose
-			for(ModelRendererTurbo aNoseModel : noseModel)
-			{
-				aNoseModel.render(f5);
-			}
+			renderBakedPart(noseModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.bay))
 		{
 			//Bay
-			for(ModelRendererTurbo aBayModel : bayModel)
-			{
-				aBayModel.render(f5);
-			}
+			renderBakedPart(bayModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.tail))
 		{
 			//Rendering the tail
-			for(ModelRendererTurbo aTailModel : tailModel)
-			{
-				aTailModel.render(f5);
-			}
+			renderBakedPart(tailModel, f5, false);
 			//Doors
-			for(ModelRendererTurbo aTailDoorOpenModel : tailDoorOpenModel)
-			{
-				if(plane.varDoor)
-					aTailDoorOpenModel.render(f5);
-			}
-			for(ModelRendererTurbo aTailDoorCloseModel : tailDoorCloseModel)
-			{
-				if(!plane.varDoor)
-					aTailDoorCloseModel.render(f5);
-			}
+			if(plane.varDoor)
+				renderBakedPart(tailDoorOpenModel, f5, false);
+			else renderBakedPart(tailDoorCloseModel, f5, false);
 			//Rotating the yaw flap
 			for(ModelRendererTurbo aYawFlapModel : yawFlapModel)
 			{
@@ -176,39 +160,23 @@ public class ModelPlane extends ModelDriveable
 		if(plane.isPartIntact(EnumDriveablePart.skids))
 		{
 			//Skids
-			for(ModelRendererTurbo aSkidsModel : skidsModel)
-			{
-				if(plane.varGear)
-					aSkidsModel.render(f5);
-			}
+			if(plane.varGear)
+				renderBakedPart(skidsModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.tailWheel))
 		{
 			//Gear
-			for(ModelRendererTurbo aTailWheelModel : tailWheelModel)
-			{
-				if(plane.varGear)
-					aTailWheelModel.render(f5);
-			}
+			if(plane.varGear)
+				renderBakedPart(tailWheelModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.leftWing))
 		{
 			//Rendering the left wing
-			for(ModelRendererTurbo aLeftWingModel : leftWingModel)
-			{
-				aLeftWingModel.render(f5);
-			}
+			renderBakedPart(leftWingModel, f5, false);
 			//Changeable Wings
-			for(ModelRendererTurbo aLeftWingPos1Model : leftWingPos1Model)
-			{
-				if(plane.varWing)
-					aLeftWingPos1Model.render(f5);
-			}
-			for(ModelRendererTurbo aLeftWingPos2Model : leftWingPos2Model)
-			{
-				if(!plane.varWing)
-					aLeftWingPos2Model.render(f5);
-			}
+			if(plane.varWing)
+				renderBakedPart(leftWingPos1Model, f5, false);
+			else renderBakedPart(leftWingPos2Model, f5, false);
 			//Rotating the left wing pitch flap
 			for(ModelRendererTurbo aPitchFlapLeftWingModel : pitchFlapLeftWingModel)
 			{
@@ -219,21 +187,11 @@ public class ModelPlane extends ModelDriveable
 		if(plane.isPartIntact(EnumDriveablePart.rightWing))
 		{
 			//Rendering the right wing
-			for(ModelRendererTurbo aRightWingModel : rightWingModel)
-			{
-				aRightWingModel.render(f5);
-			}
+			renderBakedPart(rightWingModel, f5, false);
 			//Changeable Wings
-			for(ModelRendererTurbo aRightWingPos1Model : rightWingPos1Model)
-			{
-				if(plane.varWing)
-					aRightWingPos1Model.render(f5);
-			}
-			for(ModelRendererTurbo aRightWingPos2Model : rightWingPos2Model)
-			{
-				if(!plane.varWing)
-					aRightWingPos2Model.render(f5);
-			}
+			if(plane.varWing)
+				renderBakedPart(rightWingPos1Model, f5, false);
+			else renderBakedPart(rightWingPos2Model, f5, false);
 			//Rotating the right wing pitch flap
 			for(ModelRendererTurbo aPitchFlapRightWingModel : pitchFlapRightWingModel)
 			{
@@ -244,39 +202,23 @@ public class ModelPlane extends ModelDriveable
 		if(plane.isPartIntact(EnumDriveablePart.leftWingWheel))
 		{
 			//Gear
-			for(ModelRendererTurbo aLeftWingWheelModel : leftWingWheelModel)
-			{
-				if(plane.varGear)
-					aLeftWingWheelModel.render(f5);
-			}
+			if(plane.varGear)
+				renderBakedPart(leftWingWheelModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.rightWingWheel))
 		{
 			//Gear
-			for(ModelRendererTurbo aRightWingWheelModel : rightWingWheelModel)
-			{
-				if(plane.varGear)
-					aRightWingWheelModel.render(f5);
-			}
+			if(plane.varGear)
+				renderBakedPart(rightWingWheelModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.core))
 		{
 			//Rendering the body
-			for(ModelRendererTurbo aBodyModel : bodyModel)
-			{
-				aBodyModel.render(f5);
-			}
+			renderBakedPart(bodyModel, f5, false);
 			//Doors
-			for(ModelRendererTurbo aBodyDoorOpenModel : bodyDoorOpenModel)
-			{
-				if(plane.varDoor)
-					aBodyDoorOpenModel.render(f5);
-			}
-			for(ModelRendererTurbo aBodyDoorCloseModel : bodyDoorCloseModel)
-			{
-				if(!plane.varDoor)
-					aBodyDoorCloseModel.render(f5);
-			}
+			if(plane.varDoor)
+				renderBakedPart(bodyDoorOpenModel, f5, false);
+			else renderBakedPart(bodyDoorCloseModel, f5, false);
 			for(ModelRendererTurbo aHudModel : hudModel)
 			{
 				aHudModel.rotateAngleX = -(plane.axes.getRoll() * 3.14159265F / 180F);
@@ -292,19 +234,13 @@ public class ModelPlane extends ModelDriveable
 		if(plane.isPartIntact(EnumDriveablePart.coreWheel))
 		{
 			//Gear
-			for(ModelRendererTurbo aBodyWheelModel : bodyWheelModel)
-			{
-				if(plane.varGear)
-					aBodyWheelModel.render(f5);
-			}
+			if(plane.varGear)
+				renderBakedPart(bodyWheelModel, f5, false);
 		}
 		if(plane.isPartIntact(EnumDriveablePart.topWing))
 		{
 			//Rendering the top wing
-			for(ModelRendererTurbo aTopWingModel : topWingModel)
-			{
-				aTopWingModel.render(f5);
-			}
+			renderBakedPart(topWingModel, f5, false);
 		}
 		//Render guns
 		for(EntitySeat seat : plane.getSeats())
@@ -90,20 +90,10 @@ public class ModelVehicle extends ModelDriveable
 		//Rendering the body
 		if(vehicle.isPartIntact(EnumDriveablePart.core))
 		{
-			for(ModelRendererTurbo aBodyModel : bodyModel)
-			{
-				aBodyModel.render(f5, oldRotateOrder);
-			}
-			for(ModelRendererTurbo aBodyDoorOpenModel : bodyDoorOpenModel)
-			{
-				if(vehicle.varDoor)
-					aBodyDoorOpenModel.render(f5, oldRotateOrder);
-			}
-			for(ModelRendererTurbo aBodyDoorCloseModel : bodyDoorCloseModel)
-			{
-				if(!vehicle.varDoor)
-					aBodyDoorCloseModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(bodyModel, f5, oldRotateOrder);
+			if(vehicle.varDoor)
+				renderBakedPart(bodyDoorOpenModel, f5, oldRotateOrder);
+			else renderBakedPart(bodyDoorCloseModel, f5, oldRotateOrder);
 			for(ModelRendererTurbo aSteeringWheelModel : steeringWheelModel)
 			{
 				aSteeringWheelModel.rotateAngleX = vehicle.wheelsYaw * 3.14159265F / 180F * 3F;
@@ -166,10 +156,7 @@ public class ModelVehicle extends ModelDriveable
 		
 		if(vehicle.isPartIntact(EnumDriveablePart.leftTrack))
 		{
-			for(ModelRendererTurbo aLeftTrackModel : leftTrackModel)
-			{
-				aLeftTrackModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(leftTrackModel, f5, oldRotateOrder);
 			for(ModelRendererTurbo leftTrackWheelModel : leftTrackWheelModels)
 			{
 				leftTrackWheelModel.rotateAngleZ = rotateWheels ? -vehicle.wheelsAngle : 0;
@@ -179,22 +166,14 @@ public class ModelVehicle extends ModelDriveable
 			for(int i = 0; i < leftAnimTrackModel.length; i++)
 			{
 				if(i == animFrame)
-				{
-					for(ModelRendererTurbo aLeftAnimTrackModel : leftAnimTrackModel[i])
-					{
-						aLeftAnimTrackModel.render(f5, oldRotateOrder);
-					}
-				}
+					renderBakedPart(leftAnimTrackModel[i], f5, oldRotateOrder);
 			}
 			
 		}
 		
 		if(vehicle.isPartIntact(EnumDriveablePart.rightTrack))
 		{
-			for(ModelRendererTurbo aRightTrackModel : rightTrackModel)
-			{
-				aRightTrackModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(rightTrackModel, f5, oldRotateOrder);
 			for(ModelRendererTurbo rightTrackWheelModel : rightTrackWheelModels)
 			{
 				rightTrackWheelModel.rotateAngleZ = rotateWheels ? -vehicle.wheelsAngle : 0;
@@ -204,21 +183,13 @@ public class ModelVehicle extends ModelDriveable
 			for(int i = 0; i < rightAnimTrackModel.length; i++)
 			{
 				if(i == animFrame)
-				{
-					for(ModelRendererTurbo aRightAnimTrackModel : rightAnimTrackModel[i])
-					{
-						aRightAnimTrackModel.render(f5, oldRotateOrder);
-					}
-				}
+					renderBakedPart(rightAnimTrackModel[i], f5, oldRotateOrder);
 			}
 		}
 		
 		if(vehicle.isPartIntact(EnumDriveablePart.trailer))
 		{
-			for(ModelRendererTurbo aTrailerModel : trailerModel)
-			{
-				aTrailerModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(trailerModel, f5, oldRotateOrder);
 		}
 		
 		//Render guns
@@ -275,10 +246,7 @@ public class ModelVehicle extends ModelDriveable
 			float yaw = vehicle.getSeat(0).looking.getYaw();
 			float pitch = vehicle.getSeat(0).looking.getPitch();
 			
-			for(ModelRendererTurbo aTurretModel : turretModel)
-			{
-				aTurretModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(turretModel, f5, oldRotateOrder);
 			for(ModelRendererTurbo aBarrelModel : barrelModel)
 			{
 				aBarrelModel.rotateAngleZ = -pitch * 3.14159265F / 180F;
@@ -349,10 +317,7 @@ public class ModelVehicle extends ModelDriveable
 	{
 		if(vehicle.isPartIntact(EnumDriveablePart.turret))
 		{
-			for(ModelRendererTurbo aAnimBarrelModel : animBarrelModel)
-			{
-				aAnimBarrelModel.render(f5, oldRotateOrder);
-			}
+			renderBakedPart(animBarrelModel, f5, oldRotateOrder);
 		}
 	}
 	
@@ -360,19 +325,13 @@ public class ModelVehicle extends ModelDriveable
 	{
 		if(vehicle.isPartIntact(EnumDriveablePart.harvester))
 		{
-			for(ModelRendererTurbo adrillHeadModel : drillHeadModel)
-			{
-				adrillHeadModel.render(0.0625F, oldRotateOrder);
-			}
+			renderBakedPart(drillHeadModel, 0.0625F, oldRotateOrder);
 		}
 	}
 	
 	public void renderFancyTracks(EntityVehicle vehicle, float f)
 	{
-		for(ModelRendererTurbo adrillHeadModel : fancyTrackModel)
-		{
-			adrillHeadModel.render(0.0625F, oldRotateOrder);
-		}
+		renderBakedPart(fancyTrackModel, 0.0625F, oldRotateOrder);
 	}
 	
 	@Override
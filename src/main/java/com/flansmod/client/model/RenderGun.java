@@ -15,6 +15,7 @@ import com.flansmod.client.FlansModClient;
 import com.flansmod.client.handlers.FlansModResourceHandler;
 import com.flansmod.common.guns.AttachmentType;
 import com.flansmod.common.guns.EnumFireMode;
+import com.flansmod.common.guns.GunStats;
 import com.flansmod.common.guns.GunType;
 import com.flansmod.common.guns.IScope;
 import com.flansmod.common.guns.ItemBullet;
@@ -339,10 +340,11 @@ public class RenderGun implements CustomItemRenderer
 		boolean renderMuzzleFlash = mfModel != null && animations.muzzleFlash > 0;
 		
 		//Get all the attachments that we may need to render
-		AttachmentType scopeAttachment = type.getScope(item);
-		AttachmentType barrelAttachment = type.getBarrel(item);
-		AttachmentType stockAttachment = type.getStock(item);
-		AttachmentType gripAttachment = type.getGrip(item);
+		GunStats stats = type.getStats(item);
+		AttachmentType scopeAttachment = stats.scope;
+		AttachmentType barrelAttachment = stats.barrel;
+		AttachmentType stockAttachment = stats.stock;
+		AttachmentType gripAttachment = stats.grip;
 		
 		ItemStack scopeItemStack = type.getScopeItemStack(item);
 		ItemStack barrelItemStack = type.getBarrelItemStack(item);
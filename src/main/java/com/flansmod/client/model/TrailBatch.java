@@ -0,0 +1,190 @@
+package com.flansmod.client.model;
+
+import java.util.Arrays;
+
+import com.flansmod.common.vector.Vector3f;
+
+/**
+ * The instant bullet trails that share one texture, stored as one array per field rather than one object per trail.
+ * <p>
+ * Builds the camera facing quads of every trail into a single float array, so that they can all be drawn at once. This
+ * does not touch GL or Minecraft, so it can be run without a game.
+ */
+public class TrailBatch
+{
+	/**
+	 * Position, texture coordinates and normal
+	 */
+	public static final int FLOATS_PER_VERTEX = 8;
+	public static final int FLOATS_PER_TRAIL = 4 * FLOATS_PER_VERTEX;
+	/**
+	 * Trails that would travel further than this are cut short
+	 */
+	private static final float MAX_DISTANCE = 300F;
+	
+	private int size = 0;
+	private float[] originX = new float[16], originY = new float[16], originZ = new float[16];
+	private float[] hitX = new float[16], hitY = new float[16], hitZ = new float[16];
+	private float[] directionX = new float[16], directionY = new float[16], directionZ = new float[16];
+	private float[] width = new float[16], length = new float[16], speed = new float[16], distance = new float[16];
+	private int[] ticksExisted = new int[16];
+	
+	public void add(Vector3f origin, Vector3f hitPos, float trailWidth, float trailLength, float bulletSpeed)
+	{
+		if(size == ticksExisted.length)
+			grow();
+		
+		int i = size++;
+		originX[i] = origin.x;
+		originY[i] = origin.y;
+		originZ[i] = origin.z;
+		hitX[i] = hitPos.x;
+		hitY[i] = hitPos.y;
+		hitZ[i] = hitPos.z;
+		float dX = hitPos.x - origin.x, dY = hitPos.y - origin.y, dZ = hitPos.z - origin.z;
+		float dist = (float)Math.sqrt(dX * dX + dY * dY + dZ * dZ);
+		float scale = dist == 0F ? 0F : 1F / dist;
+		directionX[i] = dX * scale;
+		directionY[i] = dY * scale;
+		directionZ[i] = dZ * scale;
+		width[i] = trailWidth;
+		length[i] = trailLength;
+		speed[i] = bulletSpeed;
+		distance[i] = Math.min(dist, MAX_DISTANCE);
+		ticksExisted[i] = 0;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Moves every trail on by a tick and removes those that have reached their target, by moving the last trail into
+	 * their place
+	 */
+	public void update()
+	{
+		for(int i = size - 1; i >= 0; i--)
+		{
+			ticksExisted[i]++;
+			if(ticksExisted[i] * speed[i] >= distance[i] - length[i])
+				moveLastTo(i);
+		}
+	}
+	
+	/**
+	 * Writes four vertices per trail into the buffer, growing it if it is too small. Positions are relative to the camera,
+	 * and each quad is turned to face the viewer as well as it can while staying along its trail.
+	 *
+	 * @param buffer The array to write into, which may be reused between calls
+	 * @return The array written into, which is a new one if the old one was too small
+	 */
+	public float[] buildQuads(float partialTicks, double cameraX, double cameraY, double cameraZ, double viewerX, double viewerY, double viewerZ, float[] buffer)
+	{
+		if(buffer == null || buffer.length < size * FLOATS_PER_TRAIL)
+			buffer = new float[size * FLOATS_PER_TRAIL];
+		
+		int n = 0;
+		for(int i = 0; i < size; i++)
+		{
+			float dX = directionX[i], dY = directionY[i], dZ = directionZ[i];
+			
+			float parametric = (ticksExisted[i] + partialTicks) * speed[i];
+			float start = parametric - length[i] * 0.5F;
+			float end = parametric + length[i] * 0.5F;
+			//Relative to the camera in double precision, so trails far from the origin do not jitter
+			float startX = (float)(originX[i] + (double)dX * start - cameraX);
+			float startY = (float)(originY[i] + (double)dY * start - cameraY);
+			float startZ = (float)(originZ[i] + (double)dZ * start - cameraZ);
+			float endX = (float)(originX[i] + (double)dX * end - cameraX);
+			float endY = (float)(originY[i] + (double)dY * end - cameraY);
+			float endZ = (float)(originZ[i] + (double)dZ * end - cameraZ);
+			
+			float vX = (float)(viewerX - hitX[i]), vY = (float)(viewerY - hitY[i]), vZ = (float)(viewerZ - hitZ[i]);
+			
+			//Across the trail, facing the viewer
+			float tX = dY * vZ - dZ * vY;
+			float tY = dZ * vX - dX * vZ;
+			float tZ = dX * vY - dY * vX;
+			float tScale = -width[i] * 0.5F * inverseLength(tX, tY, tZ);
+			tX *= tScale;
+			tY *= tScale;
+			tZ *= tScale;
+			
+			float nX = tY * dZ - tZ * dY;
+			float nY = tZ * dX - tX * dZ;
+			float nZ = tX * dY - tY * dX;
+			float nScale = inverseLength(nX, nY, nZ);
+			nX *= nScale;
+			nY *= nScale;
+			nZ *= nScale;
+			
+			n = putVertex(buffer, n, startX + tX, startY + tY, startZ + tZ, 0F, 0F, nX, nY, nZ);
+			n = putVertex(buffer, n, startX - tX, startY - tY, startZ - tZ, 0F, 1F, nX, nY, nZ);
+			n = putVertex(buffer, n, endX - tX, endY - tY, endZ - tZ, 1F, 1F, nX, nY, nZ);
+			n = putVertex(buffer, n, endX + tX, endY + tY, endZ + tZ, 1F, 0F, nX, nY, nZ);
+		}
+		return buffer;
+	}
+	
+	private static int putVertex(float[] buffer, int n, float x, float y, float z, float u, float v, float nX, float nY, float nZ)
+	{
+		buffer[n++] = x;
+		buffer[n++] = y;
+		buffer[n++] = z;
+		buffer[n++] = u;
+		buffer[n++] = v;
+		buffer[n++] = nX;
+		buffer[n++] = nY;
+		buffer[n++] = nZ;
+		return n;
+	}
+	
+	/**
+	 * @return One over the length of the vector, or 0 for a zero vector so that it stays zero rather than becoming NaN
+	 */
+	private static float inverseLength(float x, float y, float z)
+	{
+		float lengthSq = x * x + y * y + z * z;
+		return lengthSq == 0F ? 0F : 1F / (float)Math.sqrt(lengthSq);
+	}
+	
+	private void moveLastTo(int i)
+	{
+		int last = --size;
+		originX[i] = originX[last];
+		originY[i] = originY[last];
+		originZ[i] = originZ[last];
+		hitX[i] = hitX[last];
+		hitY[i] = hitY[last];
+		hitZ[i] = hitZ[last];
+		directionX[i] = directionX[last];
+		directionY[i] = directionY[last];
+		directionZ[i] = directionZ[last];
+		width[i] = width[last];
+		length[i] = length[last];
+		speed[i] = speed[last];
+		distance[i] = distance[last];
+		ticksExisted[i] = ticksExisted[last];
+	}
+	
+	private void grow()
+	{
+		int capacity = ticksExisted.length * 2;
+		originX = Arrays.copyOf(originX, capacity);
+		originY = Arrays.copyOf(originY, capacity);
+		originZ = Arrays.copyOf(originZ, capacity);
+		hitX = Arrays.copyOf(hitX, capacity);
+		hitY = Arrays.copyOf(hitY, capacity);
+		hitZ = Arrays.copyOf(hitZ, capacity);
+		directionX = Arrays.copyOf(directionX, capacity);
+		directionY = Arrays.copyOf(directionY, capacity);
+		directionZ = Arrays.copyOf(directionZ, capacity);
+		width = Arrays.copyOf(width, capacity);
+		length = Arrays.copyOf(length, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		distance = Arrays.copyOf(distance, capacity);
+		ticksExisted = Arrays.copyOf(ticksExisted, capacity);
+	}
+}
@@ -2077,6 +2077,26 @@ public class ModelRendererTurbo extends ModelRenderer
 		return textureGroup.get(groupName);
 	}
 	
+	/**
+	 * Gets all the texture groups, in the order they are rendered.
+	 *
+	 * @return the texture groups of this model.
+	 */
+	public Collection<TextureGroup> getTextureGroups()
+	{
+		return textureGroup.values();
+	}
+	
+	/**
+	 * Gets the default texture.
+	 *
+	 * @return the filename, or an empty string if there is none.
+	 */
+	public String getDefaultTexture()
+	{
+		return defaultTexture;
+	}
+	
 	/**
 	 * Sets the texture of the current texture group.
 	 *
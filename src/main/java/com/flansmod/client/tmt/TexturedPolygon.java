@@ -120,6 +120,31 @@ public class TexturedPolygon
 		tessellator.draw();
 	}
 	
+	/**
+	 * Gets the normal a vertex is drawn with, as {@link #draw} would set it
+	 *
+	 * @return The normal, or null if the polygon has too few vertices to be drawn
+	 */
+	public Vec3d getNormal(int vertex)
+	{
+		Vec3d normal;
+		if(iNormals.isEmpty())
+		{
+			if(normals.length == 3)
+				normal = new Vec3d(normals[0], normals[1], normals[2]);
+			else if(vertexPositions.length >= 3)
+			{
+				Vec3d Vec3d = vertexPositions[1].vector3D.subtract(vertexPositions[0].vector3D);
+				Vec3d Vec31 = vertexPositions[1].vector3D.subtract(vertexPositions[2].vector3D);
+				normal = Vec31.crossProduct(Vec3d).normalize();
+			}
+			else return null;
+		}
+		//Vertices past the end of the list keep the last normal that was set
+		else normal = iNormals.get(Math.min(vertex, iNormals.size() - 1));
+		return invertNormal ? new Vec3d(-normal.x, -normal.y, -normal.z) : normal;
+	}
+	
 	public PositionTextureVertex[] vertexPositions;
 	public int nVertices;
 	private boolean invertNormal;
@@ -28,12 +28,10 @@ import com.flansmod.common.guns.boxes.GunBoxType;
 import com.flansmod.common.network.PacketBreakSound;
 import com.flansmod.common.paintjob.ContainerPaintjobTable;
 import com.flansmod.common.paintjob.TileEntityPaintjobTable;
-import com.flansmod.common.parts.EnumPartCategory;
-import com.flansmod.common.parts.ItemPart;
 import com.flansmod.common.parts.PartType;
 import com.flansmod.common.teams.ArmourBoxType;
-import com.flansmod.common.types.EnumType;
 import com.flansmod.common.types.InfoType;
+import com.flansmod.common.util.InventoryHistogram;
 
 public class CommonProxy
 {
@@ -147,138 +145,52 @@ public class CommonProxy
 	
 	public void craftDriveable(EntityPlayer player, DriveableType type)
 	{
-		//Create a temporary copy of the player inventory for backup purposes
-		InventoryPlayer temporaryInventory = new InventoryPlayer(null);
-		temporaryInventory.copyInventory(player.inventory);
+		//Making sure the crafting recipe is not disabled
+		if(FlansMod.disabledVehicles.contains(type.shortName))
+			return;
 		
-		//This becomes false if some recipe element is not found on the player
-		boolean canCraft = true;
+		//Count up the player's items once, then check the whole recipe and the engines against that
+		InventoryHistogram inventory = new InventoryHistogram(player.inventory);
+		//For some reason, the player sent a craft packet, despite being unable to
+		if(!inventory.containsAll(type.driveableRecipe))
+			return;
 		
-		//Making sure the crafting recipe is not disabled
-		canCraft = !FlansMod.disabledVehicles.contains(type.shortName);
+		//Find the fastest engine that the player has enough of. If the player doesn't have any suitable engines, return
+		PartType bestEngine = type.getBestEngine(inventory);
+		if(bestEngine == null)
+			return;
 		
-		//Iterate over rows then columns
+		//Take the recipe items
 		for(ItemStack recipeStack : type.driveableRecipe)
 		{
-			//The total amount of items found that match this recipe stack
+			//The total amount of items taken for this recipe stack
 			int totalAmountFound = 0;
 			//Iterate over the player's inventory
-			for(int n = 0; n < player.inventory.getSizeInventory(); n++)
+			for(int n = 0; n < player.inventory.getSizeInventory() && totalAmountFound < recipeStack.getCount(); n++)
 			{
 				//Get the stack in each slot
-				ItemStack stackInSlot = player.inventory.getStackInSlot(n).copy();
+				ItemStack stackInSlot = player.inventory.getStackInSlot(n);
 				//If the stack is what we want
-				if(stackInSlot != null && stackInSlot.getItem() == recipeStack.getItem() && stackInSlot.getItemDamage() == recipeStack.getItemDamage())
-				{
-					//Work out the amount to take from the stack
-					int amountFound = Math.min(stackInSlot.getCount(), recipeStack.getCount() - totalAmountFound);
-					//Take it
-					stackInSlot.setCount(stackInSlot.getCount() - amountFound);
-					//Check for empty stacks
-					if(stackInSlot.getCount() <= 0)
-						stackInSlot = ItemStack.EMPTY.copy();
-					//Put the modified stack back in the inventory
-					player.inventory.setInventorySlotContents(n, stackInSlot);
-					//Increase the amount found counter
-					totalAmountFound += amountFound;
-					//If we have enough, stop looking
-					if(totalAmountFound == recipeStack.getCount())
-						break;
-				}
-			}
-			//If we didn't find enough, give the stack a red outline
-			if(totalAmountFound < recipeStack.getCount())
-			{
-				//For some reason, the player sent a craft packet, despite being unable to
-				canCraft = false;
-				break;
+				if(!stackInSlot.isEmpty() && stackInSlot.getItem() == recipeStack.getItem() && stackInSlot.getItemDamage() == recipeStack.getItemDamage())
+					totalAmountFound += player.inventory.decrStackSize(n, recipeStack.getCount() - totalAmountFound).getCount();
 			}
 		}
 		
-		//Some item was missing. Restore inventory and return
-		if(!canCraft)
-		{
-			player.inventory.copyInventory(temporaryInventory);
-			return;
-		}
-		
-		//Now we no longer need the temporary inventory backup, so we will use it to find the best stack of engines		
-		//Collect up all the engines into neat and tidy stacks so we can find if any of them are big enough and which of those stacks are best
-		HashMap<PartType, ItemStack> engines = new HashMap<>();
-		
-		//Find some suitable engines
-		for(int n = 0; n < temporaryInventory.getSizeInventory(); n++)
-		{
-			//Get the stack in each slot
-			ItemStack stackInSlot = temporaryInventory.getStackInSlot(n);
-			//Check to see if its a part
-			if(stackInSlot != null && stackInSlot.getItem() instanceof ItemPart)
-			{
-				PartType partType = ((ItemPart)stackInSlot.getItem()).type;
-				//Check its an engine
-				if(partType.category == EnumPartCategory.ENGINE && partType.worksWith.contains(EnumType.getFromObject(type)))
-				{
-					//If we already have engines of this type, add these ones to the stack
-					if(engines.containsKey(partType))
-					{
-						engines.get(partType).setCount(engines.get(partType).getCount() + stackInSlot.getCount());
-					}
-					//Else, make this the first stack
-					else engines.put(partType, stackInSlot);
-				}
-			}
-		}
-		
-		//Find the stack of engines that is fastest but which also has enough for this driveable
-		float bestEngineSpeed = -1F;
-		ItemStack bestEngineStack = ItemStack.EMPTY.copy();
-		for(PartType part : engines.keySet())
-		{
-			//If this engine outperforms the currently selected best one and there are enough of them, swap
-			if(part.engineSpeed > bestEngineSpeed && engines.get(part).getCount() >= type.numEngines())
-			{
-				bestEngineSpeed = part.engineSpeed;
-				bestEngineStack = engines.get(part).copy();
-			}
-		}
-		
-		//If the player doesn't have any suitable engines, return
-		if(bestEngineStack == null || bestEngineStack.isEmpty())
-		{
-			player.inventory.copyInventory(temporaryInventory);
-			return;
-		}
-		
 		//Remove the engines from the inventory
 		int numEnginesAcquired = 0;
-		for(int n = 0; n < player.inventory.getSizeInventory(); n++)
+		for(int n = 0; n < player.inventory.getSizeInventory() && numEnginesAcquired < type.numEngines(); n++)
 		{
 			//Get the stack in each slot
 			ItemStack stackInSlot = player.inventory.getStackInSlot(n);
 			//Check to see if its the engine we want
-			if(stackInSlot != null && !stackInSlot.isEmpty() && stackInSlot.getItem() == bestEngineStack.getItem())
-			{
-				//Work out the amount to take from the stack
-				int amountFound = Math.min(stackInSlot.getCount(), type.numEngines() - numEnginesAcquired);
-				//Take it
-				stackInSlot.setCount(stackInSlot.getCount() - amountFound);
-				//Check for empty stacks
-				if(stackInSlot.getCount() <= 0)
-					stackInSlot = ItemStack.EMPTY.copy();
-				//Put the modified stack back in the inventory
-				player.inventory.setInventorySlotContents(n, stackInSlot);
-				//Increase the amount found counter
-				numEnginesAcquired += amountFound;
-				//If we have enough, stop looking
-				if(numEnginesAcquired == type.numEngines())
-					break;
-			}
+			if(!stackInSlot.isEmpty() && stackInSlot.getItem() == bestEngine.item)
+				numEnginesAcquired += player.inventory.decrStackSize(n, type.numEngines() - numEnginesAcquired).getCount();
 		}
 		
 		//Give them their brand new shiny driveable item :D
 		ItemStack driveableStack = new ItemStack(type.item);
 		NBTTagCompound tags = new NBTTagCompound();
-		tags.setString("Engine", ((ItemPart)bestEngineStack.getItem()).type.shortName);
+		tags.setString("Engine", bestEngine.shortName);
 		tags.setString("Type", type.shortName);
 		for(EnumDriveablePart part : EnumDriveablePart.values())
 		{
@@ -4,6 +4,8 @@ import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent;
 
+import com.flansmod.common.driveables.EntityDriveable;
+import com.flansmod.common.network.EffectBatcher;
 import com.flansmod.common.teams.TeamsManager;
 
 public class CommonTickHandler
@@ -48,6 +50,10 @@ public class CommonTickHandler
 					TeamsManager.getInstance().tick();
 				}
 				FlansMod.playerHandler.serverTick();
+				//Send all the driveable damage from this tick at once
+				EntityDriveable.sendDamageUpdates();
+				//And all the bullet trails, hit effects and hit sounds
+				EffectBatcher.sendEffects();
 				FlansMod.ticker++;
 				break;
 			}
@@ -2,17 +2,22 @@ package com.flansmod.common;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import com.flansmod.common.driveables.ItemPlane;
@@ -225,61 +230,64 @@ public class ContentManager
 		}
 	}
 	
-	private void LoadTypesFromDirectory(String contentPackName, File contentPack)
+	/**
+	 * Reads every type file in a directory content pack. The files themselves are read and tokenised in parallel
+	 */
+	private List<TypeFile> LoadTypesFromDirectory(String contentPackName, File contentPack)
 	{
+		List<File> typeFiles = new ArrayList<>();
+		List<EnumType> typeOfFile = new ArrayList<>();
 		for(EnumType typeToCheckFor : EnumType.values())
 		{
 			File typesDir = new File(contentPack, "/" + typeToCheckFor.folderName + "/");
 			if(!typesDir.exists())
 				continue;
-			for(File file : FileUtils.listFiles(typesDir, new String[] {"txt" }, true))
+			List<File> filesOfType = new ArrayList<>(FileUtils.listFiles(typesDir, new String[] {"txt" }, true));
+			//Directory listing order is up to the file system, so sort to keep loading deterministic
+			filesOfType.sort(Comparator.comparing(File::getPath));
+			for(File file : filesOfType)
 			{
 				if(!file.isDirectory())
 				{
-					try
-					{
-						BufferedReader reader = new BufferedReader(new FileReader(file));
-						String[] splitName = file.getName().split("/");
-						TypeFile typeFile = new TypeFile(contentPackName, typeToCheckFor, splitName[splitName.length - 1].split("\\.")[0]);
-						for(; ; )
-						{
-							String line = null;
-							try
-							{
-								line = reader.readLine();
-							}
-							catch(Exception e)
-							{
-								break;
-							}
-							if(line == null)
-								break;
-							typeFile.parseLine(line);
-						}
-						reader.close();
-					}
-					catch(IOException e)
-					{
-						FlansMod.log.throwing(e);
-					}
+					typeFiles.add(file);
+					typeOfFile.add(typeToCheckFor);
 				}
 			}
 		}
+		
+		return IntStream.range(0, typeFiles.size()).parallel().mapToObj(i ->
+		{
+			File file = typeFiles.get(i);
+			String[] splitName = file.getName().split("/");
+			TypeFile typeFile = new TypeFile(contentPackName, typeOfFile.get(i), splitName[splitName.length - 1].split("\\.")[0], false);
+			try
+			{
+				BufferedReader reader = new BufferedReader(new FileReader(file));
+				readLines(reader, typeFile);
+				reader.close();
+			}
+			catch(IOException e)
+			{
+				FlansMod.log.throwing(e);
+			}
+			typeFile.tokenise();
+			return typeFile;
+		}).collect(Collectors.toList());
 	}
 	
-	private void LoadTypesFromArchive(String contentPackName, File contentPack)
+	/**
+	 * Reads every type file in a zip or jar content pack. The archive is read in one go, then the files are tokenised in parallel
+	 */
+	private List<TypeFile> LoadTypesFromArchive(String contentPackName, File contentPack)
 	{
+		List<TypeFile> typeFiles = new ArrayList<>();
 		try
 		{
 			ZipFile zip = new ZipFile(contentPack);
-			ZipInputStream zipStream = new ZipInputStream(new FileInputStream(contentPack));
-			BufferedReader reader = new BufferedReader(new InputStreamReader(zipStream));
-			ZipEntry zipEntry = zipStream.getNextEntry();
-			do
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while(entries.hasMoreElements())
 			{
-				zipEntry = zipStream.getNextEntry();
-				if(zipEntry == null)
-					continue;
+				ZipEntry zipEntry = entries.nextElement();
 				if(zipEntry.isDirectory())
 					continue;
 				TypeFile typeFile = null;
@@ -288,81 +296,132 @@ public class ContentManager
 					if(zipEntry.getName().startsWith(type.folderName + "/") && zipEntry.getName().split(type.folderName + "/").length > 1 && zipEntry.getName().split(type.folderName + "/")[1].length() > 0)
 					{
 						String[] splitName = zipEntry.getName().split("/");
-						typeFile = new TypeFile(zip.getName(), type, splitName[splitName.length - 1].split("\\.")[0]);
+						typeFile = new TypeFile(zip.getName(), type, splitName[splitName.length - 1].split("\\.")[0], false);
 					}
 				}
 				if(typeFile == null)
 				{
 					continue;
 				}
-				for(; ; )
-				{
-					String line = null;
-					try
-					{
-						line = reader.readLine();
-					}
-					catch(Exception e)
-					{
-						break;
-					}
-					if(line == null)
-						break;
-					typeFile.parseLine(line);
-				}
+				BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(zipEntry)));
+				readLines(reader, typeFile);
+				reader.close();
+				typeFiles.add(typeFile);
 			}
-			while(zipEntry != null);
-			reader.close();
 			zip.close();
-			zipStream.close();
 		}
 		catch(IOException e)
 		{
 			FlansMod.log.throwing(e);
 		}
+		typeFiles.parallelStream().forEach(TypeFile::tokenise);
+		return typeFiles;
 	}
 	
-	public void LoadTypes()
+	private static void readLines(BufferedReader reader, TypeFile typeFile)
 	{
-		for(HashMap.Entry<String, IFlansModContentProvider> entry : packs.entrySet())
+		for(; ; )
 		{
-			String contentPackName = entry.getKey();
-			IFlansModContentProvider provider = entry.getValue();
+			String line = null;
+			try
+			{
+				line = reader.readLine();
+			}
+			catch(Exception e)
+			{
+				break;
+			}
+			if(line == null)
+				break;
+			typeFile.parseLine(line);
+		}
+	}
+	
+	/**
+	 * Reads all the type files from a single content pack, wherever it may be
+	 */
+	private List<TypeFile> LoadTypesFromPack(String contentPackName, IFlansModContentProvider provider)
+	{
+		if(provider instanceof ContentPackFlanFolder)
+		{
+			ContentPackFlanFolder contentPack = (ContentPackFlanFolder)provider;
+			if(contentPack.folder.isDirectory())
+			{
+				return LoadTypesFromDirectory(contentPackName, contentPack.folder);
+			}
+			else // Let's hope its a zip / jar
+			{
+				return LoadTypesFromArchive(contentPackName, contentPack.folder);
+			}
+		}
+		else if(provider instanceof ContentPackMod)// Must be a mod in the classpath
+		{
+			ContentPackMod mod = (ContentPackMod)provider;
 			
-			if(provider instanceof ContentPackFlanFolder)
+			if(mod.container.getSource().getName().endsWith("bin"))
+			{	
+				// If loading from inside MCP, use the content name to find content in run directory
+				return LoadTypesFromDirectory(contentPackName, new File(FlansMod.flanDir + "/" + contentPackName));
+			}
+			else if(zipJar.matcher(mod.container.getSource().getName()).matches())
 			{
-				ContentPackFlanFolder contentPack = (ContentPackFlanFolder)provider;
-				if(contentPack.folder.isDirectory())
-				{
-					LoadTypesFromDirectory(contentPackName, contentPack.folder);
-				}
-				else // Let's hope its a zip / jar
-				{
-					LoadTypesFromArchive(contentPackName, contentPack.folder);
-				}
+				// Else must be a mod loading from a jar in the mods folder
+				return LoadTypesFromArchive(contentPackName, mod.container.getSource());
 			}
-			else if(provider instanceof ContentPackMod)// Must be a mod in the classpath
+		}
+		return new ArrayList<>();
+	}
+	
+	/**
+	 * Reads and tokenises every content pack on a fork join pool. The resulting type files are then added to
+	 * TypeFile.files on this thread in pack name order, so the outcome is the same however the work was scheduled
+	 */
+	public void LoadTypes()
+	{
+		List<String> packNames = new ArrayList<>(packs.keySet());
+		Collections.sort(packNames);
+		
+		List<ForkJoinTask<List<TypeFile>>> tasks = new ArrayList<>();
+		long[] packTimes = new long[packNames.size()];
+		for(int i = 0; i < packNames.size(); i++)
+		{
+			final int packIndex = i;
+			final String contentPackName = packNames.get(i);
+			final IFlansModContentProvider provider = packs.get(contentPackName);
+			tasks.add(ForkJoinPool.commonPool().submit(() ->
 			{
-				ContentPackMod mod = (ContentPackMod)provider;
-				
-				if(mod.container.getSource().getName().endsWith("bin"))
-				{	
-					// If loading from inside MCP, use the content name to find content in run directory
-					LoadTypesFromDirectory(contentPackName, new File(FlansMod.flanDir + "/" + contentPackName));
-				}
-				else if(zipJar.matcher(mod.container.getSource().getName()).matches())
-				{
-					// Else must be a mod loading from a jar in the mods folder
-					LoadTypesFromArchive(contentPackName, mod.container.getSource());
-				}
-			}	
+				long start = System.nanoTime();
+				List<TypeFile> typeFiles = LoadTypesFromPack(contentPackName, provider);
+				packTimes[packIndex] = System.nanoTime() - start;
+				return typeFiles;
+			}));
+		}
+		
+		for(int i = 0; i < packNames.size(); i++)
+		{
+			List<TypeFile> typeFiles;
+			try
+			{
+				typeFiles = tasks.get(i).join();
+			}
+			catch(Exception e)
+			{
+				FlansMod.log.error("Failed to load content pack " + packNames.get(i));
+				FlansMod.log.throwing(e);
+				continue;
+			}
+			for(TypeFile typeFile : typeFiles)
+				TypeFile.files.get(typeFile.type).add(typeFile);
+			FlansMod.log.info("Read " + typeFiles.size() + " type files from " + packNames.get(i) + " in " + packTimes[i] / 1000000 + "ms");
 		}
 	}
 	
 	public void CreateItems()
 	{
+		//Types are parsed on this thread, in EnumType order, as they fill in global registries and later types look up earlier ones
 		for(EnumType type : EnumType.values())
 		{
+			long start = System.nanoTime();
 			Class<? extends InfoType> typeClass = type.getTypeClass();
 			for(TypeFile typeFile : TypeFile.files.get(type))
 			{
@@ -420,7 +479,7 @@ public class ContentManager
 					FlansMod.log.throwing(e);
 				}
 			}
-			FlansMod.log.info("Loaded " + type.name() + ".");
+			FlansMod.log.info("Loaded " + TypeFile.files.get(type).size() + " " + type.name() + " in " + (System.nanoTime() - start) / 1000000 + "ms.");
 		}
 	}
 
@@ -8,6 +8,8 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.item.ItemStack;
 
+import com.flansmod.common.util.InventoryHistogram;
+
 public class CraftingInstance
 {
 	//Input fields
@@ -35,23 +37,15 @@ public class CraftingInstance
 	
 	public boolean canCraft()
 	{
-		craftingSuccessful = true;
-		for(ItemStack check : requiredStacks)
-		{
-			int numMatchingStuff = 0;
-			for(int j = 0; j < inventory.getSizeInventory(); j++)
-			{
-				ItemStack stack = inventory.getStackInSlot(j);
-				if(stack != null && !stack.isEmpty() && stack.getItem() == check.getItem() && stack.getItemDamage() == check.getItemDamage())
-				{
-					numMatchingStuff += stack.getCount();
-				}
-			}
-			if(numMatchingStuff < check.getCount())
-			{
-				craftingSuccessful = false;
-			}
-		}
+		return canCraft(new InventoryHistogram(inventory));
+	}
+	
+	/**
+	 * Checks against counts already taken of the inventory, so several recipes can be checked with one pass over it
+	 */
+	public boolean canCraft(InventoryHistogram inventoryCounts)
+	{
+		craftingSuccessful = inventoryCounts.containsAll(requiredStacks);
 		return craftingSuccessful;
 	}
 	
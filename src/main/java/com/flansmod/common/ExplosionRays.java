@@ -0,0 +1,150 @@
+package com.flansmod.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.Explosion;
+
+import com.flansmod.common.util.BlockUtil;
+
+/**
+ * Casts the same rays as {@link Explosion#doExplosionA} from the centre of an explosion, with the same random draws, and
+ * collects the blocks they break. The ray directions are worked out once rather than on every explosion, and each ray's
+ * steps mostly stay in the same block for a few steps at a time, so the last block's state and resistance are reused
+ * until the ray moves into a new one. Blocks are listed in the order they are found.
+ */
+public abstract class ExplosionRays
+{
+	/**
+	 * How far each ray moves per step, as vanilla
+	 */
+	private static final double RAY_STEP = 0.30000001192092896D;
+	/**
+	 * The unit directions of the rays cast by every explosion, one from each point on the surface of a 16x16x16 cube, in
+	 * the order vanilla casts them. Stored as x, y, z triples
+	 */
+	private static final double[] RAY_DIRECTIONS;
+	private static final int RAY_COUNT;
+	
+	static
+	{
+		double[] directions = new double[16 * 16 * 16 * 3];
+		int count = 0;
+		for(int j = 0; j < 16; ++j)
+		{
+			for(int k = 0; k < 16; ++k)
+			{
+				for(int l = 0; l < 16; ++l)
+				{
+					if(j == 0 || j == 15 || k == 0 || k == 15 || l == 0 || l == 15)
+					{
+						double d0 = (double)((float)j / 15.0F * 2.0F - 1.0F);
+						double d1 = (double)((float)k / 15.0F * 2.0F - 1.0F);
+						double d2 = (double)((float)l / 15.0F * 2.0F - 1.0F);
+						double d3 = Math.sqrt(d0 * d0 + d1 * d1 + d2 * d2);
+						directions[count * 3] = d0 / d3;
+						directions[count * 3 + 1] = d1 / d3;
+						directions[count * 3 + 2] = d2 / d3;
+						count++;
+					}
+				}
+			}
+		}
+		RAY_DIRECTIONS = Arrays.copyOf(directions, count * 3);
+		RAY_COUNT = count;
+	}
+	
+	/**
+	 * Whether {@link #canDestroy} has a say. Without it every block a ray reaches is broken, and no BlockPos is made for
+	 * air until it is added to the list
+	 */
+	private final boolean checksDestroy;
+	
+	protected ExplosionRays(boolean checksDestroy)
+	{
+		this.checksDestroy = checksDestroy;
+	}
+	
+	protected abstract IBlockState getBlockState(int x, int y, int z);
+	
+	/**
+	 * @return The explosion resistance of a block that is not air
+	 */
+	protected abstract float getExplosionResistance(BlockPos pos, IBlockState state);
+	
+	/**
+	 * @return Whether a ray with this much strength left may break the block. Only called if checksDestroy was set
+	 */
+	protected boolean canDestroy(BlockPos pos, IBlockState state, float strength)
+	{
+		return true;
+	}
+	
+	/**
+	 * Casts every ray and adds the blocks they break to the list, each only once
+	 *
+	 * @param random Used for the strength of each ray, drawing once per ray as vanilla does
+	 */
+	public void cast(Random random, double x, double y, double z, float size, List<BlockPos> affectedBlocks)
+	{
+		LongSet found = new LongOpenHashSet();
+		for(int i = 0; i < RAY_COUNT; i++)
+		{
+			double dx = RAY_DIRECTIONS[i * 3] * RAY_STEP;
+			double dy = RAY_DIRECTIONS[i * 3 + 1] * RAY_STEP;
+			double dz = RAY_DIRECTIONS[i * 3 + 2] * RAY_STEP;
+			float f = size * (0.7F + random.nextFloat() * 0.6F);
+			double rayX = x;
+			double rayY = y;
+			double rayZ = z;
+			
+			boolean inBlock = false;
+			long lastKey = 0L;
+			BlockPos blockpos = null;
+			IBlockState iblockstate = null;
+			float resistance = 0F;
+			for(; f > 0.0F; f -= 0.22500001F)
+			{
+				int blockX = MathHelper.floor(rayX);
+				int blockY = MathHelper.floor(rayY);
+				int blockZ = MathHelper.floor(rayZ);
+				long key = BlockUtil.toLong(blockX, blockY, blockZ);
+				if(!inBlock || key != lastKey)
+				{
+					inBlock = true;
+					lastKey = key;
+					blockpos = null;
+					iblockstate = getBlockState(blockX, blockY, blockZ);
+					if(iblockstate.getMaterial() != Material.AIR)
+					{
+						blockpos = new BlockPos(blockX, blockY, blockZ);
+						resistance = getExplosionResistance(blockpos, iblockstate);
+					}
+					else resistance = -1F;
+				}
+				
+				if(resistance >= 0F)
+					f -= (resistance + 0.3F) * 0.3F;
+				
+				if(f > 0.0F)
+				{
+					if(checksDestroy && blockpos == null)
+						blockpos = new BlockPos(blockX, blockY, blockZ);
+					if((!checksDestroy || canDestroy(blockpos, iblockstate, f)) && found.add(key))
+						affectedBlocks.add(blockpos != null ? blockpos : new BlockPos(blockX, blockY, blockZ));
+				}
+				
+				rayX += dx;
+				rayY += dy;
+				rayZ += dz;
+			}
+		}
+	}
+}
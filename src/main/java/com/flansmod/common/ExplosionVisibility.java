@@ -0,0 +1,295 @@
+package com.flansmod.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import com.flansmod.common.util.ChunkSectionReader;
+
+/**
+ * Works out how exposed entities are to an explosion, as {@link World#getBlockDensity} does, by tracing rays from points
+ * spread over each entity's box back to the centre of the explosion.
+ * <p>
+ * The result for each ray is kept for the rest of the explosion by its exact start point, so that entities with the same
+ * sample points, like several that share a box, only trace them once. Whole boxes are cached too, and a box with nothing
+ * but empty chunk sections between it and the explosion is fully exposed without tracing anything, as every ray would
+ * miss. Explosions at exactly the same point in the same tick share one set of results, unless an earlier one has broken
+ * blocks. Nothing is rounded, so every density is exactly what {@link World#getBlockDensity} would give.
+ */
+public class ExplosionVisibility
+{
+	/**
+	 * The same limit on steps per ray as vanilla's raytracing
+	 */
+	private static final int MAX_RAY_STEPS = 200;
+	
+	//Only used on the server thread
+	private static final Map<World, List<ExplosionVisibility>> thisTick = new HashMap<>();
+	private static int lastTick = -1;
+	
+	private final World world;
+	private final double x, y, z;
+	private final Vec3d centre;
+	private final ChunkSectionReader blocks;
+	private final Map<AxisAlignedBB, Float> densities = new HashMap<>();
+	private final Map<Vec3d, Boolean> samples = new HashMap<>();
+	
+	ExplosionVisibility(World world, double x, double y, double z)
+	{
+		this.world = world;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.centre = new Vec3d(x, y, z);
+		this.blocks = new ChunkSectionReader(world);
+	}
+	
+	/**
+	 * Gets the visibility for an explosion at this position, shared with any other explosion at the same point this tick
+	 */
+	public static ExplosionVisibility get(World world, double x, double y, double z)
+	{
+		if(world.isRemote)
+			return new ExplosionVisibility(world, x, y, z);
+		
+		if(lastTick != FlansMod.ticker)
+		{
+			thisTick.clear();
+			lastTick = FlansMod.ticker;
+		}
+		List<ExplosionVisibility> explosions = thisTick.computeIfAbsent(world, w -> new ArrayList<>());
+		for(ExplosionVisibility visibility : explosions)
+		{
+			if(visibility.x == x && visibility.y == y && visibility.z == z)
+				return visibility;
+		}
+		ExplosionVisibility visibility = new ExplosionVisibility(world, x, y, z);
+		explosions.add(visibility);
+		return visibility;
+	}
+	
+	/**
+	 * Stops later explosions from sharing these results, for when blocks have been broken and they may be out of date
+	 */
+	public void invalidate()
+	{
+		List<ExplosionVisibility> explosions = thisTick.get(world);
+		if(explosions != null)
+			explosions.remove(this);
+	}
+	
+	/**
+	 * Called once the explosion is done with this, so that it does not keep hold of a chunk
+	 */
+	public void release()
+	{
+		blocks.reset();
+	}
+	
+	/**
+	 * @return The fraction of points spread over this box that can see the explosion, the same as
+	 * {@link World#getBlockDensity}
+	 */
+	public float getDensity(AxisAlignedBB bb)
+	{
+		Float cached = densities.get(bb);
+		if(cached != null)
+			return cached;
+		
+		float density = computeDensity(bb);
+		densities.put(bb, density);
+		return density;
+	}
+	
+	private float computeDensity(AxisAlignedBB bb)
+	{
+		double d0 = 1.0D / ((bb.maxX - bb.minX) * 2.0D + 1.0D);
+		double d1 = 1.0D / ((bb.maxY - bb.minY) * 2.0D + 1.0D);
+		double d2 = 1.0D / ((bb.maxZ - bb.minZ) * 2.0D + 1.0D);
+		double d3 = (1.0D - Math.floor(1.0D / d0) * d0) / 2.0D;
+		double d4 = (1.0D - Math.floor(1.0D / d2) * d2) / 2.0D;
+		
+		if(d0 < 0.0D || d1 < 0.0D || d2 < 0.0D)
+			return 0.0F;
+		if(isOpenBetween(bb))
+			return 1.0F;
+		
+		int visible = 0;
+		int total = 0;
+		for(float f = 0.0F; f <= 1.0F; f = (float)((double)f + d0))
+		{
+			for(float f1 = 0.0F; f1 <= 1.0F; f1 = (float)((double)f1 + d1))
+			{
+				for(float f2 = 0.0F; f2 <= 1.0F; f2 = (float)((double)f2 + d2))
+				{
+					double sampleX = bb.minX + (bb.maxX - bb.minX) * (double)f + d3;
+					double sampleY = bb.minY + (bb.maxY - bb.minY) * (double)f1;
+					double sampleZ = bb.minZ + (bb.maxZ - bb.minZ) * (double)f2 + d4;
+					if(canSee(sampleX, sampleY, sampleZ))
+						++visible;
+					++total;
+				}
+			}
+		}
+		return (float)visible / (float)total;
+	}
+	
+	/**
+	 * @return Whether every chunk section touched by the space between the explosion and this box is empty, in which
+	 * case nothing can be in the way
+	 */
+	private boolean isOpenBetween(AxisAlignedBB bb)
+	{
+		//Sample points can sit a little outside the box, so give it a block of space
+		int minX = MathHelper.floor(Math.min(bb.minX - 1D, x)) >> 4, maxX = MathHelper.floor(Math.max(bb.maxX + 1D, x)) >> 4;
+		int minY = MathHelper.floor(Math.min(bb.minY - 1D, y)) >> 4, maxY = MathHelper.floor(Math.max(bb.maxY + 1D, y)) >> 4;
+		int minZ = MathHelper.floor(Math.min(bb.minZ - 1D, z)) >> 4, maxZ = MathHelper.floor(Math.max(bb.maxZ + 1D, z)) >> 4;
+		for(int i = minX; i <= maxX; i++)
+		{
+			for(int j = minY; j <= maxY; j++)
+			{
+				for(int k = minZ; k <= maxZ; k++)
+				{
+					if(!isSectionEmpty(i << 4, j << 4, k << 4))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	private boolean canSee(double sampleX, double sampleY, double sampleZ)
+	{
+		Vec3d sample = new Vec3d(sampleX, sampleY, sampleZ);
+		Boolean visible = samples.get(sample);
+		if(visible == null)
+		{
+			visible = !isBlocked(sampleX, sampleY, sampleZ);
+			samples.put(sample, visible);
+		}
+		return visible;
+	}
+	
+	/**
+	 * Steps from the start point to the centre of the explosion block by block, the same way as
+	 * {@link World#rayTraceBlocks(Vec3d, Vec3d)}, but reading blocks from the cached chunk sections and only creating
+	 * vectors for blocks that could be in the way
+	 *
+	 * @return Whether a block is in the way
+	 */
+	private boolean isBlocked(double startX, double startY, double startZ)
+	{
+		int endBlockX = MathHelper.floor(x);
+		int endBlockY = MathHelper.floor(y);
+		int endBlockZ = MathHelper.floor(z);
+		int blockX = MathHelper.floor(startX);
+		int blockY = MathHelper.floor(startY);
+		int blockZ = MathHelper.floor(startZ);
+		
+		if(collides(blockX, blockY, blockZ, startX, startY, startZ))
+			return true;
+		
+		for(int steps = MAX_RAY_STEPS; steps-- >= 0; )
+		{
+			if(Double.isNaN(startX) || Double.isNaN(startY) || Double.isNaN(startZ))
+				return false;
+			if(blockX == endBlockX && blockY == endBlockY && blockZ == endBlockZ)
+				return false;
+			
+			boolean crossX = true, crossY = true, crossZ = true;
+			double nextX = 999.0D, nextY = 999.0D, nextZ = 999.0D;
+			if(endBlockX > blockX)
+				nextX = blockX + 1.0D;
+			else if(endBlockX < blockX)
+				nextX = blockX + 0.0D;
+			else crossX = false;
+			if(endBlockY > blockY)
+				nextY = blockY + 1.0D;
+			else if(endBlockY < blockY)
+				nextY = blockY + 0.0D;
+			else crossY = false;
+			if(endBlockZ > blockZ)
+				nextZ = blockZ + 1.0D;
+			else if(endBlockZ < blockZ)
+				nextZ = blockZ + 0.0D;
+			else crossZ = false;
+			
+			double tX = 999.0D, tY = 999.0D, tZ = 999.0D;
+			double dX = x - startX, dY = y - startY, dZ = z - startZ;
+			if(crossX)
+				tX = (nextX - startX) / dX;
+			if(crossY)
+				tY = (nextY - startY) / dY;
+			if(crossZ)
+				tZ = (nextZ - startZ) / dZ;
+			if(tX == -0.0D)
+				tX = -1.0E-4D;
+			if(tY == -0.0D)
+				tY = -1.0E-4D;
+			if(tZ == -0.0D)
+				tZ = -1.0E-4D;
+			
+			if(tX < tY && tX < tZ)
+			{
+				boolean negative = endBlockX <= blockX;
+				startY += dY * tX;
+				startZ += dZ * tX;
+				startX = nextX;
+				blockX = MathHelper.floor(startX) - (negative ? 1 : 0);
+				blockY = MathHelper.floor(startY);
+				blockZ = MathHelper.floor(startZ);
+			}
+			else if(tY < tZ)
+			{
+				boolean negative = endBlockY <= blockY;
+				startX += dX * tY;
+				startZ += dZ * tY;
+				startY = nextY;
+				blockX = MathHelper.floor(startX);
+				blockY = MathHelper.floor(startY) - (negative ? 1 : 0);
+				blockZ = MathHelper.floor(startZ);
+			}
+			else
+			{
+				boolean negative = endBlockZ <= blockZ;
+				startX += dX * tZ;
+				startY += dY * tZ;
+				startZ = nextZ;
+				blockX = MathHelper.floor(startX);
+				blockY = MathHelper.floor(startY);
+				blockZ = MathHelper.floor(startZ) - (negative ? 1 : 0);
+			}
+			
+			if(collides(blockX, blockY, blockZ, startX, startY, startZ))
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return Whether the 16x16x16 section containing this position is loaded and has nothing but air in it
+	 */
+	boolean isSectionEmpty(int x, int y, int z)
+	{
+		return blocks.isSectionEmpty(x, y, z);
+	}
+	
+	/**
+	 * @return Whether the block at this position stops a ray that has reached the given point on its way to the centre
+	 */
+	boolean collides(int blockX, int blockY, int blockZ, double startX, double startY, double startZ)
+	{
+		IBlockState state = blocks.getBlockState(blockX, blockY, blockZ);
+		if(!state.getBlock().canCollideCheck(state, false))
+			return false;
+		return state.collisionRayTrace(world, new BlockPos(blockX, blockY, blockZ), new Vec3d(startX, startY, startZ), centre) != null;
+	}
+}
@@ -0,0 +1,190 @@
+package com.flansmod.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorldEventListener;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import com.flansmod.common.driveables.EntityDriveable;
+import com.flansmod.common.driveables.EntitySeat;
+import com.flansmod.common.driveables.EntityWheel;
+import com.flansmod.common.guns.EntityAAGun;
+import com.flansmod.common.guns.EntityMG;
+import com.flansmod.common.guns.EntityShootable;
+
+/**
+ * Every Flan's Mod entity in a world, indexed by entity id and UUID, so that packet handlers can find the entity they
+ * refer to without searching through world.loadedEntityList.
+ * <p>
+ * Each index listens to its own world, so entities are added as they join and removed as they leave, whether through
+ * dying or through their chunk unloading. Client and server worlds each get their own index.
+ */
+public class FlansEntityIndex implements IWorldEventListener
+{
+	//Client and server worlds are looked up from different threads in single player
+	private static final Map<World, FlansEntityIndex> indices = new ConcurrentHashMap<>();
+	
+	private final Map<Integer, Entity> byId = new HashMap<>();
+	private final Map<UUID, Entity> byUUID = new HashMap<>();
+	
+	/**
+	 * Gets the index for this world, creating it from the world's loaded entities if this is the first time it is needed
+	 */
+	public static FlansEntityIndex get(World world)
+	{
+		FlansEntityIndex index = indices.get(world);
+		if(index == null)
+		{
+			index = new FlansEntityIndex();
+			for(Entity entity : world.loadedEntityList)
+				index.onEntityAdded(entity);
+			world.addEventListener(index);
+			indices.put(world, index);
+		}
+		return index;
+	}
+	
+	/**
+	 * Finds a Flan's Mod entity of the given type by its entity id
+	 *
+	 * @return The entity, or null if there is no such entity or it is of another type
+	 */
+	@Nullable
+	public static <T extends Entity> T getEntity(World world, int entityId, Class<T> type)
+	{
+		Entity entity = get(world).byId.get(entityId);
+		return type.isInstance(entity) ? type.cast(entity) : null;
+	}
+	
+	/**
+	 * Finds a Flan's Mod entity by its UUID
+	 *
+	 * @return The entity, or null if there is no such Flan's Mod entity loaded
+	 */
+	@Nullable
+	public static Entity getEntity(World world, UUID uuid)
+	{
+		return get(world).byUUID.get(uuid);
+	}
+	
+	/**
+	 * @return Whether this entity is one of ours and so should be indexed
+	 */
+	public static boolean isIndexed(Entity entity)
+	{
+		return entity instanceof EntityDriveable
+				|| entity instanceof EntitySeat
+				|| entity instanceof EntityWheel
+				|| entity instanceof EntityShootable
+				|| entity instanceof EntityMG
+				|| entity instanceof EntityAAGun;
+	}
+	
+	@Override
+	public void onEntityAdded(Entity entity)
+	{
+		if(!isIndexed(entity))
+			return;
+		byId.put(entity.getEntityId(), entity);
+		byUUID.put(entity.getUniqueID(), entity);
+	}
+	
+	@Override
+	public void onEntityRemoved(Entity entity)
+	{
+		if(!isIndexed(entity))
+			return;
+		//On the client a new entity can take an id before the old one with that id has been removed
+		byId.remove(entity.getEntityId(), entity);
+		byUUID.remove(entity.getUniqueID(), entity);
+	}
+	
+	@Override
+	public void notifyBlockUpdate(World world, BlockPos pos, IBlockState oldState, IBlockState newState, int flags)
+	{
+	}
+	
+	@Override
+	public void notifyLightSet(BlockPos pos)
+	{
+	}
+	
+	@Override
+	public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2)
+	{
+	}
+	
+	@Override
+	public void playSoundToAllNearExcept(@Nullable EntityPlayer player, SoundEvent sound, SoundCategory category, double x, double y, double z, float volume, float pitch)
+	{
+	}
+	
+	@Override
+	public void playRecord(SoundEvent sound, BlockPos pos)
+	{
+	}
+	
+	@Override
+	public void spawnParticle(int particleID, boolean ignoreRange, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters)
+	{
+	}
+	
+	@Override
+	public void spawnParticle(int id, boolean ignoreRange, boolean minimiseParticleLevel, double x, double y, double z, double xSpeed, double ySpeed, double zSpeed, int... parameters)
+	{
+	}
+	
+	@Override
+	public void broadcastSound(int soundID, BlockPos pos, int data)
+	{
+	}
+	
+	@Override
+	public void playEvent(EntityPlayer player, int type, BlockPos pos, int data)
+	{
+	}
+	
+	@Override
+	public void sendBlockBreakProgress(int breakerId, BlockPos pos, int progress)
+	{
+	}
+	
+	/**
+	 * Attaches an index to each world as it loads, before any entities are added, and drops it when the world unloads
+	 */
+	public static class WorldListener
+	{
+		public WorldListener()
+		{
+			MinecraftForge.EVENT_BUS.register(this);
+		}
+		
+		@SubscribeEvent
+		public void onWorldLoad(WorldEvent.Load event)
+		{
+			get(event.getWorld());
+		}
+		
+		@SubscribeEvent
+		public void onWorldUnload(WorldEvent.Unload event)
+		{
+			FlansEntityIndex index = indices.remove(event.getWorld());
+			if(index != null)
+				event.getWorld().removeEventListener(index);
+		}
+	}
+}
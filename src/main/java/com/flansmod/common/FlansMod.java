@@ -31,6 +31,8 @@ import com.flansmod.common.guns.EntityAAGun;
 import com.flansmod.common.guns.EntityBullet;
 import com.flansmod.common.guns.EntityGrenade;
 import com.flansmod.common.guns.EntityMG;
+import com.flansmod.common.guns.TargetTracker;
+import com.flansmod.common.guns.raytracing.EntityGrid;
 import com.flansmod.common.network.PacketHandler;
 import com.flansmod.common.paintjob.BlockPaintjobTable;
 import com.flansmod.common.paintjob.TileEntityPaintjobTable;
@@ -140,6 +142,10 @@ public class FlansMod
 	public static List<String> disabledVehicles; //List of shortnames of disabled vehicles
 	public static float globalFuelUseMultiplier = 0.05F;
 	public static int vehicleFuelTransferRate = 4;
+	public static float packetTimeBudgetMillis = 10F;
+	public static int maxQueuedPacketsPerPlayer = 512;
+	public static int harvesterBlocksPerTick = 32;
+	public static int dynamicLightUpdatesPerFrame = 256;
 	public static boolean generateDungeonLoot = false;
 	public static boolean mobArmorSpawn = false;
 	
@@ -315,6 +321,9 @@ public class FlansMod
 		//Config
 		//Starting the EventListener
 		new PlayerDeathEventListener();
+		new EntityGrid.WorldListener();
+		new FlansEntityIndex.WorldListener();
+		new TargetTracker.WorldListener();
 		log.info("Loading complete.");
 	}
 	
@@ -760,6 +769,10 @@ public class FlansMod
 		vehicleFuelTransferRate = configFile.getInt("VehicleFuelTransferRate", Configuration.CATEGORY_GENERAL, vehicleFuelTransferRate, 0, 100, "How much fuel to transfer from a container to the vehicle in one tick");
 		generateDungeonLoot = configFile.getBoolean("GenerateDungeonLoot", Configuration.CATEGORY_GENERAL, generateDungeonLoot, "Whether or not chests in randomly generated structures should have Flan's Mod loot");
 		mobArmorSpawn = configFile.getBoolean("MobSpawnWithArmor", Configuration.CATEGORY_GENERAL, mobArmorSpawn, "Whether or not zombies and skeletons spawn with random Flan's Mod armor");
+		packetTimeBudgetMillis = configFile.getFloat("PacketTimeBudget", Configuration.CATEGORY_GENERAL, packetTimeBudgetMillis, 0.5F, 50, "How many milliseconds per tick the server may spend handling packets from players. Any left over are handled next tick");
+		maxQueuedPacketsPerPlayer = configFile.getInt("MaxQueuedPacketsPerPlayer", Configuration.CATEGORY_GENERAL, maxQueuedPacketsPerPlayer, 16, 65536, "How many packets from one player may wait to be handled before more are dropped");
+		harvesterBlocksPerTick = configFile.getInt("HarvesterBlocksPerTick", Configuration.CATEGORY_GENERAL, harvesterBlocksPerTick, 1, 4096, "The most blocks one harvester vehicle may break in a tick. Any more are left for the following ticks");
+		dynamicLightUpdatesPerFrame = configFile.getInt("DynamicLightUpdatesPerFrame", Configuration.CATEGORY_GENERAL, dynamicLightUpdatesPerFrame, 1, 65536, "Client side. The most blocks whose light may be recalculated per frame for flashlights and glowing bullets. Any more are left for the following frames");
 		
 		if(configFile.hasChanged())
 			configFile.save();
@@ -4,11 +4,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
-import java.util.Set;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
 import net.minecraft.block.state.IBlockState;
@@ -19,7 +17,6 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Blocks;
 import net.minecraft.init.SoundEvents;
-import net.minecraft.network.play.server.SPacketExplosion;
 import net.minecraft.util.DamageSource;
 import net.minecraft.util.EnumParticleTypes;
 import net.minecraft.util.SoundCategory;
@@ -32,12 +29,22 @@ import net.minecraft.world.World;
 import net.minecraftforge.event.ForgeEventFactory;
 
 import com.flansmod.common.guns.EntityDamageSourceFlan;
+import com.flansmod.common.network.PacketExplosion;
 import com.flansmod.common.teams.TeamsManager;
 import com.flansmod.common.types.InfoType;
+import com.flansmod.common.util.ChunkSectionReader;
 
 public class FlansModExplosion extends Explosion
 {
-	
+	/**
+	 * Players within this range get the full explosion, with the destroyed blocks. The same range vanilla uses
+	 */
+	private static final double DETAIL_RANGE = 64D;
+	/**
+	 * Players within this range, but outside the detail range, just get the sound and flash. Beyond this they get nothing,
+	 * block changes still reach them through the usual chunk updates
+	 */
+	private static final double EFFECT_RANGE = 256D;
 	private final boolean causesFire;
 	private final boolean breaksBlocks;
 	private final Random random;
@@ -50,6 +57,8 @@ public class FlansModExplosion extends Explosion
 	private final Map<EntityPlayer, Vec3d> playerKnockbackMap;
 	private final Vec3d position;
 	private final InfoType type; // type of Flan's Mod weapon causing explosion
+	private final ChunkSectionReader blocks;
+	private final ExplosionVisibility visibility;
 	
 	public FlansModExplosion(World world, Entity entity, Optional<? extends EntityPlayer> player, InfoType type, double x, double y, double z, float size, boolean causesFire, boolean smoking, boolean breaksBlocks)
 	{
@@ -68,76 +77,86 @@ public class FlansModExplosion extends Explosion
 		this.position = new Vec3d(this.x, this.y, this.z);
 		this.type = type;
 		this.explosive = entity;
+		this.blocks = new ChunkSectionReader(world);
+		this.visibility = ExplosionVisibility.get(world, x, y, z);
 		
 		if(!ForgeEventFactory.onExplosionStart(world, this))
 		{
 			this.doExplosionA();
 			this.doExplosionB(smoking);
 			
-			for(EntityPlayer obj : world.playerEntities)
+			sendToPlayers();
+			
+			//Anything that went off next to this explosion this tick needs to see the blocks it broke
+			if(!affectedBlockPositions.isEmpty())
+				visibility.invalidate();
+		}
+		blocks.reset();
+		visibility.release();
+	}
+	
+	/**
+	 * Tells clients about the explosion. Only players in this world hear about it at all, those close by get the
+	 * destroyed blocks and their knockback and those further out just get the sound and flash.
+	 */
+	private void sendToPlayers()
+	{
+		byte[] encodedBlocks = null;
+		for(EntityPlayer obj : world.playerEntities)
+		{
+			double distanceSq = obj.getDistanceSq(x, y, z);
+			if(distanceSq < DETAIL_RANGE * DETAIL_RANGE)
+			{
+				//The block list is only encoded once, however many players are nearby
+				if(encodedBlocks == null)
+					encodedBlocks = PacketExplosion.encodeBlocks(x, y, z, affectedBlockPositions);
+				FlansMod.getPacketHandler().sendTo(new PacketExplosion(x, y, z, size, encodedBlocks, getPlayerKnockbackMap().get(obj)), (EntityPlayerMP)obj);
+			}
+			else if(distanceSq < EFFECT_RANGE * EFFECT_RANGE)
 			{
-				FlansMod.getPacketHandler().sendTo(new SPacketExplosion(x, y, z, size, affectedBlockPositions, getPlayerKnockbackMap().get(obj)), (EntityPlayerMP)obj);
+				FlansMod.getPacketHandler().sendTo(new PacketExplosion(x, y, z, size), (EntityPlayerMP)obj);
 			}
 		}
 	}
 	
+	/**
+	 * Casts vanilla's rays through the chunk sections, with the explosive entity, if any, deciding on each block's
+	 * resistance and whether it may be broken
+	 */
+	private void findAffectedBlocks()
+	{
+		new ExplosionRays(explosive != null)
+		{
+			@Override
+			protected IBlockState getBlockState(int x, int y, int z)
+			{
+				return blocks.getBlockState(x, y, z);
+			}
+			
+			@Override
+			protected float getExplosionResistance(BlockPos pos, IBlockState state)
+			{
+				FlansModExplosion explosion = FlansModExplosion.this;
+				return explosive != null ? explosive.getExplosionResistance(explosion, world, pos, state) : state.getBlock().getExplosionResistance(world, pos, null, explosion);
+			}
+			
+			@Override
+			protected boolean canDestroy(BlockPos pos, IBlockState state, float strength)
+			{
+				return explosive.canExplosionDestroyBlock(FlansModExplosion.this, world, pos, state, strength);
+			}
+		}.cast(this.world.rand, this.x, this.y, this.z, this.size, this.affectedBlockPositions);
+	}
+	
 	/**
 	 * Does the first part of the explosion (destroy blocks)
 	 */
 	@Override
 	public void doExplosionA()
 	{
-		Set<BlockPos> set = Sets.newHashSet();
-		
 		if(breaksBlocks)
-		{
-			for(int j = 0; j < 16; ++j)
-			{
-				for(int k = 0; k < 16; ++k)
-				{
-					for(int l = 0; l < 16; ++l)
-					{
-						if(j == 0 || j == 15 || k == 0 || k == 15 || l == 0 || l == 15)
-						{
-							double d0 = (double)((float)j / 15.0F * 2.0F - 1.0F);
-							double d1 = (double)((float)k / 15.0F * 2.0F - 1.0F);
-							double d2 = (double)((float)l / 15.0F * 2.0F - 1.0F);
-							double d3 = Math.sqrt(d0 * d0 + d1 * d1 + d2 * d2);
-							d0 /= d3;
-							d1 /= d3;
-							d2 /= d3;
-							float f = this.size * (0.7F + this.world.rand.nextFloat() * 0.6F);
-							double d4 = this.x;
-							double d6 = this.y;
-							double d8 = this.z;
-							
-							for(; f > 0.0F; f -= 0.22500001F)
-							{
-								BlockPos blockpos = new BlockPos(d4, d6, d8);
-								IBlockState iblockstate = this.world.getBlockState(blockpos);
-								
-								if(iblockstate.getMaterial() != Material.AIR)
-								{
-									float f2 = this.explosive != null ? this.explosive.getExplosionResistance(this, this.world, blockpos, iblockstate) : iblockstate.getBlock().getExplosionResistance(world, blockpos, null, this);
-									f -= (f2 + 0.3F) * 0.3F;
-								}
-								
-								if(f > 0.0F && (this.explosive == null || this.explosive.canExplosionDestroyBlock(this, this.world, blockpos, iblockstate, f)))
-								{
-									set.add(blockpos);
-								}
-								
-								d4 += d0 * 0.30000001192092896D;
-								d6 += d1 * 0.30000001192092896D;
-								d8 += d2 * 0.30000001192092896D;
-							}
-						}
-					}
-				}
-			}
-		}
+			findAffectedBlocks();
 		
-		this.affectedBlockPositions.addAll(set);
 		float f3 = this.size * 2.0F;
 		int k1 = MathHelper.floor(this.x - (double)f3 - 1.0D);
 		int l1 = MathHelper.floor(this.x + (double)f3 + 1.0D);
@@ -147,7 +166,8 @@ public class FlansModExplosion extends Explosion
 		int j1 = MathHelper.floor(this.z + (double)f3 + 1.0D);
 		List<Entity> list = this.world.getEntitiesWithinAABBExcludingEntity(this.explosive, new AxisAlignedBB((double)k1, (double)i2, (double)j2, (double)l1, (double)i1, (double)j1));
 		net.minecraftforge.event.ForgeEventFactory.onExplosionDetonate(this.world, this, list, f3);
-		Vec3d vec3d = new Vec3d(this.x, this.y, this.z);
+		//One damage source for everything hit by this explosion
+		DamageSource damageSource = player.isPresent() ? new EntityDamageSourceFlan(type.shortName, explosive, player.get(), type).setExplosion() : DamageSource.causeExplosionDamage(this);
 		
 		for(Entity entity : list)
 		{
@@ -167,15 +187,9 @@ public class FlansModExplosion extends Explosion
 						d5 /= d13;
 						d7 /= d13;
 						d9 /= d13;
-						double d14 = (double)this.world.getBlockDensity(vec3d, entity.getEntityBoundingBox());
+						double d14 = (double)visibility.getDensity(entity.getEntityBoundingBox());
 						double d10 = (1.0D - d12) * d14;
-						if(player.isPresent())
-						{
-							entity.attackEntityFrom(new EntityDamageSourceFlan(type.shortName, explosive, player.get(), type).setExplosion(),
-									(float)((int)((d10 * d10 + d10) / 2.0D * 7.0D * (double)f3 + 1.0D)));
-						} else {
-							entity.attackEntityFrom(DamageSource.causeExplosionDamage(this), (float)((int)((d10 * d10 + d10) / 2.0D * 7.0D * (double)f3 + 1.0D)));
-						}
+						entity.attackEntityFrom(damageSource, (float)((int)((d10 * d10 + d10) / 2.0D * 7.0D * (double)f3 + 1.0D)));
 						double d11 = d10;
 						
 						if(entity instanceof EntityLivingBase)
@@ -12,7 +12,8 @@ import com.flansmod.common.guns.EntityGrenade;
 import com.flansmod.common.guns.EntityMG;
 import com.flansmod.common.guns.GunType;
 import com.flansmod.common.guns.ItemGun;
-import com.flansmod.common.guns.raytracing.PlayerSnapshot;
+import com.flansmod.common.guns.ShootTimeCredit;
+import com.flansmod.common.guns.raytracing.PlayerSnapshotBuffer;
 import com.flansmod.common.teams.IPlayerClass;
 import com.flansmod.common.teams.Team;
 import com.flansmod.common.vector.Vector3f;
@@ -30,10 +31,15 @@ public class PlayerData
 	 */
 	public float prevRotationRoll, rotationRoll;
 	/**
-	 * Snapshots for bullet hit detection. Array size is set to number of snapshots required. When a new one is taken,
-	 * each snapshot is moved along one place and new one is added at the start, so that when the array fills up, the oldest one is lost
+	 * Snapshots for bullet hit detection. Buffer size is set to number of snapshots required. When a new one is taken,
+	 * it overwrites the oldest one in place, so that when the buffer fills up, the oldest one is lost
 	 */
-	public PlayerSnapshot[] snapshots;
+	public PlayerSnapshotBuffer snapshots;
+	/**
+	 * How many times this data has been ticked. The client sends its count with the shots it fires, so the server can
+	 * tell how many of the client's ticks have passed between them
+	 */
+	public int ticks;
 	
 	//Gun related fields
 	/**
@@ -69,6 +75,10 @@ public class PlayerData
 	 * Tickers to stop shooting too fast
 	 */
 	public float shootTimeRight, shootTimeLeft;
+	/**
+	 * Server side, keeps the shoot timers in step with the client's ticks
+	 */
+	public final ShootTimeCredit shootTimeCreditRight = new ShootTimeCredit(), shootTimeCreditLeft = new ShootTimeCredit();
 	/**
 	 * True if this player is shooting
 	 */
@@ -94,6 +104,22 @@ public class PlayerData
 		else shootTimeRight = set;
 	}
 	
+	/**
+	 * Runs the shoot timer down as if it had been ticked the given number of extra times
+	 */
+	public void CreditShootTime(EnumHand hand, int ticks)
+	{
+		float shootTime = GetShootTime(hand);
+		for(int i = 0; i < ticks && shootTime > 0; i++)
+			shootTime--;
+		SetShootTime(hand, shootTime);
+	}
+	
+	public ShootTimeCredit GetShootTimeCredit(EnumHand hand)
+	{
+		return hand == EnumHand.OFF_HAND ? shootTimeCreditLeft : shootTimeCreditRight;
+	}
+	
 	public int GetBurstRoundsRemaining(EnumHand hand)
 	{
 		return hand == EnumHand.OFF_HAND ? burstRoundsRemainingLeft : burstRoundsRemainingRight;
@@ -153,11 +179,12 @@ public class PlayerData
 	public PlayerData(String name)
 	{
 		username = name;
-		snapshots = new PlayerSnapshot[FlansMod.numPlayerSnapshots];
+		snapshots = new PlayerSnapshotBuffer(FlansMod.numPlayerSnapshots);
 	}
 	
 	public void tick(EntityPlayer player)
 	{
+		ticks++;
 		if(player.world.isRemote)
 			clientTick(player);
 		if(shootTimeRight > 0)
@@ -180,10 +207,8 @@ public class PlayerData
 				//shouldPlayCooldownSound = true;
 		}
 		
-		//Move all snapshots along one place
-		System.arraycopy(snapshots, 0, snapshots, 1, snapshots.length - 2 + 1);
-		//Take new snapshot
-		snapshots[0] = new PlayerSnapshot(player);
+		//Take new snapshot over the oldest one
+		snapshots.record(player);
 	}
 	
 	public void clientTick(EntityPlayer player)
@@ -208,7 +233,7 @@ public class PlayerData
 	{
 		mountingGun = null;
 		isShootingRight = isShootingLeft = false;
-		snapshots = new PlayerSnapshot[FlansMod.numPlayerSnapshots];
+		snapshots.clear();
 	}
 	
 	public boolean isValidOffHandWeapon(EntityPlayer player, int slot)
@@ -5,6 +5,13 @@ import com.flansmod.common.vector.Vector3f;
 
 public class RotatedAxes
 {
+	/**
+	 * The global axes, only ever read
+	 */
+	private static final Vector3f X_AXIS = new Vector3f(1F, 0F, 0F);
+	private static final Vector3f Y_AXIS = new Vector3f(0F, 1F, 0F);
+	private static final Vector3f Z_AXIS = new Vector3f(0F, 0F, 1F);
+	
 	public RotatedAxes()
 	{
 		//Load identity
@@ -109,7 +116,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the yaw axis
 	public RotatedAxes rotateGlobalYaw(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, new Vector3f(0F, 1F, 0F));
+		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, Y_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -117,7 +124,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the pitch axis
 	public RotatedAxes rotateGlobalPitch(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, new Vector3f(0F, 0F, 1F));
+		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, Z_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -125,7 +132,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the roll axis
 	public RotatedAxes rotateGlobalRoll(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, new Vector3f(1F, 0F, 0F));
+		rotationMatrix.rotate(rotateBy * 3.14159265F / 180F, X_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -133,7 +140,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the yaw axis
 	public RotatedAxes rotateGlobalYawInRads(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy, new Vector3f(0F, 1F, 0F));
+		rotationMatrix.rotate(rotateBy, Y_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -141,7 +148,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the pitch axis
 	public RotatedAxes rotateGlobalPitchInRads(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy, new Vector3f(0F, 0F, 1F));
+		rotationMatrix.rotate(rotateBy, Z_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -149,7 +156,7 @@ public class RotatedAxes
 	//Rotate globally by some angle about the roll axis
 	public RotatedAxes rotateGlobalRollInRads(float rotateBy)
 	{
-		rotationMatrix.rotate(rotateBy, new Vector3f(1F, 0F, 0F));
+		rotationMatrix.rotate(rotateBy, X_AXIS);
 		convertMatrixToAngles();
 		return this;
 	}
@@ -171,40 +178,119 @@ public class RotatedAxes
 	//Find a global vector in terms of this basis.
 	public Vector3f findGlobalVectorLocally(Vector3f in)
 	{
-		//Create a new matrix and use the first column to store the vector we are rotating
-		Matrix4f mat = new Matrix4f();
-		mat.m00 = in.x;
-		mat.m10 = in.y;
-		mat.m20 = in.z;
-		//Do the rotations used to obtain this basis in reverse
-		mat.rotate(-rotationYaw * 3.14159265F / 180F, new Vector3f(0F, 1F, 0F));
-		mat.rotate(-rotationPitch * 3.14159265F / 180F, new Vector3f(0F, 0F, 1F));
-		mat.rotate(-rotationRoll * 3.14159265F / 180F, new Vector3f(1F, 0F, 0F));
-		return new Vector3f(mat.m00, mat.m10, mat.m20);
+		return findGlobalVectorLocally(in, null);
+	}
+	
+	/**
+	 * Find a global vector in terms of this basis, without creating anything if dest is given
+	 *
+	 * @param dest The vector to put the result in, which may be in itself, or null for a new one
+	 */
+	public Vector3f findGlobalVectorLocally(Vector3f in, Vector3f dest)
+	{
+		updateBasis();
+		//The inverse of a rotation is its transpose
+		float x = basis00 * in.x + basis10 * in.y + basis20 * in.z;
+		float y = basis01 * in.x + basis11 * in.y + basis21 * in.z;
+		float z = basis02 * in.x + basis12 * in.y + basis22 * in.z;
+		if(dest == null)
+			return new Vector3f(x, y, z);
+		dest.set(x, y, z);
+		return dest;
+	}
+	
+	/**
+	 * Find a global vector in terms of this basis, writing the result into three consecutive floats of dest
+	 */
+	public void findGlobalVectorLocally(float x, float y, float z, float[] dest, int offset)
+	{
+		updateBasis();
+		dest[offset] = basis00 * x + basis10 * y + basis20 * z;
+		dest[offset + 1] = basis01 * x + basis11 * y + basis21 * z;
+		dest[offset + 2] = basis02 * x + basis12 * y + basis22 * z;
 	}
 	
 	//Find a local vector in terms of the global axes.
 	public Vector3f findLocalVectorGlobally(Vector3f in)
 	{
-		//Create a new matrix and use the first column to store the vector we are rotating
-		Matrix4f mat = new Matrix4f();
-		mat.m00 = in.x;
-		mat.m10 = in.y;
-		mat.m20 = in.z;
-		//Do the rotations used to obtain this basis
-		mat.rotate(rotationRoll * 3.14159265F / 180F, new Vector3f(1F, 0F, 0F));
-		mat.rotate(rotationPitch * 3.14159265F / 180F, new Vector3f(0F, 0F, 1F));
-		mat.rotate(rotationYaw * 3.14159265F / 180F, new Vector3f(0F, 1F, 0F));
-		return new Vector3f(mat.m00, mat.m10, mat.m20);
+		return findLocalVectorGlobally(in, null);
+	}
+	
+	/**
+	 * Find a local vector in terms of the global axes, without creating anything if dest is given
+	 *
+	 * @param dest The vector to put the result in, which may be in itself, or null for a new one
+	 */
+	public Vector3f findLocalVectorGlobally(Vector3f in, Vector3f dest)
+	{
+		updateBasis();
+		float x = basis00 * in.x + basis01 * in.y + basis02 * in.z;
+		float y = basis10 * in.x + basis11 * in.y + basis12 * in.z;
+		float z = basis20 * in.x + basis21 * in.y + basis22 * in.z;
+		if(dest == null)
+			return new Vector3f(x, y, z);
+		dest.set(x, y, z);
+		return dest;
+	}
+	
+	/**
+	 * Find a local vector in terms of the global axes, writing the result into three consecutive floats of dest
+	 */
+	public void findLocalVectorGlobally(float x, float y, float z, float[] dest, int offset)
+	{
+		updateBasis();
+		dest[offset] = basis00 * x + basis01 * y + basis02 * z;
+		dest[offset + 1] = basis10 * x + basis11 * y + basis12 * z;
+		dest[offset + 2] = basis20 * x + basis21 * y + basis22 * z;
+	}
+	
+	/**
+	 * Works out the basis from the angles if they have changed since it was last worked out. The basis is the result of
+	 * rotating by roll about x, then pitch about z, then yaw about y, written out in full so that each angle only needs
+	 * one sin and cos
+	 */
+	private void updateBasis()
+	{
+		if(basisValid && basisYaw == rotationYaw && basisPitch == rotationPitch && basisRoll == rotationRoll)
+			return;
+		
+		float yaw = rotationYaw * 3.14159265F / 180F;
+		float pitch = rotationPitch * 3.14159265F / 180F;
+		float roll = rotationRoll * 3.14159265F / 180F;
+		float cy = (float)Math.cos(yaw), sy = (float)Math.sin(yaw);
+		float cp = (float)Math.cos(pitch), sp = (float)Math.sin(pitch);
+		float cr = (float)Math.cos(roll), sr = (float)Math.sin(roll);
+		
+		basis00 = cy * cp;
+		basis10 = -sp;
+		basis20 = sy * cp;
+		basis01 = cy * sp * cr + sy * sr;
+		basis11 = cp * cr;
+		basis21 = sy * sp * cr - cy * sr;
+		basis02 = cy * sp * sr - sy * cr;
+		basis12 = cp * sr;
+		basis22 = sy * sp * sr + cy * cr;
+		
+		basisYaw = rotationYaw;
+		basisPitch = rotationPitch;
+		basisRoll = rotationRoll;
+		basisValid = true;
 	}
 	
 	private void convertAnglesToMatrix()
 	{
-		//Re-load the identity
+		updateBasis();
+		//Re-load the identity, other code may still hold the old matrix
 		rotationMatrix = new Matrix4f();
-		rotationMatrix.rotate(rotationRoll * 3.14159265F / 180F, new Vector3f(1F, 0F, 0F));
-		rotationMatrix.rotate(rotationPitch * 3.14159265F / 180F, new Vector3f(0F, 0F, 1F));
-		rotationMatrix.rotate(rotationYaw * 3.14159265F / 180F, new Vector3f(0F, 1F, 0F));
+		rotationMatrix.m00 = basis00;
+		rotationMatrix.m01 = basis01;
+		rotationMatrix.m02 = basis02;
+		rotationMatrix.m10 = basis10;
+		rotationMatrix.m11 = basis11;
+		rotationMatrix.m12 = basis12;
+		rotationMatrix.m20 = basis20;
+		rotationMatrix.m21 = basis21;
+		rotationMatrix.m22 = basis22;
 		convertMatrixToAngles();
 	}
 	
@@ -250,13 +336,27 @@ public class RotatedAxes
 	
 	public RotatedAxes findLocalAxesGlobally(RotatedAxes in)
 	{
+		updateBasis();
 		//Take the input matrix
 		Matrix4f mat = new Matrix4f();
 		mat.load(in.getMatrix());
-		//Perform the rotations to convert from this local set of axes to the global axes
-		mat.rotate(rotationRoll * 3.14159265F / 180F, new Vector3f(1F, 0F, 0F));
-		mat.rotate(rotationPitch * 3.14159265F / 180F, new Vector3f(0F, 0F, 1F));
-		mat.rotate(rotationYaw * 3.14159265F / 180F, new Vector3f(0F, 1F, 0F));
+		//Convert each of its columns from this local set of axes to the global axes
+		float x0 = mat.m00, y0 = mat.m10, z0 = mat.m20;
+		float x1 = mat.m01, y1 = mat.m11, z1 = mat.m21;
+		float x2 = mat.m02, y2 = mat.m12, z2 = mat.m22;
+		float x3 = mat.m03, y3 = mat.m13, z3 = mat.m23;
+		mat.m00 = basis00 * x0 + basis01 * y0 + basis02 * z0;
+		mat.m10 = basis10 * x0 + basis11 * y0 + basis12 * z0;
+		mat.m20 = basis20 * x0 + basis21 * y0 + basis22 * z0;
+		mat.m01 = basis00 * x1 + basis01 * y1 + basis02 * z1;
+		mat.m11 = basis10 * x1 + basis11 * y1 + basis12 * z1;
+		mat.m21 = basis20 * x1 + basis21 * y1 + basis22 * z1;
+		mat.m02 = basis00 * x2 + basis01 * y2 + basis02 * z2;
+		mat.m12 = basis10 * x2 + basis11 * y2 + basis12 * z2;
+		mat.m22 = basis20 * x2 + basis21 * y2 + basis22 * z2;
+		mat.m03 = basis00 * x3 + basis01 * y3 + basis02 * z3;
+		mat.m13 = basis10 * x3 + basis11 * y3 + basis12 * z3;
+		mat.m23 = basis20 * x3 + basis21 * y3 + basis22 * z3;
 		//Return the globalised matrix
 		return new RotatedAxes(mat);
 	}
@@ -271,4 +371,12 @@ public class RotatedAxes
 	private float rotationPitch;
 	private float rotationRoll;
 	private Matrix4f rotationMatrix;
+	
+	/**
+	 * The rotation given by the angles, kept until they change. basisRC is row R, column C, laid out the same way as
+	 * the rotation matrix
+	 */
+	private float basis00, basis01, basis02, basis10, basis11, basis12, basis20, basis21, basis22;
+	private float basisYaw, basisPitch, basisRoll;
+	private boolean basisValid = false;
 }
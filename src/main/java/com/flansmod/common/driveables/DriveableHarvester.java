@@ -0,0 +1,131 @@
+package com.flansmod.common.driveables;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.NonNullList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.ForgeHooks;
+
+import com.flansmod.common.FlansMod;
+import com.flansmod.common.util.BlockUtil;
+import com.flansmod.common.util.ChunkSectionReader;
+import com.flansmod.common.vector.Vector3f;
+
+import static com.flansmod.common.util.BlockUtil.destroyBlock;
+
+/**
+ * Breaks the blocks inside a driveable's harvester box, server side.
+ * <p>
+ * Every block the box covers is remembered once it has been checked, so blocks that are air, that the harvester cannot
+ * harvest or that it has already broken are not looked at again while they stay inside the box. Only blocks the box has
+ * newly moved over are checked each tick, and no more than {@link FlansMod#harvesterBlocksPerTick} are broken per tick,
+ * with the rest left for the following ticks.
+ */
+public class DriveableHarvester
+{
+	/**
+	 * How often to forget which blocks have been checked, so that things growing back inside a stationary harvester are
+	 * still picked up
+	 */
+	private static final int RECHECK_INTERVAL = 20;
+	
+	private final EntityDriveable driveable;
+	private final Set<Long> covered = new HashSet<>();
+	private final Set<Long> checked = new HashSet<>();
+	private final HarvestedDrops drops = new HarvestedDrops();
+	private final NonNullList<ItemStack> blockDrops = NonNullList.create();
+	private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+	
+	public DriveableHarvester(EntityDriveable driveable)
+	{
+		this.driveable = driveable;
+	}
+	
+	public void update(CollisionBox box)
+	{
+		DriveableType type = driveable.getDriveableType();
+		WorldServer world = (WorldServer)driveable.world;
+		if(driveable.ticksExisted % RECHECK_INTERVAL == 0)
+			checked.clear();
+		
+		//The box is only rotated, so each step along it moves by the same amount in world space
+		Vector3f xStep = driveable.axes.findLocalVectorGlobally(new Vector3f(1F, 0F, 0F));
+		Vector3f yStep = driveable.axes.findLocalVectorGlobally(new Vector3f(0F, 1F, 0F));
+		Vector3f zStep = driveable.axes.findLocalVectorGlobally(new Vector3f(0F, 0F, 1F));
+		
+		covered.clear();
+		ChunkSectionReader blocks = new ChunkSectionReader(world);
+		
+		int budget = FlansMod.harvesterBlocksPerTick;
+		for(float x = box.x; x <= box.x + box.w; x++)
+		{
+			for(float y = box.y; y <= box.y + box.h; y++)
+			{
+				for(float z = box.z; z <= box.z + box.d; z++)
+				{
+					int blockX = (int)Math.round(driveable.posX + xStep.x * x + yStep.x * y + zStep.x * z);
+					int blockY = (int)Math.round(driveable.posY + xStep.y * x + yStep.y * y + zStep.y * z);
+					int blockZ = (int)Math.round(driveable.posZ + xStep.z * x + yStep.z * y + zStep.z * z);
+					long key = BlockUtil.toLong(blockX, blockY, blockZ);
+					if(!covered.add(key) || checked.contains(key))
+						continue;
+					
+					IBlockState state = blocks.getLoadedBlockState(blockX, blockY, blockZ);
+					//Not loaded, try again next tick
+					if(state == null)
+						continue;
+					Material material = state.getMaterial();
+					if(material == Material.AIR || !type.materialsHarvested.contains(material))
+					{
+						checked.add(key);
+						continue;
+					}
+					//Out of blocks for this tick, leave it unchecked so it is picked up next tick
+					if(budget <= 0)
+						continue;
+					budget--;
+					checked.add(key);
+					pos.setPos(blockX, blockY, blockZ);
+					harvest(world, state);
+				}
+			}
+		}
+		//Forget blocks the box has moved off, so that they are checked again if it comes back
+		checked.retainAll(covered);
+		
+		if(!drops.isEmpty())
+			drops.flush(world, driveable.driveableData, driveable.driverIsCreative());
+	}
+	
+	private void harvest(WorldServer world, IBlockState state)
+	{
+		EntityPlayer driver = driveable.getDriver();
+		if(driver != null)
+		{
+			int eventOutcome = ForgeHooks.onBlockBreakEvent(world,
+					driver.isCreative() ? GameType.CREATIVE : driver.capabilities.allowEdit ? GameType.SURVIVAL : GameType.ADVENTURE,
+					(EntityPlayerMP)driver, pos);
+			if(eventOutcome == -1)
+				return;
+		}
+		if(state.getBlockHardness(world, pos) < 0F)
+			return;
+		
+		BlockPos blockPos = pos.toImmutable();
+		blockDrops.clear();
+		state.getBlock().getDrops(blockDrops, world, blockPos, state, 0);
+		if(destroyBlock(world, blockPos, driver, false))
+		{
+			for(ItemStack stack : blockDrops)
+				drops.add(stack, blockPos);
+		}
+	}
+}
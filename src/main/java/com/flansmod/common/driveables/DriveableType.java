@@ -22,8 +22,11 @@ import com.flansmod.common.driveables.collisions.CollisionShapeBox;
 import com.flansmod.common.guns.BulletType;
 import com.flansmod.common.guns.EnumFireMode;
 import com.flansmod.common.paintjob.PaintableType;
+import com.flansmod.common.parts.EnumPartCategory;
 import com.flansmod.common.parts.PartType;
+import com.flansmod.common.types.EnumType;
 import com.flansmod.common.types.TypeFile;
+import com.flansmod.common.util.InventoryHistogram;
 import com.flansmod.common.vector.Vector3f;
 
 public abstract class DriveableType extends PaintableType
@@ -1006,6 +1009,25 @@ public abstract class DriveableType extends PaintableType
 		return 1;
 	}
 	
+	/**
+	 * Finds the fastest engine that works with this driveable and of which the inventory holds enough
+	 *
+	 * @return The engine, or null if there are not enough of any suitable engine
+	 */
+	public PartType getBestEngine(InventoryHistogram inventory)
+	{
+		EnumType enumType = EnumType.getFromObject(this);
+		PartType bestEngine = null;
+		for(PartType part : PartType.partsByCategory.get(EnumPartCategory.ENGINE))
+		{
+			if(part.item != null && part.worksWith.contains(enumType)
+					&& (bestEngine == null || part.engineSpeed > bestEngine.engineSpeed)
+					&& inventory.countIgnoringDamage(part.item) >= numEngines())
+				bestEngine = part;
+		}
+		return bestEngine;
+	}
+	
 	public int ammoSlots()
 	{
 		return numPassengerGunners + pilotGuns.size();
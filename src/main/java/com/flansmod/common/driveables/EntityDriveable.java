@@ -3,7 +3,11 @@ package com.flansmod.common.driveables;
 import static com.flansmod.common.util.BlockUtil.destroyBlock;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import com.flansmod.api.IControllable;
 import com.flansmod.api.IExplodeable;
@@ -20,7 +24,6 @@ import com.flansmod.common.guns.EnumFireMode;
 import com.flansmod.common.guns.FireableGun;
 import com.flansmod.common.guns.FiredShot;
 import com.flansmod.common.guns.GunType;
-import com.flansmod.common.guns.InventoryHelper;
 import com.flansmod.common.guns.ItemBullet;
 import com.flansmod.common.guns.ItemShootable;
 import com.flansmod.common.guns.ShootBulletHandler;
@@ -28,6 +31,7 @@ import com.flansmod.common.guns.ShootableType;
 import com.flansmod.common.guns.ShotHandler;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.BulletHit;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.DriveableHit;
+import com.flansmod.common.network.PacketDriveableControl;
 import com.flansmod.common.network.PacketDriveableDamage;
 import com.flansmod.common.network.PacketDriveableKey;
 import com.flansmod.common.network.PacketDriveableKeyHeld;
@@ -53,17 +57,14 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.DamageSource;
 import net.minecraft.util.EnumParticleTypes;
-import net.minecraft.util.NonNullList;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.RayTraceResult.Type;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.GameType;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
-import net.minecraftforge.common.ForgeHooks;
 import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.common.registry.IEntityAdditionalSpawnData;
 import net.minecraftforge.fml.relauncher.Side;
@@ -148,6 +149,8 @@ public abstract class EntityDriveable extends Entity implements IControllable, I
 	
 	/** Angle of harvester aesthetic piece */
 	public float harvesterAngle;
+	/** Breaks blocks in the harvester box, server side only */
+	private DriveableHarvester harvester;
 	
 	public RotatedAxes prevAxes;
 	public RotatedAxes axes;
@@ -181,6 +184,22 @@ public abstract class EntityDriveable extends Entity implements IControllable, I
 	 */
 	public int nanRecoveryAttempt = 0;
 	
+	/**
+	 * The last control state sent out for and received about this driveable, which control packets are delta encoded
+	 * against. See {@link PacketDriveableControl}
+	 */
+	public PacketDriveableControl.SyncState controlStateSent, controlStateReceived;
+	
+	/**
+	 * Driveables that have taken damage this tick, see {@link #sendDamageUpdates}
+	 */
+	private static final Set<EntityDriveable> damagedThisTick = Collections.newSetFromMap(new IdentityHashMap<>());
+	/**
+	 * The health and fire state of each part as last sent to clients
+	 */
+	private int[] partHealthSent;
+	private boolean[] partOnFireSent;
+	
 	public EntityDriveable(World world)
 	{
 		super(world);
@@ -972,63 +991,11 @@ public abstract class EntityDriveable extends Entity implements IControllable, I
 			harvesterAngle += throttle / 5F;
 		}
 		// Actual harvesting
-		if(type.harvestBlocks && type.health.get(EnumDriveablePart.harvester) != null)
+		if(!world.isRemote && type.harvestBlocks && type.health.get(EnumDriveablePart.harvester) != null)
 		{
-			CollisionBox box = type.health.get(EnumDriveablePart.harvester);
-			for(float x = box.x; x <= box.x + box.w; x++)
-			{
-				for(float y = box.y; y <= box.y + box.h; y++)
-				{
-					for(float z = box.z; z <= box.z + box.d; z++)
-					{
-						Vector3f v = axes.findLocalVectorGlobally(new Vector3f(x, y, z));
-						
-						int blockX = (int)Math.round(posX + v.x);
-						int blockY = (int)Math.round(posY + v.y);
-						int blockZ = (int)Math.round(posZ + v.z);
-						IBlockState block = world.getBlockState(new BlockPos(blockX, blockY, blockZ));
-						
-						boolean cancelled = false;
-						if(getDriver() != null)
-						{
-							int eventOutcome = ForgeHooks.onBlockBreakEvent(world,
-								driverIsCreative() ? GameType.CREATIVE : getDriver().capabilities.allowEdit
-									? GameType.SURVIVAL : GameType.ADVENTURE,
-								(EntityPlayerMP)getDriver(), new BlockPos(blockX, blockY, blockZ));
-							cancelled = eventOutcome == -1;
-						}
-						if(!cancelled)
-						{
-							if(type.materialsHarvested.contains(block.getMaterial()) && block.getBlockHardness(world,
-								new BlockPos(blockX, blockY, blockZ)) >= 0F)
-							{
-								// Add the item stack to mecha inventory
-								NonNullList<ItemStack> stacks = NonNullList.create();
-								block.getBlock().getDrops(stacks, world, new BlockPos(blockX, blockY, blockZ),
-									world.getBlockState(new BlockPos(blockX, blockY, blockZ)), 0);
-								for(ItemStack stack : stacks)
-								{
-									if(!InventoryHelper.addItemStackToInventory(driveableData, stack,
-										driverIsCreative()) && !world.isRemote && world.getGameRules().getBoolean(
-										"doTileDrops"))
-									{
-										world.spawnEntity(
-											new EntityItem(world, blockX + 0.5F, blockY + 0.5F, blockZ + 0.5F,
-												stack));
-									}
-								}
-								// Destroy block
-								if(!world.isRemote)
-								{
-									WorldServer worldServer = (WorldServer)world;
-									BlockPos pos = new BlockPos(blockX, blockY, blockZ);
-									destroyBlock(worldServer, pos, getDriver(), false);
-								}
-							}
-						}
-					}
-				}
-			}
+			if(harvester == null)
+				harvester = new DriveableHarvester(this);
+			harvester.update(type.health.get(EnumDriveablePart.harvester));
 		}
 		
 		//Gun recoil
@@ -1488,9 +1455,45 @@ public abstract class EntityDriveable extends Entity implements IControllable, I
 	public boolean attackPart(EnumDriveablePart ep, DamageSource source, float damage)
 	{
 		DriveablePart part = driveableData.parts.get(ep);
+		markPartsDamaged();
 		return part.attack(damage, source.isFireDamage());
 	}
 	
+	/**
+	 * Queues this driveable to send its changed parts to clients at the end of the tick. However many times it is hit
+	 * in a tick, only one packet is sent
+	 */
+	public void markPartsDamaged()
+	{
+		if(!world.isRemote)
+			damagedThisTick.add(this);
+	}
+	
+	/**
+	 * Sends the parts that have changed to every client tracking each driveable that was damaged this tick. Called at
+	 * the end of each server tick
+	 * <p>
+	 * One record of what was sent does for all clients: every client tracking the driveable gets every update, and a
+	 * client that starts tracking it later is sent the health of all parts in the spawn data
+	 */
+	public static void sendDamageUpdates()
+	{
+		for(EntityDriveable driveable : damagedThisTick)
+		{
+			if(driveable.partHealthSent == null)
+			{
+				//Nothing sent yet, so make sure the first update has every part in it
+				driveable.partHealthSent = new int[EnumDriveablePart.values().length];
+				driveable.partOnFireSent = new boolean[EnumDriveablePart.values().length];
+				Arrays.fill(driveable.partHealthSent, Integer.MIN_VALUE);
+			}
+			PacketDriveableDamage packet = PacketDriveableDamage.changesSince(driveable, driveable.partHealthSent, driveable.partOnFireSent);
+			if(packet != null)
+				FlansMod.getPacketHandler().sendToAllTracking(packet, driveable);
+		}
+		damagedThisTick.clear();
+	}
+	
 	/**
 	 * Takes a vector (such as the origin of a seat / gun) and translates it from local coordinates to global
 	 * coordinates
@@ -1718,9 +1721,8 @@ public abstract class EntityDriveable extends Entity implements IControllable, I
 		if(!world.isRemote)
 		{
 			checkParts();
-			// If it hit, send a damage update packet
-			FlansMod.getPacketHandler().sendToAllAround(new PacketDriveableDamage(this), posX, posY, posZ, 100,
-				dimension);
+			// If it hit, send a damage update at the end of the tick
+			markPartsDamaged();
 		}
 		
 		return penetratingPower - 5F;
@@ -24,6 +24,7 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 
 import com.flansmod.api.IControllable;
 import com.flansmod.client.FlansModClient;
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.RotatedAxes;
 import com.flansmod.common.guns.BulletType;
@@ -944,8 +945,7 @@ public class EntitySeat extends Entity implements IControllable, IEntityAddition
 	public void readSpawnData(ByteBuf data)
 	{
 		driveableID = data.readInt();
-		if(world.getEntityByID(driveableID) instanceof EntityDriveable)
-			driveable = (EntityDriveable)world.getEntityByID(driveableID);
+		driveable = FlansEntityIndex.getEntity(world, driveableID, EntityDriveable.class);
 		seatID = data.readInt();
 		if(seatID >= 0 && driveable != null)
 		{
@@ -8,6 +8,7 @@ import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.common.registry.IEntityAdditionalSpawnData;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.vector.Vector3f;
 
@@ -160,8 +161,7 @@ public class EntityWheel extends Entity implements IEntityAdditionalSpawnData
 	{
 		vehicleID = data.readInt();
 		ID = data.readInt();
-		if(world.getEntityByID(vehicleID) instanceof EntityDriveable)
-			vehicle = (EntityDriveable)world.getEntityByID(vehicleID);
+		vehicle = FlansEntityIndex.getEntity(world, vehicleID, EntityDriveable.class);
 		
 		setPosition(posX, posY, posZ);
 	}
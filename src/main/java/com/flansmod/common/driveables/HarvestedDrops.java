@@ -0,0 +1,73 @@
+package com.flansmod.common.driveables;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import com.flansmod.common.guns.InventoryHelper;
+
+/**
+ * Collects the drops from blocks broken by a harvester or mecha over one tick, merging identical stacks, so that the
+ * inventory is searched once per kind of item rather than once per stack dropped
+ */
+public class HarvestedDrops
+{
+	private final List<ItemStack> stacks = new ArrayList<>();
+	/**
+	 * Where each stack was first dropped, for spawning whatever does not fit in the inventory
+	 */
+	private final List<BlockPos> origins = new ArrayList<>();
+	
+	public void add(ItemStack stack, BlockPos origin)
+	{
+		if(stack.isEmpty())
+			return;
+		if(stack.isStackable())
+		{
+			for(ItemStack existing : stacks)
+			{
+				if(existing.isStackable() && ItemStack.areItemsEqual(existing, stack) && ItemStack.areItemStackTagsEqual(existing, stack))
+				{
+					existing.grow(stack.getCount());
+					return;
+				}
+			}
+		}
+		stacks.add(stack.copy());
+		origins.add(origin.toImmutable());
+	}
+	
+	public boolean isEmpty()
+	{
+		return stacks.isEmpty();
+	}
+	
+	/**
+	 * Puts everything collected into the inventory, dropping what does not fit into the world if tile drops are on
+	 */
+	public void flush(World world, IInventory inventory, boolean creative)
+	{
+		boolean doTileDrops = world.getGameRules().getBoolean("doTileDrops");
+		for(int i = 0; i < stacks.size(); i++)
+		{
+			ItemStack stack = stacks.get(i);
+			InventoryHelper.addItemStackToInventory(inventory, stack, creative);
+			if(stack.isEmpty() || !doTileDrops)
+				continue;
+			BlockPos origin = origins.get(i);
+			//Merged stacks may be larger than an item can normally stack to
+			while(!stack.isEmpty())
+			{
+				ItemStack dropped = stack.splitStack(stack.getMaxStackSize());
+				world.spawnEntity(new EntityItem(world, origin.getX() + 0.5F, origin.getY() + 0.5F, origin.getZ() + 0.5F, dropped));
+			}
+		}
+		stacks.clear();
+		origins.clear();
+	}
+}
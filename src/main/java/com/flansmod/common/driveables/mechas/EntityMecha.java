@@ -48,6 +48,7 @@ import com.flansmod.common.driveables.DriveableType;
 import com.flansmod.common.driveables.EntityDriveable;
 import com.flansmod.common.driveables.EntitySeat;
 import com.flansmod.common.driveables.EnumDriveablePart;
+import com.flansmod.common.driveables.HarvestedDrops;
 import com.flansmod.common.guns.BulletType;
 import com.flansmod.common.guns.EntityGrenade;
 import com.flansmod.common.guns.EnumFireMode;
@@ -55,14 +56,12 @@ import com.flansmod.common.guns.FireableGun;
 import com.flansmod.common.guns.FiredShot;
 import com.flansmod.common.guns.GrenadeType;
 import com.flansmod.common.guns.GunType;
-import com.flansmod.common.guns.InventoryHelper;
 import com.flansmod.common.guns.ItemBullet;
 import com.flansmod.common.guns.ItemGrenade;
 import com.flansmod.common.guns.ItemGun;
 import com.flansmod.common.guns.ItemShootable;
 import com.flansmod.common.guns.ShootableType;
 import com.flansmod.common.guns.ShotHandler;
-import com.flansmod.common.network.PacketDriveableDamage;
 import com.flansmod.common.network.PacketDriveableGUI;
 import com.flansmod.common.network.PacketMechaControl;
 import com.flansmod.common.network.PacketPlaySound;
@@ -100,6 +99,10 @@ public class EntityMecha extends EntityDriveable
 	 * Progress made towards breaking each block
 	 */
 	public float breakingProgress = 0F;
+	/**
+	 * Collects the drops of each mined block before they go into the inventory
+	 */
+	private final HarvestedDrops vacuumedDrops = new HarvestedDrops();
 	/**
 	 * Timer for the RocketPack Sound
 	 */
@@ -469,7 +472,7 @@ public class EntityMecha extends EntityDriveable
 			
 			driveableData.parts.get(EnumDriveablePart.hips).attack(damageToInflict, false);
 			checkParts();
-			FlansMod.getPacketHandler().sendToAllAround(new PacketDriveableDamage(this), posX, posY, posZ, FlansMod.driveableUpdateRange, dimension);
+			markPartsDamaged();
 			if(blockDamageFromFalling > 1)
 			{
 				world.createExplosion(this, posX, posY, posZ, blockDamageFromFalling, TeamsManager.explosions);
@@ -489,6 +492,7 @@ public class EntityMecha extends EntityDriveable
 		else
 		{
 			driveableData.parts.get(EnumDriveablePart.core).attack(i * vulnerability(), damagesource.isFireDamage());
+			markPartsDamaged();
 		}
 		return true;
 	}
@@ -693,10 +697,19 @@ public class EntityMecha extends EntityDriveable
 		if(breakingBlock != null)
 		{
 			//Get block and material
-			IBlockState state = world.getBlockState(new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z));
+			BlockPos pos = new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z);
+			IBlockState state = world.getBlockState(pos);
 			Block blockHit = state.getBlock();
 			Material material = state.getMaterial();
 			
+			//Nothing left to mine here, wait for the next block to be looked at
+			if(material == Material.AIR)
+			{
+				breakingBlock = null;
+				breakingProgress = 0F;
+				return;
+			}
+			
 			//Get the itemstacks in each hand
 			ItemStack leftStack = inventory.getStackInSlot(EnumMechaSlotType.leftTool);
 			ItemStack rightStack = inventory.getStackInSlot(EnumMechaSlotType.rightTool);
@@ -714,7 +727,7 @@ public class EntityMecha extends EntityDriveable
 			else
 			{
 				//Get the block hardness
-				float blockHardness = state.getBlockHardness(world, new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z));
+				float blockHardness = state.getBlockHardness(world, pos);
 				
 				//Calculate the mine speed
 				float mineSpeed = 1F;
@@ -746,7 +759,7 @@ public class EntityMecha extends EntityDriveable
 					mineSpeed = 9001F;
 				else
 				{
-					mineSpeed /= state.getBlockHardness(world, new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z));
+					mineSpeed /= blockHardness;
 				}
 				
 				//Add block digging overlay
@@ -757,34 +770,35 @@ public class EntityMecha extends EntityDriveable
 					if(playerDriver instanceof EntityPlayerMP)
 					{
 						int eventOutcome = ForgeHooks
-								.onBlockBreakEvent(world, isCreative ? GameType.CREATIVE : playerDriver.capabilities.allowEdit ? GameType.SURVIVAL : GameType.ADVENTURE, (EntityPlayerMP)playerDriver, new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z));
+								.onBlockBreakEvent(world, isCreative ? GameType.CREATIVE : playerDriver.capabilities.allowEdit ? GameType.SURVIVAL : GameType.ADVENTURE, (EntityPlayerMP)playerDriver, pos);
 						cancelled = eventOutcome == -1;
 					}
 					if(!cancelled)
 					{
 						if(canVacuumItems())
 						{
-							vacuumItems(isCreative, type, data, state, blockHit);
+							vacuumItems(isCreative, type, data, state, blockHit, pos);
 						}
 						//Destroy block
 						if(!world.isRemote)
 						{
 							WorldServer worldServer = (WorldServer)world;
-							BlockPos pos = new BlockPos(breakingBlock.x, breakingBlock.y, breakingBlock.z);
 							boolean dropBlocks = atLeastOneEffectiveTool && !canVacuumItems();
 							destroyBlock(worldServer, pos, driver, dropBlocks);
 						}
 					}
+					//Start again on whichever block is looked at next, rather than retrying this one every tick
+					breakingBlock = null;
+					breakingProgress = 0F;
 				}
 			}
 		}
 	}
 	
-	private void vacuumItems(boolean isCreative, MechaType type, DriveableData data, IBlockState state, Block blockHit)
+	private void vacuumItems(boolean isCreative, MechaType type, DriveableData data, IBlockState state, Block blockHit, BlockPos pos)
 	{
 		NonNullList<ItemStack> drops = NonNullList.create();
-		blockHit.getDrops(drops, world, new BlockPos(breakingBlock.x, breakingBlock.y,
-				breakingBlock.z), state, 0);
+		blockHit.getDrops(drops, world, pos, state, 0);
 		for(ItemStack stack : drops)
 		{
 			//Check for iron regarding refining
@@ -842,12 +856,11 @@ public class EntityMecha extends EntityDriveable
 				stack.setCount(0);
 			}
 			
-			//Add the itemstack to mecha inventory
-			if(!InventoryHelper.addItemStackToInventory(driveableData, stack, isCreative) && !world.isRemote && world.getGameRules().getBoolean("doTileDrops"))
-			{
-				world.spawnEntity(new EntityItem(world, breakingBlock.x + 0.5F, breakingBlock.y + 0.5F, breakingBlock.z + 0.5F, stack));
-			}
+			vacuumedDrops.add(stack, pos);
 		}
+		
+		//Add the drops to mecha inventory, merged so that each kind of item is only stored once
+		vacuumedDrops.flush(world, driveableData, isCreative);
 	}
 	
 	private void updateHeadPosition(
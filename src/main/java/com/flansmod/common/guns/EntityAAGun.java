@@ -82,6 +82,10 @@ public class EntityAAGun extends Entity implements IEntityAdditionalSpawnData
 	 * How often to check for new targets
 	 */
 	public static final float targetAcquireInterval = 10;
+	/**
+	 * This sentry's interest in nearby entities, server side
+	 */
+	private TargetTracker.Subscription targeting;
 	
 	public int ticksSinceUsed = 0;
 	
@@ -430,34 +434,30 @@ public class EntityAAGun extends Entity implements IEntityAdditionalSpawnData
 			return null;
 		if(placer == null && placerName != null)
 			placer = world.getPlayerEntityByName(placerName);
-		for(Object obj : world.getEntitiesWithinAABBExcludingEntity(this, getEntityBoundingBox().expand(type.targetRange, type.targetRange, type.targetRange)))
+		if(targeting == null)
+			targeting = new TargetTracker.Subscription(this, type.targetRange, this::isValidTarget);
+		return TargetTracker.get(world).findNearestTarget(targeting);
+	}
+	
+	private boolean isValidTarget(Entity candidateEntity)
+	{
+		if(!(type.targetMobs && candidateEntity instanceof EntityMob) && !(type.targetPlayers && candidateEntity instanceof EntityPlayer))
+			return false;
+		if(candidateEntity instanceof EntityPlayer)
 		{
-			Entity candidateEntity = (Entity)obj;
-			
-			if((type.targetMobs && candidateEntity instanceof EntityMob) || (type.targetPlayers && candidateEntity instanceof EntityPlayer))
+			if(candidateEntity == placer || candidateEntity.getName().equals(placerName))
+				return false;
+			if(TeamsManager.enabled && TeamsManager.getInstance().currentRound != null && placer != null)
 			{
-				//Check that this entity is actually in range and visible
-				if(candidateEntity.getDistanceSq(this) < type.targetRange * type.targetRange)
-				{
-					if(candidateEntity instanceof EntityPlayer)
-					{
-						if(candidateEntity == placer || candidateEntity.getName().equals(placerName))
-							continue;
-						if(TeamsManager.enabled && TeamsManager.getInstance().currentRound != null && placer != null)
-						{
-							PlayerData placerData = PlayerHandler.getPlayerData(placer, world.isRemote ? Side.CLIENT : Side.SERVER);
-							PlayerData candidateData = PlayerHandler.getPlayerData((EntityPlayer)candidateEntity, world.isRemote ? Side.CLIENT : Side.SERVER);
-							if(candidateData.team == Team.spectators || candidateData.team == null)
-								continue;
-							if(!TeamsManager.getInstance().currentRound.gametype.playerCanAttack((EntityPlayerMP)placer, placerData.team, (EntityPlayerMP)candidateEntity, candidateData.team))
-								continue;
-						}
-					}
-					return candidateEntity;
-				}
+				PlayerData placerData = PlayerHandler.getPlayerData(placer, Side.SERVER);
+				PlayerData candidateData = PlayerHandler.getPlayerData((EntityPlayer)candidateEntity, Side.SERVER);
+				if(candidateData.team == Team.spectators || candidateData.team == null)
+					return false;
+				if(!TeamsManager.getInstance().currentRound.gametype.playerCanAttack((EntityPlayerMP)placer, placerData.team, (EntityPlayerMP)candidateEntity, candidateData.team))
+					return false;
 			}
 		}
-		return null;
+		return true;
 	}
 	
 	@SideOnly(Side.CLIENT)
@@ -483,6 +483,8 @@ public class EntityAAGun extends Entity implements IEntityAdditionalSpawnData
 		// Drop gun
 		if(world.isRemote)
 			return;
+		if(targeting != null)
+			TargetTracker.get(world).unsubscribe(targeting);
 		dropItem(type.getItem(), 1);
 		// Drop ammo boxes
 		for(ItemStack stack : ammo)
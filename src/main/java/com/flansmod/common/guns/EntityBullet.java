@@ -20,6 +20,7 @@ import net.minecraft.util.SoundCategory;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraftforge.fml.client.FMLClientHandler;
 import net.minecraftforge.fml.common.registry.IEntityAdditionalSpawnData;
 import net.minecraftforge.fml.relauncher.Side;
@@ -27,6 +28,7 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 import com.flansmod.client.FlansModClient;
 import com.flansmod.client.debug.EntityDebugVector;
 import com.flansmod.client.handlers.FlansModResourceHandler;
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.driveables.EntityPlane;
 import com.flansmod.common.driveables.EntityVehicle;
@@ -180,43 +182,35 @@ public class EntityBullet extends EntityShootable implements IEntityAdditionalSp
 				
 				if (playeruuid != null)
 				{
-				for (Entity entity : world.loadedEntityList)
+					EntityPlayer found = world.getPlayerEntityByUUID(playeruuid);
+					if (found instanceof EntityPlayerMP)
+						player = (EntityPlayerMP)found;
+					playeruuid = null;
+				}
+				
+				if (shooteruuid != null)
 				{
-					if (entity.getUniqueID().equals(playeruuid) && entity instanceof EntityPlayerMP)
+					if (player != null && shooteruuid.equals(player.getUniqueID()))
 					{
-						player = (EntityPlayerMP)entity;
-						break;
+						shooter = player;
 					}
-				}
-				playeruuid = null;
-			}
-			
-			if (shooteruuid != null)
-			{
-				if (player != null && shooteruuid.equals(player.getUniqueID()))
-				{
-					shooter = player;
-				}
-				else
-				{
-					for (Entity entity : world.loadedEntityList)
+					else
 					{
-						if (entity.getUniqueID().equals(shooteruuid))
-						{
-							shooter = entity;
-							break;
-						}
+						//Vehicles, MGs and AA guns are in our index. Anything else, such as a mob, is looked up by UUID
+						//through the server's own entity map
+						shooter = FlansEntityIndex.getEntity(world, shooteruuid);
+						if (shooter == null && world instanceof WorldServer)
+							shooter = ((WorldServer)world).getEntityFromUuid(shooteruuid);
 					}
+					shooteruuid = null;
 				}
-				shooteruuid = null;
-			}
-			
-			if (shooter != null)
-			{
-				shot = new FiredShot(shot.getFireableGun(), shot.getBulletType(), shooter, player);
-			}
-			
-			checkforuuids = false;
+				
+				if (shooter != null)
+				{
+					shot = new FiredShot(shot.getFireableGun(), shot.getBulletType(), shooter, player);
+				}
+				
+				checkforuuids = false;
 			}
 			
 			BulletType type = this.getFiredShot().getBulletType();
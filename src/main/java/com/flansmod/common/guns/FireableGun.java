@@ -44,11 +44,12 @@ public class FireableGun
 	 */
 	public FireableGun(GunType type, ShootableType bullet, ItemStack gunItem)
 	{
-		this.damage = type.getDamage(gunItem) * bullet.damageVsLiving;
-		this.spread = type.getSpread(gunItem) * bullet.bulletSpread;
-		this.bulletSpeed = type.getBulletSpeed(gunItem) * bullet.throwSpeed;
-		this.vehicledamage = type.getDamage(gunItem) * bullet.damageVsDriveable;
-		this.spreadPattern = type.getSpreadPattern(gunItem);
+		GunStats stats = type.getStats(gunItem);
+		this.damage = stats.damage * bullet.damageVsLiving;
+		this.spread = stats.spread * bullet.bulletSpread;
+		this.bulletSpeed = stats.bulletSpeed * bullet.throwSpeed;
+		this.vehicledamage = stats.damage * bullet.damageVsDriveable;
+		this.spreadPattern = stats.spreadPattern;
 		this.infoType = type;
 	}
 
@@ -30,6 +30,11 @@ public class FiredShot {
 	 * Optional of the entity which fired the shot. Can be the same as the Player optional
 	 */
 	private Optional<? extends Entity> shooter;
+	/**
+	 * How many milliseconds back to look for where players were when raytracing the shot, to make up for the shooter's
+	 * latency
+	 */
+	private int rewindTime = 0;
 	
 	/**
 	 * @param weapon weapon used to fire the shot
@@ -137,4 +142,20 @@ public class FiredShot {
 	{
 		return this.shooter;
 	}
+	
+	/**
+	 * @return How many milliseconds back to look for where players were when raytracing the shot
+	 */
+	public int getRewindTime()
+	{
+		return this.rewindTime;
+	}
+	
+	/**
+	 * @param rewindTime How many milliseconds back to look for where players were when raytracing the shot
+	 */
+	public void setRewindTime(int rewindTime)
+	{
+		this.rewindTime = rewindTime;
+	}
 }
@@ -0,0 +1,112 @@
+package com.flansmod.common.guns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * The stats of a gun once all of its attachments have been taken into account. These are worked out once for each
+ * distinct set of attachments and cached by {@link GunType#getStats}, so that the per shot and per frame getters do not
+ * have to pick apart the attachment NBT every time they are called.
+ * <p>
+ * Instances are immutable and shared between every stack with the same attachments.
+ */
+public class GunStats
+{
+	public final AttachmentType barrel;
+	public final AttachmentType scope;
+	public final AttachmentType stock;
+	public final AttachmentType grip;
+	/**
+	 * One entry per generic slot of the gun, null where the slot is empty
+	 */
+	private final AttachmentType[] generics;
+	/**
+	 * All the attachments present, generics first then barrel, scope, stock and grip
+	 */
+	public final List<AttachmentType> attachments;
+
+	public final float damage;
+	public final float meleeDamage;
+	public final float spread;
+	public final EnumSpreadPattern spreadPattern;
+	public final float recoil;
+	public final float bulletSpeed;
+	public final float reloadTime;
+	public final EnumFireMode fireMode;
+	public final float shootDelay;
+
+	public GunStats(GunType type, NBTTagCompound attachmentTags)
+	{
+		List<AttachmentType> list = new ArrayList<>();
+		generics = new AttachmentType[type.numGenericAttachmentSlots];
+		for(int i = 0; i < generics.length; i++)
+		{
+			generics[i] = AttachmentType.getFromNBT(attachmentTags.getCompoundTag("generic_" + i));
+			if(generics[i] != null)
+				list.add(generics[i]);
+		}
+		barrel = addIfPresent(attachmentTags, "barrel", list);
+		scope = addIfPresent(attachmentTags, "scope", list);
+		stock = addIfPresent(attachmentTags, "stock", list);
+		grip = addIfPresent(attachmentTags, "grip", list);
+		attachments = Collections.unmodifiableList(list);
+
+		float stackDamage = type.damage;
+		float stackMeleeDamage = type.meleeDamage;
+		float stackSpread = type.bulletSpread;
+		float stackRecoil = type.recoil;
+		float stackBulletSpeed = type.bulletSpeed;
+		float stackReloadTime = type.reloadTime;
+		float stackShootDelay = type.shootDelay;
+		EnumSpreadPattern stackSpreadPattern = null;
+		EnumFireMode stackFireMode = null;
+		boolean burstOverride = false;
+		for(AttachmentType attachment : attachments)
+		{
+			stackDamage *= attachment.damageMultiplier;
+			stackMeleeDamage *= attachment.meleeDamageMultiplier;
+			stackSpread *= attachment.spreadMultiplier;
+			stackRecoil *= attachment.recoilMultiplier;
+			stackBulletSpeed *= attachment.bulletSpeedMultiplier;
+			stackReloadTime *= attachment.reloadTimeMultiplier;
+			stackShootDelay *= attachment.shootDelayMultiplier;
+			//The first attachment to override these wins
+			if(stackSpreadPattern == null)
+				stackSpreadPattern = attachment.spreadPattern;
+			if(stackFireMode == null)
+				stackFireMode = attachment.modeOverride;
+			if(attachment.modeOverride == EnumFireMode.BURST)
+				burstOverride = true;
+		}
+
+		damage = stackDamage;
+		meleeDamage = stackMeleeDamage;
+		spread = stackSpread;
+		recoil = stackRecoil;
+		bulletSpeed = stackBulletSpeed;
+		reloadTime = stackReloadTime;
+		spreadPattern = stackSpreadPattern != null ? stackSpreadPattern : type.spreadPattern;
+		fireMode = stackFireMode != null ? stackFireMode : type.mode;
+		//Burst attachments ignore the other delay multipliers
+		shootDelay = burstOverride ? Math.max(type.shootDelay, 3) : stackShootDelay;
+	}
+
+	private static AttachmentType addIfPresent(NBTTagCompound attachmentTags, String name, List<AttachmentType> list)
+	{
+		AttachmentType attachment = AttachmentType.getFromNBT(attachmentTags.getCompoundTag(name));
+		if(attachment != null)
+			list.add(attachment);
+		return attachment;
+	}
+
+	/**
+	 * @return The attachment in generic slot i, or null if it is empty or out of range
+	 */
+	public AttachmentType getGeneric(int i)
+	{
+		return i >= 0 && i < generics.length ? generics[i] : null;
+	}
+}
@@ -3,11 +3,12 @@ package com.flansmod.common.guns;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minecraft.client.model.ModelBase;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -278,6 +279,13 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public int numGenericAttachmentSlots = 0;
 	
+	/**
+	 * The stats for each set of attachments seen on this gun, keyed by a copy of the attachment tags.
+	 * Concurrent as both the client and integrated server threads read guns
+	 */
+	private final Map<NBTTagCompound, GunStats> statsCache = new ConcurrentHashMap<>();
+	private static final int MAX_CACHED_STATS = 256;
+	
 	/**
 	 * The static hashmap of all guns by shortName
 	 */
@@ -608,54 +616,56 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public ArrayList<AttachmentType> getCurrentAttachments(ItemStack gun)
 	{
-		checkForTags(gun);
-		ArrayList<AttachmentType> attachments = new ArrayList<>();
-		NBTTagCompound attachmentTags = gun.getTagCompound().getCompoundTag("attachments");
-		NBTTagList genericsList = attachmentTags.getTagList("generics", (byte)10); //TODO : Check this 10 is correct
-		for(int i = 0; i < numGenericAttachmentSlots; i++)
-		{
-			appendToList(gun, "generic_" + i, attachments);
-		}
-		appendToList(gun, "barrel", attachments);
-		appendToList(gun, "scope", attachments);
-		appendToList(gun, "stock", attachments);
-		appendToList(gun, "grip", attachments);
-		return attachments;
+		return new ArrayList<>(getStats(gun).attachments);
 	}
 	
 	/**
-	 * Private method for attaching attachments to a list of attachments with a nullcheck
+	 * Gets the stats of this gun with the attachments on the given stack applied. These are cached against the
+	 * contents of the attachment tags, so changing the attachments in any way gives a fresh set of stats
 	 */
-	private void appendToList(ItemStack gun, String name, ArrayList<AttachmentType> attachments)
+	public GunStats getStats(ItemStack gun)
 	{
-		AttachmentType type = getAttachment(gun, name);
-		if(type != null) attachments.add(type);
+		checkForTags(gun);
+		NBTTagCompound attachmentTags = gun.getTagCompound().getCompoundTag("attachments");
+		GunStats stats = statsCache.get(attachmentTags);
+		if(stats == null)
+		{
+			stats = new GunStats(this, attachmentTags);
+			//Stop the cache growing without limit if lots of different loadouts pass through
+			if(statsCache.size() >= MAX_CACHED_STATS)
+				statsCache.clear();
+			//Copy the key so that later changes to the stack's tags can't corrupt the cache
+			statsCache.put(attachmentTags.copy(), stats);
+		}
+		return stats;
 	}
 	
 	//Attachment getter methods
 	public AttachmentType getBarrel(ItemStack gun)
 	{
-		return getAttachment(gun, "barrel");
+		return getStats(gun).barrel;
 	}
 	
 	public AttachmentType getScope(ItemStack gun)
 	{
-		return getAttachment(gun, "scope");
+		return getStats(gun).scope;
 	}
 	
 	public AttachmentType getStock(ItemStack gun)
 	{
-		return getAttachment(gun, "stock");
+		return getStats(gun).stock;
 	}
 	
 	public AttachmentType getGrip(ItemStack gun)
 	{
-		return getAttachment(gun, "grip");
+		return getStats(gun).grip;
 	}
 	
 	public AttachmentType getGeneric(ItemStack gun, int i)
 	{
-		return getAttachment(gun, "generic_" + i);
+		if(i >= numGenericAttachmentSlots)
+			return getAttachment(gun, "generic_" + i);
+		return getStats(gun).getGeneric(i);
 	}
 	
 	//Attachment ItemStack getter methods
@@ -732,12 +742,7 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getMeleeDamage(ItemStack stack)
 	{
-		float stackMeleeDamage = meleeDamage;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackMeleeDamage *= attachment.meleeDamageMultiplier;
-		}
-		return stackMeleeDamage;
+		return getStats(stack).meleeDamage;
 	}
 	
 	/**
@@ -745,12 +750,7 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getDamage(ItemStack stack)
 	{
-		float stackDamage = damage;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackDamage *= attachment.damageMultiplier;
-		}
-		return stackDamage;
+		return getStats(stack).damage;
 	}
 	
 	/**
@@ -758,22 +758,12 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getSpread(ItemStack stack)
 	{
-		float stackSpread = bulletSpread;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackSpread *= attachment.spreadMultiplier;
-		}
-		return stackSpread;
+		return getStats(stack).spread;
 	}
 	
 	public EnumSpreadPattern getSpreadPattern(ItemStack stack)
 	{
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			if(attachment.spreadPattern != null)
-				return attachment.spreadPattern;
-		}
-		return spreadPattern;
+		return getStats(stack).spreadPattern;
 	}
 	
 	/**
@@ -781,12 +771,7 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getRecoil(ItemStack stack)
 	{
-		float stackRecoil = recoil;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackRecoil *= attachment.recoilMultiplier;
-		}
-		return stackRecoil;
+		return getStats(stack).recoil;
 	}
 	
 	/**
@@ -794,12 +779,7 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getBulletSpeed(ItemStack stack)
 	{
-		float stackBulletSpeed = bulletSpeed;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackBulletSpeed *= attachment.bulletSpeedMultiplier;
-		}
-		return stackBulletSpeed;
+		return getStats(stack).bulletSpeed;
 	}
 	
 	/**
@@ -807,12 +787,7 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public float getReloadTime(ItemStack stack)
 	{
-		float stackReloadTime = reloadTime;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackReloadTime *= attachment.reloadTimeMultiplier;
-		}
-		return stackReloadTime;
+		return getStats(stack).reloadTime;
 	}
 	
 	/**
@@ -820,28 +795,12 @@ public class GunType extends PaintableType implements IScope
 	 */
 	public EnumFireMode getFireMode(ItemStack stack)
 	{
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			if(attachment.modeOverride != null)
-				return attachment.modeOverride;
-		}
-		return mode;
+		return getStats(stack).fireMode;
 	}
 	
 	public float GetShootDelay(ItemStack stack)
 	{
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			if(attachment.modeOverride == EnumFireMode.BURST)
-				return Math.max(shootDelay, 3);
-		}
-		
-		float stackShootDelay = shootDelay;
-		for(AttachmentType attachment : getCurrentAttachments(stack))
-		{
-			stackShootDelay *= attachment.shootDelayMultiplier;
-		}
-		return stackShootDelay;
+		return getStats(stack).shootDelay;
 	}
 	
 	/**
@@ -1,6 +1,7 @@
 package com.flansmod.common.guns;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -27,7 +28,6 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemShield;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
 import net.minecraft.util.ActionResult;
 import net.minecraft.util.DamageSource;
 import net.minecraft.util.EnumActionResult;
@@ -42,7 +42,6 @@ import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.math.RayTraceResult.Type;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
-import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fml.client.FMLClientHandler;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -58,6 +57,7 @@ import com.flansmod.common.PlayerHandler;
 import com.flansmod.common.enchantments.EnchantmentModule;
 import com.flansmod.common.enchantments.ItemGlove;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer;
+import com.flansmod.common.guns.raytracing.PlayerSnapshot;
 import com.flansmod.common.network.PacketGunFire;
 import com.flansmod.common.network.PacketGunShotSound;
 import com.flansmod.common.network.PacketPlaySound;
@@ -94,6 +94,19 @@ public class ItemGun extends Item implements IPaintableItem
 
 	private int soundDelay = 0;
 
+	/**
+	 * How far ahead of the server's shoot timer a client's shot may be and still be fired, in ticks. Whole ticks the
+	 * client is ahead by are made up by {@link ShootTimeCredit}, but the client and server do not tick at the same moment,
+	 * so a shot can still arrive slightly before the server thinks it is due. Each shot still adds its full delay to the
+	 * timer, so this cannot raise the rate of fire
+	 */
+	private static final float SERVER_SHOOT_TIME_TOLERANCE = 1F;
+	/**
+	 * The cosine of how far, in angle, a client's aim may be from where the server saw the player looking around the
+	 * time of the shot
+	 */
+	private static final double MAX_AIM_DEVIATION_COS = Math.cos(Math.toRadians(45D));
+
 	private static boolean rightMouseHeld;
 	private static boolean lastRightMouseHeld;
 	private static boolean leftMouseHeld;
@@ -126,65 +139,20 @@ public class ItemGun extends Item implements IPaintableItem
 	}
 
 	/**
-	 * Get the bullet item stack stored in the gun's NBT data (the loaded magazine / bullets)
+	 * Get the bullet item stack loaded in the gun (the loaded magazine / bullets). This is a copy, so changes to it must
+	 * be set back with {@link #setBulletItemStack}
 	 */
 	public ItemStack getBulletItemStack(ItemStack gun, int id)
 	{
-		//If the gun has no tags, give it some
-		if(!gun.hasTagCompound())
-		{
-			gun.setTagCompound(new NBTTagCompound());
-			return ItemStack.EMPTY.copy();
-		}
-		//If the gun has no ammo tags, give it some
-		if(!gun.getTagCompound().hasKey("ammo"))
-		{
-			NBTTagList ammoTagsList = new NBTTagList();
-			for(int i = 0; i < type.numAmmoItemsInGun; i++)
-			{
-				ammoTagsList.appendTag(new NBTTagCompound());
-			}
-			gun.getTagCompound().setTag("ammo", ammoTagsList);
-			return ItemStack.EMPTY.copy();
-		}
-		//Take the list of ammo tags
-		NBTTagList ammoTagsList = gun.getTagCompound().getTagList("ammo", Constants.NBT.TAG_COMPOUND);
-		//Get the specific ammo tags required
-		NBTTagCompound ammoTags = ammoTagsList.getCompoundTagAt(id);
-		return new ItemStack(ammoTags);
+		return MagazineState.get(gun, type.numAmmoItemsInGun).getBullet(id).copy();
 	}
 
 	/**
-	 * Set the bullet item stack stored in the gun's NBT data (the loaded magazine / bullets)
+	 * Set the bullet item stack loaded in the gun (the loaded magazine / bullets) and write the gun's ammo to its NBT data
 	 */
 	public void setBulletItemStack(ItemStack gun, ItemStack bullet, int id)
 	{
-		//If the gun has no tags, give it some
-		if(!gun.hasTagCompound())
-		{
-			gun.setTagCompound(new NBTTagCompound());
-		}
-		//If the gun has no ammo tags, give it some
-		if(!gun.getTagCompound().hasKey("ammo"))
-		{
-			NBTTagList ammoTagsList = new NBTTagList();
-			for(int i = 0; i < type.numAmmoItemsInGun; i++)
-			{
-				ammoTagsList.appendTag(new NBTTagCompound());
-			}
-			gun.getTagCompound().setTag("ammo", ammoTagsList);
-		}
-		//Take the list of ammo tags
-		NBTTagList ammoTagsList = gun.getTagCompound().getTagList("ammo", Constants.NBT.TAG_COMPOUND);
-		//Get the specific ammo tags required
-		NBTTagCompound ammoTags = ammoTagsList.getCompoundTagAt(id);
-		//Represent empty slots by nulltypes
-		if(bullet == null)
-		{
-			ammoTags = new NBTTagCompound();
-		}
-		//Set the tags to match the bullet stack
-		bullet.writeToNBT(ammoTags);
+		MagazineState.get(gun, type.numAmmoItemsInGun).setBullet(id, bullet);
 	}
 
 	/**
@@ -432,7 +400,7 @@ public class ItemGun extends Item implements IPaintableItem
 			// Fire!
 			else if(shouldShootThisTick)
 			{
-				shoot(hand, player, gunstack, data, world, animations);
+				shoot(hand, player, gunstack, data, world, animations, null);
 			}
 		}
 	}
@@ -466,7 +434,14 @@ public class ItemGun extends Item implements IPaintableItem
 		return true;
 	}
 
-	public void shoot(EnumHand hand, EntityPlayer player, ItemStack gunstack, PlayerData data, World world, @Nullable GunAnimations animations)
+	/**
+	 * Fires the shots that are due. On the client these are all the shots the shoot timer has run out for, and they are
+	 * sent to the server with how late in the tick each was fired and where it was aimed. On the server, the shots the
+	 * client sent are fired for as long as the server's own shoot timer agrees they are due
+	 *
+	 * @param requestedShots The shots sent by the client, on the server. Null on the client
+	 */
+	public void shoot(EnumHand hand, EntityPlayer player, ItemStack gunstack, PlayerData data, World world, @Nullable GunAnimations animations, @Nullable List<PacketGunFire.Shot> requestedShots)
 	{
 		if(type.usableByPlayers)
 		{
@@ -477,37 +452,31 @@ public class ItemGun extends Item implements IPaintableItem
 				otherHand = player.getHeldItemOffhand();
 			else otherHand = player.getHeldItemMainhand();
 
-			if (!world.isRemote && shootTime > 0f)
-			{
-				//data.addToQueue(hand);
-				//Hacky code
-				//This essentially skips ticks for a smoother client experience
-				if (shootTime < 4)
-				{
-					while (shootTime > 0)
-					{
-						shootTime--;
-					}
-				}
-			}
-
-			if (world.isRemote && shootTime <= 0)
-				//Send the server the instruction to shoot
-				FlansMod.getPacketHandler().sendToServer(new PacketGunFire(hand));
+			//The shots fired this tick, to tell the server about
+			List<PacketGunFire.Shot> firedShots = world.isRemote ? new ArrayList<>() : null;
+			int requestIndex = 0;
 
+			//Attachments can't change mid burst, so look the stats up once
+			GunStats stats = type.getStats(gunstack);
+			//Rounds are taken from the loaded ammo in memory, which writes each change through to the gun's NBT
+			MagazineState magazine = MagazineState.get(gunstack, type.numAmmoItemsInGun);
+			
 			// For each 
-			while(shootTime <= 0.0f)
+			while(world.isRemote ? shootTime <= 0.0f : requestIndex < requestedShots.size() && shootTime <= SERVER_SHOOT_TIME_TOLERANCE)
 			{
+				//How long before the end of the tick this shot was due
+				float ticksLate = -shootTime;
+				PacketGunFire.Shot request = world.isRemote ? null : requestedShots.get(requestIndex++);
 
 				// Add the delay for this shot and shoot it!
-				shootTime += type.GetShootDelay(gunstack);
+				shootTime += stats.shootDelay;
 
 				int bulletID = 0;
 				ItemStack bulletStack = ItemStack.EMPTY.copy();
 				for(; bulletID < type.numAmmoItemsInGun; bulletID++)
 				{
-					ItemStack checkingStack = getBulletItemStack(gunstack, bulletID);
-					if(checkingStack != null && checkingStack.getItemDamage() < checkingStack.getMaxDamage())
+					ItemStack checkingStack = magazine.getBullet(bulletID);
+					if(!checkingStack.isEmpty() && checkingStack.getItemDamage() < checkingStack.getMaxDamage())
 					{
 						bulletStack = checkingStack;
 						break;
@@ -524,7 +493,6 @@ public class ItemGun extends Item implements IPaintableItem
 
 				ItemShootable shootableItem = (ItemShootable)bulletStack.getItem();
 				ShootableType shootableType = shootableItem.type;
-				Vector3f rayTraceOrigin = new Vector3f(player.getPositionEyes(0.0f));
 
 				ShootBulletHandler handler = isExtraBullet ->
 				{
@@ -546,7 +514,7 @@ public class ItemGun extends Item implements IPaintableItem
 						bullet.setItemDamage(bullet.getItemDamage() + 1);
 
 						//Update the stack in the gun
-						setBulletItemStack(gunstack, bullet, bulletid);
+						magazine.setBullet(bulletid, bullet);
 
 						if(type.consumeGunUponUse)
 						{
@@ -566,14 +534,22 @@ public class ItemGun extends Item implements IPaintableItem
 					}
 
 					animations.doShoot(type.getPumpDelay(), type.getPumpTime());
-					Float recoil = type.getRecoil(gunstack);
+					Float recoil = stats.recoil;
 					FlansModClient.addRecoil(recoil);
 					animations.recoil += recoil;
 
+					//Aim as it was at the moment in the tick that the shot was due
+					float partialTicks = 1F - Math.max(0F, Math.min(1F, ticksLate));
+					firedShots.add(new PacketGunFire.Shot(ticksLate,
+							player.prevRotationYaw + (player.rotationYaw - player.prevRotationYaw) * partialTicks,
+							player.prevRotationPitch + (player.rotationPitch - player.prevRotationPitch) * partialTicks));
 				} 
 				else
 				{
-					Vector3f rayTraceDirection = new Vector3f(player.getLookVec());
+					//Fire from where the player was at the moment in the tick that the client fired
+					float partialTicks = 1F - request.ticksLate;
+					Vector3f rayTraceOrigin = new Vector3f(player.getPositionEyes(partialTicks));
+					Vector3f rayTraceDirection = getShotDirection((EntityPlayerMP)player, data, request, partialTicks);
 
 					if (shootableType instanceof BulletType)
 					{
@@ -586,6 +562,8 @@ public class ItemGun extends Item implements IPaintableItem
 						}
 
 						FiredShot shot = new FiredShot(fireableGun, (BulletType)shootableType, (EntityPlayerMP)player);
+						//Hit players where the client saw them when it fired
+						shot.setRewindTime(((EntityPlayerMP)player).ping + Math.round(request.ticksLate * 50F));
 						//TODO gunOrigin? & animation origin
 						ShotHandler.fireGun(world, shot, type.numBullets*shootableType.numBullets, rayTraceOrigin, rayTraceDirection, handler);
 					}
@@ -599,7 +577,7 @@ public class ItemGun extends Item implements IPaintableItem
 
 				}
 
-				boolean silenced = type.getBarrel(gunstack) != null && type.getBarrel(gunstack).silencer;
+				boolean silenced = stats.barrel != null && stats.barrel.silencer;
 				playShotSound(player, silenced);
 
 				int gunSlot = player.inventory.currentItem;
@@ -608,10 +586,45 @@ public class ItemGun extends Item implements IPaintableItem
 			}
 			data.SetShootTime(hand, shootTime);
 
+			if(world.isRemote && !firedShots.isEmpty())
+				//Send the server the shots to fire
+				FlansMod.getPacketHandler().sendToServer(new PacketGunFire(hand, data.ticks, firedShots));
 		}
 	}
 
-	public void shootServer(EnumHand hand, EntityPlayerMP player, ItemStack gunstack)
+	/**
+	 * Works out where a shot sent by the client was aimed. The client's aim is trusted if it is close to where the server
+	 * saw the player looking at some point between when the shot was fired and now, going by the rotations in the
+	 * player's snapshots. Otherwise the server's look is used
+	 */
+	private static Vector3f getShotDirection(EntityPlayerMP player, PlayerData data, PacketGunFire.Shot shot, float partialTicks)
+	{
+		Vec3d serverLook = player.getLook(partialTicks);
+		if(Float.isFinite(shot.yaw) && Float.isFinite(shot.pitch) && Math.abs(shot.pitch) <= 90F)
+		{
+			Vec3d clientLook = Vec3d.fromPitchYaw(shot.pitch, shot.yaw);
+			if(clientLook.dotProduct(serverLook) >= MAX_AIM_DEVIATION_COS)
+				return new Vector3f(clientLook);
+			//Go back through the snapshots to the tick before the shot was fired, as the client saw it
+			long shotTime = System.currentTimeMillis() - player.ping - Math.round(shot.ticksLate * 50F) - 50L;
+			PlayerSnapshot snapshot;
+			for(int i = 0; (snapshot = data.snapshots.get(i)) != null; i++)
+			{
+				if(clientLook.dotProduct(Vec3d.fromPitchYaw(snapshot.pitch, snapshot.yaw)) >= MAX_AIM_DEVIATION_COS)
+					return new Vector3f(clientLook);
+				if(snapshot.time < shotTime)
+					break;
+			}
+		}
+		return new Vector3f(serverLook);
+	}
+
+	/**
+	 * Fires the shots a client sent
+	 *
+	 * @param clientTick The client's tick count when it fired them
+	 */
+	public void shootServer(EnumHand hand, EntityPlayerMP player, ItemStack gunstack, int clientTick, List<PacketGunFire.Shot> shots)
 	{
 
 		// Get useful objects
@@ -625,7 +638,9 @@ public class ItemGun extends Item implements IPaintableItem
 		if (!gunCanBeHandled(type, player))
 			return;
 
-		shoot(hand, player, gunstack, data, world, null);
+		//Shots from more than one of the client's ticks can arrive in the same server tick, so catch the timer up first
+		data.CreditShootTime(hand, data.GetShootTimeCredit(hand).update(clientTick, data.ticks, System.currentTimeMillis()));
+		shoot(hand, player, gunstack, data, world, null, shots);
 
 		if(FlansMod.DEBUG)
 		{
@@ -875,13 +890,8 @@ public class ItemGun extends Item implements IPaintableItem
 									{
 										continue;
 									}
-									int snapshotToTry = player instanceof EntityPlayerMP ? ((EntityPlayerMP)player).ping / 50 : 0;
-									if(snapshotToTry >= otherData.snapshots.length)
-										snapshotToTry = otherData.snapshots.length - 1;
-
-									PlayerSnapshot snapshot = otherData.snapshots[snapshotToTry];
-									if(snapshot == null)
-										snapshot = otherData.snapshots[0];
+									int ping = player instanceof EntityPlayerMP ? ((EntityPlayerMP)player).ping : 0;
+									PlayerSnapshot snapshot = otherData.snapshots.getForPing(ping);
 
 									//DEBUG
 									//snapshot = new PlayerSnapshot(player);
@@ -1015,15 +1025,7 @@ public class ItemGun extends Item implements IPaintableItem
 
 	private boolean needsToReload(ItemStack stack)
 	{
-		for(int i = 0; i < type.numAmmoItemsInGun; i++)
-		{
-			ItemStack bulletStack = getBulletItemStack(stack, i);
-			if(bulletStack != null && !bulletStack.isEmpty() && bulletStack.getItemDamage() < bulletStack.getMaxDamage())
-			{
-				return false;
-			}
-		}
-		return true;
+		return MagazineState.get(stack, type.numAmmoItemsInGun).getFirstLoaded() == null;
 	}
 
 	public boolean CanReload(ItemStack gunstack, IInventory inventory)
@@ -1041,15 +1043,8 @@ public class ItemGun extends Item implements IPaintableItem
 
 	private ItemStack getBestNonEmptyShootableStack(ItemStack stack)
 	{
-		for(int i = 0; i < type.numAmmoItemsInGun; i++)
-		{
-			ItemStack shootableStack = getBulletItemStack(stack, i);
-			if(shootableStack != null && !shootableStack.isEmpty() && shootableStack.getItemDamage() < shootableStack.getMaxDamage())
-			{
-				return shootableStack;
-			}
-		}
-		return null;
+		ItemStack shootableStack = MagazineState.get(stack, type.numAmmoItemsInGun).getFirstLoaded();
+		return shootableStack == null ? null : shootableStack.copy();
 	}
 
 
@@ -1071,15 +1066,16 @@ public class ItemGun extends Item implements IPaintableItem
 		{
 			Collections.addAll(lines, type.description.split("_"));
 		}
+		GunStats stats = type.getStats(stack);
 		if(type.showDamage)
-			lines.add("\u00a79Damage" + "\u00a77: " + type.getDamage(stack));
+			lines.add("\u00a79Damage" + "\u00a77: " + stats.damage);
 		if(type.showRecoil)
-			lines.add("\u00a79Recoil" + "\u00a77: " + type.getRecoil(stack));
+			lines.add("\u00a79Recoil" + "\u00a77: " + stats.recoil);
 		if(type.showSpread)
-			lines.add("\u00a79Accuracy" + "\u00a77: " + type.getSpread(stack));
+			lines.add("\u00a79Accuracy" + "\u00a77: " + stats.spread);
 		if(type.showReloadTime)
-			lines.add("\u00a79Reload Time" + "\u00a77: " + type.getReloadTime(stack) / 20 + "s");
-		for(AttachmentType attachment : type.getCurrentAttachments(stack))
+			lines.add("\u00a79Reload Time" + "\u00a77: " + stats.reloadTime / 20 + "s");
+		for(AttachmentType attachment : stats.attachments)
 		{
 			if(type.showAttachments)
 			{
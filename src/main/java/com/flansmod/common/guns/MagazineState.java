@@ -0,0 +1,119 @@
+package com.flansmod.common.guns;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * The bullets and magazines loaded in one gun stack, kept in memory so that firing does not read every bullet stack out
+ * of the gun's "ammo" tag on each shot. Rounds fired are taken off the stacks held here.
+ * <p>
+ * Every change is written straight through to the slot's tag as well, so the tag always holds the ammo actually left in
+ * the gun. Anything that copies the gun stack, such as a death drop or a click that splits the stack in an inventory,
+ * saves it or sends it to the other side therefore sees the right ammo. Sending the changed stack to the client is left
+ * to the container, which does so at most once a tick however many rounds are fired. Each side keeps its own states,
+ * as the client and integrated server run on different threads.
+ */
+public class MagazineState
+{
+	//Weak keys, and ItemStack does not override equals, so stacks are looked up by identity and dropped with the stack
+	private static final Map<ItemStack, MagazineState> clientStates = new WeakHashMap<>();
+	private static final Map<ItemStack, MagazineState> serverStates = new WeakHashMap<>();
+	
+	private final ItemStack[] bullets;
+	/**
+	 * The ammo tags inside the gun stack that this state was read from and is written back to. If the stack is given a
+	 * new list, the state is read again
+	 */
+	private final NBTTagList ammoTags;
+	
+	private MagazineState(NBTTagList ammoTags, int numAmmoItems)
+	{
+		this.ammoTags = ammoTags;
+		bullets = new ItemStack[numAmmoItems];
+		for(int i = 0; i < numAmmoItems; i++)
+		{
+			bullets[i] = i < ammoTags.tagCount() ? new ItemStack(ammoTags.getCompoundTagAt(i)) : ItemStack.EMPTY.copy();
+		}
+	}
+	
+	/**
+	 * Gets the state of a gun stack, reading it from the stack's tags if it has not been looked at yet or the tags have
+	 * been replaced since. The tags are created if the stack has none
+	 */
+	public static MagazineState get(ItemStack gun, int numAmmoItems)
+	{
+		if(!gun.hasTagCompound())
+			gun.setTagCompound(new NBTTagCompound());
+		NBTTagCompound tags = gun.getTagCompound();
+		if(!tags.hasKey("ammo", Constants.NBT.TAG_LIST))
+		{
+			NBTTagList ammoTagsList = new NBTTagList();
+			for(int i = 0; i < numAmmoItems; i++)
+			{
+				ammoTagsList.appendTag(new NBTTagCompound());
+			}
+			tags.setTag("ammo", ammoTagsList);
+		}
+		NBTTagList ammoTagsList = tags.getTagList("ammo", Constants.NBT.TAG_COMPOUND);
+		
+		Map<ItemStack, MagazineState> states = getStates();
+		MagazineState state = states.get(gun);
+		//If something else has put new ammo tags on the stack, they take precedence over anything held here
+		if(state == null || state.ammoTags != ammoTagsList || state.bullets.length != numAmmoItems)
+		{
+			state = new MagazineState(ammoTagsList, numAmmoItems);
+			states.put(gun, state);
+		}
+		return state;
+	}
+	
+	private static Map<ItemStack, MagazineState> getStates()
+	{
+		return FMLCommonHandler.instance().getEffectiveSide().isClient() ? clientStates : serverStates;
+	}
+	
+	/**
+	 * @return The stack loaded in the given ammo slot. This is the stack held by the state, so any change to it must be
+	 * followed by {@link #setBullet}
+	 */
+	public ItemStack getBullet(int id)
+	{
+		return bullets[id];
+	}
+	
+	/**
+	 * Loads a stack into the given ammo slot and writes it to the gun's tags
+	 */
+	public void setBullet(int id, ItemStack bullet)
+	{
+		bullets[id] = bullet == null ? ItemStack.EMPTY.copy() : bullet;
+		NBTTagCompound bulletTags = bullets[id].writeToNBT(new NBTTagCompound());
+		//Lists that are too short are padded with empty slots, so the tag lines up with its slot
+		while(ammoTags.tagCount() < id)
+		{
+			ammoTags.appendTag(new NBTTagCompound());
+		}
+		if(id < ammoTags.tagCount())
+			ammoTags.set(id, bulletTags);
+		else ammoTags.appendTag(bulletTags);
+	}
+	
+	/**
+	 * @return The first loaded stack that still has rounds in it, or null if the gun is empty
+	 */
+	public ItemStack getFirstLoaded()
+	{
+		for(ItemStack bullet : bullets)
+		{
+			if(!bullet.isEmpty() && bullet.getItemDamage() < bullet.getMaxDamage())
+				return bullet;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,68 @@
+package com.flansmod.common.guns;
+
+/**
+ * Keeps the server's shoot timer for one hand in step with the client's ticks. The server runs the timer down once a
+ * tick, but the client's shots do not arrive once a tick. Network jitter, or packets held over to the next tick when the
+ * server runs out of time to handle them, can hand the server two ticks' worth of shots in one tick, and the second lot
+ * would find the timer still running and be dropped.
+ * <p>
+ * So each {@link com.flansmod.common.network.PacketGunFire} carries the client's tick count, and the server's timer is
+ * run down by however many more ticks the client has been through than the server since it started firing. The client's
+ * count is not trusted to run faster than real time, beyond {@link #MAX_TICKS_AHEAD}, so a client that speeds up its
+ * clock gains at most that many ticks over a whole burst.
+ */
+public class ShootTimeCredit
+{
+	/**
+	 * How many ticks the client may be ahead of real time, to allow for the first packet of a burst arriving late
+	 */
+	private static final int MAX_TICKS_AHEAD = 2;
+	/**
+	 * How long the server has to go without shots before the next ones start a new burst, in milliseconds
+	 */
+	private static final long BURST_GAP_MILLIS = 1000L;
+	private static final long MILLIS_PER_TICK = 50L;
+	
+	private boolean firing = false;
+	private int firstClientTick, lastClientTick;
+	private int firstServerTick;
+	private long firstTime, lastTime;
+	/**
+	 * How many ticks the timer has been run down by since the burst started
+	 */
+	private int credited;
+	
+	/**
+	 * Called when shots arrive from the client
+	 *
+	 * @param clientTick The client's tick count when it fired them
+	 * @param serverTick The server's tick count for the same player
+	 * @param time       The time now, in milliseconds
+	 * @return How many ticks the shoot timer should be run down by before the shots are fired
+	 */
+	public int update(int clientTick, int serverTick, long time)
+	{
+		//The burst start is only ever moved by the server's clock, so the client cannot reset it to gain more ticks
+		if(!firing || time - lastTime > BURST_GAP_MILLIS)
+		{
+			firing = true;
+			firstClientTick = lastClientTick = clientTick;
+			firstServerTick = serverTick;
+			firstTime = lastTime = time;
+			credited = 0;
+			return 0;
+		}
+		//A clock that goes backwards, as it does if the client reconnects, counts as no time passing
+		if(clientTick < lastClientTick)
+			firstClientTick += clientTick - lastClientTick;
+		lastClientTick = clientTick;
+		lastTime = time;
+		
+		int clientTicks = Math.min(clientTick - firstClientTick, (int)((time - firstTime) / MILLIS_PER_TICK) + MAX_TICKS_AHEAD);
+		int credit = clientTicks - (serverTick - firstServerTick) - credited;
+		if(credit <= 0)
+			return 0;
+		credited += credit;
+		return credit;
+	}
+}
@@ -1,8 +1,9 @@
 package com.flansmod.common.guns;
 
 import static com.flansmod.common.util.BlockUtil.destroyBlock;
-import static com.flansmod.common.guns.raytracing.FlansModRaytracer.Raytrace;
+import static com.flansmod.common.guns.raytracing.FlansModRaytracer.RaytraceMultiple;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +16,9 @@ import com.flansmod.common.guns.raytracing.FlansModRaytracer.BulletHit;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.DriveableHit;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.EntityHit;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.PlayerBulletHit;
-import com.flansmod.common.network.PacketBlockHitEffect;
-import com.flansmod.common.network.PacketBulletTrail;
+import com.flansmod.common.network.EffectBatcher;
 import com.flansmod.common.network.PacketFlak;
 import com.flansmod.common.network.PacketHitMarker;
-import com.flansmod.common.network.PacketPlaySound;
 import com.flansmod.common.teams.Team;
 import com.flansmod.common.teams.TeamsManager;
 import com.flansmod.common.teams.TeamsRound;
@@ -31,7 +30,6 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.entity.item.EntityItem;
-import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Blocks;
 import net.minecraft.item.ItemStack;
@@ -93,23 +91,40 @@ public class ShotHandler
 	private static void createMultipleShots(World world, FiredShot shot, Integer bulletAmount, Vector3f rayTraceOrigin, Vector3f shootingDirection, ShootBulletHandler handler)
 	{
 		Float bulletspread = 0.0025f * shot.getFireableGun().getGunSpread();
+		List<Vector3f> directions = new ArrayList<>(bulletAmount);
 		for(int i = 0; i < bulletAmount; i++)
 		{
-			createShot(world, shot, bulletspread, rayTraceOrigin, new Vector3f(shootingDirection));
-			handler.shooting(i < bulletAmount - 1);
+			Vector3f direction = new Vector3f(shootingDirection);
+			randomizeVectorDirection(world, direction, bulletspread, shot.getFireableGun().getSpreadPattern());
+			direction.scale(500.0f);
+			directions.add(direction);
 		}
-	}
-
-	private static void createShot(World world, FiredShot shot, Float bulletspread, Vector3f rayTraceOrigin, Vector3f shootingDirection)
-	{
-		randomizeVectorDirection(world, shootingDirection, bulletspread, shot.getFireableGun().getSpreadPattern());
-		shootingDirection.scale(500.0f);
 		
-		Float penetrationPower = shot.getBulletType().penetratingPower;
 		//first tries to get the player because the players vehicle is also ignored, or get the player independent shooter or null
 		Entity ignore = shot.getPlayerOptional().isPresent() ? shot.getPlayerOptional().get() : shot.getShooterOptional().orElse(null);
 		
-		List<BulletHit> hits = Raytrace(world, ignore, false, null, rayTraceOrigin, shootingDirection, 0, penetrationPower);
+		//All the bullets are raytraced together, then their hits are applied one bullet at a time
+		List<List<BulletHit>> hits = RaytraceMultiple(world, ignore, false, null, rayTraceOrigin, directions, shot.getRewindTime(), shot.getBulletType().penetratingPower);
+		List<Vector3f> trailEnds = new ArrayList<>(bulletAmount);
+		for(int i = 0; i < bulletAmount; i++)
+		{
+			trailEnds.add(applyHits(world, shot, rayTraceOrigin, directions.get(i), hits.get(i)));
+			handler.shooting(i < bulletAmount - 1);
+		}
+		
+		//Animation
+		//TODO should this be send to all Players?
+		EffectBatcher.addBulletTrail(world, rayTraceOrigin, trailEnds, 0.05f, 10f, 10f, shot.getBulletType().trailTexture);
+	}
+	
+	/**
+	 * Acts on the hits of one raytraced bullet in order, until it runs out of penetration
+	 *
+	 * @return Where the bullet stopped, for drawing its trail
+	 */
+	private static Vector3f applyHits(World world, FiredShot shot, Vector3f rayTraceOrigin, Vector3f shootingDirection, List<BulletHit> hits)
+	{
+		Float penetrationPower = shot.getBulletType().penetratingPower;
 		Vector3f previousHitPos = rayTraceOrigin;
 		Vector3f finalhit = null;
 		
@@ -145,9 +160,7 @@ public class ShotHandler
 		{
 			finalhit = Vector3f.add(rayTraceOrigin, shootingDirection, null);
 		}
-		//Animation
-		//TODO should this be send to all Players?
-		FlansMod.packetHandler.sendToAllAround(new PacketBulletTrail(rayTraceOrigin, finalhit, 0.05f, 10f, 10f, shot.getBulletType().trailTexture), rayTraceOrigin.x, rayTraceOrigin.y, rayTraceOrigin.z, 500f, world.provider.getDimension());
+		return finalhit;
 	}
 	
 	/**
@@ -263,17 +276,11 @@ public class ShotHandler
 			bulletDir.normalise();
 			bulletDir.scale(0.5f);
 			
-			for (EntityPlayer player : world.playerEntities)
-			{
-				//Checks if the player is in a radius of 300 Blocks (300 squared = 90000)
-				if (player.getDistanceSq(pos) < 90000)
-				{
-					FlansMod.getPacketHandler().sendTo(new PacketBlockHitEffect(hit, bulletDir, pos, faceing), (EntityPlayerMP) player);
-				}
-			}
+			//Sent with the other effects at the end of the tick
+			EffectBatcher.addBlockHit(world, hit, bulletDir, pos, faceing);
 			
 			//play sound when bullet hits block
-			PacketPlaySound.sendSoundPacket(hit.x, hit.y, hit.z, bulletType.hitSoundRange, world.provider.getDimension(), bulletType.hitSound, false);
+			EffectBatcher.addSound(world, hit.x, hit.y, hit.z, bulletType.hitSoundRange, bulletType.hitSound, false);
 			//FlansMod.proxy.playBlockBreakSound(pos.getX(), pos.getY(), pos.getZ(), blockHit.getIBlockState().getBlock());
 		}
 		if(penetratingPower <= 0F || (bulletType.explodeOnImpact
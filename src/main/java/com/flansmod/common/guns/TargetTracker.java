@@ -0,0 +1,217 @@
+package com.flansmod.common.guns;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import com.flansmod.common.guns.raytracing.EntityGrid;
+
+/**
+ * Finds targets for sentries and AI controlled vehicles, server side.
+ * <p>
+ * Each sentry holds a {@link Subscription} with its range and a filter, which watches the cells of the world's
+ * {@link EntityGrid} that its range covers. The grid keeps the subscription's set of nearby entities up to date as it
+ * re-files entities that move from one cell to another, and the cells watched only change when the sentry itself moves
+ * far enough to cover different ones, so looking for a target only has to go through the entities already known to be
+ * nearby rather than asking the world for every entity in range.
+ */
+public class TargetTracker
+{
+	/**
+	 * How long a line of sight check is trusted for
+	 */
+	private static final int LINE_OF_SIGHT_TICKS = 5;
+	/**
+	 * Subscriptions that go this long without being used are dropped, and picked up again if they are used later
+	 */
+	private static final int SUBSCRIPTION_TIMEOUT = 200;
+	
+	private static final Map<World, TargetTracker> trackers = new HashMap<>();
+	
+	/**
+	 * Gets the tracker for this world, bringing it and the world's entity grid up to date if this is the first query
+	 * this tick
+	 */
+	public static TargetTracker get(World world)
+	{
+		TargetTracker tracker = trackers.get(world);
+		if(tracker == null)
+		{
+			tracker = new TargetTracker();
+			trackers.put(world, tracker);
+		}
+		tracker.refresh(world);
+		return tracker;
+	}
+	
+	private final List<Subscription> subscriptions = new ArrayList<>();
+	private EntityGrid grid;
+	private long time = Long.MIN_VALUE;
+	
+	private TargetTracker()
+	{
+	}
+	
+	/**
+	 * Finds the nearest entity in range of the subscription's owner that passes its filter
+	 *
+	 * @return The target, or null if there is none
+	 */
+	public Entity findNearestTarget(Subscription subscription)
+	{
+		watch(subscription);
+		
+		Entity owner = subscription.owner;
+		Entity nearest = null;
+		double nearestDistanceSq = subscription.range * subscription.range;
+		for(Entity candidate : subscription.watcher.getEntities())
+		{
+			if(candidate == owner || candidate.isDead)
+				continue;
+			double distanceSq = candidate.getDistanceSq(owner);
+			if(distanceSq < nearestDistanceSq && subscription.filter.test(candidate))
+			{
+				nearest = candidate;
+				nearestDistanceSq = distanceSq;
+			}
+		}
+		return nearest;
+	}
+	
+	/**
+	 * Checks whether there are no blocks between two points, reusing the answer from the last few ticks if the
+	 * subscription last asked about the same target
+	 *
+	 * @param target The entity being looked at, which the answer is remembered against
+	 */
+	public boolean hasLineOfSight(Subscription subscription, Entity target, Vec3d from, Vec3d to)
+	{
+		subscription.lastUsed = time;
+		if(subscription.sightTarget == target && time - subscription.sightTime < LINE_OF_SIGHT_TICKS)
+			return subscription.canSee;
+		
+		RayTraceResult hit = target.world.rayTraceBlocks(from, to, false);
+		//Visible if nothing was hit or the target is nearer than the block hit
+		subscription.canSee = hit == null || hit.typeOfHit != RayTraceResult.Type.BLOCK || from.squareDistanceTo(to) < from.squareDistanceTo(hit.hitVec);
+		subscription.sightTarget = target;
+		subscription.sightTime = time;
+		return subscription.canSee;
+	}
+	
+	/**
+	 * Stops tracking for this subscription, for when its owner is removed
+	 */
+	public void unsubscribe(Subscription subscription)
+	{
+		if(subscription.subscribed)
+		{
+			grid.unwatch(subscription.watcher);
+			subscriptions.remove(subscription);
+			subscription.subscribed = false;
+		}
+		subscription.sightTarget = null;
+	}
+	
+	/**
+	 * Refreshes the entity grid, and drops subscriptions whose owners have gone or that have not been used in a while.
+	 * Only does anything once per world tick.
+	 */
+	private void refresh(World world)
+	{
+		grid = EntityGrid.get(world);
+		long worldTime = world.getTotalWorldTime();
+		if(worldTime == time)
+			return;
+		time = worldTime;
+		
+		Iterator<Subscription> subscriptionIterator = subscriptions.iterator();
+		while(subscriptionIterator.hasNext())
+		{
+			Subscription subscription = subscriptionIterator.next();
+			if(subscription.owner.isDead || time - subscription.lastUsed > SUBSCRIPTION_TIMEOUT)
+			{
+				grid.unwatch(subscription.watcher);
+				subscription.sightTarget = null;
+				subscription.subscribed = false;
+				subscriptionIterator.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Makes sure the subscription is watching the cells its owner's range currently covers
+	 */
+	private void watch(Subscription subscription)
+	{
+		subscription.lastUsed = time;
+		if(!subscription.subscribed)
+		{
+			subscriptions.add(subscription);
+			subscription.subscribed = true;
+		}
+		Entity owner = subscription.owner;
+		double range = subscription.range;
+		grid.watch(subscription.watcher, new AxisAlignedBB(owner.posX - range, owner.posY - range, owner.posZ - range,
+				owner.posX + range, owner.posY + range, owner.posZ + range));
+	}
+	
+	/**
+	 * A sentry's interest in the entities around it. Created once by the sentry and passed to the tracker when looking
+	 * for a target
+	 */
+	public static class Subscription
+	{
+		private final Entity owner;
+		private final double range;
+		private final Predicate<Entity> filter;
+		private final EntityGrid.Watcher watcher = new EntityGrid.Watcher();
+		private boolean subscribed = false;
+		private long lastUsed;
+		
+		private Entity sightTarget;
+		private boolean canSee;
+		private long sightTime;
+		
+		/**
+		 * @param owner  The sentry, targets are found within range of its position
+		 * @param range  How far away targets may be
+		 * @param filter Which entities are valid targets. Checked each time a target is looked for, so it may depend on
+		 *               things that change, like teams
+		 */
+		public Subscription(Entity owner, double range, Predicate<Entity> filter)
+		{
+			this.owner = owner;
+			this.range = range;
+			this.filter = filter;
+		}
+	}
+	
+	/**
+	 * Throws away the tracker of any world that unloads
+	 */
+	public static class WorldListener
+	{
+		public WorldListener()
+		{
+			MinecraftForge.EVENT_BUS.register(this);
+		}
+		
+		@SubscribeEvent
+		public void onWorldUnload(WorldEvent.Unload event)
+		{
+			trackers.remove(event.getWorld());
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.flansmod.common.guns.raytracing;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+
+import com.flansmod.common.util.BlockUtil;
+import com.flansmod.common.util.ChunkSectionReader;
+
+/**
+ * Traces bullets through blocks the same way as {@link World#rayTraceBlocks(Vec3d, Vec3d, boolean, boolean, boolean)}
+ * with (false, true, true), but remembers each block it looks at. Rays fired together, like the pellets of a shotgun,
+ * cross many of the same blocks, and only the first ray to reach a block has to look it up and find out whether it can
+ * be hit. The exact intersection is still worked out for each ray.
+ * <p>
+ * Meant to be used for one volley and then dropped, as it does not notice blocks changing.
+ */
+public class BlockRaytracer
+{
+	/**
+	 * The same limit on steps per ray as vanilla's raytracing
+	 */
+	private static final int MAX_STEPS = 200;
+	private static final byte HAS_COLLISION_BOX = 1;
+	private static final byte PORTAL = 2;
+	private static final byte CAN_COLLIDE = 4;
+	
+	private final World world;
+	private final ChunkSectionReader blocks;
+	private final Long2ObjectOpenHashMap<IBlockState> states = new Long2ObjectOpenHashMap<>();
+	private final Long2ByteOpenHashMap flags = new Long2ByteOpenHashMap();
+	
+	public BlockRaytracer(World world)
+	{
+		this.world = world;
+		this.blocks = new ChunkSectionReader(world);
+		flags.defaultReturnValue((byte)-1);
+	}
+	
+	public IBlockState getBlockState(BlockPos pos)
+	{
+		return getBlockState(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	/**
+	 * @return The first block hit between the two points, or the last block passed through that has a collision box but
+	 * cannot be hit, as a miss, or null
+	 */
+	public RayTraceResult rayTrace(Vec3d start, Vec3d end)
+	{
+		if(Double.isNaN(start.x) || Double.isNaN(start.y) || Double.isNaN(start.z)
+				|| Double.isNaN(end.x) || Double.isNaN(end.y) || Double.isNaN(end.z))
+			return null;
+		
+		int endX = MathHelper.floor(end.x);
+		int endY = MathHelper.floor(end.y);
+		int endZ = MathHelper.floor(end.z);
+		int x = MathHelper.floor(start.x);
+		int y = MathHelper.floor(start.y);
+		int z = MathHelper.floor(start.z);
+		double posX = start.x, posY = start.y, posZ = start.z;
+		
+		byte blockFlags = getFlags(x, y, z);
+		if((blockFlags & HAS_COLLISION_BOX) != 0 && (blockFlags & CAN_COLLIDE) != 0)
+		{
+			RayTraceResult hit = getBlockState(x, y, z).collisionRayTrace(world, new BlockPos(x, y, z), start, end);
+			if(hit != null)
+				return hit;
+		}
+		
+		RayTraceResult lastUncollidable = null;
+		for(int steps = MAX_STEPS; steps-- >= 0; )
+		{
+			if(Double.isNaN(posX) || Double.isNaN(posY) || Double.isNaN(posZ))
+				return null;
+			if(x == endX && y == endY && z == endZ)
+				return lastUncollidable;
+			
+			boolean crossX = true, crossY = true, crossZ = true;
+			double nextX = 999.0D, nextY = 999.0D, nextZ = 999.0D;
+			if(endX > x)
+				nextX = x + 1.0D;
+			else if(endX < x)
+				nextX = x + 0.0D;
+			else crossX = false;
+			if(endY > y)
+				nextY = y + 1.0D;
+			else if(endY < y)
+				nextY = y + 0.0D;
+			else crossY = false;
+			if(endZ > z)
+				nextZ = z + 1.0D;
+			else if(endZ < z)
+				nextZ = z + 0.0D;
+			else crossZ = false;
+			
+			double tX = 999.0D, tY = 999.0D, tZ = 999.0D;
+			double dX = end.x - posX, dY = end.y - posY, dZ = end.z - posZ;
+			if(crossX)
+				tX = (nextX - posX) / dX;
+			if(crossY)
+				tY = (nextY - posY) / dY;
+			if(crossZ)
+				tZ = (nextZ - posZ) / dZ;
+			if(tX == -0.0D)
+				tX = -1.0E-4D;
+			if(tY == -0.0D)
+				tY = -1.0E-4D;
+			if(tZ == -0.0D)
+				tZ = -1.0E-4D;
+			
+			EnumFacing facing;
+			if(tX < tY && tX < tZ)
+			{
+				facing = endX > x ? EnumFacing.WEST : EnumFacing.EAST;
+				posY += dY * tX;
+				posZ += dZ * tX;
+				posX = nextX;
+			}
+			else if(tY < tZ)
+			{
+				facing = endY > y ? EnumFacing.DOWN : EnumFacing.UP;
+				posX += dX * tY;
+				posZ += dZ * tY;
+				posY = nextY;
+			}
+			else
+			{
+				facing = endZ > z ? EnumFacing.NORTH : EnumFacing.SOUTH;
+				posX += dX * tZ;
+				posY += dY * tZ;
+				posZ = nextZ;
+			}
+			x = MathHelper.floor(posX) - (facing == EnumFacing.EAST ? 1 : 0);
+			y = MathHelper.floor(posY) - (facing == EnumFacing.UP ? 1 : 0);
+			z = MathHelper.floor(posZ) - (facing == EnumFacing.SOUTH ? 1 : 0);
+			
+			blockFlags = getFlags(x, y, z);
+			if((blockFlags & (HAS_COLLISION_BOX | PORTAL)) != 0)
+			{
+				Vec3d pos = new Vec3d(posX, posY, posZ);
+				if((blockFlags & CAN_COLLIDE) != 0)
+				{
+					RayTraceResult hit = getBlockState(x, y, z).collisionRayTrace(world, new BlockPos(x, y, z), pos, end);
+					if(hit != null)
+						return hit;
+				}
+				else lastUncollidable = new RayTraceResult(RayTraceResult.Type.MISS, pos, facing, new BlockPos(x, y, z));
+			}
+		}
+		return lastUncollidable;
+	}
+	
+	private IBlockState getBlockState(int x, int y, int z)
+	{
+		long key = BlockUtil.toLong(x, y, z);
+		IBlockState state = states.get(key);
+		if(state == null)
+		{
+			state = readBlockState(x, y, z);
+			states.put(key, state);
+		}
+		return state;
+	}
+	
+	/**
+	 * @return The block at this position as the world has it now
+	 */
+	IBlockState readBlockState(int x, int y, int z)
+	{
+		return blocks.getBlockState(x, y, z);
+	}
+	
+	private byte getFlags(int x, int y, int z)
+	{
+		long key = BlockUtil.toLong(x, y, z);
+		byte blockFlags = flags.get(key);
+		if(blockFlags == -1)
+		{
+			IBlockState state = getBlockState(x, y, z);
+			blockFlags = 0;
+			if(state.getCollisionBoundingBox(world, new BlockPos(x, y, z)) != Block.NULL_AABB)
+				blockFlags |= HAS_COLLISION_BOX;
+			if(state.getMaterial() == Material.PORTAL)
+				blockFlags |= PORTAL;
+			if(state.getBlock().canCollideCheck(state, false))
+				blockFlags |= CAN_COLLIDE;
+			flags.put(key, blockFlags);
+		}
+		return blockFlags;
+	}
+}
@@ -0,0 +1,496 @@
+package com.flansmod.common.guns.raytracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+
+import com.flansmod.common.driveables.EntityDriveable;
+import com.flansmod.common.guns.EntityAAGun;
+import com.flansmod.common.guns.EntityGrenade;
+import com.flansmod.common.vector.Vector3f;
+
+/**
+ * A uniform grid of every entity that a bullet can hit, kept per world. Cells are the size of a chunk section and each
+ * entity is filed under every cell its bounding box touches, so a ray only needs to look at the entities in the cells it
+ * actually passes through instead of the whole of world.loadedEntityList.
+ * <p>
+ * Players are filed too, but are left out of ray queries, as they are hit through their lag compensated snapshots rather
+ * than their current position and so are handled by the raytracer directly.
+ * <p>
+ * Other code can keep track of the entities near a point with a {@link Watcher}, which is told about entities entering
+ * and leaving the cells it watches as the grid re-files them, so it never has to ask the world for entities itself.
+ */
+public class EntityGrid
+{
+	/**
+	 * log2 of the cell size. 16 block cells line up with chunk sections
+	 */
+	private static final int CELL_SHIFT = 4;
+	/**
+	 * Extra space around each entity so that things which move part way through a tick are still found in their cells
+	 */
+	private static final double PADDING = 1D;
+
+	private static final Map<World, EntityGrid> grids = new HashMap<>();
+	private static final Comparator<Entry> FILING_ORDER = Comparator.comparingLong(entry -> entry.order);
+
+	/**
+	 * Gets the grid for this world, bringing it up to date with entity movement if this is the first query this tick
+	 */
+	public static EntityGrid get(World world)
+	{
+		EntityGrid grid = grids.get(world);
+		if(grid == null)
+		{
+			grid = new EntityGrid();
+			grids.put(world, grid);
+		}
+		grid.refresh(world);
+		return grid;
+	}
+
+	/**
+	 * @return Whether bullets can hit this entity through the grid
+	 */
+	public static boolean isTracked(Entity entity)
+	{
+		return entity instanceof EntityDriveable
+				|| (entity instanceof EntityLivingBase && !(entity instanceof EntityPlayer))
+				|| entity instanceof EntityAAGun
+				|| entity instanceof EntityGrenade;
+	}
+
+	/**
+	 * @return Whether the grid keeps track of this entity, for bullets or for watchers
+	 */
+	private static boolean isFiled(Entity entity)
+	{
+		return isTracked(entity) || entity instanceof EntityPlayer;
+	}
+
+	/**
+	 * @return The cell a coordinate falls in
+	 */
+	private static int toCell(double coordinate)
+	{
+		return MathHelper.floor(coordinate) >> CELL_SHIFT;
+	}
+
+	private final Map<Long, Cell> cells = new HashMap<>();
+	private final Map<Entity, Entry> entries = new IdentityHashMap<>();
+	private long lastRefreshTime = Long.MIN_VALUE;
+	private int refreshStamp = 0;
+	private int queryStamp = 0;
+	private long filed = 0L;
+
+	EntityGrid()
+	{
+	}
+
+	private void refresh(World world)
+	{
+		refresh(world.getTotalWorldTime(), world.loadedEntityList);
+	}
+
+	/**
+	 * Re-files any entity that has moved into different cells and drops those that have left the world.
+	 * Only does anything once per world tick, entities that have not changed cells cost no more than the bounds check.
+	 */
+	void refresh(long time, List<Entity> loadedEntities)
+	{
+		if(time == lastRefreshTime)
+			return;
+		lastRefreshTime = time;
+		refreshStamp++;
+
+		for(int i = 0; i < loadedEntities.size(); i++)
+		{
+			Entity entity = loadedEntities.get(i);
+			if(isFiled(entity) && !entity.isDead)
+				update(entity);
+		}
+
+		Iterator<Entry> iterator = entries.values().iterator();
+		while(iterator.hasNext())
+		{
+			Entry entry = iterator.next();
+			if(entry.refreshStamp != refreshStamp)
+			{
+				removeFromCells(entry);
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Moves the entity into the cells matching its current bounds, adding it to the grid if it is not there already
+	 */
+	private void update(Entity entity)
+	{
+		Entry entry = entries.get(entity);
+		if(entry == null)
+		{
+			entry = new Entry(entity, filed++);
+			entries.put(entity, entry);
+		}
+		entry.refreshStamp = refreshStamp;
+
+		AxisAlignedBB box = getBounds(entity);
+		int minX = toCell(box.minX);
+		int minY = toCell(box.minY);
+		int minZ = toCell(box.minZ);
+		int maxX = toCell(box.maxX);
+		int maxY = toCell(box.maxY);
+		int maxZ = toCell(box.maxZ);
+
+		if(entry.inCells && entry.minX == minX && entry.minY == minY && entry.minZ == minZ
+				&& entry.maxX == maxX && entry.maxY == maxY && entry.maxZ == maxZ)
+			return;
+
+		removeFromCells(entry);
+		entry.minX = minX;
+		entry.minY = minY;
+		entry.minZ = minZ;
+		entry.maxX = maxX;
+		entry.maxY = maxY;
+		entry.maxZ = maxZ;
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int y = minY; y <= maxY; y++)
+			{
+				for(int z = minZ; z <= maxZ; z++)
+				{
+					Cell cell = cells.computeIfAbsent(cellKey(x, y, z), k -> new Cell());
+					cell.entries.add(entry);
+					for(Watcher watcher : cell.watchers)
+						watcher.add(entry.entity);
+				}
+			}
+		}
+		entry.inCells = true;
+	}
+
+	private void removeFromCells(Entry entry)
+	{
+		if(!entry.inCells)
+			return;
+		for(int x = entry.minX; x <= entry.maxX; x++)
+		{
+			for(int y = entry.minY; y <= entry.maxY; y++)
+			{
+				for(int z = entry.minZ; z <= entry.maxZ; z++)
+				{
+					long key = cellKey(x, y, z);
+					Cell cell = cells.get(key);
+					if(cell != null)
+					{
+						cell.entries.remove(entry);
+						for(Watcher watcher : cell.watchers)
+							watcher.remove(entry.entity);
+						removeIfEmpty(key, cell);
+					}
+				}
+			}
+		}
+		entry.inCells = false;
+	}
+
+	/**
+	 * The space in which a bullet could hit this entity over the course of this tick
+	 */
+	private static AxisAlignedBB getBounds(Entity entity)
+	{
+		AxisAlignedBB box;
+		if(entity instanceof EntityDriveable)
+		{
+			//Driveables are checked against their bullet detection sphere rather than their bounding box
+			double radius = ((EntityDriveable)entity).getDriveableType().bulletDetectionRadius;
+			box = new AxisAlignedBB(entity.posX - radius, entity.posY - radius, entity.posZ - radius,
+					entity.posX + radius, entity.posY + radius, entity.posZ + radius);
+		}
+		else box = entity.getEntityBoundingBox();
+
+		return box.grow(Math.abs(entity.motionX) + PADDING, Math.abs(entity.motionY) + PADDING, Math.abs(entity.motionZ) + PADDING);
+	}
+
+	/**
+	 * Finds every entity filed under a cell that the segment from origin to origin + motion passes through.
+	 * The result may contain entities the ray does not actually hit, it is up to the caller to do the exact test.
+	 * Entities come out in the order they were filed, which is their order in world.loadedEntityList, so hits that are
+	 * the same distance along the ray sort the same way as when every loaded entity was checked.
+	 */
+	public List<Entity> getEntitiesAlongRay(Vector3f origin, Vector3f motion)
+	{
+		List<Entry> candidates = new ArrayList<>();
+		queryStamp++;
+		collectAlongRay(origin, motion, candidates);
+		return toEntities(candidates);
+	}
+
+	/**
+	 * As {@link #getEntitiesAlongRay}, for several rays fired from the same point, with each entity only appearing once
+	 * however many of the rays pass near it
+	 */
+	public List<Entity> getEntitiesAlongRays(Vector3f origin, List<Vector3f> motions)
+	{
+		List<Entry> candidates = new ArrayList<>();
+		queryStamp++;
+		for(Vector3f motion : motions)
+			collectAlongRay(origin, motion, candidates);
+		return toEntities(candidates);
+	}
+
+	private static List<Entity> toEntities(List<Entry> candidates)
+	{
+		candidates.sort(FILING_ORDER);
+		List<Entity> entities = new ArrayList<>(candidates.size());
+		for(Entry entry : candidates)
+			entities.add(entry.entity);
+		return entities;
+	}
+
+	private void collectAlongRay(Vector3f origin, Vector3f motion, List<Entry> candidates)
+	{
+		int x = MathHelper.floor(origin.x) >> CELL_SHIFT;
+		int y = MathHelper.floor(origin.y) >> CELL_SHIFT;
+		int z = MathHelper.floor(origin.z) >> CELL_SHIFT;
+		int endX = MathHelper.floor(origin.x + motion.x) >> CELL_SHIFT;
+		int endY = MathHelper.floor(origin.y + motion.y) >> CELL_SHIFT;
+		int endZ = MathHelper.floor(origin.z + motion.z) >> CELL_SHIFT;
+
+		int stepX = Integer.signum(endX - x);
+		int stepY = Integer.signum(endY - y);
+		int stepZ = Integer.signum(endZ - z);
+
+		//Parametric distance along the ray to the next cell boundary on each axis, and between boundaries
+		float cellSize = 1 << CELL_SHIFT;
+		float nextX = stepX == 0 ? Float.MAX_VALUE : ((x + (stepX > 0 ? 1 : 0)) * cellSize - origin.x) / motion.x;
+		float nextY = stepY == 0 ? Float.MAX_VALUE : ((y + (stepY > 0 ? 1 : 0)) * cellSize - origin.y) / motion.y;
+		float nextZ = stepZ == 0 ? Float.MAX_VALUE : ((z + (stepZ > 0 ? 1 : 0)) * cellSize - origin.z) / motion.z;
+		float deltaX = stepX == 0 ? Float.MAX_VALUE : cellSize / Math.abs(motion.x);
+		float deltaY = stepY == 0 ? Float.MAX_VALUE : cellSize / Math.abs(motion.y);
+		float deltaZ = stepZ == 0 ? Float.MAX_VALUE : cellSize / Math.abs(motion.z);
+
+		int cellsToVisit = Math.abs(endX - x) + Math.abs(endY - y) + Math.abs(endZ - z);
+		collect(x, y, z, candidates);
+		for(int i = 0; i < cellsToVisit; i++)
+		{
+			if(nextX <= nextY && nextX <= nextZ)
+			{
+				x += stepX;
+				nextX += deltaX;
+			}
+			else if(nextY <= nextZ)
+			{
+				y += stepY;
+				nextY += deltaY;
+			}
+			else
+			{
+				z += stepZ;
+				nextZ += deltaZ;
+			}
+			collect(x, y, z, candidates);
+		}
+	}
+
+	private void collect(int x, int y, int z, List<Entry> candidates)
+	{
+		Cell cell = cells.get(cellKey(x, y, z));
+		if(cell == null)
+			return;
+		for(Entry entry : cell.entries)
+		{
+			if(entry.hittable && entry.queryStamp != queryStamp)
+			{
+				entry.queryStamp = queryStamp;
+				candidates.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Makes the watcher watch the cells covering an area, telling it about every entity in them now and from then on
+	 * about entities entering and leaving them. Does nothing if it is already watching the same cells
+	 */
+	public void watch(Watcher watcher, AxisAlignedBB area)
+	{
+		int minX = toCell(area.minX);
+		int minY = toCell(area.minY);
+		int minZ = toCell(area.minZ);
+		int maxX = toCell(area.maxX);
+		int maxY = toCell(area.maxY);
+		int maxZ = toCell(area.maxZ);
+
+		if(watcher.watching && watcher.minX == minX && watcher.minY == minY && watcher.minZ == minZ
+				&& watcher.maxX == maxX && watcher.maxY == maxY && watcher.maxZ == maxZ)
+			return;
+
+		unwatch(watcher);
+		watcher.minX = minX;
+		watcher.minY = minY;
+		watcher.minZ = minZ;
+		watcher.maxX = maxX;
+		watcher.maxY = maxY;
+		watcher.maxZ = maxZ;
+		for(int x = minX; x <= maxX; x++)
+		{
+			for(int y = minY; y <= maxY; y++)
+			{
+				for(int z = minZ; z <= maxZ; z++)
+				{
+					Cell cell = cells.computeIfAbsent(cellKey(x, y, z), k -> new Cell());
+					cell.watchers.add(watcher);
+					for(Entry entry : cell.entries)
+						watcher.add(entry.entity);
+				}
+			}
+		}
+		watcher.watching = true;
+	}
+
+	/**
+	 * Stops the watcher watching any cells and forgets the entities it had
+	 */
+	public void unwatch(Watcher watcher)
+	{
+		if(!watcher.watching)
+			return;
+		for(int x = watcher.minX; x <= watcher.maxX; x++)
+		{
+			for(int y = watcher.minY; y <= watcher.maxY; y++)
+			{
+				for(int z = watcher.minZ; z <= watcher.maxZ; z++)
+				{
+					long key = cellKey(x, y, z);
+					Cell cell = cells.get(key);
+					if(cell != null)
+					{
+						cell.watchers.remove(watcher);
+						removeIfEmpty(key, cell);
+					}
+				}
+			}
+		}
+		watcher.entities.clear();
+		watcher.watching = false;
+	}
+
+	private void removeIfEmpty(long key, Cell cell)
+	{
+		if(cell.entries.isEmpty() && cell.watchers.isEmpty())
+			cells.remove(key);
+	}
+
+	private static long cellKey(int x, int y, int z)
+	{
+		return ((long)(x & 0x3FFFFF) << 42) | ((long)(y & 0xFFFFF) << 22) | (long)(z & 0x3FFFFF);
+	}
+
+	/**
+	 * The entities filed under a box of cells, kept up to date by the grid it is watching
+	 */
+	public static class Watcher
+	{
+		/**
+		 * How many of the watched cells each entity is filed under, as an entity can be in several
+		 */
+		private final Reference2IntOpenHashMap<Entity> entities = new Reference2IntOpenHashMap<>();
+		private boolean watching = false;
+		private int minX, minY, minZ, maxX, maxY, maxZ;
+
+		/**
+		 * @return Every entity in the watched cells. This is a view, which changes as the grid is refreshed
+		 */
+		public Set<Entity> getEntities()
+		{
+			return entities.keySet();
+		}
+
+		private void add(Entity entity)
+		{
+			entities.addTo(entity, 1);
+		}
+
+		private void remove(Entity entity)
+		{
+			if(entities.addTo(entity, -1) <= 1)
+				entities.removeInt(entity);
+		}
+	}
+
+	private static class Cell
+	{
+		private final List<Entry> entries = new ArrayList<>();
+		private final List<Watcher> watchers = new ArrayList<>();
+	}
+
+	private static class Entry
+	{
+		private final Entity entity;
+		/**
+		 * When this entity was filed, relative to the others in the grid
+		 */
+		private final long order;
+		/**
+		 * Whether ray queries return this entity
+		 */
+		private final boolean hittable;
+		private int minX, minY, minZ, maxX, maxY, maxZ;
+		private boolean inCells = false;
+		private int refreshStamp;
+		private int queryStamp;
+
+		private Entry(Entity entity, long order)
+		{
+			this.entity = entity;
+			this.order = order;
+			this.hittable = isTracked(entity);
+		}
+	}
+
+	/**
+	 * Adds newly spawned entities to the grid straight away, so that they can be hit in the tick they appear, and
+	 * throws away the grid of any world that unloads
+	 */
+	public static class WorldListener
+	{
+		public WorldListener()
+		{
+			MinecraftForge.EVENT_BUS.register(this);
+		}
+
+		@SubscribeEvent
+		public void onEntityJoinWorld(EntityJoinWorldEvent event)
+		{
+			if(event.getWorld().isRemote)
+				return;
+			EntityGrid grid = grids.get(event.getWorld());
+			if(grid != null && isFiled(event.getEntity()))
+				grid.update(event.getEntity());
+		}
+
+		@SubscribeEvent
+		public void onWorldUnload(WorldEvent.Unload event)
+		{
+			grids.remove(event.getWorld());
+		}
+	}
+}
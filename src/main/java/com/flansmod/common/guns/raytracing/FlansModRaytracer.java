@@ -34,142 +34,162 @@ public class FlansModRaytracer
 	
 	public static List<BulletHit> Raytrace(World world, Entity playerToIgnore, boolean canHitSelf, Entity entityToIgnore, Vector3f origin, Vector3f motion, int pingOfShooter, Float gunPenetration)
 	{
-		//Create a list for all bullet hits
-		List<BulletHit> hits = new ArrayList<>();
+		return RaytraceMultiple(world, playerToIgnore, canHitSelf, entityToIgnore, origin, Collections.singletonList(motion), pingOfShooter, gunPenetration).get(0);
+	}
+	
+	/**
+	 * Raytraces several bullets fired from the same point at once, such as the pellets of a shotgun. The entities near any
+	 * of the rays are gathered once and tested against every ray, and each block the rays pass through is only looked up
+	 * once between them
+	 *
+	 * @return The sorted hits of each ray, in the same order as the motions
+	 */
+	public static List<List<BulletHit>> RaytraceMultiple(World world, Entity playerToIgnore, boolean canHitSelf, Entity entityToIgnore, Vector3f origin, List<Vector3f> motions, int pingOfShooter, Float gunPenetration)
+	{
+		//Create a list of bullet hits for each ray
+		List<List<BulletHit>> hits = new ArrayList<>(motions.size());
+		for(int i = 0; i < motions.size(); i++)
+			hits.add(new ArrayList<>());
 		
-		float speed = motion.length();
+		//Players are hit through their lag compensation snapshots
+		for(int i = 0; i < world.playerEntities.size(); i++)
+		{
+			EntityPlayer player = world.playerEntities.get(i);
+			PlayerData data = PlayerHandler.getPlayerData(player);
+			if(data == null)
+				continue;
+			if(player.isDead || data.team == Team.spectators)
+				continue;
+			if(player == playerToIgnore && !canHitSelf)
+				continue;
+			//Find where the shooter saw this player, or as close as we have
+			PlayerSnapshot snapshot = data.snapshots.getForPing(pingOfShooter);
+			
+			//DEBUG
+			//snapshot = new PlayerSnapshot(player);
+			
+			for(int j = 0; j < motions.size(); j++)
+			{
+				//Check one last time for a null snapshot. If this is the case, fall back to normal hit detection
+				if(snapshot == null)
+					raytraceEntity(world, player, playerToIgnore, entityToIgnore, origin, motions.get(j), hits.get(j));
+				else
+				{
+					//Raytrace
+					ArrayList<BulletHit> playerHits = snapshot.raytrace(origin, motions.get(j));
+					hits.get(j).addAll(playerHits);
+				}
+			}
+		}
 		
-		//Iterate over all entities
-		for(int i = 0; i < world.loadedEntityList.size(); i++)
+		//Everything else only needs checking if it is near the path of one of the bullets
+		for(Entity obj : EntityGrid.get(world).getEntitiesAlongRays(origin, motions))
 		{
-			Entity obj = world.loadedEntityList.get(i);
-			boolean shouldDoNormalHitDetect = true;
 			//Get driveables
 			if(obj instanceof EntityDriveable)
 			{
 				EntityDriveable driveable = (EntityDriveable)obj;
-				shouldDoNormalHitDetect = false;
 				
 				if(driveable.isDead() || driveable.isPartOfThis(playerToIgnore))
 					continue;
 				
-				//If this bullet is within the driveable's detection range
-				if(driveable.getDistanceSq(origin.x, origin.y, origin.z) <= (driveable.getDriveableType().bulletDetectionRadius + speed) * (driveable.getDriveableType().bulletDetectionRadius + speed))
+				double distanceSq = driveable.getDistanceSq(origin.x, origin.y, origin.z);
+				float detectionRadius = driveable.getDriveableType().bulletDetectionRadius;
+				for(int j = 0; j < motions.size(); j++)
 				{
-					//Raytrace the bullet
-					ArrayList<BulletHit> driveableHits = driveable.attackFromBullet(origin, motion);
-					hits.addAll(driveableHits);
-				}
-			}
-			//Get players
-			else if(obj instanceof EntityPlayer)
-			{
-				EntityPlayer player = (EntityPlayer)obj;
-				PlayerData data = PlayerHandler.getPlayerData(player);
-				shouldDoNormalHitDetect = false;
-				if(data != null)
-				{
-					if(player.isDead || data.team == Team.spectators)
+					Vector3f motion = motions.get(j);
+					float speed = motion.length();
+					//If this bullet is within the driveable's detection range
+					if(distanceSq <= (detectionRadius + speed) * (detectionRadius + speed))
 					{
-						continue;
-					}
-					if(player == playerToIgnore && !canHitSelf)
-						continue;
-					int snapshotToTry = pingOfShooter / 50;
-					if(snapshotToTry >= data.snapshots.length)
-						snapshotToTry = data.snapshots.length - 1;
-					
-					PlayerSnapshot snapshot = data.snapshots[snapshotToTry];
-					if(snapshot == null)
-						snapshot = data.snapshots[0];
-					
-					//DEBUG
-					//snapshot = new PlayerSnapshot(player);
-					
-					//Check one last time for a null snapshot. If this is the case, fall back to normal hit detection
-					if(snapshot == null)
-						shouldDoNormalHitDetect = true;
-					else
-					{
-						//Raytrace
-						ArrayList<BulletHit> playerHits = snapshot.raytrace(origin, motion);
-						hits.addAll(playerHits);
+						//Raytrace the bullet
+						ArrayList<BulletHit> driveableHits = driveable.attackFromBullet(origin, motion);
+						hits.get(j).addAll(driveableHits);
 					}
 				}
 			}
+			else
+			{
+				for(int j = 0; j < motions.size(); j++)
+					raytraceEntity(world, obj, playerToIgnore, entityToIgnore, origin, motions.get(j), hits.get(j));
+			}
+		}
+		
+		BlockRaytracer blocks = new BlockRaytracer(world);
+		for(int j = 0; j < motions.size(); j++)
+		{
+			Vector3f motion = motions.get(j);
+			Vec3d mot = new Vector3f(motion).toVec3();
+			mot = mot.normalize();
+			mot = mot.scale(0.5d);
+			List<BulletHit> rayHits = raytraceBlock(world, blocks, origin.toVec3(), new Vec3d(0, 0, 0), motion, mot, hits.get(j), gunPenetration, null);
 			
-			if(shouldDoNormalHitDetect)
+			//Sort the hits according to the intercept position
+			Collections.sort(rayHits);
+			hits.set(j, rayHits);
+		}
+		
+		return hits;
+	}
+	
+	/**
+	 * Bounding box hit detection, for anything that is not a driveable or a player with snapshots
+	 */
+	private static void raytraceEntity(World world, Entity entity, Entity playerToIgnore, Entity entityToIgnore, Vector3f origin, Vector3f motion, List<BulletHit> hits)
+	{
+		if(entity != entityToIgnore && entity != playerToIgnore
+				&& !entity.isDead
+				&& (entity instanceof EntityLivingBase || entity instanceof EntityAAGun || entity instanceof EntityGrenade))
+		{
+			RayTraceResult mop = entity.getEntityBoundingBox().calculateIntercept(origin.toVec3(), new Vec3d(origin.x + motion.x, origin.y + motion.y, origin.z + motion.z));
+			if(mop != null)
 			{
-				Entity entity = obj;
-				if(entity != entityToIgnore && entity != playerToIgnore
-						&& !entity.isDead
-						&& (entity instanceof EntityLivingBase || entity instanceof EntityAAGun || entity instanceof EntityGrenade))
+				Entity[] parts = entity.getParts();
+				boolean hit = true;
+				// If parts exist, the intercepted part is calculated and used instead of the whole entity.
+				// If no part is intercepted, the entity itself is not hit
+				if(parts != null)
 				{
-					RayTraceResult mop = entity.getEntityBoundingBox().calculateIntercept(origin.toVec3(), new Vec3d(origin.x + motion.x, origin.y + motion.y, origin.z + motion.z));
-					if(mop != null)
+					hit = false;
+					for(Entity part : parts)
 					{
-						Entity[] parts = entity.getParts();
-						boolean hit = true;
-						// If parts exist, the intercepted part is calculated and used instead of the whole entity.
-						// If no part is intercepted, the entity itself is not hit
-						if(parts != null)
-						{
-							hit = false;
-							for(Entity part : parts)
-							{
-								RayTraceResult result = part.getEntityBoundingBox().calculateIntercept(origin.toVec3(), new Vec3d(origin.x + motion.x, origin.y + motion.y, origin.z + motion.z));
-								if(result != null)
-								{
-									mop = result;
-									entity = part;
-									hit = true;
-									break;
-								}
-							}
-						}
-						
-						if(hit)
+						RayTraceResult result = part.getEntityBoundingBox().calculateIntercept(origin.toVec3(), new Vec3d(origin.x + motion.x, origin.y + motion.y, origin.z + motion.z));
+						if(result != null)
 						{
-							Vec3d hitPoint = new Vec3d(mop.hitVec.x - origin.x, mop.hitVec.y - origin.y, mop.hitVec.z - origin.z);
-							if (FlansMod.DEBUG)
-								world.spawnEntity(new EntityDebugDot(world, new Vector3f(mop.hitVec), 1000, 1.0f, 0f, 0f));
-							
-							float hitLambda = 1F;
-							if(motion.x != 0F)
-								hitLambda = (float) (hitPoint.x / motion.x);
-							else if(motion.y != 0F)
-								hitLambda = (float) (hitPoint.y / motion.y);
-							else if(motion.z != 0F)
-								hitLambda = (float) (hitPoint.z / motion.z);
-							if(hitLambda < 0)
-								hitLambda = -hitLambda;
-							
-							hits.add(new EntityHit(entity, hitLambda));
-							//raytraceBlock(world, mop.hitVec, motion, hits);
+							mop = result;
+							entity = part;
+							hit = true;
+							break;
 						}
 					}
 				}
+				
+				if(hit)
+				{
+					Vec3d hitPoint = new Vec3d(mop.hitVec.x - origin.x, mop.hitVec.y - origin.y, mop.hitVec.z - origin.z);
+					if (FlansMod.DEBUG)
+						world.spawnEntity(new EntityDebugDot(world, new Vector3f(mop.hitVec), 1000, 1.0f, 0f, 0f));
+					
+					float hitLambda = 1F;
+					if(motion.x != 0F)
+						hitLambda = (float) (hitPoint.x / motion.x);
+					else if(motion.y != 0F)
+						hitLambda = (float) (hitPoint.y / motion.y);
+					else if(motion.z != 0F)
+						hitLambda = (float) (hitPoint.z / motion.z);
+					if(hitLambda < 0)
+						hitLambda = -hitLambda;
+					
+					hits.add(new EntityHit(entity, hitLambda));
+					//raytraceBlock(world, mop.hitVec, motion, hits);
+				}
 			}
 		}
-		
-		Vec3d mot = new Vector3f(motion).toVec3();
-		mot = mot.normalize();
-		mot = mot.scale(0.5d);
-		hits = raytraceBlock(world, origin.toVec3(), new Vec3d(0, 0, 0), motion, mot, hits, gunPenetration, null);
-		
-		//We hit something
-		if(!hits.isEmpty())
-		{
-			//Sort the hits according to the intercept position
-			Collections.sort(hits);
-		}
-		
-		
-		return hits;
 	}
 	
 	private static List<BulletHit> raytraceBlock(
 			World world,
+			BlockRaytracer blocks,
 			Vec3d posVec,
 			Vec3d previousHit,
 			Vector3f motion,
@@ -181,7 +201,7 @@ public class FlansModRaytracer
 		//Ray trace the bullet by comparing its next position to its current position
 		Vec3d nextPosVec = new Vec3d(posVec.x + motion.x, posVec.y + motion.y, posVec.z + motion.z);
 
-		RayTraceResult hit = world.rayTraceBlocks(posVec, nextPosVec, false, true, true);
+		RayTraceResult hit = blocks.rayTrace(posVec, nextPosVec);
 		
 		if(hit != null)
 		{
@@ -189,7 +209,7 @@ public class FlansModRaytracer
 			hitVec = hitVec.add(previousHit);
 			
 			BlockPos pos = hit.getBlockPos();
-			IBlockState blockState = world.getBlockState(hit.getBlockPos());
+			IBlockState blockState = blocks.getBlockState(hit.getBlockPos());
 			
 			if (!pos.equals(oldPos))
 			{
@@ -214,6 +234,7 @@ public class FlansModRaytracer
 			{
 				hits = raytraceBlock(
 						world,
+						blocks,
 						hit.hitVec.add(normalized_motion),
 						hitVec.add(normalized_motion),
 						motion,
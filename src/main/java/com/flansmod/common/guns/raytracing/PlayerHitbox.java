@@ -19,6 +19,7 @@ import com.flansmod.common.guns.GunType;
 import com.flansmod.common.guns.ItemGun;
 import com.flansmod.common.guns.raytracing.FlansModRaytracer.PlayerBulletHit;
 import com.flansmod.common.teams.TeamsManager;
+import com.flansmod.common.vector.Matrix4f;
 import com.flansmod.common.vector.Vector3f;
 
 public class PlayerHitbox
@@ -26,34 +27,89 @@ public class PlayerHitbox
 	/** */
 	public EntityPlayer player;
 	/**
-	 * The angles of this box
+	 * The rotation of this box as a 3x3 row-major matrix taking local vectors to global ones.
+	 * Kept as primitives so that snapshots can be overwritten in place every tick
 	 */
-	public RotatedAxes axes;
+	public final float[] basis = new float[9];
 	/**
 	 * The origin of rotation for this box
 	 */
-	public Vector3f rP;
+	public final Vector3f rP = new Vector3f();
 	/**
 	 * The lower left corner of this box
 	 */
-	public Vector3f o;
+	public final Vector3f o = new Vector3f();
 	/**
 	 * The dimensions of this box
 	 */
-	public Vector3f d;
+	public final Vector3f d = new Vector3f();
 	/**
 	 * The type of hitbox
 	 */
 	public EnumHitboxType type;
 	
+	/**
+	 * Creates an empty hitbox to be filled in later by {@link #set}
+	 */
+	public PlayerHitbox()
+	{
+	}
+	
 	public PlayerHitbox(EntityPlayer player, RotatedAxes axes, Vector3f rotationPoint, Vector3f origin, Vector3f dimensions, EnumHitboxType type)
+	{
+		set(player, axes, rotationPoint.x, rotationPoint.y, rotationPoint.z, origin.x, origin.y, origin.z, dimensions.x, dimensions.y, dimensions.z, type);
+	}
+	
+	/**
+	 * Overwrites this hitbox in place. The axes are only read, so the caller may reuse them afterwards
+	 */
+	public void set(EntityPlayer player, RotatedAxes axes, float rPX, float rPY, float rPZ, float oX, float oY, float oZ, float dX, float dY, float dZ, EnumHitboxType type)
 	{
 		this.player = player;
-		this.axes = axes;
-		this.o = origin;
-		this.d = dimensions;
 		this.type = type;
-		this.rP = rotationPoint;
+		rP.set(rPX, rPY, rPZ);
+		o.set(oX, oY, oZ);
+		d.set(dX, dY, dZ);
+		
+		//The columns of the rotation matrix are the local axes in global co-ordinates
+		Matrix4f mat = axes.getMatrix();
+		basis[0] = mat.m00;
+		basis[1] = mat.m01;
+		basis[2] = mat.m02;
+		basis[3] = mat.m10;
+		basis[4] = mat.m11;
+		basis[5] = mat.m12;
+		basis[6] = mat.m20;
+		basis[7] = mat.m21;
+		basis[8] = mat.m22;
+	}
+	
+	/**
+	 * Takes a vector in the local space of this box into world orientation. dest may be the same as in
+	 */
+	public Vector3f findLocalVectorGlobally(Vector3f in, Vector3f dest)
+	{
+		if(dest == null)
+			dest = new Vector3f();
+		float x = basis[0] * in.x + basis[1] * in.y + basis[2] * in.z;
+		float y = basis[3] * in.x + basis[4] * in.y + basis[5] * in.z;
+		float z = basis[6] * in.x + basis[7] * in.y + basis[8] * in.z;
+		dest.set(x, y, z);
+		return dest;
+	}
+	
+	/**
+	 * Takes a vector in world orientation into the local space of this box. dest may be the same as in
+	 */
+	public Vector3f findGlobalVectorLocally(Vector3f in, Vector3f dest)
+	{
+		if(dest == null)
+			dest = new Vector3f();
+		float x = basis[0] * in.x + basis[3] * in.y + basis[6] * in.z;
+		float y = basis[1] * in.x + basis[4] * in.y + basis[7] * in.z;
+		float z = basis[2] * in.x + basis[5] * in.y + basis[8] * in.z;
+		dest.set(x, y, z);
+		return dest;
 	}
 	
 	@SideOnly(Side.CLIENT)
@@ -69,7 +125,7 @@ public class PlayerHitbox
 				for(int k = 0; k < 3; k++)
 				{
 					Vector3f point = new Vector3f(o.x + d.x * i / 2, o.y + d.y * j / 2, o.z + d.z * k / 2);
-					point = axes.findLocalVectorGlobally(point);
+					findLocalVectorGlobally(point, point);
 					if(FlansMod.DEBUG && world.isRemote)
 						world.spawnEntity(new EntityDebugDot(world, new Vector3f(pos.x + rP.x + point.x, pos.y + rP.y + point.y, pos.z + rP.z + point.z), 1, 0F, 1F, 0F));
 				}
@@ -80,8 +136,8 @@ public class PlayerHitbox
 	{
 		//Move to local coords for this hitbox, but don't modify the original "origin" vector
 		origin = Vector3f.sub(origin, rP, null);
-		origin = axes.findGlobalVectorLocally(origin);
-		motion = axes.findGlobalVectorLocally(motion);
+		findGlobalVectorLocally(origin, origin);
+		motion = findGlobalVectorLocally(motion, null);
 		
 		//We now have an AABB starting at o and with dimensions d and our ray in the same coordinate system
 		//We are looking for a point at which the ray enters the box, so we need only consider faces that the ray can see. Partition the space into 3 areas in each axis
@@ -20,10 +20,17 @@ import com.flansmod.common.vector.Vector3f;
 /**
  * This class takes a snapshot of the player's position rotation and held items at a certain point in time.
  * It is used to handle bullet detection. The server will store a second or two of snapshots so that it
- * can work out where the player thought they were shooting accounting for packet lag
+ * can work out where the player thought they were shooting accounting for packet lag.
+ * Snapshots live in a {@link PlayerSnapshotBuffer} and are overwritten in place, so hits referring to their hitboxes
+ * should be dealt with in the same tick they are found
  */
 public class PlayerSnapshot
 {
+	/**
+	 * The most hitboxes a snapshot can hold. Body, head, both arms and a shield in each hand
+	 */
+	private static final int MAX_HITBOXES = 6;
+	
 	/**
 	 * The player this snapshot is for
 	 */
@@ -31,29 +38,55 @@ public class PlayerSnapshot
 	/**
 	 * The player's position at the point the snapshot was taken
 	 */
-	public Vector3f pos;
+	public final Vector3f pos = new Vector3f();
 	/**
-	 * The hitboxes for this player
+	 * Where the player was looking at the point the snapshot was taken
 	 */
-	public ArrayList<PlayerHitbox> hitboxes;
+	public float yaw, pitch;
 	/**
-	 * The time at which this snapshot was taken
+	 * The hitboxes for this player. Only the first numHitboxes are in use, the rest are kept around to be reused
+	 */
+	public final PlayerHitbox[] hitboxes = new PlayerHitbox[MAX_HITBOXES];
+	public int numHitboxes;
+	/**
+	 * The time at which this snapshot was taken, in milliseconds
 	 */
 	public long time;
 	
+	/**
+	 * Creates an empty snapshot for a {@link PlayerSnapshotBuffer} to fill in
+	 */
+	public PlayerSnapshot()
+	{
+		for(int i = 0; i < MAX_HITBOXES; i++)
+			hitboxes[i] = new PlayerHitbox();
+	}
+	
 	public PlayerSnapshot(EntityPlayer p)
+	{
+		this();
+		update(p, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Overwrites this snapshot with the current state of the player
+	 */
+	public void update(EntityPlayer p, long timestamp)
 	{
 		player = p;
-		pos = new Vector3f(p.posX, p.posY, p.posZ);
+		time = timestamp;
+		pos.set((float)p.posX, (float)p.posY, (float)p.posZ);
+		yaw = p.rotationYaw;
+		pitch = p.rotationPitch;
 		//if(FlansMod.proxy.isThePlayer(p))
 		//	pos = new Vector3f(p.posX, p.posY - 1.6F, p.posZ);
-		hitboxes = new ArrayList<>();
+		numHitboxes = 0;
 		
 		RotatedAxes bodyAxes = new RotatedAxes(p.renderYawOffset, 0F, 0F);
 		RotatedAxes headAxes = new RotatedAxes(p.rotationYawHead - p.renderYawOffset, p.rotationPitch, 0F);
 		
-		hitboxes.add(new PlayerHitbox(player, bodyAxes, new Vector3f(0F, 0F, 0F), new Vector3f(-0.25F, 0F, -0.15F), new Vector3f(0.5F, 1.4F, 0.3F), EnumHitboxType.BODY));
-		hitboxes.add(new PlayerHitbox(player, bodyAxes.findLocalAxesGlobally(headAxes), new Vector3f(0.0F, 1.4F, 0F), new Vector3f(-0.25F, 0F, -0.25F), new Vector3f(0.5F, 0.5F, 0.5F), EnumHitboxType.HEAD));
+		addHitbox(bodyAxes, 0F, 0F, 0F, -0.25F, 0F, -0.15F, 0.5F, 1.4F, 0.3F, EnumHitboxType.BODY);
+		addHitbox(bodyAxes.findLocalAxesGlobally(headAxes), 0.0F, 1.4F, 0F, -0.25F, 0F, -0.25F, 0.5F, 0.5F, 0.5F, EnumHitboxType.HEAD);
 		
 		//Calculate rotation of arms using modified code from ModelBiped
 		float yHead = (p.rotationYawHead - p.renderYawOffset) / (180F / (float)Math.PI);
@@ -80,8 +113,9 @@ public class PlayerSnapshot
 		float originZLeft = -MathHelper.sin(-p.renderYawOffset * 3.14159265F / 180F) * 5.0F / 16F;
 		float originXLeft = MathHelper.cos(-p.renderYawOffset * 3.14159265F / 180F) * 5.0F / 16F;
 		
-		hitboxes.add(new PlayerHitbox(player, bodyAxes.findLocalAxesGlobally(leftArmAxes), new Vector3f(originXLeft, 1.3F, originZLeft), new Vector3f(-2F / 16F, -0.6F, -2F / 16F), new Vector3f(0.25F, 0.7F, 0.25F), EnumHitboxType.LEFTARM));
-		hitboxes.add(new PlayerHitbox(player, bodyAxes.findLocalAxesGlobally(rightArmAxes), new Vector3f(originXRight, 1.3F, originZRight), new Vector3f(-2F / 16F, -0.6F, -2F / 16F), new Vector3f(0.25F, 0.7F, 0.25F), EnumHitboxType.RIGHTARM));
+		RotatedAxes globalRightArmAxes = bodyAxes.findLocalAxesGlobally(rightArmAxes);
+		addHitbox(bodyAxes.findLocalAxesGlobally(leftArmAxes), originXLeft, 1.3F, originZLeft, -2F / 16F, -0.6F, -2F / 16F, 0.25F, 0.7F, 0.25F, EnumHitboxType.LEFTARM);
+		addHitbox(globalRightArmAxes, originXRight, 1.3F, originZRight, -2F / 16F, -0.6F, -2F / 16F, 0.25F, 0.7F, 0.25F, EnumHitboxType.RIGHTARM);
 		
 		//Add box for right hand shield
 		ItemStack playerRightHandStack = player.getHeldItemMainhand();
@@ -90,7 +124,7 @@ public class PlayerSnapshot
 			GunType gunType = ((ItemGun)playerRightHandStack.getItem()).GetType();
 			if(gunType.shield)
 			{
-				hitboxes.add(new PlayerHitbox(player, bodyAxes.findLocalAxesGlobally(rightArmAxes), new Vector3f(originXRight, 1.3F, originZRight), new Vector3f(gunType.shieldOrigin.y, -1.05F + gunType.shieldOrigin.x, -1F / 16F + gunType.shieldOrigin.z), new Vector3f(gunType.shieldDimensions.y, gunType.shieldDimensions.x, gunType.shieldDimensions.z), EnumHitboxType.RIGHTITEM));
+				addShieldHitbox(globalRightArmAxes, originXRight, originZRight, gunType);
 			}
 		}
 		ItemStack playerLeftHandStack = player.getHeldItemOffhand();
@@ -99,11 +133,23 @@ public class PlayerSnapshot
 			GunType gunType = ((ItemGun)playerLeftHandStack.getItem()).GetType();
 			if(gunType.shield)
 			{
-				hitboxes.add(new PlayerHitbox(player, bodyAxes.findLocalAxesGlobally(rightArmAxes), new Vector3f(originXRight, 1.3F, originZRight), new Vector3f(gunType.shieldOrigin.y, -1.05F + gunType.shieldOrigin.x, -1F / 16F + gunType.shieldOrigin.z), new Vector3f(gunType.shieldDimensions.y, gunType.shieldDimensions.x, gunType.shieldDimensions.z), EnumHitboxType.RIGHTITEM));
+				addShieldHitbox(globalRightArmAxes, originXRight, originZRight, gunType);
 			}
 		}
 	}
 	
+	private void addHitbox(RotatedAxes axes, float rPX, float rPY, float rPZ, float oX, float oY, float oZ, float dX, float dY, float dZ, EnumHitboxType type)
+	{
+		hitboxes[numHitboxes++].set(player, axes, rPX, rPY, rPZ, oX, oY, oZ, dX, dY, dZ, type);
+	}
+	
+	private void addShieldHitbox(RotatedAxes armAxes, float originX, float originZ, GunType gunType)
+	{
+		addHitbox(armAxes, originX, 1.3F, originZ,
+				gunType.shieldOrigin.y, -1.05F + gunType.shieldOrigin.x, -1F / 16F + gunType.shieldOrigin.z,
+				gunType.shieldDimensions.y, gunType.shieldDimensions.x, gunType.shieldDimensions.z, EnumHitboxType.RIGHTITEM);
+	}
+	
 	public ArrayList<BulletHit> raytrace(Vector3f origin, Vector3f motion)
 	{
 		//Get the bullet raytrace vector into local coordinates
@@ -112,9 +158,9 @@ public class PlayerSnapshot
 		ArrayList<BulletHit> hits = new ArrayList<>();
 		
 		//Check each hitbox for a hit
-		for(PlayerHitbox hitbox : hitboxes)
+		for(int i = 0; i < numHitboxes; i++)
 		{
-			PlayerBulletHit hit = hitbox.raytrace(localOrigin, motion);
+			PlayerBulletHit hit = hitboxes[i].raytrace(localOrigin, motion);
 			if(hit != null && hit.intersectTime >= 0F && hit.intersectTime <= 1F)
 			{
 				hits.add(hit);
@@ -127,19 +173,19 @@ public class PlayerSnapshot
 	@SideOnly(Side.CLIENT)
 	public void renderSnapshot()
 	{
-		for(PlayerHitbox hitbox : hitboxes)
+		for(int i = 0; i < numHitboxes; i++)
 		{
-			hitbox.renderHitbox(player.world, pos);
+			hitboxes[i].renderHitbox(player.world, pos);
 		}
 	}
 	
 	public PlayerHitbox GetHitbox(EnumHitboxType type)
 	{
-		for(PlayerHitbox hitbox : hitboxes)
+		for(int i = 0; i < numHitboxes; i++)
 		{
-			if(hitbox.type == type)
+			if(hitboxes[i].type == type)
 			{
-				return hitbox;
+				return hitboxes[i];
 			}
 		}
 		return null;
@@ -159,7 +205,7 @@ public class PlayerSnapshot
 			Vector3f.add(muzzlePos, barrelAttach, muzzlePos);
 		}
 		
-		muzzlePos = hitbox.axes.findLocalVectorGlobally(muzzlePos);
+		hitbox.findLocalVectorGlobally(muzzlePos, muzzlePos);
 		
 		
 		Vector3f.add(muzzlePos, hitbox.rP, muzzlePos);
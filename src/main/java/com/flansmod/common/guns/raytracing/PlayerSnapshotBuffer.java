@@ -0,0 +1,95 @@
+package com.flansmod.common.guns.raytracing;
+
+import net.minecraft.entity.player.EntityPlayer;
+
+/**
+ * A fixed size ring of {@link PlayerSnapshot}s for lag compensation. Every snapshot is allocated up front and recording
+ * a new one overwrites the oldest in place, so keeping a player's history costs no allocations per tick.
+ */
+public class PlayerSnapshotBuffer
+{
+	private final PlayerSnapshot[] snapshots;
+	/**
+	 * The slot the next snapshot will be written to
+	 */
+	private int head = 0;
+	/**
+	 * How many slots currently hold a valid snapshot
+	 */
+	private int count = 0;
+
+	public PlayerSnapshotBuffer(int size)
+	{
+		snapshots = new PlayerSnapshot[size];
+		for(int i = 0; i < size; i++)
+			snapshots[i] = new PlayerSnapshot();
+	}
+
+	/**
+	 * Takes a snapshot of the player as they are now, replacing the oldest one if the buffer is full
+	 */
+	public void record(EntityPlayer player)
+	{
+		snapshots[head].update(player, System.currentTimeMillis());
+		head = (head + 1) % snapshots.length;
+		if(count < snapshots.length)
+			count++;
+	}
+
+	/**
+	 * Forgets all snapshots, for when the player dies or respawns
+	 */
+	public void clear()
+	{
+		count = 0;
+	}
+
+	public boolean isEmpty()
+	{
+		return count == 0;
+	}
+
+	/**
+	 * @param ticksAgo 0 for the most recent snapshot, 1 for the one before that and so on
+	 * @return The snapshot, or null if that far back has not been recorded
+	 */
+	public PlayerSnapshot get(int ticksAgo)
+	{
+		if(ticksAgo < 0 || ticksAgo >= count)
+			return null;
+		return snapshots[Math.floorMod(head - 1 - ticksAgo, snapshots.length)];
+	}
+
+	public PlayerSnapshot getLatest()
+	{
+		return get(0);
+	}
+
+	/**
+	 * Finds the most recent snapshot taken at or before the given time. If every snapshot is newer than that, the
+	 * oldest one is returned instead
+	 *
+	 * @param time In milliseconds, as given by System.currentTimeMillis
+	 * @return The snapshot, or null if none have been recorded
+	 */
+	public PlayerSnapshot getAtTime(long time)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			PlayerSnapshot snapshot = get(i);
+			if(snapshot.time <= time)
+				return snapshot;
+		}
+		return get(count - 1);
+	}
+
+	/**
+	 * Finds where this player was as seen by someone with the given ping
+	 *
+	 * @param ping The round trip time of the shooter in milliseconds
+	 */
+	public PlayerSnapshot getForPing(int ping)
+	{
+		return getAtTime(System.currentTimeMillis() - ping);
+	}
+}
@@ -0,0 +1,197 @@
+package com.flansmod.common.network;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+
+import com.flansmod.common.FlansMod;
+import com.flansmod.common.vector.Vector3f;
+
+/**
+ * Collects the purely cosmetic effects of shooting over a server tick, that is bullet trails, block hit particles and hit
+ * sounds, and sends each player the ones that matter to them in one {@link PacketEffects} at the end of the tick.
+ * <p>
+ * Each effect has a range it can be seen or heard from. Beyond {@link #FULL_DETAIL_DISTANCE}, visual effects behind a
+ * player are left out, and only {@link #DISTANT_EFFECTS_PER_CHUNK} effects of each kind are sent per chunk, since a
+ * player cannot tell a few distant impacts from many.
+ */
+public class EffectBatcher
+{
+	/**
+	 * Everything within this distance of a player is sent
+	 */
+	private static final double FULL_DETAIL_DISTANCE = 32D;
+	/**
+	 * How many effects of each kind a player is sent from one chunk further away than {@link #FULL_DETAIL_DISTANCE}
+	 */
+	private static final int DISTANT_EFFECTS_PER_CHUNK = 2;
+	/**
+	 * The cosine of the angle from the player's view beyond which distant visual effects are left out. Wider than any
+	 * field of view so that things at the edge of the screen or just turned towards are still seen
+	 */
+	private static final double VIEW_COSINE = -0.5D;
+	
+	static final int TRAIL = 0, BLOCK_HIT = 1, SOUND = 2;
+	
+	//Only used on the server thread
+	private static final Map<Integer, List<Effect>> effects = new HashMap<>();
+	private static final Long2IntOpenHashMap distantCounts = new Long2IntOpenHashMap();
+	private static final List<Effect> playerEffects = new ArrayList<>();
+	
+	/**
+	 * Queues the trails of bullets fired together from one point
+	 */
+	public static void addBulletTrail(World world, Vector3f origin, List<Vector3f> hitPositions, float width, float length, float bulletSpeed, String trailTexture)
+	{
+		float[] points = new float[3 + hitPositions.size() * 3];
+		points[0] = origin.x;
+		points[1] = origin.y;
+		points[2] = origin.z;
+		for(int i = 0; i < hitPositions.size(); i++)
+		{
+			points[3 + i * 3] = hitPositions.get(i).x;
+			points[4 + i * 3] = hitPositions.get(i).y;
+			points[5 + i * 3] = hitPositions.get(i).z;
+		}
+		add(world, new Effect(TRAIL, new PacketBulletTrail(origin, hitPositions, width, length, bulletSpeed, trailTexture),
+				origin.x, origin.y, origin.z, 500D, points));
+	}
+	
+	/**
+	 * Queues the particles of a bullet hitting a block
+	 */
+	public static void addBlockHit(World world, Vector3f hit, Vector3f direction, BlockPos pos, EnumFacing facing)
+	{
+		add(world, new Effect(BLOCK_HIT, new PacketBlockHitEffect(hit, direction, pos, facing),
+				hit.x, hit.y, hit.z, 300D, new float[] { hit.x, hit.y, hit.z }));
+	}
+	
+	/**
+	 * Queues a sound, as {@link PacketPlaySound#sendSoundPacket} would send it
+	 */
+	public static void addSound(World world, double x, double y, double z, double range, String sound, boolean distort)
+	{
+		if(sound == null || sound.isEmpty())
+			return;
+		add(world, new Effect(SOUND, new PacketPlaySound(x, y, z, sound, distort), x, y, z, range, null));
+	}
+	
+	private static void add(World world, Effect effect)
+	{
+		if(world.isRemote)
+			return;
+		effects.computeIfAbsent(world.provider.getDimension(), d -> new ArrayList<>()).add(effect);
+	}
+	
+	/**
+	 * Sends each player the effects from this tick that they should get. Called at the end of the server tick
+	 */
+	public static void sendEffects()
+	{
+		for(Map.Entry<Integer, List<Effect>> entry : effects.entrySet())
+		{
+			List<Effect> dimensionEffects = entry.getValue();
+			if(dimensionEffects.isEmpty())
+				continue;
+			WorldServer world = DimensionManager.getWorld(entry.getKey());
+			if(world != null)
+			{
+				for(EntityPlayer player : world.playerEntities)
+				{
+					if(player instanceof EntityPlayerMP)
+						sendEffects((EntityPlayerMP)player, dimensionEffects);
+				}
+			}
+			dimensionEffects.clear();
+		}
+	}
+	
+	private static void sendEffects(EntityPlayerMP player, List<Effect> dimensionEffects)
+	{
+		playerEffects.clear();
+		selectEffects(player.posX, player.posY, player.posZ, player.getPositionEyes(1F), player.getLookVec(), dimensionEffects, playerEffects);
+		if(playerEffects.isEmpty())
+			return;
+		PacketEffects packet = new PacketEffects();
+		for(Effect effect : playerEffects)
+			packet.add(effect.packet);
+		FlansMod.getPacketHandler().sendTo(packet, player);
+	}
+	
+	/**
+	 * Picks out the effects that a player standing at x, y, z and looking along look from eyes should be sent
+	 *
+	 * @param selected Filled with the effects to send, in the order they were queued
+	 */
+	static void selectEffects(double x, double y, double z, Vec3d eyes, Vec3d look, List<Effect> dimensionEffects, List<Effect> selected)
+	{
+		distantCounts.clear();
+		for(Effect effect : dimensionEffects)
+		{
+			double dX = effect.x - x, dY = effect.y - y, dZ = effect.z - z;
+			double distanceSq = dX * dX + dY * dY + dZ * dZ;
+			if(distanceSq > effect.range * effect.range)
+				continue;
+			if(distanceSq > FULL_DETAIL_DISTANCE * FULL_DETAIL_DISTANCE)
+			{
+				if(effect.points != null && !isInView(eyes, look, effect.points))
+					continue;
+				long key = ((long)(MathHelper.floor(effect.x) >> 4) & 0x3FFFFFFFL) << 32
+						| ((long)(MathHelper.floor(effect.z) >> 4) & 0x3FFFFFFFL) << 2 | effect.kind;
+				if(distantCounts.addTo(key, 1) >= DISTANT_EFFECTS_PER_CHUNK)
+					continue;
+			}
+			selected.add(effect);
+		}
+	}
+	
+	/**
+	 * @return Whether any of the points are roughly in front of the player
+	 */
+	private static boolean isInView(Vec3d eyes, Vec3d look, float[] points)
+	{
+		for(int i = 0; i < points.length; i += 3)
+		{
+			double dX = points[i] - eyes.x, dY = points[i + 1] - eyes.y, dZ = points[i + 2] - eyes.z;
+			double dot = dX * look.x + dY * look.y + dZ * look.z;
+			if(dot >= VIEW_COSINE * Math.sqrt(dX * dX + dY * dY + dZ * dZ))
+				return true;
+		}
+		return false;
+	}
+	
+	static class Effect
+	{
+		private final int kind;
+		private final PacketBase packet;
+		private final double x, y, z;
+		private final double range;
+		/**
+		 * Points that would be seen, for culling effects behind the player. Null for effects that are not seen
+		 */
+		private final float[] points;
+		
+		Effect(int kind, PacketBase packet, double x, double y, double z, double range, float[] points)
+		{
+			this.kind = kind;
+			this.packet = packet;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.range = range;
+			this.points = points;
+		}
+	}
+}
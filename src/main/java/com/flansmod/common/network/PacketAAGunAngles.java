@@ -2,10 +2,10 @@ package com.flansmod.common.network;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.guns.EntityAAGun;
 
 public class PacketAAGunAngles extends PacketBase
@@ -50,10 +50,9 @@ public class PacketAAGunAngles extends PacketBase
 	@Override
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
-		Entity entity = clientPlayer.world.getEntityByID(entityID);
-		if(entity instanceof EntityAAGun)
+		EntityAAGun aa = FlansEntityIndex.getEntity(clientPlayer.world, entityID, EntityAAGun.class);
+		if(aa != null)
 		{
-			EntityAAGun aa = (EntityAAGun)entity;
 			aa.prevGunYaw = aa.gunYaw;
 			aa.prevGunPitch = aa.gunPitch;
 			aa.gunYaw = gunYaw;
@@ -1,7 +1,9 @@
 package com.flansmod.common.network;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.flansmod.client.model.InstantBulletRenderer;
-import com.flansmod.client.model.InstantBulletRenderer.InstantShotTrail;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.vector.Vector3f;
 
@@ -14,7 +16,10 @@ public class PacketBulletTrail extends PacketBase
 {
 
 	private Vector3f origin;
-	private Vector3f hitPos;
+	/**
+	 * Where each bullet fired from the origin ended up, one trail is drawn to each
+	 */
+	private List<Vector3f> hitPositions;
 	private Float width;
 	private Float length;
 	private Float bulletSpeed;
@@ -24,10 +29,10 @@ public class PacketBulletTrail extends PacketBase
 	{
 	}
 	
-	public PacketBulletTrail(Vector3f origin, Vector3f hitPos, Float width, Float length, Float bulletSpeed, String trailTexture)
+	public PacketBulletTrail(Vector3f origin, List<Vector3f> hitPositions, Float width, Float length, Float bulletSpeed, String trailTexture)
 	{
 		this.origin = origin;
-		this.hitPos = hitPos;
+		this.hitPositions = hitPositions;
 		this.width = width;
 		this.length = length;
 		this.bulletSpeed = bulletSpeed;
@@ -41,10 +46,14 @@ public class PacketBulletTrail extends PacketBase
 		data.writeFloat(origin.x);
 		data.writeFloat(origin.y);
 		data.writeFloat(origin.z);
-		//hit position vector
-		data.writeFloat(hitPos.x);
-		data.writeFloat(hitPos.y);
-		data.writeFloat(hitPos.z);
+		//hit position vectors
+		data.writeShort(hitPositions.size());
+		for(Vector3f hitPos : hitPositions)
+		{
+			data.writeFloat(hitPos.x);
+			data.writeFloat(hitPos.y);
+			data.writeFloat(hitPos.z);
+		}
 		// trail width, length and speed
 		data.writeFloat(width);
 		data.writeFloat(length);
@@ -58,8 +67,11 @@ public class PacketBulletTrail extends PacketBase
 	{
 		//origin Vector
 		origin = new Vector3f(data.readFloat(), data.readFloat(), data.readFloat());
-		//hit position vector
-		hitPos = new Vector3f(data.readFloat(), data.readFloat(), data.readFloat());
+		//hit position vectors
+		int count = data.readUnsignedShort();
+		hitPositions = new ArrayList<>(count);
+		for(int i = 0; i < count; i++)
+			hitPositions.add(new Vector3f(data.readFloat(), data.readFloat(), data.readFloat()));
 		// trail width, length and speed
 		width = data.readFloat();
 		length = data.readFloat();
@@ -78,7 +90,8 @@ public class PacketBulletTrail extends PacketBase
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
 		//TODO trails not visible when trail origin position and player camera position are to close. the can only be seen with an slight angle
-		InstantBulletRenderer.AddTrail(new InstantShotTrail(origin, hitPos, width, length, bulletSpeed, trailTexture));
+		for(Vector3f hitPos : hitPositions)
+			InstantBulletRenderer.AddTrail(origin, hitPos, width, length, bulletSpeed, trailTexture);
 	}
 
 }
@@ -1,19 +1,59 @@
 package com.flansmod.common.network;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.driveables.EntityDriveable;
 import com.flansmod.common.driveables.EntityPlane;
 import com.flansmod.common.driveables.EntityVehicle;
 
+/**
+ * Syncs the position, rotation and controls of a driveable. These are sent every tick a driveable moves, so they are
+ * delta encoded against the last state sent for the same driveable:
+ * <ul>
+ * <li>Position is sent as a fixed point offset from the last position, rotations as 16 bit angles and motion as
+ * fixed point</li>
+ * <li>A bitmask says which groups of fields are present, anything unchanged since the last packet is left out</li>
+ * <li>Every {@link #KEYFRAME_INTERVAL} packets, or whenever the offset will not fit, a full keyframe is sent instead</li>
+ * </ul>
+ * Each driveable keeps the last state it sent and the last state it received, see {@link SyncState}. Packets carry a
+ * stream id and sequence number so that a receiver that missed the start of a stream, or is hearing from a different
+ * sender, drops deltas until the next keyframe rather than applying them to the wrong base.
+ */
 public class PacketDriveableControl extends PacketBase
 {
+	/**
+	 * A full state is sent at least this often, so that players who come into range pick up the driveable quickly
+	 */
+	public static final int KEYFRAME_INTERVAL = 20;
+	
+	private static final int KEYFRAME = 1;
+	private static final int POSITION = 1 << 1;
+	private static final int ROTATION = 1 << 2;
+	private static final int MOTION = 1 << 3;
+	private static final int ANGULAR_VELOCITY = 1 << 4;
+	private static final int THROTTLE = 1 << 5;
+	private static final int FUEL = 1 << 6;
+	private static final int STEERING = 1 << 7;
+	
+	/**
+	 * Position offsets are in 1/256ths of a block, so a delta can cover 128 blocks either way
+	 */
+	private static final double POSITION_SCALE = 256D;
+	/**
+	 * Motion is in 1/1024ths of a block per tick
+	 */
+	private static final double MOTION_SCALE = 1024D;
+	private static final float ANGLE_SCALE = 65536F / 360F;
+	
 	public int entityId;
 	public double posX, posY, posZ;
 	public float yaw, pitch, roll;
@@ -23,6 +63,13 @@ public class PacketDriveableControl extends PacketBase
 	public float fuelInTank;
 	public float steeringYaw;
 	
+	/**
+	 * Which fields were actually sent. Anything not sent is filled in from the last received state by {@link #resolve}
+	 */
+	private int fields;
+	private int streamId, sequence;
+	private int deltaX, deltaY, deltaZ;
+	
 	public PacketDriveableControl()
 	{
 	}
@@ -54,66 +101,221 @@ public class PacketDriveableControl extends PacketBase
 			EntityPlane plane = (EntityPlane)driveable;
 			steeringYaw = plane.flapsYaw;
 		}
+		
+		if(driveable.controlStateSent == null)
+		{
+			driveable.controlStateSent = new SyncState();
+			driveable.controlStateSent.streamId = ThreadLocalRandom.current().nextInt(256);
+		}
+		deltaEncode(driveable.controlStateSent);
+	}
+	
+	/**
+	 * Quantizes the state set on this packet and works out which fields need sending, against the last state sent for
+	 * the same driveable, then remembers the state as the base for the next packet
+	 */
+	void deltaEncode(SyncState last)
+	{
+		//Quantize everything up front, so the state we remember is exactly what the receiver will end up with
+		yaw = dequantizeAngle(quantizeAngle(yaw));
+		pitch = dequantizeAngle(quantizeAngle(pitch));
+		roll = dequantizeAngle(quantizeAngle(roll));
+		motX = dequantizeMotion(quantizeMotion(motX));
+		motY = dequantizeMotion(quantizeMotion(motY));
+		motZ = dequantizeMotion(quantizeMotion(motZ));
+		steeringYaw = dequantizeAngle(quantizeAngle(steeringYaw));
+		
+		boolean keyframe = !last.valid || last.packetsSinceKeyframe >= KEYFRAME_INTERVAL;
+		if(!keyframe)
+		{
+			long dx = Math.round((posX - last.posX) * POSITION_SCALE);
+			long dy = Math.round((posY - last.posY) * POSITION_SCALE);
+			long dz = Math.round((posZ - last.posZ) * POSITION_SCALE);
+			if(fitsInShort(dx) && fitsInShort(dy) && fitsInShort(dz))
+			{
+				deltaX = (int)dx;
+				deltaY = (int)dy;
+				deltaZ = (int)dz;
+				posX = last.posX + deltaX / POSITION_SCALE;
+				posY = last.posY + deltaY / POSITION_SCALE;
+				posZ = last.posZ + deltaZ / POSITION_SCALE;
+				fields = last.changedFields(this);
+				if(deltaX != 0 || deltaY != 0 || deltaZ != 0)
+					fields |= POSITION;
+				last.packetsSinceKeyframe++;
+			}
+			else keyframe = true;
+		}
+		if(keyframe)
+		{
+			fields = KEYFRAME | POSITION | ROTATION | MOTION | ANGULAR_VELOCITY | THROTTLE | FUEL | STEERING;
+			last.packetsSinceKeyframe = 0;
+		}
+		
+		last.sequence = (last.sequence + 1) & 0xFF;
+		streamId = last.streamId;
+		sequence = last.sequence;
+		last.set(this);
 	}
 	
 	@Override
 	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
 	{
-		data.writeInt(entityId);
-		data.writeDouble(posX);
-		data.writeDouble(posY);
-		data.writeDouble(posZ);
-		data.writeFloat(yaw);
-		data.writeFloat(pitch);
-		data.writeFloat(roll);
-		data.writeDouble(motX);
-		data.writeDouble(motY);
-		data.writeDouble(motZ);
-		data.writeFloat(avelx);
-		data.writeFloat(avely);
-		data.writeFloat(avelz);
-		data.writeFloat(throttle);
-		data.writeFloat(fuelInTank);
-		data.writeFloat(steeringYaw);
+		ByteBufUtils.writeVarInt(data, entityId, 5);
+		data.writeByte(fields);
+		data.writeByte(streamId);
+		data.writeByte(sequence);
+		if((fields & KEYFRAME) != 0)
+		{
+			data.writeDouble(posX);
+			data.writeDouble(posY);
+			data.writeDouble(posZ);
+		}
+		else if((fields & POSITION) != 0)
+		{
+			data.writeShort(deltaX);
+			data.writeShort(deltaY);
+			data.writeShort(deltaZ);
+		}
+		if((fields & ROTATION) != 0)
+		{
+			data.writeShort(quantizeAngle(yaw));
+			data.writeShort(quantizeAngle(pitch));
+			data.writeShort(quantizeAngle(roll));
+		}
+		if((fields & MOTION) != 0)
+		{
+			data.writeShort(quantizeMotion(motX));
+			data.writeShort(quantizeMotion(motY));
+			data.writeShort(quantizeMotion(motZ));
+		}
+		if((fields & ANGULAR_VELOCITY) != 0)
+		{
+			data.writeFloat(avelx);
+			data.writeFloat(avely);
+			data.writeFloat(avelz);
+		}
+		if((fields & THROTTLE) != 0)
+			data.writeFloat(throttle);
+		if((fields & FUEL) != 0)
+			data.writeFloat(fuelInTank);
+		if((fields & STEERING) != 0)
+			data.writeShort(quantizeAngle(steeringYaw));
 	}
 	
 	@Override
 	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
 	{
-		entityId = data.readInt();
-		posX = data.readDouble();
-		posY = data.readDouble();
-		posZ = data.readDouble();
-		yaw = data.readFloat();
-		pitch = data.readFloat();
-		roll = data.readFloat();
-		motX = data.readDouble();
-		motY = data.readDouble();
-		motZ = data.readDouble();
-		avelx = data.readFloat();
-		avely = data.readFloat();
-		avelz = data.readFloat();
-		throttle = data.readFloat();
-		fuelInTank = data.readFloat();
-		steeringYaw = data.readFloat();
+		entityId = ByteBufUtils.readVarInt(data, 5);
+		fields = data.readUnsignedByte();
+		streamId = data.readUnsignedByte();
+		sequence = data.readUnsignedByte();
+		if((fields & KEYFRAME) != 0)
+		{
+			posX = data.readDouble();
+			posY = data.readDouble();
+			posZ = data.readDouble();
+		}
+		else if((fields & POSITION) != 0)
+		{
+			deltaX = data.readShort();
+			deltaY = data.readShort();
+			deltaZ = data.readShort();
+		}
+		if((fields & ROTATION) != 0)
+		{
+			yaw = dequantizeAngle(data.readShort());
+			pitch = dequantizeAngle(data.readShort());
+			roll = dequantizeAngle(data.readShort());
+		}
+		if((fields & MOTION) != 0)
+		{
+			motX = dequantizeMotion(data.readShort());
+			motY = dequantizeMotion(data.readShort());
+			motZ = dequantizeMotion(data.readShort());
+		}
+		if((fields & ANGULAR_VELOCITY) != 0)
+		{
+			avelx = data.readFloat();
+			avely = data.readFloat();
+			avelz = data.readFloat();
+		}
+		if((fields & THROTTLE) != 0)
+			throttle = data.readFloat();
+		if((fields & FUEL) != 0)
+			fuelInTank = data.readFloat();
+		if((fields & STEERING) != 0)
+			steeringYaw = dequantizeAngle(data.readShort());
 	}
 	
-	@Override
-	public void handleServerSide(EntityPlayerMP playerEntity)
+	/**
+	 * Rebuilds the full state from this packet and the last one received for the driveable, then remembers it as the
+	 * base for the next. Must be called for every packet received, even ones that are not going to be applied.
+	 *
+	 * @return false if this is a delta on a state we do not have, in which case the packet must be dropped
+	 */
+	protected boolean resolve(EntityDriveable driveable)
 	{
-		if(playerEntity == null || playerEntity.world == null || playerEntity.world.loadedEntityList == null)
-			return;
-		EntityDriveable driveable = null;
-		for(int i = 0; i < playerEntity.world.loadedEntityList.size(); i++)
+		if(driveable.controlStateReceived == null)
+			driveable.controlStateReceived = new SyncState();
+		return resolve(driveable.controlStateReceived);
+	}
+	
+	/**
+	 * As {@link #resolve(EntityDriveable)}, against the last state received for the driveable
+	 */
+	boolean resolve(SyncState last)
+	{
+		if((fields & KEYFRAME) == 0)
 		{
-			Entity obj = playerEntity.world.loadedEntityList.get(i);
-			if(obj instanceof EntityDriveable && obj.getEntityId() == entityId)
+			if(!last.valid || last.streamId != streamId || ((last.sequence + 1) & 0xFF) != sequence)
+			{
+				//Out of step with the sender. Wait for the next keyframe
+				last.valid = false;
+				return false;
+			}
+			posX = last.posX + deltaX / POSITION_SCALE;
+			posY = last.posY + deltaY / POSITION_SCALE;
+			posZ = last.posZ + deltaZ / POSITION_SCALE;
+			if((fields & ROTATION) == 0)
+			{
+				yaw = last.yaw;
+				pitch = last.pitch;
+				roll = last.roll;
+			}
+			if((fields & MOTION) == 0)
+			{
+				motX = last.motX;
+				motY = last.motY;
+				motZ = last.motZ;
+			}
+			if((fields & ANGULAR_VELOCITY) == 0)
 			{
-				driveable = (EntityDriveable)obj;
-				break;
+				avelx = last.avelx;
+				avely = last.avely;
+				avelz = last.avelz;
 			}
+			if((fields & THROTTLE) == 0)
+				throttle = last.throttle;
+			if((fields & FUEL) == 0)
+				fuelInTank = last.fuelInTank;
+			if((fields & STEERING) == 0)
+				steeringYaw = last.steeringYaw;
 		}
-		if(driveable != null)
+		
+		last.streamId = streamId;
+		last.sequence = sequence;
+		last.set(this);
+		return true;
+	}
+	
+	@Override
+	public void handleServerSide(EntityPlayerMP playerEntity)
+	{
+		if(playerEntity == null || playerEntity.world == null)
+			return;
+		EntityDriveable driveable = FlansEntityIndex.getEntity(playerEntity.world, entityId, EntityDriveable.class);
+		if(driveable != null && resolve(driveable))
 			updateDriveable(driveable, false);
 	}
 	
@@ -129,19 +331,96 @@ public class PacketDriveableControl extends PacketBase
 	{
 		if(clientPlayer == null || clientPlayer.world == null)
 			return;
-		EntityDriveable driveable = null;
-		for(Object obj : clientPlayer.world.loadedEntityList)
+		EntityDriveable driveable = FlansEntityIndex.getEntity(clientPlayer.world, entityId, EntityDriveable.class);
+		if(driveable == null || !resolve(driveable))
+			return;
+		driveable.driveableData.fuelInTank = fuelInTank;
+		if(driveable.getSeat(0) != null && driveable.getSeat(0).getControllingPassenger() == clientPlayer)
+			return;
+		updateDriveable(driveable, true);
+	}
+	
+	private static boolean fitsInShort(long value)
+	{
+		return value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+	}
+	
+	private static short quantizeAngle(float angle)
+	{
+		//Wraps around at 360 degrees
+		return (short)Math.round(angle * ANGLE_SCALE);
+	}
+	
+	private static float dequantizeAngle(short angle)
+	{
+		return angle / ANGLE_SCALE;
+	}
+	
+	private static short quantizeMotion(double motion)
+	{
+		return (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(motion * MOTION_SCALE)));
+	}
+	
+	private static double dequantizeMotion(short motion)
+	{
+		return motion / MOTION_SCALE;
+	}
+	
+	/**
+	 * The full control state of a driveable as last sent or received, which the next packet is encoded against
+	 */
+	public static class SyncState
+	{
+		private boolean valid = false;
+		private int streamId, sequence;
+		private int packetsSinceKeyframe;
+		private double posX, posY, posZ;
+		private float yaw, pitch, roll;
+		private double motX, motY, motZ;
+		private float avelx, avely, avelz;
+		private float throttle;
+		private float fuelInTank;
+		private float steeringYaw;
+		
+		private void set(PacketDriveableControl packet)
 		{
-			if(obj instanceof EntityDriveable && ((Entity)obj).getEntityId() == entityId)
-			{
-				driveable = (EntityDriveable)obj;
-				driveable.driveableData.fuelInTank = fuelInTank;
-				if(driveable.getSeat(0) != null && driveable.getSeat(0).getControllingPassenger() == clientPlayer)
-					return;
-				break;
-			}
+			valid = true;
+			posX = packet.posX;
+			posY = packet.posY;
+			posZ = packet.posZ;
+			yaw = packet.yaw;
+			pitch = packet.pitch;
+			roll = packet.roll;
+			motX = packet.motX;
+			motY = packet.motY;
+			motZ = packet.motZ;
+			avelx = packet.avelx;
+			avely = packet.avely;
+			avelz = packet.avelz;
+			throttle = packet.throttle;
+			fuelInTank = packet.fuelInTank;
+			steeringYaw = packet.steeringYaw;
+		}
+		
+		/**
+		 * @return The fields of the packet, other than position, that differ from this state
+		 */
+		private int changedFields(PacketDriveableControl packet)
+		{
+			int changed = 0;
+			if(packet.yaw != yaw || packet.pitch != pitch || packet.roll != roll)
+				changed |= ROTATION;
+			if(packet.motX != motX || packet.motY != motY || packet.motZ != motZ)
+				changed |= MOTION;
+			if(packet.avelx != avelx || packet.avely != avely || packet.avelz != avelz)
+				changed |= ANGULAR_VELOCITY;
+			if(packet.throttle != throttle)
+				changed |= THROTTLE;
+			if(packet.fuelInTank != fuelInTank)
+				changed |= FUEL;
+			if(packet.steeringYaw != steeringYaw)
+				changed |= STEERING;
+			return changed;
 		}
-		if(driveable != null)
-			updateDriveable(driveable, true);
 	}
 }
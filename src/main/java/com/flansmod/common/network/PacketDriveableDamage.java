@@ -2,62 +2,116 @@ package com.flansmod.common.network;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.driveables.DriveablePart;
 import com.flansmod.common.driveables.EntityDriveable;
 import com.flansmod.common.driveables.EnumDriveablePart;
 
+/**
+ * Syncs the health and fire state of a driveable's parts. Only the parts that have changed since the last update are
+ * sent, each as its part index with the fire flag in the top bit followed by its health as a varint.
+ */
 public class PacketDriveableDamage extends PacketBase
 {
+	private static final int ON_FIRE = 0x80;
+	
 	public int entityId;
+	public int numParts;
+	public int[] partIndices;
 	public int[] health;
 	public boolean[] onFire;
 	
 	public PacketDriveableDamage()
 	{
-		health = new int[EnumDriveablePart.values().length];
-		onFire = new boolean[EnumDriveablePart.values().length];
 	}
 	
+	/**
+	 * A packet with every part of the driveable in it
+	 */
 	public PacketDriveableDamage(EntityDriveable driveable)
 	{
-		entityId = driveable.getEntityId();
-		health = new int[EnumDriveablePart.values().length];
-		onFire = new boolean[EnumDriveablePart.values().length];
-		for(int i = 0; i < EnumDriveablePart.values().length; i++)
+		this(driveable.getEntityId(), EnumDriveablePart.values().length);
+		for(EnumDriveablePart ep : EnumDriveablePart.values())
 		{
-			EnumDriveablePart ep = EnumDriveablePart.values()[i];
 			DriveablePart part = driveable.getDriveableData().parts.get(ep);
-			health[i] = part.health;
-			onFire[i] = part.onFire;
+			addPart(ep.ordinal(), part.health, part.onFire);
 		}
 	}
 	
+	private PacketDriveableDamage(int entityId, int capacity)
+	{
+		this.entityId = entityId;
+		partIndices = new int[capacity];
+		health = new int[capacity];
+		onFire = new boolean[capacity];
+	}
+	
+	/**
+	 * Builds a packet with just the parts that differ from what was last sent, and records the new state as sent
+	 *
+	 * @param sentHealth The health of each part as last sent, indexed by part ordinal
+	 * @param sentOnFire The fire state of each part as last sent
+	 * @return The packet, or null if nothing has changed
+	 */
+	public static PacketDriveableDamage changesSince(EntityDriveable driveable, int[] sentHealth, boolean[] sentOnFire)
+	{
+		PacketDriveableDamage packet = null;
+		for(EnumDriveablePart ep : EnumDriveablePart.values())
+		{
+			DriveablePart part = driveable.getDriveableData().parts.get(ep);
+			int i = ep.ordinal();
+			if(part.health == sentHealth[i] && part.onFire == sentOnFire[i])
+				continue;
+			if(packet == null)
+				packet = new PacketDriveableDamage(driveable.getEntityId(), EnumDriveablePart.values().length);
+			packet.addPart(i, part.health, part.onFire);
+			sentHealth[i] = part.health;
+			sentOnFire[i] = part.onFire;
+		}
+		return packet;
+	}
+	
+	private void addPart(int index, int partHealth, boolean partOnFire)
+	{
+		partIndices[numParts] = index;
+		health[numParts] = partHealth;
+		onFire[numParts] = partOnFire;
+		numParts++;
+	}
+	
 	@Override
 	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
 	{
-		data.writeInt(entityId);
-		for(int i = 0; i < EnumDriveablePart.values().length; i++)
+		ByteBufUtils.writeVarInt(data, entityId, 5);
+		data.writeByte(numParts);
+		for(int i = 0; i < numParts; i++)
 		{
-			data.writeInt(health[i]);
-			data.writeBoolean(onFire[i]);
+			data.writeByte(partIndices[i] | (onFire[i] ? ON_FIRE : 0));
+			ByteBufUtils.writeVarInt(data, health[i], 5);
 		}
 	}
 	
 	@Override
 	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
 	{
-		entityId = data.readInt();
-		for(int i = 0; i < EnumDriveablePart.values().length; i++)
+		entityId = ByteBufUtils.readVarInt(data, 5);
+		numParts = data.readUnsignedByte();
+		partIndices = new int[numParts];
+		health = new int[numParts];
+		onFire = new boolean[numParts];
+		for(int i = 0; i < numParts; i++)
 		{
-			health[i] = data.readInt();
-			onFire[i] = data.readBoolean();
+			int partByte = data.readUnsignedByte();
+			partIndices[i] = partByte & ~ON_FIRE;
+			onFire[i] = (partByte & ON_FIRE) != 0;
+			health[i] = ByteBufUtils.readVarInt(data, 5);
 		}
 	}
 	
@@ -71,21 +125,15 @@ public class PacketDriveableDamage extends PacketBase
 	@SideOnly(Side.CLIENT)
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
-		EntityDriveable driveable = null;
-		for(Object obj : clientPlayer.world.loadedEntityList)
-		{
-			if(obj instanceof EntityDriveable && ((Entity)obj).getEntityId() == entityId)
-			{
-				driveable = (EntityDriveable)obj;
-				break;
-			}
-		}
+		EntityDriveable driveable = FlansEntityIndex.getEntity(clientPlayer.world, entityId, EntityDriveable.class);
 		if(driveable != null)
 		{
-			for(int i = 0; i < EnumDriveablePart.values().length; i++)
+			EnumDriveablePart[] parts = EnumDriveablePart.values();
+			for(int i = 0; i < numParts; i++)
 			{
-				EnumDriveablePart ep = EnumDriveablePart.values()[i];
-				DriveablePart part = driveable.getDriveableData().parts.get(ep);
+				if(partIndices[i] >= parts.length)
+					continue;
+				DriveablePart part = driveable.getDriveableData().parts.get(parts[partIndices[i]]);
 				part.health = health[i];
 				part.onFire = onFire[i];
 			}
@@ -0,0 +1,97 @@
+package com.flansmod.common.network;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.flansmod.common.FlansMod;
+
+/**
+ * All the bullet trails, block hit effects and sounds one player is sent in a tick, see {@link EffectBatcher}. Each is
+ * written and handled the same way as its own packet would be
+ */
+public class PacketEffects extends PacketBase
+{
+	private List<PacketBulletTrail> trails = new ArrayList<>();
+	private List<PacketBlockHitEffect> blockHits = new ArrayList<>();
+	private List<PacketPlaySound> sounds = new ArrayList<>();
+	
+	public PacketEffects()
+	{
+	}
+	
+	public void add(PacketBase effect)
+	{
+		if(effect instanceof PacketBulletTrail)
+			trails.add((PacketBulletTrail)effect);
+		else if(effect instanceof PacketBlockHitEffect)
+			blockHits.add((PacketBlockHitEffect)effect);
+		else if(effect instanceof PacketPlaySound)
+			sounds.add((PacketPlaySound)effect);
+		else throw new IllegalArgumentException("Not an effect packet: " + effect.getClass().getSimpleName());
+	}
+	
+	@Override
+	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		data.writeShort(trails.size());
+		for(PacketBulletTrail trail : trails)
+			trail.encodeInto(ctx, data);
+		data.writeShort(blockHits.size());
+		for(PacketBlockHitEffect blockHit : blockHits)
+			blockHit.encodeInto(ctx, data);
+		data.writeShort(sounds.size());
+		for(PacketPlaySound sound : sounds)
+			sound.encodeInto(ctx, data);
+	}
+	
+	@Override
+	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		int count = data.readUnsignedShort();
+		for(int i = 0; i < count; i++)
+		{
+			PacketBulletTrail trail = new PacketBulletTrail();
+			trail.decodeInto(ctx, data);
+			trails.add(trail);
+		}
+		count = data.readUnsignedShort();
+		for(int i = 0; i < count; i++)
+		{
+			PacketBlockHitEffect blockHit = new PacketBlockHitEffect();
+			blockHit.decodeInto(ctx, data);
+			blockHits.add(blockHit);
+		}
+		count = data.readUnsignedShort();
+		for(int i = 0; i < count; i++)
+		{
+			PacketPlaySound sound = new PacketPlaySound();
+			sound.decodeInto(ctx, data);
+			sounds.add(sound);
+		}
+	}
+	
+	@Override
+	public void handleServerSide(EntityPlayerMP playerEntity)
+	{
+		FlansMod.log.warn("Received effects packet on server. Skipping.");
+	}
+	
+	@Override
+	@SideOnly(Side.CLIENT)
+	public void handleClientSide(EntityPlayer clientPlayer)
+	{
+		for(PacketBulletTrail trail : trails)
+			trail.handleClientSide(clientPlayer);
+		for(PacketBlockHitEffect blockHit : blockHits)
+			blockHit.handleClientSide(clientPlayer);
+		for(PacketPlaySound sound : sounds)
+			sound.handleClientSide(clientPlayer);
+	}
+}
@@ -0,0 +1,185 @@
+package com.flansmod.common.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.Explosion;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.flansmod.common.FlansMod;
+
+/**
+ * Replaces the vanilla explosion packet for Flan's Mod explosions. Players near the explosion get the list of destroyed
+ * blocks and their knockback, as vanilla would send. Players further away only get the position and size so that they
+ * can play the sound and show the flash.
+ * <p>
+ * The block list is encoded once per explosion with {@link #encodeBlocks} and the same bytes are shared by every packet
+ * sent for it, rather than being serialised again for each player.
+ */
+public class PacketExplosion extends PacketBase
+{
+	public double x, y, z;
+	public float size;
+	/**
+	 * The encoded block list, or null if this packet is just for the sound and flash
+	 */
+	private byte[] encodedBlocks;
+	public float motionX, motionY, motionZ;
+
+	private List<BlockPos> affectedBlocks = Collections.emptyList();
+
+	public PacketExplosion()
+	{
+	}
+
+	/**
+	 * A sound and flash only packet, for distant players
+	 */
+	public PacketExplosion(double x, double y, double z, float size)
+	{
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.size = size;
+	}
+
+	/**
+	 * A full packet for nearby players
+	 *
+	 * @param encodedBlocks From {@link #encodeBlocks}, shared between all packets for the same explosion
+	 * @param knockback     How much this player was knocked back by the explosion, or null
+	 */
+	public PacketExplosion(double x, double y, double z, float size, byte[] encodedBlocks, Vec3d knockback)
+	{
+		this(x, y, z, size);
+		this.encodedBlocks = encodedBlocks;
+		if(knockback != null)
+		{
+			motionX = (float)knockback.x;
+			motionY = (float)knockback.y;
+			motionZ = (float)knockback.z;
+		}
+	}
+
+	/**
+	 * Encodes the blocks destroyed by an explosion as offsets from its centre. Offsets are single bytes unless the
+	 * explosion is big enough to need shorts
+	 */
+	public static byte[] encodeBlocks(double x, double y, double z, List<BlockPos> blocks)
+	{
+		int originX = MathHelper.floor(x);
+		int originY = MathHelper.floor(y);
+		int originZ = MathHelper.floor(z);
+		boolean wide = false;
+		for(BlockPos pos : blocks)
+		{
+			if(!fitsInByte(pos.getX() - originX) || !fitsInByte(pos.getY() - originY) || !fitsInByte(pos.getZ() - originZ))
+			{
+				wide = true;
+				break;
+			}
+		}
+
+		ByteBuf data = Unpooled.buffer(6 + blocks.size() * (wide ? 6 : 3));
+		ByteBufUtils.writeVarInt(data, blocks.size(), 5);
+		data.writeBoolean(wide);
+		for(BlockPos pos : blocks)
+		{
+			if(wide)
+			{
+				data.writeShort(pos.getX() - originX);
+				data.writeShort(pos.getY() - originY);
+				data.writeShort(pos.getZ() - originZ);
+			}
+			else
+			{
+				data.writeByte(pos.getX() - originX);
+				data.writeByte(pos.getY() - originY);
+				data.writeByte(pos.getZ() - originZ);
+			}
+		}
+		byte[] bytes = new byte[data.readableBytes()];
+		data.readBytes(bytes);
+		return bytes;
+	}
+
+	private static boolean fitsInByte(int value)
+	{
+		return value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+	}
+
+	@Override
+	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		data.writeDouble(x);
+		data.writeDouble(y);
+		data.writeDouble(z);
+		data.writeFloat(size);
+		data.writeBoolean(encodedBlocks != null);
+		if(encodedBlocks != null)
+		{
+			data.writeBytes(encodedBlocks);
+			data.writeFloat(motionX);
+			data.writeFloat(motionY);
+			data.writeFloat(motionZ);
+		}
+	}
+
+	@Override
+	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		x = data.readDouble();
+		y = data.readDouble();
+		z = data.readDouble();
+		size = data.readFloat();
+		if(data.readBoolean())
+		{
+			int originX = MathHelper.floor(x);
+			int originY = MathHelper.floor(y);
+			int originZ = MathHelper.floor(z);
+			int numBlocks = ByteBufUtils.readVarInt(data, 5);
+			boolean wide = data.readBoolean();
+			affectedBlocks = new ArrayList<>(numBlocks);
+			for(int i = 0; i < numBlocks; i++)
+			{
+				if(wide)
+					affectedBlocks.add(new BlockPos(originX + data.readShort(), originY + data.readShort(), originZ + data.readShort()));
+				else affectedBlocks.add(new BlockPos(originX + data.readByte(), originY + data.readByte(), originZ + data.readByte()));
+			}
+			motionX = data.readFloat();
+			motionY = data.readFloat();
+			motionZ = data.readFloat();
+		}
+	}
+
+	@Override
+	public void handleServerSide(EntityPlayerMP playerEntity)
+	{
+		FlansMod.log.warn("Received explosion packet on server. Disregarding.");
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public void handleClientSide(EntityPlayer clientPlayer)
+	{
+		if(clientPlayer == null || clientPlayer.world == null)
+			return;
+		//Same as vanilla's handling of its explosion packet. With no blocks this is just the sound and the flash
+		Explosion explosion = new Explosion(clientPlayer.world, null, x, y, z, size, affectedBlocks);
+		explosion.doExplosionB(!affectedBlocks.isEmpty());
+		clientPlayer.motionX += motionX;
+		clientPlayer.motionY += motionY;
+		clientPlayer.motionZ += motionZ;
+	}
+}
@@ -1,5 +1,8 @@
 package com.flansmod.common.network;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import net.minecraft.entity.player.EntityPlayer;
@@ -13,17 +16,35 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.guns.ItemGun;
 
+/**
+ * Sent by the client for each tick it fires a gun, with every shot it fired that tick. Each shot says how far into the
+ * tick it was fired and where the player was aiming at the time, so the server can fire it the same way. The packet also
+ * carries the client's tick count, so that the server can tell how many ticks passed between packets that arrive
+ * together
+ */
 public class PacketGunFire extends PacketBase
 {
+	/**
+	 * The most shots one packet may carry. Any more are ignored, so a client cannot make the server do unbounded work
+	 */
+	public static final int MAX_SHOTS = 32;
+	
 	private EnumHand hand;
+	/**
+	 * The client's tick count, from {@link com.flansmod.common.PlayerData#ticks}, when the shots were fired
+	 */
+	private int tick;
+	private List<Shot> shots = new ArrayList<>();
 	
 	public PacketGunFire() {
 		
 	}
 	
-	public PacketGunFire(EnumHand hand)
+	public PacketGunFire(EnumHand hand, int tick, List<Shot> shots)
 	{
 		this.hand = hand;
+		this.tick = tick;
+		this.shots = shots;
 	}
 	
 	@Override
@@ -31,6 +52,16 @@ public class PacketGunFire extends PacketBase
 	{
 		//TODO Proper packet enum encoding
 		data.writeInt(EnumHand.MAIN_HAND.equals(hand)?0:1);
+		data.writeInt(tick);
+		int count = Math.min(shots.size(), MAX_SHOTS);
+		data.writeByte(count);
+		for(int i = 0; i < count; i++)
+		{
+			Shot shot = shots.get(i);
+			data.writeByte(Math.round(shot.ticksLate * 255F));
+			data.writeFloat(shot.yaw);
+			data.writeFloat(shot.pitch);
+		}
 	}
 	
 	@Override
@@ -38,6 +69,12 @@ public class PacketGunFire extends PacketBase
 	{
 		//TODO Proper packet enum encoding
 		hand = data.readInt()==0?EnumHand.MAIN_HAND:EnumHand.OFF_HAND;
+		tick = data.readInt();
+		int count = Math.min(data.readUnsignedByte(), MAX_SHOTS);
+		for(int i = 0; i < count; i++)
+		{
+			shots.add(new Shot(data.readUnsignedByte() / 255F, data.readFloat(), data.readFloat()));
+		}
 	}
 	
 	@Override
@@ -48,7 +85,7 @@ public class PacketGunFire extends PacketBase
 		Item item = itemstack.getItem();
 		if (item instanceof ItemGun) {
 			ItemGun gun = (ItemGun) item;
-			gun.shootServer(hand, playerEntity, itemstack);
+			gun.shootServer(hand, playerEntity, itemstack, tick, shots);
 			
 		} else {
 			FlansMod.log.warn("Received invalid PacketGunFire. Item in hand is not an instance of ItemGun");
@@ -61,4 +98,26 @@ public class PacketGunFire extends PacketBase
 	{
 		FlansMod.log.warn("Received gun button packet on client. Skipping.");
 	}
+	
+	/**
+	 * One shot fired by the client
+	 */
+	public static class Shot
+	{
+		/**
+		 * How long before the end of the tick the shot was fired, from 0 to 1 ticks
+		 */
+		public final float ticksLate;
+		/**
+		 * Where the player was looking when the shot was fired
+		 */
+		public final float yaw, pitch;
+		
+		public Shot(float ticksLate, float yaw, float pitch)
+		{
+			this.ticksLate = Math.max(0F, Math.min(1F, ticksLate));
+			this.yaw = yaw;
+			this.pitch = pitch;
+		}
+	}
 }
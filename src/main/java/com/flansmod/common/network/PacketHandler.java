@@ -1,10 +1,15 @@
 package com.flansmod.common.network;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -12,12 +17,14 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 import net.minecraft.client.Minecraft;
+import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.INetHandler;
 import net.minecraft.network.NetHandlerPlayServer;
 import net.minecraft.network.Packet;
 import net.minecraft.network.PacketBuffer;
+import net.minecraft.server.management.PlayerList;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.network.FMLEmbeddedChannel;
 import net.minecraftforge.fml.common.network.FMLOutboundHandler;
@@ -40,7 +47,14 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 	//Map of channels for each side
 	private EnumMap<Side, FMLEmbeddedChannel> channels;
 	//The list of registered packets. Should contain no more than 256 packets.
-	private LinkedList<Class<? extends PacketBase>> packets = new LinkedList<>();
+	private List<Class<? extends PacketBase>> packets = new ArrayList<>();
+	//How to create an empty instance of each registered packet, for decoding
+	private Map<Class<? extends PacketBase>, Supplier<? extends PacketBase>> factories = new IdentityHashMap<>();
+	//Built in postInitialise once the order is fixed. The discriminator of each packet class and the factory for each discriminator
+	private Map<Class<? extends PacketBase>, Integer> discriminators = new IdentityHashMap<>();
+	private Supplier<? extends PacketBase>[] factoriesByDiscriminator;
+	//The size each packet type last encoded to, used to size the buffer for the next one so it does not have to grow
+	private int[] encodedSizeHints;
 	//Whether or not Flan's Mod has initialised yet. Once true, no more packets may be registered.
 	private boolean modInitialised = false;
 	
@@ -48,19 +62,47 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 	 * Store received packets in these queues and have the main Minecraft threads use these
 	 */
 	private ConcurrentLinkedQueue<PacketBase> receivedPacketsClient = new ConcurrentLinkedQueue<>();
-	private HashMap<String, ConcurrentLinkedQueue<PacketBase>> receivedPacketsServer = new HashMap<>();
+	private ConcurrentHashMap<UUID, ServerPacketQueue> receivedPacketsServer = new ConcurrentHashMap<>();
 	
 	/**
-	 * Registers a packet with the handler
+	 * The most packets of any one type a player may send per second, unless set otherwise with setRateLimit
+	 */
+	public static final int DEFAULT_RATE_LIMIT = 200;
+	private Map<Class<? extends PacketBase>, Integer> rateLimits = new IdentityHashMap<>();
+	//Built in postInitialise, the rate limit for each discriminator
+	private int[] rateLimitsByDiscriminator;
+	
+	/**
+	 * Registers a packet with the handler, creating instances for decoding through its no argument constructor
 	 */
 	public boolean registerPacket(Class<? extends PacketBase> cl)
+	{
+		return registerPacket(cl, () ->
+		{
+			try
+			{
+				return cl.getConstructor().newInstance();
+			}
+			catch(ReflectiveOperationException e)
+			{
+				throw new IllegalStateException("Could not create packet " + cl.getCanonicalName(), e);
+			}
+		});
+	}
+	
+	/**
+	 * Registers a packet with the handler
+	 *
+	 * @param factory Creates an empty packet of this class for incoming data to be decoded into
+	 */
+	public <T extends PacketBase> boolean registerPacket(Class<T> cl, Supplier<T> factory)
 	{
 		if(packets.size() > 256)
 		{
 			FlansMod.log.warn("Packet limit exceeded in Flan's Mod packet handler by packet " + cl.getCanonicalName() + ".");
 			return false;
 		}
-		if(packets.contains(cl))
+		if(factories.containsKey(cl))
 		{
 			FlansMod.log.warn("Tried to register " + cl.getCanonicalName() + " packet class twice.");
 			return false;
@@ -72,31 +114,43 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 		}
 		
 		packets.add(cl);
+		factories.put(cl, factory);
 		return true;
 	}
 	
+	/**
+	 * Limits how many packets of this type each player may send per second. Any more are dropped
+	 */
+	public void setRateLimit(Class<? extends PacketBase> cl, int packetsPerSecond)
+	{
+		rateLimits.put(cl, packetsPerSecond);
+	}
+	
 	@Override
 	protected void encode(ChannelHandlerContext ctx, PacketBase msg, List<Object> out) throws Exception
 	{
 		try
 		{
-			//Define a new buffer to store our data upon encoding
-			ByteBuf encodedData = Unpooled.buffer();
 			//Get the packet class
 			Class<? extends PacketBase> cl = msg.getClass();
 			
 			//If this packet has not been registered by our handler, reject it
-			if(!packets.contains(cl))
+			Integer discriminator = discriminators.get(cl);
+			if(discriminator == null)
 				throw new NullPointerException("Packet not registered : " + cl.getCanonicalName());
 			
+			//Define a new buffer to store our data upon encoding, big enough for the last packet of this type.
+			//This goes straight into the Forge packet without being copied. It is not pooled as the Forge packet may
+			//be shared between many players' connections, and there is no point at which it could be released.
+			ByteBuf encodedData = Unpooled.buffer(encodedSizeHints[discriminator]);
 			//Like a packet ID. Stored as the first entry in the packet code for recognition
-			byte discriminator = (byte)packets.indexOf(cl);
 			encodedData.writeByte(discriminator);
 			//Get the packet class to encode our packet
 			msg.encodeInto(ctx, encodedData);
+			encodedSizeHints[discriminator] = encodedData.writerIndex();
 			
 			//Convert our packet into a Forge packet to get it through the Netty system
-			FMLProxyPacket proxyPacket = new FMLProxyPacket(new PacketBuffer(encodedData.copy()), ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get());
+			FMLProxyPacket proxyPacket = new FMLProxyPacket(new PacketBuffer(encodedData), ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get());
 			//Add our packet to the outgoing packet queue
 			out.add(proxyPacket);
 		}
@@ -115,15 +169,14 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 			//Get the encoded data from the incoming packet
 			ByteBuf encodedData = msg.payload();
 			//Get the class for interpreting this packet
-			byte discriminator = encodedData.readByte();
-			Class<? extends PacketBase> cl = packets.get(discriminator);
+			int discriminator = encodedData.readUnsignedByte();
 			
 			//If this discriminator returns no class, reject it
-			if(cl == null)
+			if(discriminator >= factoriesByDiscriminator.length)
 				throw new NullPointerException("Packet not registered for discriminator : " + discriminator);
 			
 			//Create an empty packet and decode our packet data into it
-			PacketBase packet = cl.getConstructor().newInstance();
+			PacketBase packet = factoriesByDiscriminator[discriminator].get();
 			packet.decodeInto(ctx, encodedData.slice());
 			//Check the side and handle our packet accordingly
 			switch(FMLCommonHandler.instance().getEffectiveSide())
@@ -138,9 +191,8 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 				{
 					INetHandler netHandler = ctx.channel().attr(NetworkRegistry.NET_HANDLER).get();
 					EntityPlayer player = ((NetHandlerPlayServer)netHandler).player;
-					if(!receivedPacketsServer.containsKey(player.getName()))
-						receivedPacketsServer.put(player.getName(), new ConcurrentLinkedQueue<>());
-					receivedPacketsServer.get(player.getName()).offer(packet);
+					ServerPacketQueue queue = receivedPacketsServer.computeIfAbsent(player.getUniqueID(), k -> new ServerPacketQueue(factoriesByDiscriminator.length));
+					queue.offer(packet, discriminator, rateLimitsByDiscriminator[discriminator], FlansMod.maxQueuedPacketsPerPlayer, player.getName());
 					//packet.handleServerSide();
 					break;
 				}
@@ -163,18 +215,79 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 		}
 	}
 	
+	/**
+	 * Handles packets received from players, taking turns between players so that one flooding the server cannot starve
+	 * the others. Stops once the time budget for the tick has been used, anything left over is handled next tick.
+	 */
 	public void handleServerPackets()
 	{
-		for(String playerName : receivedPacketsServer.keySet())
+		if(receivedPacketsServer.isEmpty())
+			return;
+		long deadline = System.nanoTime() + (long)(FlansMod.packetTimeBudgetMillis * 1000000D);
+		PlayerList playerList = FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList();
+		
+		List<ServerPacketQueue> queues = new ArrayList<>(receivedPacketsServer.size());
+		List<EntityPlayerMP> players = new ArrayList<>(receivedPacketsServer.size());
+		Iterator<Map.Entry<UUID, ServerPacketQueue>> iterator = receivedPacketsServer.entrySet().iterator();
+		while(iterator.hasNext())
 		{
-			ConcurrentLinkedQueue<PacketBase> receivedPacketsFromPlayer = receivedPacketsServer.get(playerName);
-			EntityPlayerMP player = FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList().getPlayerByUsername(playerName);
-			while(!receivedPacketsFromPlayer.isEmpty())
+			Map.Entry<UUID, ServerPacketQueue> entry = iterator.next();
+			EntityPlayerMP player = playerList.getPlayerByUUID(entry.getKey());
+			//The player has left, so their packets are no use
+			if(player == null)
 			{
-				PacketBase packet = receivedPacketsFromPlayer.poll();
-				packet.handleServerSide(player);
+				iterator.remove();
+				continue;
 			}
+			queues.add(entry.getValue());
+			players.add(player);
 		}
+		
+		boolean handledAny = true;
+		while(handledAny)
+		{
+			handledAny = false;
+			for(int i = 0; i < queues.size(); i++)
+			{
+				PacketBase packet = queues.get(i).poll();
+				if(packet == null)
+					continue;
+				packet.handleServerSide(players.get(i));
+				handledAny = true;
+				if(System.nanoTime() >= deadline)
+					return;
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of packets from all players still waiting to be handled
+	 */
+	public int getQueuedPacketCount()
+	{
+		int count = 0;
+		for(ServerPacketQueue queue : receivedPacketsServer.values())
+			count += queue.getDepth();
+		return count;
+	}
+	
+	/**
+	 * @return The number of packets dropped from players currently connected, for going over rate limits or queue size
+	 */
+	public long getDroppedPacketCount()
+	{
+		long count = 0;
+		for(ServerPacketQueue queue : receivedPacketsServer.values())
+			count += queue.getDropped();
+		return count;
+	}
+	
+	/**
+	 * @return The queue of packets from this player, or null if they have not sent any
+	 */
+	public ServerPacketQueue getQueue(UUID playerID)
+	{
+		return receivedPacketsServer.get(playerID);
 	}
 	
 	/**
@@ -184,50 +297,62 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 	{
 		channels = NetworkRegistry.INSTANCE.newChannel("FlansMod", this);
 		
-		registerPacket(PacketAAGunAngles.class);
-		registerPacket(PacketBaseEdit.class);
-		registerPacket(PacketBreakSound.class);
-		registerPacket(PacketBuyArmour.class);
-		registerPacket(PacketBuyWeapon.class);
-		registerPacket(PacketCraftDriveable.class);
-		registerPacket(PacketDriveableControl.class);
-		registerPacket(PacketDriveableDamage.class);
-		registerPacket(PacketDriveableGUI.class);
-		registerPacket(PacketDriveableKey.class);
-		registerPacket(PacketDriveableKeyHeld.class);
-		registerPacket(PacketFlak.class);
-		registerPacket(PacketGunFire.class);	
-		registerPacket(PacketGunPaint.class);
-		registerPacket(PacketKillMessage.class);
-		registerPacket(PacketMechaControl.class);
-		registerPacket(PacketMGFire.class);
-		registerPacket(PacketMGMount.class);
-		registerPacket(PacketPlaneControl.class);
-		registerPacket(PacketPlaySound.class);
-		registerPacket(PacketGunShotSound.class);
-		registerPacket(PacketReload.class);
-		registerPacket(PacketRepairDriveable.class);
-		registerPacket(PacketRoundFinished.class);
-		registerPacket(PacketSeatUpdates.class);
-		registerPacket(PacketTeamInfo.class);
-		registerPacket(PacketTeamSelect.class);
-		registerPacket(PacketVehicleControl.class);
-		registerPacket(PacketVoteCast.class);
-		registerPacket(PacketVoting.class);
-		registerPacket(PacketRequestDebug.class);
-		registerPacket(PacketLoadoutData.class);
-		registerPacket(PacketOpenRewardBox.class);
-		registerPacket(PacketAddSingleRewardBoxInstance.class);
-		registerPacket(PacketGunAnimation.class);
-		registerPacket(PacketBulletTrail.class);
-		registerPacket(PacketHitMarker.class);
-		registerPacket(PacketBlockHitEffect.class);
+		registerPacket(PacketAAGunAngles.class, PacketAAGunAngles::new);
+		registerPacket(PacketBaseEdit.class, PacketBaseEdit::new);
+		registerPacket(PacketBreakSound.class, PacketBreakSound::new);
+		registerPacket(PacketBuyArmour.class, PacketBuyArmour::new);
+		registerPacket(PacketBuyWeapon.class, PacketBuyWeapon::new);
+		registerPacket(PacketCraftDriveable.class, PacketCraftDriveable::new);
+		registerPacket(PacketDriveableControl.class, PacketDriveableControl::new);
+		registerPacket(PacketDriveableDamage.class, PacketDriveableDamage::new);
+		registerPacket(PacketDriveableGUI.class, PacketDriveableGUI::new);
+		registerPacket(PacketDriveableKey.class, PacketDriveableKey::new);
+		registerPacket(PacketDriveableKeyHeld.class, PacketDriveableKeyHeld::new);
+		registerPacket(PacketExplosion.class, PacketExplosion::new);
+		registerPacket(PacketFlak.class, PacketFlak::new);
+		registerPacket(PacketGunFire.class, PacketGunFire::new);
+		registerPacket(PacketGunPaint.class, PacketGunPaint::new);
+		registerPacket(PacketKillMessage.class, PacketKillMessage::new);
+		registerPacket(PacketMechaControl.class, PacketMechaControl::new);
+		registerPacket(PacketMGFire.class, PacketMGFire::new);
+		registerPacket(PacketMGMount.class, PacketMGMount::new);
+		registerPacket(PacketPlaneControl.class, PacketPlaneControl::new);
+		registerPacket(PacketPlaySound.class, PacketPlaySound::new);
+		registerPacket(PacketGunShotSound.class, PacketGunShotSound::new);
+		registerPacket(PacketReload.class, PacketReload::new);
+		registerPacket(PacketRepairDriveable.class, PacketRepairDriveable::new);
+		registerPacket(PacketRoundFinished.class, PacketRoundFinished::new);
+		registerPacket(PacketSeatUpdates.class, PacketSeatUpdates::new);
+		registerPacket(PacketTeamInfo.class, PacketTeamInfo::new);
+		registerPacket(PacketTeamSelect.class, PacketTeamSelect::new);
+		registerPacket(PacketVehicleControl.class, PacketVehicleControl::new);
+		registerPacket(PacketVoteCast.class, PacketVoteCast::new);
+		registerPacket(PacketVoting.class, PacketVoting::new);
+		registerPacket(PacketRequestDebug.class, PacketRequestDebug::new);
+		registerPacket(PacketLoadoutData.class, PacketLoadoutData::new);
+		registerPacket(PacketOpenRewardBox.class, PacketOpenRewardBox::new);
+		registerPacket(PacketAddSingleRewardBoxInstance.class, PacketAddSingleRewardBoxInstance::new);
+		registerPacket(PacketGunAnimation.class, PacketGunAnimation::new);
+		registerPacket(PacketBulletTrail.class, PacketBulletTrail::new);
+		registerPacket(PacketHitMarker.class, PacketHitMarker::new);
+		registerPacket(PacketBlockHitEffect.class, PacketBlockHitEffect::new);
+		registerPacket(PacketEffects.class, PacketEffects::new);
+		
+		//Packets a client could send fast enough to hurt the server
+		setRateLimit(PacketGunFire.class, 100);
+		setRateLimit(PacketDriveableKeyHeld.class, 40);
+		setRateLimit(PacketDriveableKey.class, 40);
+		setRateLimit(PacketDriveableControl.class, 60);
+		setRateLimit(PacketVehicleControl.class, 60);
+		setRateLimit(PacketPlaneControl.class, 60);
+		setRateLimit(PacketMechaControl.class, 60);
 	}
 	
 	/**
 	 * Post-Initialisation method called from FMLPostInitializationEvent in FlansMod
 	 * Logically sorts the packets client and server side to ensure a matching ordering
 	 */
+	@SuppressWarnings("unchecked")
 	public void postInitialise()
 	{
 		if(modInitialised)
@@ -242,6 +367,18 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 				com = c1.getCanonicalName().compareTo(c2.getCanonicalName());
 			return com;
 		});
+		
+		factoriesByDiscriminator = new Supplier[packets.size()];
+		encodedSizeHints = new int[packets.size()];
+		rateLimitsByDiscriminator = new int[packets.size()];
+		for(int i = 0; i < packets.size(); i++)
+		{
+			Class<? extends PacketBase> cl = packets.get(i);
+			discriminators.put(cl, i);
+			factoriesByDiscriminator[i] = factories.get(cl);
+			encodedSizeHints[i] = 64;
+			rateLimitsByDiscriminator[i] = rateLimits.getOrDefault(cl, DEFAULT_RATE_LIMIT);
+		}
 	}
 	
 	@SideOnly(Side.CLIENT)
@@ -279,6 +416,16 @@ public class PacketHandler extends MessageToMessageCodec<FMLProxyPacket, PacketB
 		channels.get(Side.SERVER).writeAndFlush(packet);
 	}
 	
+	/**
+	 * Send a packet to every player tracking an entity, that is every player the entity has been spawned for
+	 */
+	public void sendToAllTracking(PacketBase packet, Entity entity)
+	{
+		channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.TRACKING_ENTITY);
+		channels.get(Side.SERVER).attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).set(entity);
+		channels.get(Side.SERVER).writeAndFlush(packet);
+	}
+	
 	/**
 	 * Send a packet to all in a dimension
 	 */
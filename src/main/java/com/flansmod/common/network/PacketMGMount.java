@@ -7,6 +7,7 @@ import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.guns.EntityMG;
 
@@ -54,7 +55,7 @@ public class PacketMGMount extends PacketBase
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
 		EntityPlayer player = (EntityPlayer)clientPlayer.world.getEntityByID(playerEntityId);
-		EntityMG mg = (EntityMG)clientPlayer.world.getEntityByID(mgEntityId);
+		EntityMG mg = FlansEntityIndex.getEntity(clientPlayer.world, mgEntityId, EntityMG.class);
 		if(mg != null && player != null)
 			mg.mountGun(player, mounting);
 	}
@@ -2,12 +2,12 @@ package com.flansmod.common.network;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import com.flansmod.common.FlansEntityIndex;
 import com.flansmod.common.FlansMod;
 import com.flansmod.common.driveables.EntityDriveable;
 import com.flansmod.common.driveables.EntitySeat;
@@ -57,15 +57,7 @@ public class PacketSeatUpdates extends PacketBase
 			FlansMod.log.warn("Received seat update packet from a null player, skipping!");
 			return ;
 		}
-		EntityDriveable driveable = null;
-		for(Object obj : playerEntity.world.loadedEntityList)
-		{
-			if(obj instanceof EntityDriveable && ((Entity)obj).getEntityId() == entityId)
-			{
-				driveable = (EntityDriveable)obj;
-				break;
-			}
-		}
+		EntityDriveable driveable = FlansEntityIndex.getEntity(playerEntity.world, entityId, EntityDriveable.class);
 		if(driveable != null)
 		{
 			driveable.getSeat(seatId).prevLooking = driveable.getSeat(seatId).looking.clone();
@@ -79,16 +71,7 @@ public class PacketSeatUpdates extends PacketBase
 	@SideOnly(Side.CLIENT)
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
-		EntityDriveable driveable = null;
-		for(int i = 0; i < clientPlayer.world.loadedEntityList.size(); i++)
-		{
-			Entity obj = clientPlayer.world.loadedEntityList.get(i);
-			if(obj instanceof EntityDriveable && obj.getEntityId() == entityId)
-			{
-				driveable = (EntityDriveable)obj;
-				break;
-			}
-		}
+		EntityDriveable driveable = FlansEntityIndex.getEntity(clientPlayer.world, entityId, EntityDriveable.class);
 		if(driveable != null)
 		{
 			//If this is the player who sent the packet in the first place, don't read it
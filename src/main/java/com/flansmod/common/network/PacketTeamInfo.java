@@ -1,11 +1,18 @@
 package com.flansmod.common.network;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
@@ -19,27 +26,87 @@ import com.flansmod.common.teams.Team;
 import com.flansmod.common.teams.TeamsManager;
 import com.flansmod.common.teams.TeamsManagerRanked;
 
+/**
+ * The scoreboard, as shown to clients. An instance of this is both the client's copy of the scoreboard and the packet
+ * that updates it.
+ * <p>
+ * Rather than the whole scoreboard every time, the server sends the changes since the last update it sent, see
+ * {@link com.flansmod.common.teams.TeamInfoTracker}. Every update carries a version number. A client that gets a
+ * delta on a version it does not have asks for a full snapshot, which is also what players get when they join.
+ */
 public class PacketTeamInfo extends PacketBase
 {
+	private static final int FULL = 0;
+	private static final int DELTA = 1;
+	private static final int REQUEST_FULL = 2;
+	
+	//Which parts of the header have changed
+	private static final int SETTINGS = 1;
+	private static final int ROUND = 1 << 1;
+	private static final int TIME = 1 << 2;
+	private static final int TEAMS = 1 << 3;
+	
+	//Which fields of a team have changed
+	private static final int TEAM_SCORE = 1;
+	private static final int TEAM_WINNER = 1 << 1;
+	private static final int TEAM_MEMBERS = 1 << 2;
+	
+	//Which fields of a player's row have changed
+	private static final int ROW_NAME = 1;
+	private static final int ROW_LEVEL = 1 << 1;
+	private static final int ROW_SCORE = 1 << 2;
+	private static final int ROW_ZOMBIE_SCORE = 1 << 3;
+	private static final int ROW_KILLS = 1 << 4;
+	private static final int ROW_DEATHS = 1 << 5;
+	private static final int ROW_CLASS = 1 << 6;
+	private static final int ROW_ALL = 0x7F;
+	
+	/**
+	 * The server's round timer is only resent if the client's countdown has drifted by more than this many ticks
+	 */
+	public static final int TIME_TOLERANCE = 20;
+	
 	public String mapShortName;
 	public String map;
 	public String gametype;
 	public boolean showZombieScore;
 	public int numTeams;
-	public TeamData[] teamData;
+	public TeamData[] teamData = new TeamData[0];
 	public boolean sortedByTeam;
 	public int timeLeft;
 	public int scoreLimit;
+	public boolean canBreakGlass, vehiclesNeedFuel, driveablesBreakBlocks;
 	
 	public int numLines;
 	
+	/**
+	 * Goes up by one with every update the server sends
+	 */
+	public int version;
+	/**
+	 * Every player on the scoreboard, by the id the server gave them
+	 */
+	private final Map<Integer, PlayerScoreData> rows = new HashMap<>();
+	
+	private int packetType;
+	private byte[] payload;
+	
+	/**
+	 * Set on the client once it has asked for a full snapshot, so that it does not ask again for every delta
+	 */
+	private static boolean requestedFullUpdate = false;
+	
 	public static class TeamData
 	{
 		public Team team;
 		public int score;
 		public int numPlayers;
-		public PlayerScoreData[] playerData;
+		public PlayerScoreData[] playerData = new PlayerScoreData[0];
 		public boolean winner;
+		/**
+		 * The row ids of the members of this team, in scoreboard order
+		 */
+		private int[] memberIds = new int[0];
 	}
 	
 	public static class PlayerScoreData
@@ -52,6 +119,7 @@ public class PacketTeamInfo extends PacketBase
 		public TeamData team;
 		public PlayerClass playerClass;
 		public int zombieScore;
+		private int id;
 	}
 	
 	public static PlayerScoreData getPlayerScoreData(String username)
@@ -75,219 +143,420 @@ public class PacketTeamInfo extends PacketBase
 	{
 	}
 	
-	@Override
-	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	private PacketTeamInfo(int packetType, byte[] payload)
 	{
-		data.writeBoolean(TeamsManager.canBreakGlass);
-		data.writeBoolean(TeamsManager.vehiclesNeedFuel);
-		data.writeBoolean(TeamsManager.driveablesBreakBlocks);
+		this.packetType = packetType;
+		this.payload = payload;
+	}
+	
+	/**
+	 * Takes a copy of the scoreboard as it stands on the server
+	 *
+	 * @param rowIds The ids given to each player so far. New players are added to it
+	 */
+	public static PacketTeamInfo capture(Map<String, Integer> rowIds)
+	{
+		PacketTeamInfo state = new PacketTeamInfo();
+		state.canBreakGlass = TeamsManager.canBreakGlass;
+		state.vehiclesNeedFuel = TeamsManager.vehiclesNeedFuel;
+		state.driveablesBreakBlocks = TeamsManager.driveablesBreakBlocks;
+		
+		TeamsManager teamsManager = TeamsManager.getInstance();
+		if(teamsManager.currentRound == null)
+		{
+			state.gametype = "No Gametype";
+			return state;
+		}
+		
+		state.gametype = teamsManager.currentRound.gametype.name;
+		state.showZombieScore = teamsManager.currentRound.gametype.showZombieScore();
+		state.map = teamsManager.currentRound.map.name;
+		state.mapShortName = teamsManager.currentRound.map.shortName;
+		state.timeLeft = teamsManager.roundTimeLeft;
+		state.scoreLimit = teamsManager.currentRound.scoreLimit;
+		state.sortedByTeam = teamsManager.currentRound.gametype.sortScoreboardByTeam();
 		
-		if(TeamsManager.getInstance().currentRound == null)
+		Team[] teams = teamsManager.currentRound.teams;
+		if(state.sortedByTeam)
 		{
-			writeUTF(data, "No Gametype");
-			data.writeInt(0);
+			if(teams == null)
+				return state;
+			state.teamData = new TeamData[teams.length];
+			for(int i = 0; i < teams.length; i++)
+			{
+				Team team = teams[i];
+				TeamData data = state.teamData[i] = new TeamData();
+				if(team == null)
+					continue;
+				data.team = team;
+				data.score = team.score;
+				data.winner = teamsManager.currentRound.gametype.teamHasWon(team);
+				team.sortPlayers();
+				data.memberIds = state.captureRows(team.members, rowIds);
+			}
 		}
 		else
 		{
-			writeUTF(data, TeamsManager.getInstance().currentRound.gametype.name);
-			data.writeBoolean(TeamsManager.getInstance().currentRound.gametype.showZombieScore());
-			writeUTF(data, TeamsManager.getInstance().currentRound.map.name);
-			writeUTF(data, TeamsManager.getInstance().currentRound.map.shortName);
-			data.writeInt(TeamsManager.getInstance().roundTimeLeft);
-			data.writeInt(TeamsManager.getInstance().currentRound.scoreLimit);
+			ArrayList<String> playerNames = new ArrayList<>();
+			for(Team team : teams)
+			{
+				if(team == null || team.members == null)
+					continue;
+				playerNames.addAll(team.members);
+			}
+			playerNames.sort(new Team.ComparatorScore());
+			TeamData data = new TeamData();
+			data.memberIds = state.captureRows(playerNames, rowIds);
+			state.teamData = new TeamData[]{data};
+		}
+		state.rebuild();
+		return state;
+	}
+	
+	private int[] captureRows(List<String> usernames, Map<String, Integer> rowIds)
+	{
+		int[] ids = new int[usernames.size()];
+		for(int i = 0; i < ids.length; i++)
+		{
+			String username = usernames.get(i);
+			Integer id = rowIds.get(username);
+			if(id == null)
+			{
+				id = rowIds.size();
+				rowIds.put(username, id);
+			}
+			ids[i] = id;
 			
-			if(TeamsManager.getInstance().currentRound.gametype.sortScoreboardByTeam())
+			PlayerScoreData row = new PlayerScoreData();
+			row.id = id;
+			row.username = username;
+			PlayerRankData rankData = TeamsManagerRanked.GetRankData(TeamsManager.getPlayer(username));
+			if(rankData != null)
+				row.level = rankData.currentLevel;
+			PlayerData playerData = PlayerHandler.getPlayerData(username, Side.SERVER);
+			if(playerData != null)
 			{
-				data.writeBoolean(true);
-				if(TeamsManager.getInstance().currentRound.teams == null)
-				{
-					data.writeInt(0);
-				}
-				else
-				{
-					data.writeInt(TeamsManager.getInstance().currentRound.teams.length);
-					for(int i = 0; i < TeamsManager.getInstance().currentRound.teams.length; i++)
-					{
-						Team team = TeamsManager.getInstance().currentRound.teams[i];
-						if(team == null)
-						{
-							writeUTF(data, "none");
-							continue;
-						}
-						writeUTF(data, team.shortName);
-						data.writeInt(team.score);
-						data.writeBoolean(TeamsManager.getInstance().currentRound.gametype.teamHasWon(team));
-						team.sortPlayers();
-						data.writeInt(team.members.size());
-						for(int j = 0; j < team.members.size(); j++)
-						{
-							String username = team.members.get(j);
-							PlayerData playerData = PlayerHandler.getPlayerData(username, Side.SERVER);
-							writeUTF(data, username);
-							PlayerRankData rankData = TeamsManagerRanked.GetRankData(TeamsManager.getPlayer(username));
-							if(rankData == null)
-							{
-								data.writeInt(0);
-							}
-							else
-							{
-								data.writeInt(rankData.currentLevel);
-							}
-							
-							if(playerData == null)
-							{
-								data.writeInt(0);
-								data.writeInt(0);
-								data.writeInt(0);
-								writeUTF(data, "");
-							}
-							else
-							{
-								data.writeInt(playerData.score);
-								data.writeInt(playerData.zombieScore);
-								data.writeInt(playerData.kills);
-								data.writeInt(playerData.deaths);
-								writeUTF(data, playerData.playerClass.GetShortName());
-							}
-						}
-					}
-				}
+				row.score = playerData.score;
+				row.zombieScore = playerData.zombieScore;
+				row.kills = playerData.kills;
+				row.deaths = playerData.deaths;
+				row.playerClass = playerData.playerClass;
 			}
-			else
+			rows.put(id, row);
+		}
+		return ids;
+	}
+	
+	/**
+	 * Builds a packet carrying everything that has changed between two captures of the scoreboard
+	 *
+	 * @param base The state the receiving clients have, or null to send a full snapshot
+	 * @return null if nothing at all has changed
+	 */
+	public static PacketTeamInfo createUpdate(PacketTeamInfo base, PacketTeamInfo current)
+	{
+		ByteBuf data = Unpooled.buffer();
+		ByteBufUtils.writeVarInt(data, current.version, 5);
+		if(base != null)
+			ByteBufUtils.writeVarInt(data, base.version, 5);
+		if(!writeChanges(data, base == null ? new PacketTeamInfo() : base, current) && base != null)
+			return null;
+		byte[] payload = new byte[data.readableBytes()];
+		data.readBytes(payload);
+		return new PacketTeamInfo(base == null ? FULL : DELTA, payload);
+	}
+	
+	/**
+	 * @return A packet for the client to ask the server for a full snapshot
+	 */
+	public static PacketTeamInfo requestFullUpdate()
+	{
+		return new PacketTeamInfo(REQUEST_FULL, null);
+	}
+	
+	/**
+	 * @return Whether the round or team lists changed, which the team selection menus depend on
+	 */
+	public static boolean teamsChanged(PacketTeamInfo base, PacketTeamInfo current)
+	{
+		if(base == null || (headerChanges(base, current) & (ROUND | TEAMS)) != 0)
+			return true;
+		for(int i = 0; i < current.teamData.length; i++)
+		{
+			if((teamChanges(base.teamData[i], current.teamData[i]) & TEAM_MEMBERS) != 0)
+				return true;
+		}
+		return false;
+	}
+	
+	private static int headerChanges(PacketTeamInfo base, PacketTeamInfo current)
+	{
+		int changes = 0;
+		if(base.canBreakGlass != current.canBreakGlass || base.vehiclesNeedFuel != current.vehiclesNeedFuel
+				|| base.driveablesBreakBlocks != current.driveablesBreakBlocks)
+			changes |= SETTINGS;
+		if(!Objects.equals(base.gametype, current.gametype) || base.showZombieScore != current.showZombieScore
+				|| !Objects.equals(base.map, current.map) || !Objects.equals(base.mapShortName, current.mapShortName)
+				|| base.scoreLimit != current.scoreLimit || base.sortedByTeam != current.sortedByTeam)
+			changes |= ROUND;
+		if(Math.abs(base.timeLeft - current.timeLeft) > TIME_TOLERANCE || (base.timeLeft == 0) != (current.timeLeft == 0))
+			changes |= TIME;
+		if(base.teamData.length != current.teamData.length)
+			changes |= TEAMS;
+		else
+		{
+			for(int i = 0; i < current.teamData.length; i++)
 			{
-				data.writeBoolean(false);
-				ArrayList<String> playerNames = new ArrayList<>();
-				for(int i = 0; i < TeamsManager.getInstance().currentRound.teams.length; i++)
-				{
-					Team team = TeamsManager.getInstance().currentRound.teams[i];
-					if(team == null || team.members == null)
-					{
-						continue;
-					}
-					playerNames.addAll(team.members);
-				}
-				
-				playerNames.sort(new Team.ComparatorScore());
-				data.writeInt(playerNames.size());
-				for(String username : playerNames)
-				{
-					PlayerData playerData = PlayerHandler.getPlayerData(username, Side.SERVER);
-					writeUTF(data, username);
-					PlayerRankData rankData = TeamsManagerRanked.GetRankData(TeamsManager.getPlayer(username));
-					if(rankData == null)
-					{
-						data.writeInt(0);
-					}
-					else
-					{
-						data.writeInt(rankData.currentLevel);
-					}
-					if(playerData == null)
-					{
-						data.writeInt(0);
-						data.writeInt(0);
-						data.writeInt(0);
-						writeUTF(data, "");
-					}
-					else
-					{
-						data.writeInt(playerData.score);
-						data.writeInt(playerData.kills);
-						data.writeInt(playerData.deaths);
-						writeUTF(data, playerData.playerClass.GetShortName());
-					}
-				}
-				
+				if(base.teamData[i].team != current.teamData[i].team)
+					changes |= TEAMS;
 			}
 		}
+		return changes;
+	}
+	
+	private static int teamChanges(TeamData base, TeamData current)
+	{
+		int changes = 0;
+		if(base.score != current.score)
+			changes |= TEAM_SCORE;
+		if(base.winner != current.winner)
+			changes |= TEAM_WINNER;
+		if(!Arrays.equals(base.memberIds, current.memberIds))
+			changes |= TEAM_MEMBERS;
+		return changes;
+	}
+	
+	private static int rowChanges(PlayerScoreData base, PlayerScoreData current)
+	{
+		if(base == null)
+			return ROW_ALL;
+		int changes = 0;
+		if(!Objects.equals(base.username, current.username))
+			changes |= ROW_NAME;
+		if(base.level != current.level)
+			changes |= ROW_LEVEL;
+		if(base.score != current.score)
+			changes |= ROW_SCORE;
+		if(base.zombieScore != current.zombieScore)
+			changes |= ROW_ZOMBIE_SCORE;
+		if(base.kills != current.kills)
+			changes |= ROW_KILLS;
+		if(base.deaths != current.deaths)
+			changes |= ROW_DEATHS;
+		if(base.playerClass != current.playerClass)
+			changes |= ROW_CLASS;
+		return changes;
+	}
+	
+	/**
+	 * Writes the differences between two states. If the time has not been sent, the current state keeps the time the
+	 * client will have counted down to, so that small drifts do not build up
+	 *
+	 * @return Whether anything was different
+	 */
+	private static boolean writeChanges(ByteBuf data, PacketTeamInfo base, PacketTeamInfo current)
+	{
+		int header = headerChanges(base, current);
+		if((header & TIME) == 0)
+			current.timeLeft = base.timeLeft;
+		//A new set of teams means every team and row is sent afresh
+		if((header & TEAMS) != 0)
+			base = new PacketTeamInfo();
+		boolean changed = header != 0;
 		
+		data.writeByte(header);
+		if((header & SETTINGS) != 0)
+		{
+			data.writeBoolean(current.canBreakGlass);
+			data.writeBoolean(current.vehiclesNeedFuel);
+			data.writeBoolean(current.driveablesBreakBlocks);
+		}
+		if((header & ROUND) != 0)
+		{
+			writeUTF(data, current.gametype);
+			data.writeBoolean(current.showZombieScore);
+			writeUTF(data, current.map == null ? "" : current.map);
+			writeUTF(data, current.mapShortName == null ? "" : current.mapShortName);
+			ByteBufUtils.writeVarInt(data, current.scoreLimit, 5);
+			data.writeBoolean(current.sortedByTeam);
+		}
+		if((header & TIME) != 0)
+			ByteBufUtils.writeVarInt(data, current.timeLeft, 5);
+		if((header & TEAMS) != 0)
+		{
+			ByteBufUtils.writeVarInt(data, current.teamData.length, 5);
+			for(TeamData team : current.teamData)
+				writeUTF(data, team.team == null ? "none" : team.team.shortName);
+		}
 		
+		for(int i = 0; i < current.teamData.length; i++)
+		{
+			TeamData team = current.teamData[i];
+			int changes = (header & TEAMS) != 0 ? TEAM_SCORE | TEAM_WINNER | TEAM_MEMBERS : teamChanges(base.teamData[i], team);
+			changed |= changes != 0;
+			data.writeByte(changes);
+			if((changes & TEAM_SCORE) != 0)
+				ByteBufUtils.writeVarInt(data, team.score, 5);
+			if((changes & TEAM_WINNER) != 0)
+				data.writeBoolean(team.winner);
+			if((changes & TEAM_MEMBERS) != 0)
+			{
+				ByteBufUtils.writeVarInt(data, team.memberIds.length, 5);
+				for(int id : team.memberIds)
+					ByteBufUtils.writeVarInt(data, id, 5);
+			}
+		}
+		
+		//Only the rows that differ. Rows no longer on any team are dropped by the client
+		ByteBuf rowData = Unpooled.buffer();
+		int numChangedRows = 0;
+		for(PlayerScoreData row : current.rows.values())
+		{
+			int changes = rowChanges(base.rows.get(row.id), row);
+			if(changes == 0)
+				continue;
+			numChangedRows++;
+			ByteBufUtils.writeVarInt(rowData, row.id, 5);
+			rowData.writeByte(changes);
+			if((changes & ROW_NAME) != 0)
+				writeUTF(rowData, row.username);
+			if((changes & ROW_LEVEL) != 0)
+				ByteBufUtils.writeVarInt(rowData, row.level, 5);
+			if((changes & ROW_SCORE) != 0)
+				ByteBufUtils.writeVarInt(rowData, row.score, 5);
+			if((changes & ROW_ZOMBIE_SCORE) != 0)
+				ByteBufUtils.writeVarInt(rowData, row.zombieScore, 5);
+			if((changes & ROW_KILLS) != 0)
+				ByteBufUtils.writeVarInt(rowData, row.kills, 5);
+			if((changes & ROW_DEATHS) != 0)
+				ByteBufUtils.writeVarInt(rowData, row.deaths, 5);
+			if((changes & ROW_CLASS) != 0)
+				writeUTF(rowData, row.playerClass == null ? "" : row.playerClass.GetShortName());
+		}
+		changed |= numChangedRows > 0;
+		ByteBufUtils.writeVarInt(data, numChangedRows, 5);
+		data.writeBytes(rowData);
+		return changed;
 	}
 	
-	@Override
-	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	/**
+	 * Applies changes written by {@link #writeChanges} to this state
+	 */
+	private void readChanges(ByteBuf data)
 	{
-		try
+		int header = data.readUnsignedByte();
+		if((header & SETTINGS) != 0)
+		{
+			canBreakGlass = data.readBoolean();
+			vehiclesNeedFuel = data.readBoolean();
+			driveablesBreakBlocks = data.readBoolean();
+		}
+		if((header & ROUND) != 0)
 		{
-			TeamsManager.canBreakGlass = data.readBoolean();
-			TeamsManager.vehiclesNeedFuel = data.readBoolean();
-			TeamsManager.driveablesBreakBlocks = data.readBoolean();
 			gametype = readUTF(data);
-			if(gametype.equals("No Gametype"))
+			showZombieScore = data.readBoolean();
+			map = readUTF(data);
+			mapShortName = readUTF(data);
+			scoreLimit = ByteBufUtils.readVarInt(data, 5);
+			sortedByTeam = data.readBoolean();
+		}
+		if((header & TIME) != 0)
+			timeLeft = ByteBufUtils.readVarInt(data, 5);
+		if((header & TEAMS) != 0)
+		{
+			teamData = new TeamData[ByteBufUtils.readVarInt(data, 5)];
+			for(int i = 0; i < teamData.length; i++)
 			{
-				numTeams = 0;
-				teamData = new TeamData[0];
+				teamData[i] = new TeamData();
+				String teamName = readUTF(data);
+				if(!teamName.equals("none"))
+					teamData[i].team = Team.getTeam(teamName);
 			}
-			else
+		}
+		
+		for(TeamData team : teamData)
+		{
+			int changes = data.readUnsignedByte();
+			if((changes & TEAM_SCORE) != 0)
+				team.score = ByteBufUtils.readVarInt(data, 5);
+			if((changes & TEAM_WINNER) != 0)
+				team.winner = data.readBoolean();
+			if((changes & TEAM_MEMBERS) != 0)
 			{
-				showZombieScore = data.readBoolean();
-				map = readUTF(data);
-				mapShortName = readUTF(data);
-				timeLeft = data.readInt();
-				scoreLimit = data.readInt();
-				sortedByTeam = data.readBoolean();
-				if(sortedByTeam)
-				{
-					numTeams = data.readInt();
-					numLines = 1;
-					if(numTeams == 0)
-						return;
-					teamData = new TeamData[numTeams];
-					for(int i = 0; i < numTeams; i++)
-					{
-						teamData[i] = new TeamData();
-						String teamName = readUTF(data);
-						if(teamName.equals("none"))
-							continue;
-						teamData[i].team = Team.getTeam(teamName);
-						teamData[i].score = data.readInt();
-						teamData[i].winner = data.readBoolean();
-						teamData[i].numPlayers = data.readInt();
-						teamData[i].playerData = new PlayerScoreData[teamData[i].numPlayers];
-						if(teamData[i].numPlayers > numLines)
-							numLines = teamData[i].numPlayers;
-						for(int j = 0; j < teamData[i].numPlayers; j++)
-						{
-							teamData[i].playerData[j] = new PlayerScoreData();
-							teamData[i].playerData[j].team = teamData[i];
-							teamData[i].playerData[j].username = readUTF(data);
-							teamData[i].playerData[j].level = data.readInt();
-							teamData[i].playerData[j].score = data.readInt();
-							teamData[i].playerData[j].zombieScore = data.readInt();
-							teamData[i].playerData[j].kills = data.readInt();
-							teamData[i].playerData[j].deaths = data.readInt();
-							teamData[i].playerData[j].playerClass = PlayerClass.getClass(readUTF(data));
-						}
-					}
-				}
-				else
-				{
-					numLines = 0;
-					teamData = new TeamData[]{new TeamData()};
-					teamData[0].team = null;
-					teamData[0].score = 0;
-					teamData[0].numPlayers = data.readInt();
-					teamData[0].playerData = new PlayerScoreData[teamData[0].numPlayers];
-					numLines += teamData[0].numPlayers;
-					for(int j = 0; j < teamData[0].numPlayers; j++)
-					{
-						teamData[0].playerData[j] = new PlayerScoreData();
-						teamData[0].playerData[j].team = teamData[0];
-						teamData[0].playerData[j].username = readUTF(data);
-						teamData[0].playerData[j].level = data.readInt();
-						teamData[0].playerData[j].score = data.readInt();
-						teamData[0].playerData[j].kills = data.readInt();
-						teamData[0].playerData[j].deaths = data.readInt();
-						teamData[0].playerData[j].playerClass = PlayerClass.getClass(readUTF(data));
-					}
-				}
+				team.memberIds = new int[ByteBufUtils.readVarInt(data, 5)];
+				for(int j = 0; j < team.memberIds.length; j++)
+					team.memberIds[j] = ByteBufUtils.readVarInt(data, 5);
 			}
 		}
-		catch(Exception e)
+		
+		int numChangedRows = ByteBufUtils.readVarInt(data, 5);
+		for(int i = 0; i < numChangedRows; i++)
 		{
-			FlansMod.Assert(false, "Messed up in teams packet");
-			FlansMod.log.throwing(e);
-			teamData = new TeamData[]{new TeamData()};
+			int id = ByteBufUtils.readVarInt(data, 5);
+			PlayerScoreData row = rows.computeIfAbsent(id, k -> new PlayerScoreData());
+			row.id = id;
+			int changes = data.readUnsignedByte();
+			if((changes & ROW_NAME) != 0)
+				row.username = readUTF(data);
+			if((changes & ROW_LEVEL) != 0)
+				row.level = ByteBufUtils.readVarInt(data, 5);
+			if((changes & ROW_SCORE) != 0)
+				row.score = ByteBufUtils.readVarInt(data, 5);
+			if((changes & ROW_ZOMBIE_SCORE) != 0)
+				row.zombieScore = ByteBufUtils.readVarInt(data, 5);
+			if((changes & ROW_KILLS) != 0)
+				row.kills = ByteBufUtils.readVarInt(data, 5);
+			if((changes & ROW_DEATHS) != 0)
+				row.deaths = ByteBufUtils.readVarInt(data, 5);
+			if((changes & ROW_CLASS) != 0)
+				row.playerClass = PlayerClass.getClass(readUTF(data));
+		}
+		rebuild();
+	}
+	
+	/**
+	 * Fills in each team's player list from its member ids, drops rows no longer on any team and works out the derived
+	 * counts used by the scoreboard GUI
+	 */
+	private void rebuild()
+	{
+		Map<Integer, PlayerScoreData> liveRows = new HashMap<>();
+		numLines = sortedByTeam ? 1 : 0;
+		for(TeamData team : teamData)
+		{
+			team.playerData = new PlayerScoreData[team.memberIds.length];
+			team.numPlayers = team.memberIds.length;
+			for(int j = 0; j < team.memberIds.length; j++)
+			{
+				PlayerScoreData row = rows.get(team.memberIds[j]);
+				if(row == null)
+					row = new PlayerScoreData();
+				row.team = team;
+				team.playerData[j] = row;
+				liveRows.put(team.memberIds[j], row);
+			}
+			numLines = sortedByTeam ? Math.max(numLines, team.numPlayers) : numLines + team.numPlayers;
+		}
+		rows.keySet().retainAll(liveRows.keySet());
+		numTeams = sortedByTeam ? teamData.length : 0;
+	}
+	
+	@Override
+	public void encodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		data.writeByte(packetType);
+		if(payload != null)
+			data.writeBytes(payload);
+	}
+	
+	@Override
+	public void decodeInto(ChannelHandlerContext ctx, ByteBuf data)
+	{
+		try
+		{
+			packetType = data.readUnsignedByte();
+			payload = new byte[data.readableBytes()];
+			data.readBytes(payload);
 		}
 		finally
 		{
@@ -298,14 +567,53 @@ public class PacketTeamInfo extends PacketBase
 	@Override
 	public void handleServerSide(EntityPlayerMP playerEntity)
 	{
-		
+		if(packetType == REQUEST_FULL && playerEntity != null)
+			TeamsManager.getInstance().getTeamInfoTracker().requestFullUpdate(playerEntity);
 	}
 	
 	@Override
 	@SideOnly(Side.CLIENT)
 	public void handleClientSide(EntityPlayer clientPlayer)
 	{
-		FlansModClient.teamInfo = this;
+		try
+		{
+			ByteBuf data = Unpooled.wrappedBuffer(payload);
+			int newVersion = ByteBufUtils.readVarInt(data, 5);
+			PacketTeamInfo state;
+			if(packetType == FULL)
+			{
+				state = new PacketTeamInfo();
+				requestedFullUpdate = false;
+			}
+			else
+			{
+				int baseVersion = ByteBufUtils.readVarInt(data, 5);
+				state = FlansModClient.teamInfo;
+				if(state == null || state.version != baseVersion)
+				{
+					//We have missed an update. Ignore deltas until the server sends us everything again
+					if(!requestedFullUpdate)
+					{
+						requestedFullUpdate = true;
+						FlansMod.getPacketHandler().sendToServer(requestFullUpdate());
+					}
+					return;
+				}
+			}
+			state.readChanges(data);
+			state.version = newVersion;
+			TeamsManager.canBreakGlass = state.canBreakGlass;
+			TeamsManager.vehiclesNeedFuel = state.vehiclesNeedFuel;
+			TeamsManager.driveablesBreakBlocks = state.driveablesBreakBlocks;
+			FlansModClient.teamInfo = state;
+		}
+		catch(Exception e)
+		{
+			FlansMod.Assert(false, "Messed up in teams packet");
+			FlansMod.log.throwing(e);
+			requestedFullUpdate = true;
+			FlansMod.getPacketHandler().sendToServer(requestFullUpdate());
+		}
 	}
 	
 	public Team getTeam(int spawnerTeamID)
@@ -0,0 +1,97 @@
+package com.flansmod.common.network;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.flansmod.common.FlansMod;
+
+/**
+ * The packets received from one player's connection, waiting to be handled on the server thread.
+ * <p>
+ * Packets are offered from the connection's Netty thread and polled from the server thread. Each packet type has a
+ * limit on how many may be accepted per second and the queue as a whole has a maximum depth, anything over either is
+ * dropped and counted, so that one client spamming packets cannot stall the server.
+ */
+public class ServerPacketQueue
+{
+	private static final long RATE_WINDOW_MILLIS = 1000L;
+	private static final long DROP_WARNING_INTERVAL_MILLIS = 10000L;
+
+	private final ConcurrentLinkedQueue<PacketBase> packets = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger depth = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+
+	//Only touched by the connection's Netty thread
+	private final int[] receivedThisWindow;
+	private long windowStart;
+	private long lastDropWarning;
+
+	public ServerPacketQueue(int numPacketTypes)
+	{
+		receivedThisWindow = new int[numPacketTypes];
+	}
+
+	/**
+	 * Queues a packet, unless it goes over its type's rate limit or the queue is full
+	 *
+	 * @param discriminator The id of the packet type
+	 * @param rateLimit     The most packets of this type to accept per second
+	 * @param maxDepth      The most packets that may be waiting at once
+	 * @param playerName    For the warning if the packet is dropped
+	 * @return Whether the packet was queued
+	 */
+	public boolean offer(PacketBase packet, int discriminator, int rateLimit, int maxDepth, String playerName)
+	{
+		long now = System.currentTimeMillis();
+		if(now - windowStart >= RATE_WINDOW_MILLIS)
+		{
+			windowStart = now;
+			for(int i = 0; i < receivedThisWindow.length; i++)
+				receivedThisWindow[i] = 0;
+		}
+
+		if(++receivedThisWindow[discriminator] > rateLimit || depth.get() >= maxDepth)
+		{
+			dropped.incrementAndGet();
+			if(now - lastDropWarning >= DROP_WARNING_INTERVAL_MILLIS)
+			{
+				lastDropWarning = now;
+				FlansMod.log.warn("Dropping " + packet.getClass().getSimpleName() + " from " + playerName + ". "
+						+ depth.get() + " packets queued, " + dropped.get() + " dropped so far");
+			}
+			return false;
+		}
+
+		depth.incrementAndGet();
+		packets.offer(packet);
+		return true;
+	}
+
+	/**
+	 * @return The next packet, or null if there are none waiting
+	 */
+	public PacketBase poll()
+	{
+		PacketBase packet = packets.poll();
+		if(packet != null)
+			depth.decrementAndGet();
+		return packet;
+	}
+
+	/**
+	 * @return How many packets are waiting to be handled
+	 */
+	public int getDepth()
+	{
+		return depth.get();
+	}
+
+	/**
+	 * @return How many packets from this connection have been dropped in total
+	 */
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+}
@@ -0,0 +1,90 @@
+package com.flansmod.common.teams;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+
+import com.flansmod.common.FlansMod;
+import com.flansmod.common.network.PacketTeamInfo;
+
+/**
+ * Keeps clients' scoreboards up to date. The scoreboard is captured periodically and compared with the last capture
+ * sent, then only the differences are sent, encoded once and shared between all players who are up to date.
+ * Players who have just joined, or who have asked because they fell out of step, get a full snapshot instead.
+ */
+public class TeamInfoTracker
+{
+	/**
+	 * The ids used for each player's row on the scoreboard, so that rows can be updated without resending names
+	 */
+	private final Map<String, Integer> rowIds = new HashMap<>();
+	/**
+	 * The players who have the scoreboard as of {@link #lastSent}
+	 */
+	private final Set<String> syncedPlayers = new HashSet<>();
+	private PacketTeamInfo lastSent;
+	private int lastSentTick;
+
+	/**
+	 * Sends the changes since the last update to every player, or a full snapshot to those that need one
+	 *
+	 * @return Whether the round, the teams or their members have changed, in which case team menus should be refreshed
+	 */
+	public boolean sendUpdates()
+	{
+		PacketTeamInfo current = PacketTeamInfo.capture(rowIds);
+		current.version = lastSent == null ? 0 : lastSent.version + 1;
+
+		PacketTeamInfo delta = null;
+		if(lastSent != null)
+		{
+			//Clients count the round timer down themselves, so compare against where they will have got to
+			lastSent.timeLeft = Math.max(0, lastSent.timeLeft - (FlansMod.ticker - lastSentTick));
+			delta = PacketTeamInfo.createUpdate(lastSent, current);
+			if(delta == null)
+				current.version = lastSent.version;
+		}
+		boolean teamsChanged = PacketTeamInfo.teamsChanged(lastSent, current);
+
+		PacketTeamInfo full = null;
+		for(EntityPlayerMP player : TeamsManager.getPlayers())
+		{
+			if(syncedPlayers.contains(player.getName()))
+			{
+				if(delta != null)
+					TeamsManager.sendPacketToPlayer(delta, player);
+			}
+			else
+			{
+				if(full == null)
+					full = PacketTeamInfo.createUpdate(null, current);
+				TeamsManager.sendPacketToPlayer(full, player);
+				syncedPlayers.add(player.getName());
+			}
+		}
+
+		lastSent = current;
+		lastSentTick = FlansMod.ticker;
+		return teamsChanged;
+	}
+
+	/**
+	 * Makes sure this player gets a full snapshot next time, for when they have missed an update
+	 */
+	public void requestFullUpdate(EntityPlayer player)
+	{
+		syncedPlayers.remove(player.getName());
+	}
+
+	/**
+	 * Forgets a player who has logged out, so that they get a full snapshot if they come back
+	 */
+	public void playerLoggedOut(EntityPlayer player)
+	{
+		syncedPlayers.remove(player.getName());
+	}
+}
@@ -63,7 +63,6 @@ import com.flansmod.common.guns.ItemGun;
 import com.flansmod.common.guns.ItemShootable;
 import com.flansmod.common.guns.ShootableType;
 import com.flansmod.common.network.PacketBase;
-import com.flansmod.common.network.PacketTeamInfo;
 import com.flansmod.common.network.PacketTeamSelect;
 import com.flansmod.common.types.InfoType;
 
@@ -124,6 +123,11 @@ public class TeamsManager
 	
 	protected long time;
 	
+	/**
+	 * Sends clients the changes to the scoreboard
+	 */
+	private final TeamInfoTracker teamInfoTracker = new TeamInfoTracker();
+	
 	/**
 	 * A downwards counter that times the round (in ticks)
 	 */
@@ -207,13 +211,18 @@ public class TeamsManager
 		return instance;
 	}
 	
+	public TeamInfoTracker getTeamInfoTracker()
+	{
+		return teamInfoTracker;
+	}
+	
 	public void tick()
 	{
-		//Send a full team info update to players every 2 seconds.
+		//Send any changes to the scoreboard to players every 2 seconds. The team menus only need refreshing if the teams changed
 		if(time % 40 == 0)
 		{
-			FlansMod.INSTANCE.getPacketHandler().sendToAll(new PacketTeamInfo());
-			showTeamsMenuToAll(true);
+			if(teamInfoTracker.sendUpdates())
+				showTeamsMenuToAll(true);
 		}
 		
 		if(!enabled)
@@ -855,6 +864,7 @@ public class TeamsManager
 	
 	public void onPlayerLogout(EntityPlayer player)
 	{
+		teamInfoTracker.playerLoggedOut(player);
 		for(Team team : Team.teams)
 			team.removePlayer(player);
 	}
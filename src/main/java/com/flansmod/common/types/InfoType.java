@@ -100,7 +100,7 @@ public class InfoType
 				break;
 			if(line.startsWith("//"))
 				continue;
-			String[] split = line.split(" ");
+			String[] split = file.splitLastLine();
 			if(split.length < 2)
 				continue;
 			read(split, file);
@@ -221,7 +221,7 @@ public class InfoType
 	 */
 	protected boolean KeyMatches(String[] split, String key)
 	{
-		return split != null && split.length > 1 && key != null && split[0].toLowerCase().equals(key.toLowerCase());
+		return split != null && split.length > 1 && key != null && split[0].equalsIgnoreCase(key);
 	}
 	
 	protected int Read(String[] split, String key, int currentValue)
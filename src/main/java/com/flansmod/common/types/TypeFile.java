@@ -9,6 +9,10 @@ public class TypeFile
 	public EnumType type;
 	public String name, contentPack;
 	private ArrayList<String> lines;
+	/**
+	 * The lines split on spaces, filled in by tokenise. May be shorter than lines if more were added afterwards
+	 */
+	private String[][] splitLines;
 	public static HashMap<EnumType, ArrayList<TypeFile>> files;
 	private int readerPosition = 0;
 	private int hash = 0x12345678;
@@ -44,6 +48,28 @@ public class TypeFile
 		hash ^= line.hashCode();
 	}
 	
+	/**
+	 * Splits every line on spaces ahead of time, so that this can be done off the main thread while packs are loading
+	 */
+	public void tokenise()
+	{
+		String[][] split = new String[lines.size()][];
+		for(int i = 0; i < split.length; i++)
+			split[i] = lines.get(i).split(" ");
+		splitLines = split;
+	}
+	
+	/**
+	 * @return The line last returned by readLine, split on spaces
+	 */
+	public String[] splitLastLine()
+	{
+		int index = readerPosition - 1;
+		if(splitLines != null && index < splitLines.length)
+			return splitLines[index];
+		return lines.get(index).split(" ");
+	}
+	
 	public String readLine()
 	{
 		if(readerPosition == lines.size())
@@ -8,11 +8,21 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.MinecraftForge;
-import net.minecraftforge.common.util.FakePlayer;
+import net.minecraftforge.common.util.FakePlayerFactory;
 import net.minecraftforge.event.world.BlockEvent.BreakEvent;
 
 public class BlockUtil
 {
+	private static final GameProfile FAKE_PLAYER_PROFILE = new GameProfile(UUID.fromString("7f1c8d2e-6a4b-4f0e-9c35-2b1d5e8a7c40"), "fakePlayer");
+	
+	/**
+	 * Packs a block position into a long the same way {@link BlockPos#toLong} does, without creating the BlockPos
+	 */
+	public static long toLong(int x, int y, int z)
+	{
+		return ((long)x & 0x3FFFFFFL) << 38 | ((long)y & 0xFFFL) << 26 | (long)z & 0x3FFFFFFL;
+	}
+	
 	public static boolean destroyBlock(WorldServer world, BlockPos pos, Entity entity, boolean dropBlock)
 	{
 		EntityPlayer player;
@@ -22,7 +32,7 @@ public class BlockUtil
 		}
 		else
 		{
-			player = new FakePlayer(world, new GameProfile(UUID.randomUUID(), "fakePlayer"));
+			player = FakePlayerFactory.get(world, FAKE_PLAYER_PROFILE);
 		}
 		
 		BreakEvent breakEvent = new BreakEvent(world, pos, world.getBlockState(pos), player);
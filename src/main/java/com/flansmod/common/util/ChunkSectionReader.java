@@ -0,0 +1,80 @@
+package com.flansmod.common.util;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Reads blocks straight from the sections of loaded chunks, holding on to the last chunk used. Meant for code that looks
+ * at a lot of nearby blocks in one go, like explosions and harvesters, and should be dropped or {@link #reset} once that
+ * is done so that it does not keep an unloaded chunk around.
+ */
+public class ChunkSectionReader
+{
+	private final World world;
+	private Chunk cachedChunk;
+	
+	public ChunkSectionReader(World world)
+	{
+		this.world = world;
+	}
+	
+	/**
+	 * @return The block at this position, going through the world if its chunk is not loaded
+	 */
+	public IBlockState getBlockState(int x, int y, int z)
+	{
+		IBlockState state = getLoadedBlockState(x, y, z);
+		return state != null ? state : world.getBlockState(new BlockPos(x, y, z));
+	}
+	
+	/**
+	 * @return The block at this position, or null if its chunk is not loaded
+	 */
+	public IBlockState getLoadedBlockState(int x, int y, int z)
+	{
+		if(y < 0 || y >= 256)
+			return Blocks.AIR.getDefaultState();
+		Chunk chunk = getLoadedChunk(x >> 4, z >> 4);
+		if(chunk == null)
+			return null;
+		ExtendedBlockStorage storage = chunk.getBlockStorageArray()[y >> 4];
+		if(storage == Chunk.NULL_BLOCK_STORAGE)
+			return Blocks.AIR.getDefaultState();
+		return storage.get(x & 15, y & 15, z & 15);
+	}
+	
+	/**
+	 * @return Whether the 16x16x16 section containing this position is loaded and has nothing but air in it
+	 */
+	public boolean isSectionEmpty(int x, int y, int z)
+	{
+		if(y < 0 || y >= 256)
+			return true;
+		Chunk chunk = getLoadedChunk(x >> 4, z >> 4);
+		if(chunk == null)
+			return false;
+		ExtendedBlockStorage storage = chunk.getBlockStorageArray()[y >> 4];
+		return storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty();
+	}
+	
+	public void reset()
+	{
+		cachedChunk = null;
+	}
+	
+	private Chunk getLoadedChunk(int chunkX, int chunkZ)
+	{
+		Chunk chunk = cachedChunk;
+		if(chunk == null || chunk.x != chunkX || chunk.z != chunkZ)
+		{
+			chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+			if(chunk != null)
+				cachedChunk = chunk;
+		}
+		return chunk;
+	}
+}
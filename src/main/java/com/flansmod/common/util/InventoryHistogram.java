@@ -0,0 +1,119 @@
+package com.flansmod.common.util;
+
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+/**
+ * How many of each item an inventory holds, counted by item and damage in one pass over the inventory. Recipes can
+ * then be checked against the counts without scanning the inventory again for each ingredient.
+ * <p>
+ * It is a snapshot and does not follow changes to the inventory, but {@link #matches} can tell cheaply whether the
+ * inventory has changed since, so that a new one is only built when needed.
+ */
+public class InventoryHistogram
+{
+	private final Long2IntOpenHashMap counts = new Long2IntOpenHashMap();
+	private final Int2IntOpenHashMap countsIgnoringDamage = new Int2IntOpenHashMap();
+	
+	//What each slot held when this was built
+	private final Item[] slotItems;
+	private final int[] slotDamages;
+	private final int[] slotCounts;
+	
+	public InventoryHistogram(IInventory inventory)
+	{
+		int size = inventory.getSizeInventory();
+		slotItems = new Item[size];
+		slotDamages = new int[size];
+		slotCounts = new int[size];
+		for(int i = 0; i < size; i++)
+		{
+			ItemStack stack = inventory.getStackInSlot(i);
+			if(stack.isEmpty())
+				continue;
+			slotItems[i] = stack.getItem();
+			slotDamages[i] = stack.getItemDamage();
+			slotCounts[i] = stack.getCount();
+			counts.addTo(getKey(stack.getItem(), stack.getItemDamage()), stack.getCount());
+			countsIgnoringDamage.addTo(Item.getIdFromItem(stack.getItem()), stack.getCount());
+		}
+	}
+	
+	/**
+	 * @return Whether the inventory holds exactly what it did when this was built
+	 */
+	public boolean matches(IInventory inventory)
+	{
+		if(inventory.getSizeInventory() != slotItems.length)
+			return false;
+		for(int i = 0; i < slotItems.length; i++)
+		{
+			ItemStack stack = inventory.getStackInSlot(i);
+			if(stack.isEmpty())
+			{
+				if(slotItems[i] != null)
+					return false;
+			}
+			else if(stack.getItem() != slotItems[i] || stack.getItemDamage() != slotDamages[i] || stack.getCount() != slotCounts[i])
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return How many items with the same item and damage as the stack there are
+	 */
+	public int count(ItemStack stack)
+	{
+		return stack.isEmpty() ? 0 : counts.get(getKey(stack.getItem(), stack.getItemDamage()));
+	}
+	
+	/**
+	 * @return How many of the item there are, whatever their damage
+	 */
+	public int countIgnoringDamage(Item item)
+	{
+		return countsIgnoringDamage.get(Item.getIdFromItem(item));
+	}
+	
+	/**
+	 * @return Whether there are at least as many items as the stack holds, by item and damage
+	 */
+	public boolean contains(ItemStack required)
+	{
+		return count(required) >= required.getCount();
+	}
+	
+	/**
+	 * Checks for every stack at once, so that when several stacks are of the same item, there have to be enough for all of
+	 * them together
+	 *
+	 * @return Whether the inventory holds all the stacks
+	 */
+	public boolean containsAll(List<ItemStack> required)
+	{
+		Long2IntOpenHashMap needed = new Long2IntOpenHashMap(required.size());
+		for(ItemStack stack : required)
+		{
+			if(!stack.isEmpty())
+				needed.addTo(getKey(stack.getItem(), stack.getItemDamage()), stack.getCount());
+		}
+		for(Long2IntMap.Entry entry : needed.long2IntEntrySet())
+		{
+			if(counts.get(entry.getLongKey()) < entry.getIntValue())
+				return false;
+		}
+		return true;
+	}
+	
+	private static long getKey(Item item, int damage)
+	{
+		return (long)Item.getIdFromItem(item) << 32 | damage & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,354 @@
+package com.flansmod.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Moves, dims, brightens and removes light sources through {@link DynamicLightManager} over many refreshes, with only a
+ * few light checks allowed per frame, and checks that once the checks have caught up the light is what it would be if
+ * the current sources were the only lights besides the world's own. Block light is followed through a small world that
+ * checks light the way the world does: raising it spreads outwards, and lowering it takes away the light that came
+ * from the block before spreading back in what is left.
+ */
+public class DynamicLightManagerTest
+{
+	private static final int MIN_X = -48, MIN_Y = 0, MIN_Z = -24;
+	private static final int SIZE_X = 96, SIZE_Y = 32, SIZE_Z = 48;
+	private static final int TORCH = 14;
+	private static final int SKY = 15;
+	
+	/**
+	 * The light in a box of open air with a few torches in it, and no light outside the box
+	 */
+	private static class LightWorld
+	{
+		private final int[] blockLight = new int[SIZE_X * SIZE_Y * SIZE_Z];
+		private final int[] skyLight = new int[SIZE_X * SIZE_Y * SIZE_Z];
+		private final int[] emission = new int[SIZE_X * SIZE_Y * SIZE_Z];
+		
+		private LightWorld(List<BlockPos> torches)
+		{
+			Arrays.fill(skyLight, SKY);
+			Deque<Integer> queue = new ArrayDeque<>();
+			for(BlockPos torch : torches)
+			{
+				int index = index(torch.getX(), torch.getY(), torch.getZ());
+				emission[index] = TORCH;
+				blockLight[index] = TORCH;
+				queue.add(index);
+			}
+			spread(queue);
+		}
+		
+		private static boolean inside(int x, int y, int z)
+		{
+			return x >= MIN_X && x < MIN_X + SIZE_X && y >= MIN_Y && y < MIN_Y + SIZE_Y && z >= MIN_Z && z < MIN_Z + SIZE_Z;
+		}
+		
+		private static int index(int x, int y, int z)
+		{
+			return ((x - MIN_X) * SIZE_Y + (y - MIN_Y)) * SIZE_Z + (z - MIN_Z);
+		}
+		
+		private static int[] neighbours(int index)
+		{
+			int z = index % SIZE_Z + MIN_Z;
+			int y = index / SIZE_Z % SIZE_Y + MIN_Y;
+			int x = index / SIZE_Z / SIZE_Y + MIN_X;
+			int[][] offsets = new int[][] { { 1, 0, 0 }, { -1, 0, 0 }, { 0, 1, 0 }, { 0, -1, 0 }, { 0, 0, 1 }, { 0, 0, -1 } };
+			int[] found = new int[6];
+			int count = 0;
+			for(int[] offset : offsets)
+			{
+				if(inside(x + offset[0], y + offset[1], z + offset[2]))
+					found[count++] = index(x + offset[0], y + offset[1], z + offset[2]);
+			}
+			return Arrays.copyOf(found, count);
+		}
+		
+		/**
+		 * Raises the light of the neighbours of each queued block to one less than its own, and theirs in turn
+		 */
+		private void spread(Deque<Integer> queue)
+		{
+			while(!queue.isEmpty())
+			{
+				int index = queue.poll();
+				for(int neighbour : neighbours(index))
+				{
+					if(blockLight[neighbour] < blockLight[index] - 1)
+					{
+						blockLight[neighbour] = blockLight[index] - 1;
+						queue.add(neighbour);
+					}
+				}
+			}
+		}
+		
+		private int getLight(EnumSkyBlock type, BlockPos pos)
+		{
+			if(!inside(pos.getX(), pos.getY(), pos.getZ()))
+				return 0;
+			int index = index(pos.getX(), pos.getY(), pos.getZ());
+			return type == EnumSkyBlock.BLOCK ? blockLight[index] : skyLight[index];
+		}
+		
+		private void setLight(EnumSkyBlock type, BlockPos pos, int level)
+		{
+			if(!inside(pos.getX(), pos.getY(), pos.getZ()))
+				return;
+			int index = index(pos.getX(), pos.getY(), pos.getZ());
+			if(type == EnumSkyBlock.BLOCK)
+				blockLight[index] = level;
+			else skyLight[index] = level;
+		}
+		
+		private void checkLight(EnumSkyBlock type, BlockPos pos)
+		{
+			if(!inside(pos.getX(), pos.getY(), pos.getZ()))
+				return;
+			int index = index(pos.getX(), pos.getY(), pos.getZ());
+			//Open sky everywhere, so there is nothing to spread
+			if(type == EnumSkyBlock.SKY)
+			{
+				skyLight[index] = SKY;
+				return;
+			}
+			
+			int level = emission[index];
+			for(int neighbour : neighbours(index))
+				level = Math.max(level, blockLight[neighbour] - 1);
+			if(level > blockLight[index])
+			{
+				blockLight[index] = level;
+				spread(new ArrayDeque<>(Arrays.asList(index)));
+			}
+			else if(level < blockLight[index])
+			{
+				//Take away everything that was lit from here, then spread back in from whatever is lit from elsewhere
+				Deque<int[]> darkened = new ArrayDeque<>();
+				Deque<Integer> relight = new ArrayDeque<>();
+				darkened.add(new int[] { index, blockLight[index] });
+				blockLight[index] = 0;
+				while(!darkened.isEmpty())
+				{
+					int[] removed = darkened.poll();
+					if(emission[removed[0]] > 0)
+					{
+						blockLight[removed[0]] = emission[removed[0]];
+						relight.add(removed[0]);
+					}
+					for(int neighbour : neighbours(removed[0]))
+					{
+						int neighbourLevel = blockLight[neighbour];
+						if(neighbourLevel != 0 && neighbourLevel < removed[1])
+						{
+							blockLight[neighbour] = 0;
+							darkened.add(new int[] { neighbour, neighbourLevel });
+						}
+						else if(neighbourLevel >= removed[1])
+							relight.add(neighbour);
+					}
+				}
+				spread(relight);
+			}
+		}
+	}
+	
+	private static class TestLightManager extends DynamicLightManager
+	{
+		private final LightWorld world;
+		private int updatesPerFrame;
+		
+		private TestLightManager(LightWorld world)
+		{
+			this.world = world;
+		}
+		
+		@Override
+		int getUpdatesPerFrame()
+		{
+			return updatesPerFrame;
+		}
+		
+		@Override
+		int getLight(EnumSkyBlock type, BlockPos pos)
+		{
+			return world.getLight(type, pos);
+		}
+		
+		@Override
+		void setLight(EnumSkyBlock type, BlockPos pos, int level)
+		{
+			world.setLight(type, pos, level);
+		}
+		
+		@Override
+		void checkLight(EnumSkyBlock type, BlockPos pos)
+		{
+			world.checkLight(type, pos);
+		}
+	}
+	
+	/**
+	 * A flashlight or glowing bullet, kept to one side of the world so that it is never lit by another source brighter
+	 * than itself, which would be as good as a real light being put there
+	 */
+	private static class Source
+	{
+		private final int minX, maxX;
+		private int x, y, z;
+		private int level;
+		private boolean on = true;
+		
+		private Source(int minX, int maxX, Random random)
+		{
+			this.minX = minX;
+			this.maxX = maxX;
+			teleport(random);
+			level = 8 + random.nextInt(8);
+		}
+		
+		private void teleport(Random random)
+		{
+			x = minX + random.nextInt(maxX - minX + 1);
+			y = 4 + random.nextInt(SIZE_Y - 8);
+			z = MIN_Z + 4 + random.nextInt(SIZE_Z - 8);
+		}
+		
+		private void update(Random random)
+		{
+			int roll = random.nextInt(20);
+			if(roll < 8)
+			{
+				//Along one axis by a block, as a flashlight being swept around
+				int axis = random.nextInt(3);
+				int step = random.nextBoolean() ? 1 : -1;
+				if(axis == 0)
+					x = Math.max(minX, Math.min(maxX, x + step));
+				else if(axis == 1)
+					y = Math.max(4, Math.min(SIZE_Y - 5, y + step));
+				else z = Math.max(MIN_Z + 4, Math.min(MIN_Z + SIZE_Z - 5, z + step));
+			}
+			else if(roll < 10)
+				teleport(random);
+			else if(roll < 13)
+				level = 8 + random.nextInt(8);
+			else if(roll < 15)
+				on = !on;
+		}
+	}
+	
+	private static void refresh(TestLightManager manager, List<Source> sources, Source darkener)
+	{
+		manager.begin(null);
+		for(Source source : sources)
+		{
+			if(source.on)
+				manager.addBlockLight(new BlockPos(source.x, source.y, source.z), source.level);
+		}
+		//As a mecha darkening the sky around it
+		if(darkener.on)
+		{
+			for(int i = -1; i <= 1; i++)
+			{
+				for(int k = -1; k <= 1; k++)
+					manager.addSkyDarkness(new BlockPos(darkener.x + i, darkener.y, darkener.z + k), 4);
+			}
+		}
+		manager.end();
+	}
+	
+	private static void assertLightMatches(LightWorld world, List<BlockPos> torches, List<Source> sources, Source darkener, String message)
+	{
+		for(int x = MIN_X; x < MIN_X + SIZE_X; x++)
+		{
+			for(int y = MIN_Y; y < MIN_Y + SIZE_Y; y++)
+			{
+				for(int z = MIN_Z; z < MIN_Z + SIZE_Z; z++)
+				{
+					int expected = 0;
+					for(BlockPos torch : torches)
+						expected = Math.max(expected, TORCH - distance(x, y, z, torch.getX(), torch.getY(), torch.getZ()));
+					for(Source source : sources)
+					{
+						if(source.on)
+							expected = Math.max(expected, source.level - distance(x, y, z, source.x, source.y, source.z));
+					}
+					BlockPos pos = new BlockPos(x, y, z);
+					assertEquals(message + ", block light at " + pos, expected, world.getLight(EnumSkyBlock.BLOCK, pos));
+					
+					boolean darkened = darkener.on && y == darkener.y && Math.abs(x - darkener.x) <= 1 && Math.abs(z - darkener.z) <= 1;
+					assertEquals(message + ", sky light at " + pos, darkened ? 4 : SKY, world.getLight(EnumSkyBlock.SKY, pos));
+				}
+			}
+		}
+	}
+	
+	private static int distance(int x1, int y1, int z1, int x2, int y2, int z2)
+	{
+		return Math.abs(x1 - x2) + Math.abs(y1 - y2) + Math.abs(z1 - z2);
+	}
+	
+	private static void catchUp(TestLightManager manager)
+	{
+		manager.updatesPerFrame = Integer.MAX_VALUE;
+		manager.updateLighting(null);
+	}
+	
+	@Test
+	public void lightCatchesUpWithMovingSources()
+	{
+		Random random = new Random(17L);
+		//Torches either side of zero, near where the sources go
+		List<BlockPos> torches = new ArrayList<>();
+		torches.add(new BlockPos(-30, 10, -5));
+		torches.add(new BlockPos(25, 20, 8));
+		torches.add(new BlockPos(0, 16, 0));
+		LightWorld world = new LightWorld(torches);
+		TestLightManager manager = new TestLightManager(world);
+		
+		List<Source> sources = new ArrayList<>();
+		sources.add(new Source(MIN_X + 4, -10, random));
+		sources.add(new Source(10, MIN_X + SIZE_X - 5, random));
+		Source darkener = new Source(MIN_X + 4, MIN_X + SIZE_X - 5, random);
+		
+		for(int refresh = 0; refresh < 200; refresh++)
+		{
+			for(Source source : sources)
+				source.update(random);
+			darkener.update(random);
+			refresh(manager, sources, darkener);
+			
+			//A few frames of light checks between refreshes, often not enough to get through them all
+			manager.updatesPerFrame = 1 + random.nextInt(40);
+			for(int frame = random.nextInt(4); frame > 0; frame--)
+				manager.updateLighting(null);
+			
+			if(refresh % 20 == 19)
+			{
+				catchUp(manager);
+				assertLightMatches(world, torches, sources, darkener, "Refresh " + refresh);
+			}
+		}
+		
+		//And all the way back to the world's own light once every source has gone
+		for(Source source : sources)
+			source.on = false;
+		darkener.on = false;
+		refresh(manager, sources, darkener);
+		catchUp(manager);
+		assertLightMatches(world, torches, sources, darkener, "With no sources");
+	}
+}
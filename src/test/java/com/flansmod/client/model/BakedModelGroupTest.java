@@ -0,0 +1,230 @@
+package com.flansmod.client.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.minecraft.client.model.ModelBase;
+
+import com.flansmod.client.tmt.ModelRendererTurbo;
+import com.flansmod.client.tmt.TextureGroup;
+import com.flansmod.client.tmt.TexturedPolygon;
+import com.flansmod.client.tmt.TmtTessellator;
+import com.flansmod.common.vector.Matrix4f;
+import com.flansmod.common.vector.Vector3f;
+import com.flansmod.common.vector.Vector4f;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the mesh {@link BakedModelGroup} bakes against what {@link ModelRendererTurbo#render(float, boolean)} draws:
+ * each polygon as {@link TexturedPolygon#draw} hands it to the tessellator, moved by the translation and rotations
+ * render() applies to the matrix
+ */
+public class BakedModelGroupTest
+{
+	private static final float TOLERANCE = 1E-4F;
+	private static final float[] SCALES = new float[] { 1F / 16F, 0.1F, 1F };
+	
+	/**
+	 * Records what is drawn through it rather than drawing it. Quads and polygons are fanned out from their first
+	 * vertex, which covers the same triangles
+	 */
+	private static class RecordingTessellator extends TmtTessellator
+	{
+		private final List<float[]> vertices = new ArrayList<>();
+		private final List<float[]> polygon = new ArrayList<>();
+		private float normalX, normalY, normalZ;
+		
+		@Override
+		public void startDrawing(int mode)
+		{
+			polygon.clear();
+		}
+		
+		@Override
+		public void setNormal(float x, float y, float z)
+		{
+			normalX = x;
+			normalY = y;
+			normalZ = z;
+		}
+		
+		@Override
+		public void addVertexWithUVW(double x, double y, double z, double u, double v, double w)
+		{
+			polygon.add(new float[] { (float)x, (float)y, (float)z, (float)u, (float)v, (float)w, normalX, normalY, normalZ });
+		}
+		
+		@Override
+		public void draw()
+		{
+			for(int i = 1; i < polygon.size() - 1; i++)
+			{
+				vertices.add(polygon.get(0));
+				vertices.add(polygon.get(i));
+				vertices.add(polygon.get(i + 1));
+			}
+		}
+	}
+	
+	/**
+	 * The matrix {@link ModelRendererTurbo#render(float, boolean)} sets up before calling the piece's display list
+	 */
+	private static Matrix4f getRenderMatrix(ModelRendererTurbo piece, float scale, boolean oldRotateOrder)
+	{
+		Matrix4f matrix = new Matrix4f();
+		matrix.translate(new Vector3f(piece.rotationPointX * scale, piece.rotationPointY * scale, piece.rotationPointZ * scale));
+		if(!oldRotateOrder)
+			rotate(matrix, piece.rotateAngleY * 57.29578F, 0F, 1F, 0F);
+		rotate(matrix, (oldRotateOrder ? -1 : 1) * piece.rotateAngleZ * 57.29578F, 0F, 0F, 1F);
+		if(oldRotateOrder)
+			rotate(matrix, -piece.rotateAngleY * 57.29578F, 0F, 1F, 0F);
+		rotate(matrix, piece.rotateAngleX * 57.29578F, 1F, 0F, 0F);
+		return matrix;
+	}
+	
+	//As glRotatef, which takes degrees
+	private static void rotate(Matrix4f matrix, float degrees, float x, float y, float z)
+	{
+		matrix.rotate((float)Math.toRadians(degrees), new Vector3f(x, y, z));
+	}
+	
+	/**
+	 * Draws the pieces one by one as render() would, through the recording tessellator, and moves the vertices and
+	 * normals by the matrix each piece is drawn with
+	 */
+	private static float[] renderPieces(ModelRendererTurbo[] pieces, float scale, boolean oldRotateOrder)
+	{
+		List<float[]> mesh = new ArrayList<>();
+		for(ModelRendererTurbo piece : pieces)
+		{
+			if(!piece.showModel || !BakedModelGroup.canBake(piece))
+				continue;
+			RecordingTessellator tessellator = new RecordingTessellator();
+			for(TextureGroup group : piece.getTextureGroups())
+			{
+				for(TexturedPolygon polygon : group.poly)
+				{
+					polygon.draw(tessellator, scale);
+				}
+			}
+			Matrix4f matrix = getRenderMatrix(piece, scale, oldRotateOrder);
+			for(float[] vertex : tessellator.vertices)
+			{
+				Vector4f position = Matrix4f.transform(matrix, new Vector4f(vertex[0], vertex[1], vertex[2], 1F), null);
+				Vector4f normal = Matrix4f.transform(matrix, new Vector4f(vertex[6], vertex[7], vertex[8], 0F), null);
+				mesh.add(new float[] { position.x, position.y, position.z, vertex[3], vertex[4], vertex[5], normal.x, normal.y, normal.z });
+			}
+		}
+		float[] vertices = new float[mesh.size() * BakedModelGroup.VERTEX_SIZE];
+		for(int i = 0; i < mesh.size(); i++)
+		{
+			System.arraycopy(mesh.get(i), 0, vertices, i * BakedModelGroup.VERTEX_SIZE, BakedModelGroup.VERTEX_SIZE);
+		}
+		return vertices;
+	}
+	
+	private static ModelRendererTurbo[] createPieces()
+	{
+		ModelBase model = new ModelBase()
+		{
+		};
+		ModelRendererTurbo[] pieces = new ModelRendererTurbo[5];
+		
+		pieces[0] = new ModelRendererTurbo(model, 0, 0, 64, 64);
+		pieces[0].addBox(-2F, -1F, -3F, 4, 2, 6);
+		pieces[0].setRotationPoint(3F, -7F, 12F);
+		pieces[0].rotateAngleX = 0.3F;
+		pieces[0].rotateAngleY = -1.2F;
+		pieces[0].rotateAngleZ = 2.1F;
+		
+		pieces[1] = new ModelRendererTurbo(model, 16, 0, 64, 64);
+		pieces[1].addShapeBox(0F, 0F, 0F, 3, 5, 2, 0F, 0F, 0F, 0F, 1F, 0F, 0F, 0F, 0F, 0F, 0F, 0F, -1F, 0F, 0.5F, 0F, 0F, 0F, 0F, 0F, 0F, 0F, 0F, 2F, 0F);
+		pieces[1].setRotationPoint(-4F, 2F, 0F);
+		pieces[1].rotateAngleY = 0.7F;
+		
+		//No rotation at all, which render() only translates for
+		pieces[2] = new ModelRendererTurbo(model, 0, 16, 64, 64);
+		pieces[2].addCylinder(1F, 0F, -1F, 2F, 6F, 8, 1F, 0.5F, ModelRendererTurbo.MR_FRONT);
+		pieces[2].setRotationPoint(0F, 4F, -9F);
+		
+		//Hidden pieces are left out
+		pieces[3] = new ModelRendererTurbo(model, 32, 16, 64, 64);
+		pieces[3].addBox(0F, 0F, 0F, 1, 1, 1);
+		pieces[3].showModel = false;
+		
+		//As are pieces with a texture of their own
+		pieces[4] = new ModelRendererTurbo(model, 32, 32, 64, 64);
+		pieces[4].addBox(0F, 0F, 0F, 2, 2, 2);
+		pieces[4].setDefaultTexture("skin.png");
+		pieces[4].rotateAngleZ = 1F;
+		
+		return pieces;
+	}
+	
+	private static void assertMeshEquals(float[] expected, BakedModelGroup group)
+	{
+		assertEquals(expected.length / BakedModelGroup.VERTEX_SIZE, group.getVertexCount());
+		float[] actual = group.getVertices();
+		for(int i = 0; i < expected.length; i++)
+		{
+			assertEquals("Float " + i % BakedModelGroup.VERTEX_SIZE + " of vertex " + i / BakedModelGroup.VERTEX_SIZE, expected[i], actual[i], TOLERANCE);
+		}
+	}
+	
+	@Test
+	public void newRotateOrderMatchesRender()
+	{
+		ModelRendererTurbo[] pieces = createPieces();
+		for(float scale : SCALES)
+		{
+			assertMeshEquals(renderPieces(pieces, scale, false), new BakedModelGroup(pieces, scale, false));
+		}
+	}
+	
+	@Test
+	public void oldRotateOrderMatchesRender()
+	{
+		ModelRendererTurbo[] pieces = createPieces();
+		for(float scale : SCALES)
+		{
+			assertMeshEquals(renderPieces(pieces, scale, true), new BakedModelGroup(pieces, scale, true));
+		}
+	}
+	
+	@Test
+	public void unbakeablePiecesAreRenderedOnTheirOwn()
+	{
+		ModelRendererTurbo[] pieces = createPieces();
+		BakedModelGroup group = new BakedModelGroup(pieces, 1F / 16F, false);
+		assertEquals(1, group.getUnbakedPieces().size());
+		assertEquals(pieces[4], group.getUnbakedPieces().get(0));
+	}
+	
+	@Test
+	public void movedPiecesAreBakedAgain()
+	{
+		ModelRendererTurbo[] pieces = createPieces();
+		BakedModelGroup group = new BakedModelGroup(pieces, 0.1F, true);
+		assertTrue(group.isCurrent());
+		pieces[1].rotateAngleZ = -0.4F;
+		pieces[3].showModel = true;
+		assertFalse(group.isCurrent());
+		group.bake();
+		assertTrue(group.isCurrent());
+		assertMeshEquals(renderPieces(pieces, 0.1F, true), group);
+	}
+	
+	@Test
+	public void meshIsOnlyForItsScaleAndOrder()
+	{
+		BakedModelGroup group = new BakedModelGroup(createPieces(), 1F / 16F, false);
+		assertTrue(group.isBakedFor(1F / 16F, false));
+		assertFalse(group.isBakedFor(1F / 16F, true));
+		assertFalse(group.isBakedFor(0.1F, false));
+	}
+}
@@ -0,0 +1,214 @@
+package com.flansmod.client.model;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.flansmod.common.vector.Vector3f;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the quads {@link TrailBatch} builds, and that expiring trails by moving the last one into their slot leaves
+ * every other trail as it was
+ */
+public class TrailBatchTest
+{
+	private static final float TOLERANCE = 1E-5F;
+	
+	private static void assertVertex(float[] buffer, int vertex, float x, float y, float z, float u, float v, float nX, float nY, float nZ)
+	{
+		int i = vertex * TrailBatch.FLOATS_PER_VERTEX;
+		assertEquals(x, buffer[i], TOLERANCE);
+		assertEquals(y, buffer[i + 1], TOLERANCE);
+		assertEquals(z, buffer[i + 2], TOLERANCE);
+		assertEquals(u, buffer[i + 3], 0F);
+		assertEquals(v, buffer[i + 4], 0F);
+		assertEquals(nX, buffer[i + 5], TOLERANCE);
+		assertEquals(nY, buffer[i + 6], TOLERANCE);
+		assertEquals(nZ, buffer[i + 7], TOLERANCE);
+	}
+	
+	@Test
+	public void knownTrail()
+	{
+		TrailBatch batch = new TrailBatch();
+		//Along x, seen from above, 0.2 wide and 2 long, moving 1 block a tick
+		batch.add(new Vector3f(0F, 0F, 0F), new Vector3f(10F, 0F, 0F), 0.2F, 2F, 1F);
+		float[] buffer = batch.buildQuads(0.5F, 1D, 2D, 3D, 0D, 5D, 0D, null);
+		
+		assertEquals(TrailBatch.FLOATS_PER_TRAIL, buffer.length);
+		//Half a tick in, the trail runs from -0.5 to 1.5 along x, relative to the camera at (1, 2, 3)
+		assertVertex(buffer, 0, -1.5F, -2F, -3.1F, 0F, 0F, 0F, -1F, 0F);
+		assertVertex(buffer, 1, -1.5F, -2F, -2.9F, 0F, 1F, 0F, -1F, 0F);
+		assertVertex(buffer, 2, 0.5F, -2F, -2.9F, 1F, 1F, 0F, -1F, 0F);
+		assertVertex(buffer, 3, 0.5F, -2F, -3.1F, 1F, 0F, 0F, -1F, 0F);
+	}
+	
+	/**
+	 * The quad of one trail as the old per-trail renderer worked it out, with Vector3f operations and the camera
+	 * translation applied afterwards
+	 */
+	private static float[] oldQuad(Vector3f origin, Vector3f hitPos, float width, float length, float speed, int ticksExisted, float partialTicks, Vector3f camera, Vector3f viewer)
+	{
+		float parametric = (ticksExisted + partialTicks) * speed;
+		Vector3f dPos = Vector3f.sub(hitPos, origin, null);
+		dPos.normalise();
+		float startParametric = parametric - length * 0.5F;
+		Vector3f startPos = new Vector3f(origin.x + dPos.x * startParametric, origin.y + dPos.y * startParametric, origin.z + dPos.z * startParametric);
+		float endParametric = parametric + length * 0.5F;
+		Vector3f endPos = new Vector3f(origin.x + dPos.x * endParametric, origin.y + dPos.y * endParametric, origin.z + dPos.z * endParametric);
+		Vector3f vectorToPlayer = Vector3f.sub(viewer, hitPos, null);
+		vectorToPlayer.normalise();
+		Vector3f trailTangent = Vector3f.cross(dPos, vectorToPlayer, null);
+		trailTangent.normalise();
+		trailTangent.scale(-width * 0.5F);
+		Vector3f normal = Vector3f.cross(trailTangent, dPos, null);
+		normal.normalise();
+		
+		float[] quad = new float[TrailBatch.FLOATS_PER_TRAIL];
+		Vector3f[] corners = new Vector3f[] {
+				Vector3f.add(startPos, trailTangent, null), Vector3f.sub(startPos, trailTangent, null),
+				Vector3f.sub(endPos, trailTangent, null), Vector3f.add(endPos, trailTangent, null) };
+		float[][] uvs = new float[][] { { 0F, 0F }, { 0F, 1F }, { 1F, 1F }, { 1F, 0F } };
+		for(int i = 0; i < 4; i++)
+		{
+			int n = i * TrailBatch.FLOATS_PER_VERTEX;
+			quad[n] = corners[i].x - camera.x;
+			quad[n + 1] = corners[i].y - camera.y;
+			quad[n + 2] = corners[i].z - camera.z;
+			quad[n + 3] = uvs[i][0];
+			quad[n + 4] = uvs[i][1];
+			quad[n + 5] = normal.x;
+			quad[n + 6] = normal.y;
+			quad[n + 7] = normal.z;
+		}
+		return quad;
+	}
+	
+	@Test
+	public void randomTrailsMatchOldRenderer()
+	{
+		Random random = new Random(18L);
+		for(int sample = 0; sample < 200; sample++)
+		{
+			Vector3f origin = new Vector3f(random.nextFloat() * 100F, random.nextFloat() * 100F, random.nextFloat() * 100F);
+			Vector3f hitPos = new Vector3f(random.nextFloat() * 100F, random.nextFloat() * 100F, random.nextFloat() * 100F);
+			Vector3f camera = new Vector3f(random.nextFloat() * 100F, random.nextFloat() * 100F, random.nextFloat() * 100F);
+			Vector3f viewer = new Vector3f(camera.x, camera.y - 1.62F, camera.z);
+			float width = 0.05F + random.nextFloat() * 0.5F;
+			float length = 1F + random.nextFloat() * 10F;
+			float speed = 1F + random.nextFloat() * 20F;
+			float partialTicks = random.nextFloat();
+			
+			TrailBatch batch = new TrailBatch();
+			batch.add(origin, hitPos, width, length, speed);
+			float[] buffer = batch.buildQuads(partialTicks, camera.x, camera.y, camera.z, viewer.x, viewer.y, viewer.z, new float[0]);
+			float[] expected = oldQuad(origin, hitPos, width, length, speed, 0, partialTicks, camera, viewer);
+			for(int i = 0; i < TrailBatch.FLOATS_PER_TRAIL; i++)
+			{
+				assertEquals("Float " + i + " of sample " + sample, expected[i], buffer[i], 1E-3F);
+			}
+		}
+	}
+	
+	/**
+	 * Adds a trail along x at the given height, so that the quads of each trail can be told apart by their y
+	 */
+	private static void addTrail(TrailBatch batch, float y, float distance, float speed)
+	{
+		batch.add(new Vector3f(0F, y, 0F), new Vector3f(distance, y, 0F), 0.2F, 2F, speed);
+	}
+	
+	/**
+	 * Checks that the given trail of the batch is the one at height y, drawn at the given tick
+	 */
+	private static void assertTrail(float[] buffer, int trail, float y, float speed, int ticksExisted)
+	{
+		int vertex = trail * 4;
+		float start = ticksExisted * speed - 1F;
+		float end = ticksExisted * speed + 1F;
+		assertEquals(start, buffer[vertex * TrailBatch.FLOATS_PER_VERTEX], TOLERANCE);
+		assertEquals(y, buffer[vertex * TrailBatch.FLOATS_PER_VERTEX + 1], TOLERANCE);
+		assertEquals(end, buffer[(vertex + 2) * TrailBatch.FLOATS_PER_VERTEX], TOLERANCE);
+		assertEquals(y, buffer[(vertex + 2) * TrailBatch.FLOATS_PER_VERTEX + 1], TOLERANCE);
+	}
+	
+	private static float[] build(TrailBatch batch)
+	{
+		return batch.buildQuads(0F, 0D, 0D, 0D, 0D, 1000D, 0D, null);
+	}
+	
+	@Test
+	public void expiredTrailsAreSwappedOut()
+	{
+		TrailBatch batch = new TrailBatch();
+		//Trails expire once ticks * speed reaches distance - length
+		addTrail(batch, 0F, 10F, 1F); //Expires on tick 8
+		addTrail(batch, 100F, 10F, 5F); //Expires on tick 2
+		batch.update();
+		assertEquals(2, batch.size());
+		//Added a tick later than the others, so it must keep its own age when it is moved
+		addTrail(batch, 200F, 20F, 1F); //Expires on tick 19
+		
+		batch.update();
+		//The middle trail is gone and the last one has taken its slot, without being moved on twice
+		assertEquals(2, batch.size());
+		float[] buffer = build(batch);
+		assertTrail(buffer, 0, 0F, 1F, 2);
+		assertTrail(buffer, 1, 200F, 1F, 1);
+		
+		for(int tick = 3; tick <= 8; tick++)
+		{
+			batch.update();
+		}
+		assertEquals(1, batch.size());
+		assertTrail(build(batch), 0, 200F, 1F, 7);
+		
+		for(int tick = 9; tick <= 18; tick++)
+		{
+			batch.update();
+		}
+		assertEquals(1, batch.size());
+		batch.update();
+		assertEquals(0, batch.size());
+	}
+	
+	@Test
+	public void trailsExpiringTogetherLeaveNoStaleEntries()
+	{
+		TrailBatch batch = new TrailBatch();
+		//The first and last expire on the same tick, so the last is moved into the first slot after it is removed
+		addTrail(batch, 0F, 4F, 1F);
+		addTrail(batch, 100F, 20F, 1F);
+		addTrail(batch, 200F, 20F, 1F);
+		addTrail(batch, 300F, 4F, 1F);
+		//Fill the buffer first, so anything left over from before would still be in it
+		float[] buffer = build(batch);
+		
+		batch.update();
+		batch.update();
+		assertEquals(2, batch.size());
+		buffer = batch.buildQuads(0F, 0D, 0D, 0D, 0D, 1000D, 0D, buffer);
+		//The buffer is reused, but only the first two quads are live and they are the two remaining trails
+		assertTrail(buffer, 0, 200F, 1F, 2);
+		assertTrail(buffer, 1, 100F, 1F, 2);
+	}
+	
+	@Test
+	public void growsPastInitialCapacity()
+	{
+		TrailBatch batch = new TrailBatch();
+		for(int i = 0; i < 40; i++)
+		{
+			addTrail(batch, i, 100F, 1F);
+		}
+		batch.update();
+		float[] buffer = build(batch);
+		assertEquals(40 * TrailBatch.FLOATS_PER_TRAIL, buffer.length);
+		for(int i = 0; i < 40; i++)
+		{
+			assertTrail(buffer, i, i, 1F, 1);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package com.flansmod.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the blocks {@link ExplosionRays} breaks against the ray walk {@link FlansModExplosion} used to do, copied below,
+ * which steps a BlockPos along each ray and asks the world for every step. Both are given the same blocks and a Random
+ * with the same seed, so they must break the same blocks, found in the same order, and draw the same random numbers.
+ */
+public class ExplosionRaysTest
+{
+	private static final int SAMPLES = 40;
+	
+	@BeforeClass
+	public static void setUp()
+	{
+		Bootstrap.register();
+	}
+	
+	/**
+	 * Blocks around an explosion, with resistances like those of the real blocks. Anything not set is air
+	 */
+	private static class TestWorld
+	{
+		private final Map<BlockPos, IBlockState> states = new HashMap<>();
+		private final Map<Block, Float> resistances = new HashMap<>();
+		
+		private TestWorld()
+		{
+			resistances.put(Blocks.DIRT, 0.5F);
+			resistances.put(Blocks.STONE, 6F);
+			resistances.put(Blocks.OBSIDIAN, 1200F);
+		}
+		
+		private IBlockState getBlockState(BlockPos pos)
+		{
+			IBlockState state = states.get(pos);
+			return state != null ? state : Blocks.AIR.getDefaultState();
+		}
+		
+		private float getExplosionResistance(IBlockState state)
+		{
+			return resistances.get(state.getBlock());
+		}
+		
+		//As an explosive that only breaks dirt if it still has some strength left
+		private boolean canDestroy(IBlockState state, float strength)
+		{
+			return state.getBlock() != Blocks.DIRT || strength > 1F;
+		}
+	}
+	
+	private static class TestRays extends ExplosionRays
+	{
+		private final TestWorld world;
+		
+		private TestRays(TestWorld world, boolean checksDestroy)
+		{
+			super(checksDestroy);
+			this.world = world;
+		}
+		
+		@Override
+		protected IBlockState getBlockState(int x, int y, int z)
+		{
+			return world.getBlockState(new BlockPos(x, y, z));
+		}
+		
+		@Override
+		protected float getExplosionResistance(BlockPos pos, IBlockState state)
+		{
+			return world.getExplosionResistance(state);
+		}
+		
+		@Override
+		protected boolean canDestroy(BlockPos pos, IBlockState state, float strength)
+		{
+			return world.canDestroy(state, strength);
+		}
+	}
+	
+	//FlansModExplosion#doExplosionA's ray walk as it was, with the world and explosive calls going to the test's world
+	private static List<BlockPos> castOldRays(TestWorld world, boolean checksDestroy, Random rand, double x, double y, double z, float size)
+	{
+		Set<BlockPos> set = new LinkedHashSet<>();
+		for(int j = 0; j < 16; ++j)
+		{
+			for(int k = 0; k < 16; ++k)
+			{
+				for(int l = 0; l < 16; ++l)
+				{
+					if(j == 0 || j == 15 || k == 0 || k == 15 || l == 0 || l == 15)
+					{
+						double d0 = (double)((float)j / 15.0F * 2.0F - 1.0F);
+						double d1 = (double)((float)k / 15.0F * 2.0F - 1.0F);
+						double d2 = (double)((float)l / 15.0F * 2.0F - 1.0F);
+						double d3 = Math.sqrt(d0 * d0 + d1 * d1 + d2 * d2);
+						d0 = d0 / d3;
+						d1 = d1 / d3;
+						d2 = d2 / d3;
+						float f = size * (0.7F + rand.nextFloat() * 0.6F);
+						double d4 = x;
+						double d6 = y;
+						double d8 = z;
+						
+						for(; f > 0.0F; f -= 0.22500001F)
+						{
+							BlockPos blockpos = new BlockPos(d4, d6, d8);
+							IBlockState iblockstate = world.getBlockState(blockpos);
+							
+							if(iblockstate.getMaterial() != Material.AIR)
+							{
+								float f2 = world.getExplosionResistance(iblockstate);
+								f -= (f2 + 0.3F) * 0.3F;
+							}
+							
+							if(f > 0.0F && (!checksDestroy || world.canDestroy(iblockstate, f)))
+							{
+								set.add(blockpos);
+							}
+							
+							d4 += d0 * 0.30000001192092896D;
+							d6 += d1 * 0.30000001192092896D;
+							d8 += d2 * 0.30000001192092896D;
+						}
+					}
+				}
+			}
+		}
+		return new ArrayList<>(set);
+	}
+	
+	/**
+	 * Fills a cube around the centre with dirt, stone and a little obsidian, leaving the given fraction of it as air
+	 */
+	private static TestWorld randomWorld(Random random, BlockPos centre, int radius, float air)
+	{
+		TestWorld world = new TestWorld();
+		for(int i = -radius; i <= radius; i++)
+		{
+			for(int j = -radius; j <= radius; j++)
+			{
+				for(int k = -radius; k <= radius; k++)
+				{
+					float roll = random.nextFloat();
+					if(roll < air)
+						continue;
+					roll = random.nextFloat();
+					Block block = roll < 0.5F ? Blocks.DIRT : roll < 0.95F ? Blocks.STONE : Blocks.OBSIDIAN;
+					world.states.put(new BlockPos(centre.getX() + i, centre.getY() + j, centre.getZ() + k), block.getDefaultState());
+				}
+			}
+		}
+		return world;
+	}
+	
+	private static void assertSameRays(boolean checksDestroy)
+	{
+		Random random = new Random(14L);
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			//Both sides of zero, so that flooring negative coordinates is covered
+			double x = (random.nextDouble() - 0.5D) * 2000D;
+			double y = random.nextDouble() * 255D;
+			double z = (random.nextDouble() - 0.5D) * 2000D;
+			float size = 1F + random.nextFloat() * 7F;
+			float air = sample % 4 == 0 ? 1F : random.nextFloat();
+			TestWorld world = randomWorld(random, new BlockPos(x, y, z), 12, air);
+			long seed = random.nextLong();
+			
+			Random oldRand = new Random(seed);
+			List<BlockPos> expected = castOldRays(world, checksDestroy, oldRand, x, y, z, size);
+			Random newRand = new Random(seed);
+			List<BlockPos> actual = new ArrayList<>();
+			new TestRays(world, checksDestroy).cast(newRand, x, y, z, size, actual);
+			
+			assertEquals("Blocks broken in sample " + sample, expected, actual);
+			assertEquals("Blocks listed twice in sample " + sample, actual.size(), new HashSet<>(actual).size());
+			assertEquals("Random draws in sample " + sample, oldRand.nextLong(), newRand.nextLong());
+		}
+	}
+	
+	@Test
+	public void sameBlocksAsOldRays()
+	{
+		assertSameRays(false);
+	}
+	
+	@Test
+	public void sameBlocksAsOldRaysWhenTheExplosiveDecides()
+	{
+		assertSameRays(true);
+	}
+}
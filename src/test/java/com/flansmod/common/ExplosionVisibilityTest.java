@@ -0,0 +1,358 @@
+package com.flansmod.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link ExplosionVisibility#getDensity} against {@link net.minecraft.world.World#getBlockDensity} and the
+ * raytrace it calls, copied below from 1.12.2, over random boxes and random fields of full blocks. Both ask the same
+ * blocks whether they stop a ray, so the points each ray visits and the densities must come out exactly the same.
+ */
+public class ExplosionVisibilityTest
+{
+	private static final int SAMPLES = 300;
+	
+	/**
+	 * Full blocks, with every check on them logged as block position followed by the point the ray reached it at
+	 */
+	private static class Blocks
+	{
+		private final Set<BlockPos> solid = new HashSet<>();
+		private final List<Double> checks = new ArrayList<>();
+		
+		private boolean collides(int blockX, int blockY, int blockZ, Vec3d start, Vec3d end)
+		{
+			checks.add((double)blockX);
+			checks.add((double)blockY);
+			checks.add((double)blockZ);
+			checks.add(start.x);
+			checks.add(start.y);
+			checks.add(start.z);
+			if(!solid.contains(new BlockPos(blockX, blockY, blockZ)))
+				return false;
+			return intersectsBlock(blockX, blockY, blockZ, start, end);
+		}
+		
+		private boolean isSectionEmpty(int x, int y, int z)
+		{
+			for(BlockPos pos : solid)
+			{
+				if(pos.getX() >> 4 == x >> 4 && pos.getY() >> 4 == y >> 4 && pos.getZ() >> 4 == z >> 4)
+					return false;
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Whether the line from start to end passes through the block, as a full cube's collisionRayTrace works out
+	 */
+	private static boolean intersectsBlock(int blockX, int blockY, int blockZ, Vec3d start, Vec3d end)
+	{
+		double tMin = 0D, tMax = 1D;
+		double[] from = new double[] { start.x, start.y, start.z };
+		double[] delta = new double[] { end.x - start.x, end.y - start.y, end.z - start.z };
+		int[] min = new int[] { blockX, blockY, blockZ };
+		for(int axis = 0; axis < 3; axis++)
+		{
+			if(delta[axis] == 0D)
+			{
+				if(from[axis] < min[axis] || from[axis] > min[axis] + 1)
+					return false;
+				continue;
+			}
+			double t0 = (min[axis] - from[axis]) / delta[axis];
+			double t1 = (min[axis] + 1 - from[axis]) / delta[axis];
+			tMin = Math.max(tMin, Math.min(t0, t1));
+			tMax = Math.min(tMax, Math.max(t0, t1));
+		}
+		return tMin <= tMax;
+	}
+	
+	/**
+	 * Reads its blocks from the test's blocks rather than a world
+	 */
+	private static class TestVisibility extends ExplosionVisibility
+	{
+		private final Blocks blocks;
+		private final Vec3d centre;
+		
+		private TestVisibility(Blocks blocks, Vec3d centre)
+		{
+			super(null, centre.x, centre.y, centre.z);
+			this.blocks = blocks;
+			this.centre = centre;
+		}
+		
+		@Override
+		boolean isSectionEmpty(int x, int y, int z)
+		{
+			return blocks.isSectionEmpty(x, y, z);
+		}
+		
+		@Override
+		boolean collides(int blockX, int blockY, int blockZ, double startX, double startY, double startZ)
+		{
+			return blocks.collides(blockX, blockY, blockZ, new Vec3d(startX, startY, startZ), centre);
+		}
+	}
+	
+	//World#getBlockDensity and World#rayTraceBlocks(Vec3d, Vec3d) from 1.12.2, with block reads going to the test's blocks
+	
+	private static float getBlockDensity(Blocks blocks, Vec3d vec, AxisAlignedBB bb)
+	{
+		double d0 = 1.0D / ((bb.maxX - bb.minX) * 2.0D + 1.0D);
+		double d1 = 1.0D / ((bb.maxY - bb.minY) * 2.0D + 1.0D);
+		double d2 = 1.0D / ((bb.maxZ - bb.minZ) * 2.0D + 1.0D);
+		double d3 = (1.0D - Math.floor(1.0D / d0) * d0) / 2.0D;
+		double d4 = (1.0D - Math.floor(1.0D / d2) * d2) / 2.0D;
+		
+		if(d0 >= 0.0D && d1 >= 0.0D && d2 >= 0.0D)
+		{
+			int j2 = 0;
+			int k2 = 0;
+			
+			for(float f = 0.0F; f <= 1.0F; f = (float)((double)f + d0))
+			{
+				for(float f1 = 0.0F; f1 <= 1.0F; f1 = (float)((double)f1 + d1))
+				{
+					for(float f2 = 0.0F; f2 <= 1.0F; f2 = (float)((double)f2 + d2))
+					{
+						double d5 = bb.minX + (bb.maxX - bb.minX) * (double)f;
+						double d6 = bb.minY + (bb.maxY - bb.minY) * (double)f1;
+						double d7 = bb.minZ + (bb.maxZ - bb.minZ) * (double)f2;
+						
+						if(!rayTraceBlocks(blocks, new Vec3d(d5 + d3, d6, d7 + d4), vec))
+							++j2;
+						++k2;
+					}
+				}
+			}
+			return (float)j2 / (float)k2;
+		}
+		else return 0.0F;
+	}
+	
+	private static boolean rayTraceBlocks(Blocks blocks, Vec3d vec31, Vec3d vec32)
+	{
+		if(Double.isNaN(vec31.x) || Double.isNaN(vec31.y) || Double.isNaN(vec31.z))
+			return false;
+		if(Double.isNaN(vec32.x) || Double.isNaN(vec32.y) || Double.isNaN(vec32.z))
+			return false;
+		int i = MathHelper.floor(vec32.x);
+		int j = MathHelper.floor(vec32.y);
+		int k = MathHelper.floor(vec32.z);
+		int l = MathHelper.floor(vec31.x);
+		int i1 = MathHelper.floor(vec31.y);
+		int j1 = MathHelper.floor(vec31.z);
+		
+		if(blocks.collides(l, i1, j1, vec31, vec32))
+			return true;
+		
+		int k1 = 200;
+		while(k1-- >= 0)
+		{
+			if(Double.isNaN(vec31.x) || Double.isNaN(vec31.y) || Double.isNaN(vec31.z))
+				return false;
+			if(l == i && i1 == j && j1 == k)
+				return false;
+			
+			boolean flag2 = true;
+			boolean flag = true;
+			boolean flag1 = true;
+			double d0 = 999.0D;
+			double d1 = 999.0D;
+			double d2 = 999.0D;
+			
+			if(i > l)
+				d0 = (double)l + 1.0D;
+			else if(i < l)
+				d0 = (double)l + 0.0D;
+			else flag2 = false;
+			
+			if(j > i1)
+				d1 = (double)i1 + 1.0D;
+			else if(j < i1)
+				d1 = (double)i1 + 0.0D;
+			else flag = false;
+			
+			if(k > j1)
+				d2 = (double)j1 + 1.0D;
+			else if(k < j1)
+				d2 = (double)j1 + 0.0D;
+			else flag1 = false;
+			
+			double d3 = 999.0D;
+			double d4 = 999.0D;
+			double d5 = 999.0D;
+			double d6 = vec32.x - vec31.x;
+			double d7 = vec32.y - vec31.y;
+			double d8 = vec32.z - vec31.z;
+			
+			if(flag2)
+				d3 = (d0 - vec31.x) / d6;
+			if(flag)
+				d4 = (d1 - vec31.y) / d7;
+			if(flag1)
+				d5 = (d2 - vec31.z) / d8;
+			
+			if(d3 == -0.0D)
+				d3 = -1.0E-4D;
+			if(d4 == -0.0D)
+				d4 = -1.0E-4D;
+			if(d5 == -0.0D)
+				d5 = -1.0E-4D;
+			
+			//The face the ray came in through, where east, up and south mean the block is on the negative side
+			boolean east = false, up = false, south = false;
+			if(d3 < d4 && d3 < d5)
+			{
+				east = i <= l;
+				vec31 = new Vec3d(d0, vec31.y + d7 * d3, vec31.z + d8 * d3);
+			}
+			else if(d4 < d5)
+			{
+				up = j <= i1;
+				vec31 = new Vec3d(vec31.x + d6 * d4, d1, vec31.z + d8 * d4);
+			}
+			else
+			{
+				south = k <= j1;
+				vec31 = new Vec3d(vec31.x + d6 * d5, vec31.y + d7 * d5, d2);
+			}
+			
+			l = MathHelper.floor(vec31.x) - (east ? 1 : 0);
+			i1 = MathHelper.floor(vec31.y) - (up ? 1 : 0);
+			j1 = MathHelper.floor(vec31.z) - (south ? 1 : 0);
+			
+			if(blocks.collides(l, i1, j1, vec31, vec32))
+				return true;
+		}
+		return false;
+	}
+	
+	private static Blocks randomBlocks(Random random, Vec3d centre, float fill)
+	{
+		Blocks blocks = new Blocks();
+		int x = MathHelper.floor(centre.x), y = MathHelper.floor(centre.y), z = MathHelper.floor(centre.z);
+		for(int i = -6; i <= 6; i++)
+		{
+			for(int j = -6; j <= 6; j++)
+			{
+				for(int k = -6; k <= 6; k++)
+				{
+					//Leave the blast itself in the open
+					if(Math.abs(i) + Math.abs(j) + Math.abs(k) > 1 && random.nextFloat() < fill)
+						blocks.solid.add(new BlockPos(x + i, y + j, z + k));
+				}
+			}
+		}
+		return blocks;
+	}
+	
+	private static AxisAlignedBB randomBox(Random random, Vec3d centre)
+	{
+		double x = centre.x + random.nextDouble() * 12D - 6D;
+		double y = centre.y + random.nextDouble() * 12D - 6D;
+		double z = centre.z + random.nextDouble() * 12D - 6D;
+		double width = 0.1D + random.nextDouble() * 2.9D;
+		double height = 0.1D + random.nextDouble() * 3.9D;
+		return new AxisAlignedBB(x - width / 2D, y, z - width / 2D, x + width / 2D, y + height, z + width / 2D);
+	}
+	
+	private static Vec3d randomCentre(Random random)
+	{
+		return new Vec3d(random.nextDouble() * 64D - 32D, 20D + random.nextDouble() * 64D, random.nextDouble() * 64D - 32D);
+	}
+	
+	@Test
+	public void densitiesMatchVanilla()
+	{
+		Random random = new Random(15L);
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			Vec3d centre = randomCentre(random);
+			Blocks blocks = randomBlocks(random, centre, 0.1F + random.nextFloat() * 0.3F);
+			AxisAlignedBB bb = randomBox(random, centre);
+			
+			float expected = getBlockDensity(blocks, centre, bb);
+			List<Double> expectedChecks = new ArrayList<>(blocks.checks);
+			blocks.checks.clear();
+			float actual = new TestVisibility(blocks, centre).getDensity(bb);
+			
+			assertEquals("Density of sample " + sample, expected, actual, 0F);
+			//Every ray stepped through the same blocks, reaching each at the same point
+			assertEquals("Blocks checked in sample " + sample, expectedChecks, blocks.checks);
+		}
+	}
+	
+	@Test
+	public void rayStartPointsOnBlockEdgesMatchVanilla()
+	{
+		//Boxes lined up with the block grid put sample points on block faces and edges, where the walk is most fragile
+		Random random = new Random(1515L);
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			Vec3d centre = new Vec3d(random.nextInt(16) + 0.5D, 64D + random.nextInt(4), random.nextInt(16) + 0.5D);
+			Blocks blocks = randomBlocks(random, centre, 0.25F);
+			int x = MathHelper.floor(centre.x) + random.nextInt(9) - 4;
+			int y = MathHelper.floor(centre.y) + random.nextInt(9) - 4;
+			int z = MathHelper.floor(centre.z) + random.nextInt(9) - 4;
+			AxisAlignedBB bb = new AxisAlignedBB(x, y, z, x + 1 + random.nextInt(2), y + 1 + random.nextInt(2), z + 1 + random.nextInt(2));
+			
+			float expected = getBlockDensity(blocks, centre, bb);
+			List<Double> expectedChecks = new ArrayList<>(blocks.checks);
+			blocks.checks.clear();
+			float actual = new TestVisibility(blocks, centre).getDensity(bb);
+			
+			assertEquals("Density of sample " + sample, expected, actual, 0F);
+			assertEquals("Blocks checked in sample " + sample, expectedChecks, blocks.checks);
+		}
+	}
+	
+	@Test
+	public void openSpaceIsFullyExposedWithoutTracing()
+	{
+		Random random = new Random(150L);
+		for(int sample = 0; sample < SAMPLES; sample++)
+		{
+			Vec3d centre = randomCentre(random);
+			Blocks blocks = new Blocks();
+			AxisAlignedBB bb = randomBox(random, centre);
+			
+			assertEquals(1F, getBlockDensity(blocks, centre, bb), 0F);
+			blocks.checks.clear();
+			assertEquals(1F, new TestVisibility(blocks, centre).getDensity(bb), 0F);
+			assertEquals(0, blocks.checks.size());
+		}
+	}
+	
+	@Test
+	public void repeatedBoxesAndPointsAreNotTracedAgain()
+	{
+		Random random = new Random(1500L);
+		Vec3d centre = randomCentre(random);
+		Blocks blocks = randomBlocks(random, centre, 0.2F);
+		AxisAlignedBB bb = randomBox(random, centre);
+		TestVisibility visibility = new TestVisibility(blocks, centre);
+		
+		float density = visibility.getDensity(bb);
+		int checks = blocks.checks.size();
+		//Another entity with the same box, and then a copy of the box that is not the same object
+		assertEquals(density, visibility.getDensity(bb), 0F);
+		assertEquals(density, visibility.getDensity(new AxisAlignedBB(bb.minX, bb.minY, bb.minZ, bb.maxX, bb.maxY, bb.maxZ)), 0F);
+		assertEquals(checks, blocks.checks.size());
+	}
+}
@@ -0,0 +1,195 @@
+package com.flansmod.common;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.flansmod.common.vector.Matrix4f;
+import com.flansmod.common.vector.Vector3f;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the cached basis in {@link RotatedAxes} against the sequence of {@link Matrix4f#rotate} calls it replaced, for
+ * random angles and vectors. The two only differ by float rounding
+ */
+public class RotatedAxesTest
+{
+	private static final int SAMPLES = 2000;
+	private static final float TOLERANCE = 1E-4F;
+	private static final float DEGREES_TO_RADIANS = 3.14159265F / 180F;
+	
+	private final Random random = new Random(2125L);
+	
+	private float randomAngle()
+	{
+		return random.nextFloat() * 720F - 360F;
+	}
+	
+	private Vector3f randomVector()
+	{
+		return new Vector3f(random.nextFloat() * 200F - 100F, random.nextFloat() * 200F - 100F, random.nextFloat() * 200F - 100F);
+	}
+	
+	private RotatedAxes randomAxes()
+	{
+		return new RotatedAxes(randomAngle(), randomAngle(), randomAngle());
+	}
+	
+	//The old path, as it was before the basis was cached
+	
+	private static Matrix4f oldAnglesToMatrix(float yaw, float pitch, float roll)
+	{
+		Matrix4f mat = new Matrix4f();
+		mat.rotate(roll * DEGREES_TO_RADIANS, new Vector3f(1F, 0F, 0F));
+		mat.rotate(pitch * DEGREES_TO_RADIANS, new Vector3f(0F, 0F, 1F));
+		mat.rotate(yaw * DEGREES_TO_RADIANS, new Vector3f(0F, 1F, 0F));
+		return mat;
+	}
+	
+	private static Vector3f oldFindLocalVectorGlobally(RotatedAxes axes, Vector3f in)
+	{
+		Matrix4f mat = new Matrix4f();
+		mat.m00 = in.x;
+		mat.m10 = in.y;
+		mat.m20 = in.z;
+		mat.rotate(axes.getRoll() * DEGREES_TO_RADIANS, new Vector3f(1F, 0F, 0F));
+		mat.rotate(axes.getPitch() * DEGREES_TO_RADIANS, new Vector3f(0F, 0F, 1F));
+		mat.rotate(axes.getYaw() * DEGREES_TO_RADIANS, new Vector3f(0F, 1F, 0F));
+		return new Vector3f(mat.m00, mat.m10, mat.m20);
+	}
+	
+	private static Vector3f oldFindGlobalVectorLocally(RotatedAxes axes, Vector3f in)
+	{
+		Matrix4f mat = new Matrix4f();
+		mat.m00 = in.x;
+		mat.m10 = in.y;
+		mat.m20 = in.z;
+		mat.rotate(-axes.getYaw() * DEGREES_TO_RADIANS, new Vector3f(0F, 1F, 0F));
+		mat.rotate(-axes.getPitch() * DEGREES_TO_RADIANS, new Vector3f(0F, 0F, 1F));
+		mat.rotate(-axes.getRoll() * DEGREES_TO_RADIANS, new Vector3f(1F, 0F, 0F));
+		return new Vector3f(mat.m00, mat.m10, mat.m20);
+	}
+	
+	private static Matrix4f oldFindLocalAxesGlobally(RotatedAxes axes, RotatedAxes in)
+	{
+		Matrix4f mat = new Matrix4f();
+		mat.load(in.getMatrix());
+		mat.rotate(axes.getRoll() * DEGREES_TO_RADIANS, new Vector3f(1F, 0F, 0F));
+		mat.rotate(axes.getPitch() * DEGREES_TO_RADIANS, new Vector3f(0F, 0F, 1F));
+		mat.rotate(axes.getYaw() * DEGREES_TO_RADIANS, new Vector3f(0F, 1F, 0F));
+		return mat;
+	}
+	
+	private static void assertVectorEquals(Vector3f expected, Vector3f actual)
+	{
+		float tolerance = TOLERANCE * Math.max(1F, expected.length());
+		assertEquals(expected.x, actual.x, tolerance);
+		assertEquals(expected.y, actual.y, tolerance);
+		assertEquals(expected.z, actual.z, tolerance);
+	}
+	
+	private static void assertMatrixEquals(Matrix4f expected, Matrix4f actual)
+	{
+		assertEquals(expected.m00, actual.m00, TOLERANCE);
+		assertEquals(expected.m01, actual.m01, TOLERANCE);
+		assertEquals(expected.m02, actual.m02, TOLERANCE);
+		assertEquals(expected.m03, actual.m03, TOLERANCE);
+		assertEquals(expected.m10, actual.m10, TOLERANCE);
+		assertEquals(expected.m11, actual.m11, TOLERANCE);
+		assertEquals(expected.m12, actual.m12, TOLERANCE);
+		assertEquals(expected.m13, actual.m13, TOLERANCE);
+		assertEquals(expected.m20, actual.m20, TOLERANCE);
+		assertEquals(expected.m21, actual.m21, TOLERANCE);
+		assertEquals(expected.m22, actual.m22, TOLERANCE);
+		assertEquals(expected.m23, actual.m23, TOLERANCE);
+		assertEquals(expected.m30, actual.m30, TOLERANCE);
+		assertEquals(expected.m31, actual.m31, TOLERANCE);
+		assertEquals(expected.m32, actual.m32, TOLERANCE);
+		assertEquals(expected.m33, actual.m33, TOLERANCE);
+	}
+	
+	@Test
+	public void matrixMatchesOldRotations()
+	{
+		for(int i = 0; i < SAMPLES; i++)
+		{
+			float yaw = randomAngle(), pitch = randomAngle(), roll = randomAngle();
+			assertMatrixEquals(oldAnglesToMatrix(yaw, pitch, roll), new RotatedAxes(yaw, pitch, roll).getMatrix());
+		}
+	}
+	
+	@Test
+	public void localToGlobalMatchesOldRotations()
+	{
+		float[] array = new float[4];
+		for(int i = 0; i < SAMPLES; i++)
+		{
+			RotatedAxes axes = randomAxes();
+			Vector3f in = randomVector();
+			Vector3f expected = oldFindLocalVectorGlobally(axes, in);
+			
+			assertVectorEquals(expected, axes.findLocalVectorGlobally(in));
+			assertVectorEquals(expected, axes.findLocalVectorGlobally(in, new Vector3f()));
+			axes.findLocalVectorGlobally(in.x, in.y, in.z, array, 1);
+			assertVectorEquals(expected, new Vector3f(array[1], array[2], array[3]));
+			//Writing into the input itself
+			Vector3f inPlace = new Vector3f(in);
+			axes.findLocalVectorGlobally(inPlace, inPlace);
+			assertVectorEquals(expected, inPlace);
+		}
+	}
+	
+	@Test
+	public void globalToLocalMatchesOldRotations()
+	{
+		float[] array = new float[3];
+		for(int i = 0; i < SAMPLES; i++)
+		{
+			RotatedAxes axes = randomAxes();
+			Vector3f in = randomVector();
+			Vector3f expected = oldFindGlobalVectorLocally(axes, in);
+			
+			assertVectorEquals(expected, axes.findGlobalVectorLocally(in));
+			assertVectorEquals(expected, axes.findGlobalVectorLocally(in, new Vector3f()));
+			axes.findGlobalVectorLocally(in.x, in.y, in.z, array, 0);
+			assertVectorEquals(expected, new Vector3f(array[0], array[1], array[2]));
+			Vector3f inPlace = new Vector3f(in);
+			axes.findGlobalVectorLocally(inPlace, inPlace);
+			assertVectorEquals(expected, inPlace);
+		}
+	}
+	
+	@Test
+	public void localAxesGloballyMatchesOldRotations()
+	{
+		for(int i = 0; i < SAMPLES; i++)
+		{
+			RotatedAxes axes = randomAxes();
+			RotatedAxes in = randomAxes();
+			Matrix4f expected = oldFindLocalAxesGlobally(axes, in);
+			RotatedAxes actual = axes.findLocalAxesGlobally(in);
+			
+			assertMatrixEquals(expected, actual.getMatrix());
+			RotatedAxes expectedAxes = new RotatedAxes(expected);
+			assertEquals(expectedAxes.getYaw(), actual.getYaw(), 0.05F);
+			assertEquals(expectedAxes.getPitch(), actual.getPitch(), 0.05F);
+			assertEquals(expectedAxes.getRoll(), actual.getRoll(), 0.05F);
+		}
+	}
+	
+	@Test
+	public void basisFollowsChangedAngles()
+	{
+		RotatedAxes axes = randomAxes();
+		Vector3f in = randomVector();
+		//Work the basis out once, then change the angles and check it is not stale
+		axes.findLocalVectorGlobally(in);
+		for(int i = 0; i < 100; i++)
+		{
+			axes.setAngles(randomAngle(), randomAngle(), randomAngle());
+			assertVectorEquals(oldFindLocalVectorGlobally(axes, in), axes.findLocalVectorGlobally(in));
+			assertVectorEquals(oldFindGlobalVectorLocally(axes, in), axes.findGlobalVectorLocally(in));
+		}
+	}
+}
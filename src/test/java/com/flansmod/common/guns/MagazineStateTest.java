@@ -0,0 +1,136 @@
+package com.flansmod.common.guns;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the ammo in a gun's tags always matches what has been fired, so that copying, saving or syncing the gun
+ * neither gives back rounds that were fired nor loses rounds that were not. Any damageable item stands in for a
+ * magazine, the gun stack itself only carries the tags.
+ */
+public class MagazineStateTest
+{
+	private static final int NUM_AMMO_ITEMS = 2;
+	
+	@BeforeClass
+	public static void setUp()
+	{
+		Bootstrap.register();
+	}
+	
+	private static ItemStack newGun()
+	{
+		ItemStack gun = new ItemStack(Items.STICK);
+		MagazineState.get(gun, NUM_AMMO_ITEMS).setBullet(0, new ItemStack(Items.IRON_SWORD));
+		return gun;
+	}
+	
+	private static void fire(ItemStack gun, int rounds)
+	{
+		MagazineState magazine = MagazineState.get(gun, NUM_AMMO_ITEMS);
+		for(int i = 0; i < rounds; i++)
+		{
+			ItemStack bullet = magazine.getFirstLoaded();
+			bullet.setItemDamage(bullet.getItemDamage() + 1);
+			magazine.setBullet(0, bullet);
+		}
+	}
+	
+	private static int getRoundsFiredInTags(ItemStack gun)
+	{
+		NBTTagList ammoTags = gun.getTagCompound().getTagList("ammo", Constants.NBT.TAG_COMPOUND);
+		return new ItemStack(ammoTags.getCompoundTagAt(0)).getItemDamage();
+	}
+	
+	@Test
+	public void firedRoundsAreInTheTagsStraightAway()
+	{
+		ItemStack gun = newGun();
+		fire(gun, 3);
+		assertEquals(3, getRoundsFiredInTags(gun));
+	}
+	
+	@Test
+	public void copyAfterFiringDoesNotGetRoundsBack()
+	{
+		//Death drops and dropped items copy the stack without telling the item
+		ItemStack gun = newGun();
+		fire(gun, 5);
+		ItemStack copy = gun.copy();
+		assertEquals(5, MagazineState.get(copy, NUM_AMMO_ITEMS).getBullet(0).getItemDamage());
+	}
+	
+	@Test
+	public void splitAfterFiringDoesNotGetRoundsBack()
+	{
+		//Picking the gun up in an inventory splits it off the slot
+		ItemStack gun = newGun();
+		fire(gun, 4);
+		ItemStack picked = gun.splitStack(1);
+		assertEquals(4, MagazineState.get(picked, NUM_AMMO_ITEMS).getBullet(0).getItemDamage());
+	}
+	
+	@Test
+	public void copyIsIndependentOfTheOriginal()
+	{
+		ItemStack gun = newGun();
+		fire(gun, 2);
+		ItemStack copy = gun.copy();
+		fire(copy, 3);
+		fire(gun, 1);
+		assertEquals(3, MagazineState.get(gun, NUM_AMMO_ITEMS).getBullet(0).getItemDamage());
+		assertEquals(5, MagazineState.get(copy, NUM_AMMO_ITEMS).getBullet(0).getItemDamage());
+	}
+	
+	@Test
+	public void saveAndLoadKeepsEveryRound()
+	{
+		ItemStack gun = newGun();
+		fire(gun, 7);
+		ItemStack loaded = new ItemStack(gun.writeToNBT(new NBTTagCompound()));
+		MagazineState magazine = MagazineState.get(loaded, NUM_AMMO_ITEMS);
+		assertEquals(7, magazine.getBullet(0).getItemDamage());
+		assertTrue(magazine.getBullet(1).isEmpty());
+	}
+	
+	@Test
+	public void replacedTagsAreReadAgain()
+	{
+		//A stack synced from the other side gets new tags, which take precedence over anything held in memory
+		ItemStack gun = newGun();
+		MagazineState before = MagazineState.get(gun, NUM_AMMO_ITEMS);
+		fire(gun, 2);
+		ItemStack synced = newGun();
+		fire(synced, 6);
+		gun.setTagCompound(synced.getTagCompound().copy());
+		MagazineState after = MagazineState.get(gun, NUM_AMMO_ITEMS);
+		assertNotSame(before, after);
+		assertEquals(6, after.getBullet(0).getItemDamage());
+	}
+	
+	@Test
+	public void reloadingWritesTheNewMagazine()
+	{
+		ItemStack gun = newGun();
+		fire(gun, 9);
+		MagazineState magazine = MagazineState.get(gun, NUM_AMMO_ITEMS);
+		magazine.setBullet(0, ItemStack.EMPTY.copy());
+		magazine.setBullet(1, new ItemStack(Items.IRON_SWORD));
+		ItemStack copy = gun.copy();
+		MagazineState copied = MagazineState.get(copy, NUM_AMMO_ITEMS);
+		assertTrue(copied.getBullet(0).isEmpty());
+		assertEquals(0, copied.getBullet(1).getItemDamage());
+		assertEquals(Items.IRON_SWORD, copied.getFirstLoaded().getItem());
+	}
+}
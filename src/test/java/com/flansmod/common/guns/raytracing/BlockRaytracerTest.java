@@ -0,0 +1,381 @@
+package com.flansmod.common.guns.raytracing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the hits {@link BlockRaytracer} finds against World#rayTraceBlocks with (false, true, true), copied below, for
+ * volleys of rays fired from the same point through the same blocks, and that each block is only looked up once per
+ * volley. The blocks are a mix of full blocks, slabs, portals, blocks bullets pass through and blocks that have a
+ * collision box but cannot be hit, so that every way a ray can end is covered.
+ */
+public class BlockRaytracerTest
+{
+	private static final int RADIUS = 32;
+	/**
+	 * Half the length and width of the long thin worlds, which rays can cross by more blocks than the step limit
+	 */
+	private static final int LENGTH = 160, WIDTH = 4;
+	private static final int WORLDS = 8;
+	private static final int VOLLEYS = 20;
+	private static final int RAYS_PER_VOLLEY = 12;
+	
+	/**
+	 * Has a full collision box but is never hit, so a ray that misses everything else ends on the last one it passed
+	 */
+	private static Block unhittable;
+	
+	@BeforeClass
+	public static void setUp()
+	{
+		Bootstrap.register();
+		unhittable = new Block(Material.ROCK)
+		{
+			@Override
+			public boolean canCollideCheck(IBlockState state, boolean hitIfLiquid)
+			{
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Blocks in a box around the origin. Anything not set is air
+	 */
+	private static class TestWorld
+	{
+		private final Map<BlockPos, IBlockState> states = new HashMap<>();
+		
+		private IBlockState getBlockState(BlockPos pos)
+		{
+			IBlockState state = states.get(pos);
+			return state != null ? state : Blocks.AIR.getDefaultState();
+		}
+	}
+	
+	private static class TestRaytracer extends BlockRaytracer
+	{
+		private final TestWorld world;
+		private final Map<BlockPos, Integer> reads = new HashMap<>();
+		
+		private TestRaytracer(TestWorld world)
+		{
+			super(null);
+			this.world = world;
+		}
+		
+		@Override
+		IBlockState readBlockState(int x, int y, int z)
+		{
+			BlockPos pos = new BlockPos(x, y, z);
+			reads.merge(pos, 1, Integer::sum);
+			return world.getBlockState(pos);
+		}
+	}
+	
+	//World#rayTraceBlocks as it is, with stopOnLiquid false, ignoreBlockWithoutBoundingBox and returnLastUncollidableBlock
+	//true, and the world calls going to the test's world
+	private static RayTraceResult rayTraceBlocks(TestWorld world, Vec3d vec31, Vec3d vec32)
+	{
+		if(!Double.isNaN(vec31.x) && !Double.isNaN(vec31.y) && !Double.isNaN(vec31.z))
+		{
+			if(!Double.isNaN(vec32.x) && !Double.isNaN(vec32.y) && !Double.isNaN(vec32.z))
+			{
+				int i = MathHelper.floor(vec32.x);
+				int j = MathHelper.floor(vec32.y);
+				int k = MathHelper.floor(vec32.z);
+				int l = MathHelper.floor(vec31.x);
+				int i1 = MathHelper.floor(vec31.y);
+				int j1 = MathHelper.floor(vec31.z);
+				BlockPos blockpos = new BlockPos(l, i1, j1);
+				IBlockState iblockstate = world.getBlockState(blockpos);
+				Block block = iblockstate.getBlock();
+				
+				if(iblockstate.getCollisionBoundingBox(null, blockpos) != Block.NULL_AABB && block.canCollideCheck(iblockstate, false))
+				{
+					RayTraceResult raytraceresult = iblockstate.collisionRayTrace(null, blockpos, vec31, vec32);
+					
+					if(raytraceresult != null)
+					{
+						return raytraceresult;
+					}
+				}
+				
+				RayTraceResult raytraceresult2 = null;
+				int k1 = 200;
+				
+				while(k1-- >= 0)
+				{
+					if(Double.isNaN(vec31.x) || Double.isNaN(vec31.y) || Double.isNaN(vec31.z))
+					{
+						return null;
+					}
+					
+					if(l == i && i1 == j && j1 == k)
+					{
+						return raytraceresult2;
+					}
+					
+					boolean flag2 = true;
+					boolean flag = true;
+					boolean flag1 = true;
+					double d0 = 999.0D;
+					double d1 = 999.0D;
+					double d2 = 999.0D;
+					
+					if(i > l)
+						d0 = (double)l + 1.0D;
+					else if(i < l)
+						d0 = (double)l + 0.0D;
+					else flag2 = false;
+					
+					if(j > i1)
+						d1 = (double)i1 + 1.0D;
+					else if(j < i1)
+						d1 = (double)i1 + 0.0D;
+					else flag = false;
+					
+					if(k > j1)
+						d2 = (double)j1 + 1.0D;
+					else if(k < j1)
+						d2 = (double)j1 + 0.0D;
+					else flag1 = false;
+					
+					double d3 = 999.0D;
+					double d4 = 999.0D;
+					double d5 = 999.0D;
+					double d6 = vec32.x - vec31.x;
+					double d7 = vec32.y - vec31.y;
+					double d8 = vec32.z - vec31.z;
+					
+					if(flag2)
+						d3 = (d0 - vec31.x) / d6;
+					if(flag)
+						d4 = (d1 - vec31.y) / d7;
+					if(flag1)
+						d5 = (d2 - vec31.z) / d8;
+					
+					if(d3 == -0.0D)
+						d3 = -1.0E-4D;
+					if(d4 == -0.0D)
+						d4 = -1.0E-4D;
+					if(d5 == -0.0D)
+						d5 = -1.0E-4D;
+					
+					EnumFacing enumfacing;
+					
+					if(d3 < d4 && d3 < d5)
+					{
+						enumfacing = i > l ? EnumFacing.WEST : EnumFacing.EAST;
+						vec31 = new Vec3d(d0, vec31.y + d7 * d3, vec31.z + d8 * d3);
+					}
+					else if(d4 < d5)
+					{
+						enumfacing = j > i1 ? EnumFacing.DOWN : EnumFacing.UP;
+						vec31 = new Vec3d(vec31.x + d6 * d4, d1, vec31.z + d8 * d4);
+					}
+					else
+					{
+						enumfacing = k > j1 ? EnumFacing.NORTH : EnumFacing.SOUTH;
+						vec31 = new Vec3d(vec31.x + d6 * d5, vec31.y + d7 * d5, d2);
+					}
+					
+					l = MathHelper.floor(vec31.x) - (enumfacing == EnumFacing.EAST ? 1 : 0);
+					i1 = MathHelper.floor(vec31.y) - (enumfacing == EnumFacing.UP ? 1 : 0);
+					j1 = MathHelper.floor(vec31.z) - (enumfacing == EnumFacing.SOUTH ? 1 : 0);
+					blockpos = new BlockPos(l, i1, j1);
+					IBlockState iblockstate1 = world.getBlockState(blockpos);
+					Block block1 = iblockstate1.getBlock();
+					
+					if(iblockstate1.getMaterial() == Material.PORTAL || iblockstate1.getCollisionBoundingBox(null, blockpos) != Block.NULL_AABB)
+					{
+						if(block1.canCollideCheck(iblockstate1, false))
+						{
+							RayTraceResult raytraceresult1 = iblockstate1.collisionRayTrace(null, blockpos, vec31, vec32);
+							
+							if(raytraceresult1 != null)
+							{
+								return raytraceresult1;
+							}
+						}
+						else
+						{
+							raytraceresult2 = new RayTraceResult(RayTraceResult.Type.MISS, vec31, enumfacing, blockpos);
+						}
+					}
+				}
+				
+				return raytraceresult2;
+			}
+			else
+			{
+				return null;
+			}
+		}
+		else
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Fills a box around the origin with a mix of blocks, leaving the given fraction of it as air
+	 */
+	private static TestWorld randomWorld(Random random, float air, int radiusX, int radiusYZ)
+	{
+		Block[] blocks = new Block[] { Blocks.STONE, Blocks.GLASS, Blocks.STONE_SLAB, Blocks.PORTAL, Blocks.TALLGRASS, Blocks.WATER, unhittable };
+		TestWorld world = new TestWorld();
+		for(int i = -radiusX; i <= radiusX; i++)
+		{
+			for(int j = -radiusYZ; j <= radiusYZ; j++)
+			{
+				for(int k = -radiusYZ; k <= radiusYZ; k++)
+				{
+					if(random.nextFloat() < air)
+						continue;
+					world.states.put(new BlockPos(i, j, k), blocks[random.nextInt(blocks.length)].getDefaultState());
+				}
+			}
+		}
+		return world;
+	}
+	
+	private static double randomCoordinate(Random random, double range, boolean onGrid)
+	{
+		double coordinate = (random.nextDouble() * 2D - 1D) * range;
+		return onGrid ? Math.floor(coordinate) : coordinate;
+	}
+	
+	/**
+	 * Somewhere up to the given distances from the start. Sometimes exactly on the block grid, sometimes only moving along
+	 * one axis and sometimes not leaving the start block, as those are where rays step differently
+	 */
+	private static Vec3d randomEnd(Random random, Vec3d start, double rangeX, double rangeYZ)
+	{
+		switch(random.nextInt(4))
+		{
+		case 0:
+		{
+			int axis = random.nextInt(3);
+			double distance = randomCoordinate(random, axis == 0 ? rangeX : rangeYZ, false);
+			return start.addVector(axis == 0 ? distance : 0D, axis == 1 ? distance : 0D, axis == 2 ? distance : 0D);
+		}
+		case 1:
+			return new Vec3d(Math.floor(start.x), Math.floor(start.y), Math.floor(start.z)).addVector(
+					randomCoordinate(random, rangeX, true), randomCoordinate(random, rangeYZ, true), randomCoordinate(random, rangeYZ, true));
+		case 2:
+			return new Vec3d(Math.floor(start.x) + random.nextDouble(), Math.floor(start.y) + random.nextDouble(), Math.floor(start.z) + random.nextDouble());
+		default:
+			return start.addVector(randomCoordinate(random, rangeX, false), randomCoordinate(random, rangeYZ, false), randomCoordinate(random, rangeYZ, false));
+		}
+	}
+	
+	private static void assertSameHit(String message, RayTraceResult expected, RayTraceResult actual)
+	{
+		if(expected == null)
+		{
+			assertNull(message, actual);
+			return;
+		}
+		assertTrue(message + ", missing hit on " + expected.getBlockPos(), actual != null);
+		assertEquals(message + ", type", expected.typeOfHit, actual.typeOfHit);
+		assertEquals(message + ", block", expected.getBlockPos(), actual.getBlockPos());
+		assertEquals(message + ", side", expected.sideHit, actual.sideHit);
+		assertEquals(message + ", x", expected.hitVec.x, actual.hitVec.x, 0D);
+		assertEquals(message + ", y", expected.hitVec.y, actual.hitVec.y, 0D);
+		assertEquals(message + ", z", expected.hitVec.z, actual.hitVec.z, 0D);
+	}
+	
+	/**
+	 * Fires volleys from random points in a random world, each through a new raytracer, and checks each ray against the
+	 * world's raytrace
+	 *
+	 * @param radiusX  Half the length of the world along x
+	 * @param radiusYZ Half the width of the world along y and z
+	 * @param minAir   How much of the most solid world is air. The others go from that to nearly empty
+	 */
+	private static void assertSameHits(long seed, int radiusX, int radiusYZ, float minAir)
+	{
+		Random random = new Random(seed);
+		for(int sample = 0; sample < WORLDS; sample++)
+		{
+			TestWorld world = randomWorld(random, minAir + (0.995F - minAir) * sample / (WORLDS - 1), radiusX, radiusYZ);
+			for(int volley = 0; volley < VOLLEYS; volley++)
+			{
+				boolean onGrid = random.nextInt(4) == 0;
+				Vec3d start = new Vec3d(randomCoordinate(random, radiusX, onGrid), randomCoordinate(random, radiusYZ, onGrid), randomCoordinate(random, radiusYZ, onGrid));
+				TestRaytracer raytracer = new TestRaytracer(world);
+				for(int ray = 0; ray < RAYS_PER_VOLLEY; ray++)
+				{
+					Vec3d end = randomEnd(random, start, radiusX * 2, radiusYZ * 2);
+					String message = "World " + sample + ", volley " + volley + ", ray " + ray;
+					assertSameHit(message, rayTraceBlocks(world, start, end), raytracer.rayTrace(start, end));
+				}
+				for(Map.Entry<BlockPos, Integer> entry : raytracer.reads.entrySet())
+					assertEquals("World " + sample + ", volley " + volley + ", reads of " + entry.getKey(), 1, (int)entry.getValue());
+			}
+		}
+	}
+	
+	@Test
+	public void sameHitsAsWorldRaytrace()
+	{
+		//From half solid, where most rays stop in the first few blocks
+		assertSameHits(19L, RADIUS, RADIUS, 0.5F);
+	}
+	
+	/**
+	 * Rays long enough to run out of steps in the world's raytrace, which then gives up where it is
+	 */
+	@Test
+	public void sameHitsAsWorldRaytraceForLongRays()
+	{
+		//Sparse enough that a ray often gets past the step limit without hitting anything
+		assertSameHits(190L, LENGTH, WIDTH, 0.95F);
+	}
+	
+	/**
+	 * A block in a straight line from the start, either side of the last one the step limit reaches
+	 */
+	@Test
+	public void sameHitsAroundTheStepLimit()
+	{
+		for(int x = 195; x <= 205; x++)
+		{
+			TestWorld world = new TestWorld();
+			world.states.put(new BlockPos(x, 0, 0), Blocks.STONE.getDefaultState());
+			Vec3d start = new Vec3d(0.5D, 0.5D, 0.5D);
+			Vec3d end = new Vec3d(400.5D, 0.5D, 0.5D);
+			assertSameHit("Stone at " + x, rayTraceBlocks(world, start, end), new TestRaytracer(world).rayTrace(start, end));
+		}
+	}
+	
+	@Test
+	public void nothingHitWhenNotANumber()
+	{
+		TestWorld world = new TestWorld();
+		world.states.put(new BlockPos(0, 0, 0), Blocks.STONE.getDefaultState());
+		TestRaytracer raytracer = new TestRaytracer(world);
+		assertNull(raytracer.rayTrace(new Vec3d(Double.NaN, 0.5D, 0.5D), new Vec3d(0.5D, 0.5D, 0.5D)));
+		assertNull(raytracer.rayTrace(new Vec3d(0.5D, 0.5D, 0.5D), new Vec3d(0.5D, Double.NaN, 0.5D)));
+	}
+}
@@ -0,0 +1,413 @@
+package com.flansmod.common.guns.raytracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.item.EntityArmorStand;
+import net.minecraft.entity.item.EntityXPOrb;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.RayTraceResult;
+import net.minecraft.util.math.Vec3d;
+
+import com.flansmod.common.vector.Vector3f;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that looking up entities through {@link EntityGrid} gives the same hits, in the same order once sorted, as
+ * the scan over every loaded entity that {@link FlansModRaytracer} used to do. Armour stands stand in for anything that
+ * can be hit by its bounding box and experience orbs for entities bullets pass through.
+ * <p>
+ * Also checks that a {@link EntityGrid.Watcher} always holds exactly the entities filed under the cells it watches, so
+ * that sentries find the same nearest target as looking through every entity in range would.
+ */
+public class EntityGridTest
+{
+	private static final int TICKS = 50;
+	private static final int RAYS_PER_TICK = 40;
+	
+	@BeforeClass
+	public static void setUp()
+	{
+		Bootstrap.register();
+	}
+	
+	/**
+	 * An entity the ray hits and how far along the ray it hits it
+	 */
+	private static class Hit implements Comparable<Hit>
+	{
+		private final Entity entity;
+		private final float lambda;
+		
+		private Hit(Entity entity, float lambda)
+		{
+			this.entity = entity;
+			this.lambda = lambda;
+		}
+		
+		@Override
+		public int compareTo(Hit other)
+		{
+			return Float.compare(lambda, other.lambda);
+		}
+		
+		@Override
+		public String toString()
+		{
+			return entity + " at " + lambda;
+		}
+	}
+	
+	//The bounding box test FlansModRaytracer did for each loaded entity, without the parts and debug dots
+	private static void raytraceEntity(Entity entity, Vector3f origin, Vector3f motion, List<Hit> hits)
+	{
+		if(!entity.isDead && entity instanceof EntityLivingBase)
+		{
+			RayTraceResult mop = entity.getEntityBoundingBox().calculateIntercept(origin.toVec3(), new Vec3d(origin.x + motion.x, origin.y + motion.y, origin.z + motion.z));
+			if(mop != null)
+			{
+				Vec3d hitPoint = new Vec3d(mop.hitVec.x - origin.x, mop.hitVec.y - origin.y, mop.hitVec.z - origin.z);
+				float hitLambda = 1F;
+				if(motion.x != 0F)
+					hitLambda = (float) (hitPoint.x / motion.x);
+				else if(motion.y != 0F)
+					hitLambda = (float) (hitPoint.y / motion.y);
+				else if(motion.z != 0F)
+					hitLambda = (float) (hitPoint.z / motion.z);
+				if(hitLambda < 0)
+					hitLambda = -hitLambda;
+				hits.add(new Hit(entity, hitLambda));
+			}
+		}
+	}
+	
+	private static List<Hit> sorted(List<Hit> hits)
+	{
+		Collections.sort(hits);
+		return hits;
+	}
+	
+	private static List<Hit> scanAll(List<Entity> loadedEntities, Vector3f origin, Vector3f motion)
+	{
+		List<Hit> hits = new ArrayList<>();
+		for(Entity entity : loadedEntities)
+			raytraceEntity(entity, origin, motion, hits);
+		return sorted(hits);
+	}
+	
+	private static List<Hit> scanCandidates(List<Entity> candidates, Vector3f origin, Vector3f motion)
+	{
+		List<Hit> hits = new ArrayList<>();
+		for(Entity entity : candidates)
+			raytraceEntity(entity, origin, motion, hits);
+		return sorted(hits);
+	}
+	
+	/**
+	 * Hits of the same entity at the same distance, so that two lists can be compared
+	 */
+	private static void assertSameHits(String message, List<Hit> expected, List<Hit> actual)
+	{
+		assertEquals(message, expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++)
+		{
+			assertEquals(message + ", hit " + i, expected.get(i).entity, actual.get(i).entity);
+			assertEquals(message + ", hit " + i, expected.get(i).lambda, actual.get(i).lambda, 0F);
+		}
+	}
+	
+	private static Entity spawn(Random random, Vector3f centre)
+	{
+		Entity entity = random.nextInt(5) == 0 ? new EntityXPOrb(null) : new EntityArmorStand(null);
+		entity.setPosition(centre.x + random.nextGaussian() * 24D, centre.y + random.nextGaussian() * 8D, centre.z + random.nextGaussian() * 24D);
+		return entity;
+	}
+	
+	/**
+	 * Another entity in exactly the same place, as with mobs crowded into a pen, whose hits tie with the first
+	 */
+	private static Entity spawnOnTopOf(Entity other)
+	{
+		Entity entity = new EntityArmorStand(null);
+		entity.setPosition(other.posX, other.posY, other.posZ);
+		return entity;
+	}
+	
+	/**
+	 * Moves some entities along, some by more than a cell, kills a few and spawns more, as a tick of the world would
+	 */
+	private static void tick(Random random, List<Entity> loadedEntities, Vector3f centre)
+	{
+		//Dead entities are left out of the world's list the tick after they die
+		loadedEntities.removeIf(entity -> entity.isDead);
+		for(Entity entity : loadedEntities)
+		{
+			int roll = random.nextInt(10);
+			if(roll == 0)
+				entity.setDead();
+			else if(roll < 4)
+			{
+				entity.motionX = random.nextGaussian() * 2D;
+				entity.motionY = random.nextGaussian() * 0.2D;
+				entity.motionZ = random.nextGaussian() * 2D;
+				entity.setPosition(entity.posX + entity.motionX, entity.posY + entity.motionY, entity.posZ + entity.motionZ);
+			}
+			else if(roll == 4)
+				entity.setPosition(entity.posX + random.nextGaussian() * 20D, entity.posY, entity.posZ + random.nextGaussian() * 20D);
+		}
+		for(int i = random.nextInt(8); i > 0; i--)
+		{
+			Entity entity = spawn(random, centre);
+			loadedEntities.add(entity);
+			if(random.nextBoolean())
+				loadedEntities.add(spawnOnTopOf(entity));
+		}
+	}
+	
+	/**
+	 * Moves some entities on by their motion after the grid was refreshed, as those that update later in the tick would
+	 */
+	private static void moveAfterRefresh(Random random, List<Entity> loadedEntities)
+	{
+		for(Entity entity : loadedEntities)
+		{
+			if(random.nextInt(3) == 0)
+				entity.setPosition(entity.posX + entity.motionX, entity.posY + entity.motionY, entity.posZ + entity.motionZ);
+		}
+	}
+	
+	/**
+	 * A ray from somewhere near the centre, or half the time one aimed at an entity that stops short of it, passes
+	 * through it or ends inside it
+	 */
+	private static Vector3f[] randomRay(Random random, List<Entity> loadedEntities, Vector3f centre)
+	{
+		if(loadedEntities.isEmpty() || random.nextBoolean())
+		{
+			Vector3f origin = new Vector3f(centre.x + random.nextGaussian() * 30D, centre.y + random.nextGaussian() * 4D, centre.z + random.nextGaussian() * 30D);
+			return new Vector3f[] { origin, randomMotion(random) };
+		}
+		Entity target = loadedEntities.get(random.nextInt(loadedEntities.size()));
+		Vector3f motion = randomMotion(random);
+		float along = 0.8F + random.nextFloat() * 0.4F;
+		Vector3f origin = new Vector3f(target.posX - motion.x * along, target.posY + 1D - motion.y * along, target.posZ - motion.z * along);
+		return new Vector3f[] { origin, motion };
+	}
+	
+	private static Vector3f randomMotion(Random random)
+	{
+		Vector3f motion = new Vector3f((float)random.nextGaussian(), (float)random.nextGaussian() * 0.5F, (float)random.nextGaussian());
+		motion.normalise();
+		motion.scale(1F + random.nextFloat() * 60F);
+		return motion;
+	}
+	
+	private static void assertNoDuplicates(List<Entity> candidates)
+	{
+		assertEquals("Entities listed twice", candidates.size(), new HashSet<>(candidates).size());
+	}
+	
+	@Test
+	public void rayHitsMatchScanningEveryEntity()
+	{
+		Random random = new Random(1L);
+		//Either side of zero, so that cells with negative coordinates are covered
+		Vector3f centre = new Vector3f(-8F, 70F, 4F);
+		List<Entity> loadedEntities = new ArrayList<>();
+		EntityGrid grid = new EntityGrid();
+		for(int time = 0; time < TICKS; time++)
+		{
+			tick(random, loadedEntities, centre);
+			grid.refresh(time, loadedEntities);
+			moveAfterRefresh(random, loadedEntities);
+			for(int ray = 0; ray < RAYS_PER_TICK; ray++)
+			{
+				Vector3f[] originAndMotion = randomRay(random, loadedEntities, centre);
+				Vector3f origin = originAndMotion[0];
+				Vector3f motion = originAndMotion[1];
+				List<Entity> candidates = grid.getEntitiesAlongRay(origin, motion);
+				assertNoDuplicates(candidates);
+				assertSameHits("Tick " + time + ", ray " + ray, scanAll(loadedEntities, origin, motion), scanCandidates(candidates, origin, motion));
+			}
+		}
+	}
+	
+	@Test
+	public void multipleRayHitsMatchScanningEveryEntity()
+	{
+		Random random = new Random(2L);
+		Vector3f centre = new Vector3f(100F, 64F, -100F);
+		List<Entity> loadedEntities = new ArrayList<>();
+		EntityGrid grid = new EntityGrid();
+		for(int time = 0; time < TICKS; time++)
+		{
+			tick(random, loadedEntities, centre);
+			grid.refresh(time, loadedEntities);
+			moveAfterRefresh(random, loadedEntities);
+			//A spread of pellets from one muzzle
+			Vector3f[] originAndAim = randomRay(random, loadedEntities, centre);
+			Vector3f origin = originAndAim[0];
+			Vector3f aim = originAndAim[1];
+			List<Vector3f> motions = new ArrayList<>();
+			for(int pellet = 0; pellet < 8; pellet++)
+				motions.add(new Vector3f(aim.x + random.nextGaussian(), aim.y + random.nextGaussian(), aim.z + random.nextGaussian()));
+			
+			List<Entity> candidates = grid.getEntitiesAlongRays(origin, motions);
+			assertNoDuplicates(candidates);
+			for(int pellet = 0; pellet < motions.size(); pellet++)
+			{
+				Vector3f motion = motions.get(pellet);
+				assertSameHits("Tick " + time + ", pellet " + pellet, scanAll(loadedEntities, origin, motion), scanCandidates(candidates, origin, motion));
+			}
+		}
+	}
+	
+	@Test
+	public void entitiesInTheSamePlaceKeepTheirOrder()
+	{
+		Random random = new Random(3L);
+		List<Entity> loadedEntities = new ArrayList<>();
+		//A row of entities along x, each filed under different cells, with a second entity on top of each
+		for(int i = 0; i < 6; i++)
+		{
+			Entity entity = new EntityArmorStand(null);
+			entity.setPosition(-40D + i * 16D, 64D, 0.5D);
+			loadedEntities.add(entity);
+		}
+		for(int i = 0; i < 6; i++)
+			loadedEntities.add(spawnOnTopOf(loadedEntities.get(i)));
+		//Shuffled, so that the order they are filed in is not the order they are along the ray
+		Collections.shuffle(loadedEntities, random);
+		EntityGrid grid = new EntityGrid();
+		grid.refresh(0L, loadedEntities);
+		//Some step out of their cells and back, which puts them after the others in the cells' lists
+		for(int i = 0; i < 12; i += 2)
+		{
+			Entity entity = loadedEntities.get(i);
+			entity.setPosition(entity.posX, entity.posY + 40D, entity.posZ);
+		}
+		grid.refresh(1L, loadedEntities);
+		for(int i = 0; i < 12; i += 2)
+		{
+			Entity entity = loadedEntities.get(i);
+			entity.setPosition(entity.posX, entity.posY - 40D, entity.posZ);
+		}
+		grid.refresh(2L, loadedEntities);
+		
+		//From both ends, so the cells are visited in both orders
+		Vector3f[] origins = new Vector3f[] { new Vector3f(-60F, 65F, 0.5F), new Vector3f(60F, 65F, 0.5F) };
+		Vector3f[] motions = new Vector3f[] { new Vector3f(120F, 0F, 0F), new Vector3f(-120F, 0F, 0F) };
+		for(int i = 0; i < 2; i++)
+		{
+			List<Hit> expected = scanAll(loadedEntities, origins[i], motions[i]);
+			assertEquals(12, expected.size());
+			assertSameHits("Direction " + i, expected, scanCandidates(grid.getEntitiesAlongRay(origins[i], motions[i]), origins[i], motions[i]));
+		}
+	}
+	
+	private static int toCell(double coordinate)
+	{
+		return (int)Math.floor(coordinate) >> 4;
+	}
+	
+	/**
+	 * The entities the grid should have filed under the cells covering the area, worked out from where each entity was
+	 * when the grid was refreshed
+	 */
+	private static Set<Entity> entitiesFiledUnder(AxisAlignedBB area, List<Entity> loadedEntities)
+	{
+		Set<Entity> expected = new HashSet<>();
+		for(Entity entity : loadedEntities)
+		{
+			if(entity.isDead || !EntityGrid.isTracked(entity))
+				continue;
+			AxisAlignedBB box = entity.getEntityBoundingBox().grow(Math.abs(entity.motionX) + 1D, Math.abs(entity.motionY) + 1D, Math.abs(entity.motionZ) + 1D);
+			if(toCell(box.minX) <= toCell(area.maxX) && toCell(box.maxX) >= toCell(area.minX)
+					&& toCell(box.minY) <= toCell(area.maxY) && toCell(box.maxY) >= toCell(area.minY)
+					&& toCell(box.minZ) <= toCell(area.maxZ) && toCell(box.maxZ) >= toCell(area.minZ))
+				expected.add(entity);
+		}
+		return expected;
+	}
+	
+	private static double distanceSq(Entity entity, Vector3f point)
+	{
+		double dX = entity.posX - point.x, dY = entity.posY - point.y, dZ = entity.posZ - point.z;
+		return dX * dX + dY * dY + dZ * dZ;
+	}
+	
+	/**
+	 * @return The distance squared to the nearest hittable entity in range, or the range squared if there is none
+	 */
+	private static double nearestDistanceSq(Iterable<Entity> entities, Vector3f point, double range)
+	{
+		double nearest = range * range;
+		for(Entity entity : entities)
+		{
+			if(!entity.isDead && entity instanceof EntityLivingBase)
+				nearest = Math.min(nearest, distanceSq(entity, point));
+		}
+		return nearest;
+	}
+	
+	@Test
+	public void watchersSeeExactlyTheEntitiesInTheirCells()
+	{
+		Random random = new Random(16L);
+		Vector3f centre = new Vector3f(-20F, 64F, 30F);
+		List<Entity> loadedEntities = new ArrayList<>();
+		EntityGrid grid = new EntityGrid();
+		
+		//Sentries with different ranges, which move now and again and sometimes stop watching for a while
+		Map<EntityGrid.Watcher, Vector3f> sentries = new IdentityHashMap<>();
+		Map<EntityGrid.Watcher, Double> ranges = new IdentityHashMap<>();
+		for(int i = 0; i < 8; i++)
+		{
+			EntityGrid.Watcher watcher = new EntityGrid.Watcher();
+			sentries.put(watcher, new Vector3f(centre.x + random.nextGaussian() * 20D, centre.y, centre.z + random.nextGaussian() * 20D));
+			ranges.put(watcher, 5D + random.nextDouble() * 40D);
+		}
+		
+		for(int time = 0; time < TICKS; time++)
+		{
+			tick(random, loadedEntities, centre);
+			grid.refresh(time, loadedEntities);
+			for(Map.Entry<EntityGrid.Watcher, Vector3f> sentry : sentries.entrySet())
+			{
+				EntityGrid.Watcher watcher = sentry.getKey();
+				Vector3f position = sentry.getValue();
+				double range = ranges.get(watcher);
+				int roll = random.nextInt(10);
+				if(roll == 0)
+				{
+					grid.unwatch(watcher);
+					assertTrue(watcher.getEntities().isEmpty());
+					continue;
+				}
+				if(roll < 4)
+					position.set(position.x + (float)random.nextGaussian() * 10F, position.y, position.z + (float)random.nextGaussian() * 10F);
+				
+				AxisAlignedBB area = new AxisAlignedBB(position.x - range, position.y - range, position.z - range, position.x + range, position.y + range, position.z + range);
+				grid.watch(watcher, area);
+				String message = "Tick " + time + ", sentry at " + position;
+				assertEquals(message, entitiesFiledUnder(area, loadedEntities), new HashSet<>(watcher.getEntities()));
+				//Which covers everything that looking for entities in range used to find
+				assertEquals(message, nearestDistanceSq(loadedEntities, position, range), nearestDistanceSq(watcher.getEntities(), position, range), 0D);
+			}
+		}
+	}
+}
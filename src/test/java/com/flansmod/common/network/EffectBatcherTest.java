@@ -0,0 +1,241 @@
+package com.flansmod.common.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.minecraft.util.math.Vec3d;
+
+import com.flansmod.common.network.EffectBatcher.Effect;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks which of a tick's effects {@link EffectBatcher} picks out for a player: everything in range nearby, and far
+ * away only visual effects roughly in front of them, a couple of each kind per chunk.
+ */
+public class EffectBatcherTest
+{
+	private static final double EYE_HEIGHT = 1.62D;
+	private static final Vec3d SOUTH = new Vec3d(0D, 0D, 1D);
+	
+	private static Effect blockHit(double x, double y, double z)
+	{
+		return new Effect(EffectBatcher.BLOCK_HIT, null, x, y, z, 300D, new float[] { (float)x, (float)y, (float)z });
+	}
+	
+	private static Effect trail(double x, double y, double z, double... ends)
+	{
+		float[] points = new float[3 + ends.length];
+		points[0] = (float)x;
+		points[1] = (float)y;
+		points[2] = (float)z;
+		for(int i = 0; i < ends.length; i++)
+			points[3 + i] = (float)ends[i];
+		return new Effect(EffectBatcher.TRAIL, null, x, y, z, 500D, points);
+	}
+	
+	private static Effect sound(double x, double y, double z, double range)
+	{
+		return new Effect(EffectBatcher.SOUND, null, x, y, z, range, null);
+	}
+	
+	private static List<Effect> select(double x, double y, double z, Vec3d look, Effect... effects)
+	{
+		List<Effect> selected = new ArrayList<>();
+		EffectBatcher.selectEffects(x, y, z, new Vec3d(x, y + EYE_HEIGHT, z), look, Arrays.asList(effects), selected);
+		return selected;
+	}
+	
+	@Test
+	public void everythingNearbyIsSent()
+	{
+		List<Effect> effects = new ArrayList<>();
+		for(int i = 0; i < 8; i++)
+		{
+			double angle = Math.PI * 2D * i / 8D;
+			effects.add(blockHit(Math.sin(angle) * 20D, 64D, Math.cos(angle) * 20D));
+			effects.add(trail(Math.sin(angle) * 30D, 64D, Math.cos(angle) * 30D, Math.sin(angle) * 60D, 64D, Math.cos(angle) * 60D));
+			effects.add(sound(Math.sin(angle) * 10D, 64D, Math.cos(angle) * 10D, 16D));
+		}
+		//However many there are in one chunk
+		for(int i = 0; i < 4; i++)
+			effects.add(blockHit(1D + i, 64D, -20D));
+		Effect[] all = effects.toArray(new Effect[0]);
+		assertEquals(effects, select(0D, 64D, 0D, SOUTH, all));
+	}
+	
+	@Test
+	public void effectsOutOfRangeAreLeftOut()
+	{
+		Effect closeSound = sound(0D, 64D, 15D, 16D);
+		Effect farSound = sound(0D, 64D, 17D, 16D);
+		Effect closeTrail = trail(0D, 64D, 499D, 0D, 64D, 600D);
+		Effect farTrail = trail(0D, 64D, 501D, 0D, 64D, 600D);
+		Effect closeHit = blockHit(0D, 64D, 299D);
+		Effect farHit = blockHit(0D, 64D, 301D);
+		assertEquals(Arrays.asList(closeSound, closeTrail, closeHit), select(0D, 64D, 0D, SOUTH, closeSound, farSound, closeTrail, farTrail, closeHit, farHit));
+	}
+	
+	@Test
+	public void distantEffectsBehindThePlayerAreLeftOut()
+	{
+		Effect ahead = blockHit(0D, 64D, 100D);
+		Effect behind = blockHit(0D, 64D, -100D);
+		//Up to 120 degrees from the view is kept, so that turning round a little does not miss anything
+		Effect side = blockHit(100D, 64D, 0D);
+		Effect behindSide = blockHit(100D, 64D, -50D);
+		Effect farBehindSide = blockHit(100D, 64D, -70D);
+		Effect soundBehind = sound(0D, 64D, -100D, 200D);
+		assertEquals(Arrays.asList(ahead, side, behindSide, soundBehind), select(0D, 64D, 0D, SOUTH, ahead, behind, side, behindSide, farBehindSide, soundBehind));
+	}
+	
+	@Test
+	public void distantTrailsAreSentIfAnyPointIsInView()
+	{
+		Effect past = trail(0D, 64D, -100D, 0D, 64D, 100D);
+		Effect away = trail(0D, 64D, -100D, 0D, 64D, -200D);
+		Effect oneOfMany = trail(40D, 64D, -100D, 40D, 64D, -200D, 50D, 64D, -200D, 90D, 64D, 150D);
+		assertEquals(Arrays.asList(past, oneOfMany), select(0D, 64D, 0D, SOUTH, past, away, oneOfMany));
+	}
+	
+	@Test
+	public void distantEffectsAreLimitedPerChunkAndKind()
+	{
+		Effect[] hits = new Effect[4];
+		Effect[] sounds = new Effect[4];
+		for(int i = 0; i < 4; i++)
+		{
+			hits[i] = blockHit(-90D - i, 64D, 90D + i);
+			sounds[i] = sound(-90D - i, 64D, 90D + i, 200D);
+		}
+		Effect nextChunk = blockHit(-80D, 64D, 90D);
+		//Close enough to be sent whatever else is in its chunk
+		Effect near = blockHit(-10D, 64D, 10D);
+		Effect nearToo = blockHit(-11D, 64D, 11D);
+		Effect nearAsWell = blockHit(-12D, 64D, 12D);
+		assertEquals(Arrays.asList(near, hits[0], sounds[0], hits[1], sounds[1], nextChunk, nearToo, nearAsWell),
+				select(0D, 64D, 0D, SOUTH, near, hits[0], sounds[0], hits[1], sounds[1], hits[2], sounds[2], nextChunk, hits[3], sounds[3], nearToo, nearAsWell));
+	}
+	
+	@Test
+	public void effectsCulledByViewDoNotCountTowardsTheLimit()
+	{
+		//All from the same chunk behind the player, going further away or past them
+		Effect away = trail(0D, 64D, -100D, 0D, 64D, -200D);
+		Effect awayToo = trail(1D, 64D, -101D, 1D, 64D, -200D);
+		Effect past = trail(2D, 64D, -100D, 2D, 64D, 100D);
+		Effect pastToo = trail(3D, 64D, -100D, 3D, 64D, 100D);
+		Effect pastAsWell = trail(4D, 64D, -100D, 4D, 64D, 100D);
+		assertEquals(Arrays.asList(past, pastToo), select(0D, 64D, 0D, SOUTH, away, awayToo, past, pastToo, pastAsWell));
+	}
+	
+	/**
+	 * Whether the angle between the player's view and the point is no more than 120 degrees
+	 */
+	private static boolean inView(Vec3d eyes, Vec3d look, double x, double y, double z)
+	{
+		Vec3d toPoint = new Vec3d(x - eyes.x, y - eyes.y, z - eyes.z);
+		double length = toPoint.lengthVector();
+		return length == 0D || Math.acos(Math.max(-1D, Math.min(1D, toPoint.dotProduct(look) / length))) <= Math.toRadians(120D);
+	}
+	
+	//Each rule applied on its own, with the chunks counted by name
+	private static List<Effect> expectedEffects(double x, double y, double z, Vec3d look, List<Effect> effects, List<float[]> points, List<double[]> positions, List<Integer> kinds, List<Double> ranges)
+	{
+		Vec3d eyes = new Vec3d(x, y + EYE_HEIGHT, z);
+		Map<String, Integer> counts = new HashMap<>();
+		List<Effect> expected = new ArrayList<>();
+		for(int i = 0; i < effects.size(); i++)
+		{
+			double[] position = positions.get(i);
+			double distance = new Vec3d(x, y, z).distanceTo(new Vec3d(position[0], position[1], position[2]));
+			if(distance > ranges.get(i))
+				continue;
+			if(distance > 32D)
+			{
+				float[] effectPoints = points.get(i);
+				if(effectPoints != null)
+				{
+					boolean seen = false;
+					for(int j = 0; j < effectPoints.length; j += 3)
+						seen |= inView(eyes, look, effectPoints[j], effectPoints[j + 1], effectPoints[j + 2]);
+					if(!seen)
+						continue;
+				}
+				String chunk = Math.floorDiv((int)Math.floor(position[0]), 16) + "," + Math.floorDiv((int)Math.floor(position[2]), 16) + "," + kinds.get(i);
+				int count = counts.getOrDefault(chunk, 0);
+				counts.put(chunk, count + 1);
+				if(count >= 2)
+					continue;
+			}
+			expected.add(effects.get(i));
+		}
+		return expected;
+	}
+	
+	@Test
+	public void sameEffectsAsApplyingEachRule()
+	{
+		Random random = new Random(20L);
+		for(int sample = 0; sample < 200; sample++)
+		{
+			//Both sides of zero, so that negative chunk coordinates are covered
+			double x = (random.nextDouble() - 0.5D) * 4000D;
+			double y = random.nextDouble() * 255D;
+			double z = (random.nextDouble() - 0.5D) * 4000D;
+			Vec3d look = new Vec3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).normalize();
+			
+			List<Effect> effects = new ArrayList<>();
+			List<float[]> points = new ArrayList<>();
+			List<double[]> positions = new ArrayList<>();
+			List<Integer> kinds = new ArrayList<>();
+			List<Double> ranges = new ArrayList<>();
+			//Effects gathered around a few spots, as where bullets are landing, so that chunks fill up
+			for(int spot = 0; spot < 6; spot++)
+			{
+				double spread = 600D * random.nextDouble();
+				double spotX = x + random.nextGaussian() * spread;
+				double spotY = y + random.nextGaussian() * spread * 0.1D;
+				double spotZ = z + random.nextGaussian() * spread;
+				for(int i = 0; i < 15; i++)
+				{
+					double effectX = spotX + random.nextGaussian() * 10D;
+					double effectY = spotY + random.nextGaussian() * 3D;
+					double effectZ = spotZ + random.nextGaussian() * 10D;
+					int kind = random.nextInt(3);
+					float[] effectPoints = null;
+					double range = 16D + random.nextDouble() * 200D;
+					if(kind == EffectBatcher.TRAIL)
+					{
+						effectPoints = new float[3 * (2 + random.nextInt(4))];
+						for(int j = 0; j < effectPoints.length; j++)
+							effectPoints[j] = (float)((j % 3 == 0 ? effectX : j % 3 == 1 ? effectY : effectZ) + (j < 3 ? 0D : random.nextGaussian() * 100D));
+						range = 500D;
+					}
+					else if(kind == EffectBatcher.BLOCK_HIT)
+					{
+						effectPoints = new float[] { (float)effectX, (float)effectY, (float)effectZ };
+						range = 300D;
+					}
+					Effect effect = new Effect(kind, null, effectX, effectY, effectZ, range, effectPoints);
+					effects.add(effect);
+					positions.add(new double[] { effectX, effectY, effectZ });
+					kinds.add(kind);
+					ranges.add(range);
+					points.add(effectPoints);
+				}
+			}
+			
+			List<Effect> expected = expectedEffects(x, y, z, look, effects, points, positions, kinds, ranges);
+			List<Effect> actual = new ArrayList<>();
+			EffectBatcher.selectEffects(x, y, z, new Vec3d(x, y + EYE_HEIGHT, z), look, effects, actual);
+			assertEquals("Sample " + sample, expected, actual);
+		}
+	}
+}
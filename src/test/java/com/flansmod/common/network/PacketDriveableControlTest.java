@@ -0,0 +1,316 @@
+package com.flansmod.common.network;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends driveable states through {@link PacketDriveableControl} and a ByteBuf, checking how many bytes keyframes and
+ * deltas take and that the receiver ends up with the state the sender remembers sending
+ */
+public class PacketDriveableControlTest
+{
+	private static final int ENTITY_ID = 1234;
+	//Varint entity id, then the field mask, stream id and sequence number
+	private static final int HEADER_SIZE = 2 + 3;
+	//Position as doubles, rotation and motion as shorts, angular velocity, throttle and fuel as floats and steering as a short
+	private static final int KEYFRAME_SIZE = HEADER_SIZE + 24 + 6 + 6 + 12 + 4 + 4 + 2;
+	
+	/**
+	 * The state of a driveable that is moving along, as it would be read off the entity
+	 */
+	private static class State
+	{
+		private double posX = 100.25D, posY = 64D, posZ = -300.75D;
+		private float yaw = 45F, pitch = -5F, roll = 2F;
+		private double motX = 0.3D, motY = 0D, motZ = -0.2D;
+		private float avelx, avely = 0.5F, avelz;
+		private float throttle = 0.8F;
+		private float fuelInTank = 1000F;
+		private float steeringYaw = 10F;
+		
+		private PacketDriveableControl toPacket()
+		{
+			PacketDriveableControl packet = new PacketDriveableControl();
+			packet.entityId = ENTITY_ID;
+			packet.posX = posX;
+			packet.posY = posY;
+			packet.posZ = posZ;
+			packet.yaw = yaw;
+			packet.pitch = pitch;
+			packet.roll = roll;
+			packet.motX = motX;
+			packet.motY = motY;
+			packet.motZ = motZ;
+			packet.avelx = avelx;
+			packet.avely = avely;
+			packet.avelz = avelz;
+			packet.throttle = throttle;
+			packet.fuelInTank = fuelInTank;
+			packet.steeringYaw = steeringYaw;
+			return packet;
+		}
+		
+		private void move()
+		{
+			posX += motX;
+			posY += motY;
+			posZ += motZ;
+		}
+	}
+	
+	/**
+	 * One driveable's stream of packets, from the sender's state through the wire to the receiver's
+	 */
+	private static class Link
+	{
+		private final PacketDriveableControl.SyncState sent = new PacketDriveableControl.SyncState();
+		private final PacketDriveableControl.SyncState received = new PacketDriveableControl.SyncState();
+		private PacketDriveableControl lastSent;
+		private int lastSize;
+		
+		private ByteBuf send(State state)
+		{
+			lastSent = state.toPacket();
+			lastSent.deltaEncode(sent);
+			ByteBuf data = Unpooled.buffer();
+			lastSent.encodeInto(null, data);
+			lastSize = data.readableBytes();
+			return data;
+		}
+		
+		/**
+		 * @return The packet as the receiver resolved it, or null if it was dropped
+		 */
+		private PacketDriveableControl receive(ByteBuf data)
+		{
+			PacketDriveableControl packet = new PacketDriveableControl();
+			packet.decodeInto(null, data);
+			assertEquals("Bytes left unread", 0, data.readableBytes());
+			return packet.resolve(received) ? packet : null;
+		}
+		
+		private PacketDriveableControl sendAndReceive(State state)
+		{
+			return receive(send(state));
+		}
+	}
+	
+	private static void assertSameState(PacketDriveableControl expected, PacketDriveableControl actual)
+	{
+		assertEquals(expected.entityId, actual.entityId);
+		assertEquals(expected.posX, actual.posX, 0D);
+		assertEquals(expected.posY, actual.posY, 0D);
+		assertEquals(expected.posZ, actual.posZ, 0D);
+		assertEquals(expected.yaw, actual.yaw, 0F);
+		assertEquals(expected.pitch, actual.pitch, 0F);
+		assertEquals(expected.roll, actual.roll, 0F);
+		assertEquals(expected.motX, actual.motX, 0D);
+		assertEquals(expected.motY, actual.motY, 0D);
+		assertEquals(expected.motZ, actual.motZ, 0D);
+		assertEquals(expected.avelx, actual.avelx, 0F);
+		assertEquals(expected.avely, actual.avely, 0F);
+		assertEquals(expected.avelz, actual.avelz, 0F);
+		assertEquals(expected.throttle, actual.throttle, 0F);
+		assertEquals(expected.fuelInTank, actual.fuelInTank, 0F);
+		assertEquals(expected.steeringYaw, actual.steeringYaw, 0F);
+	}
+	
+	/**
+	 * Checks the received state is within the quantization steps of the true state
+	 */
+	private static void assertCloseTo(State expected, PacketDriveableControl actual)
+	{
+		assertEquals(expected.posX, actual.posX, 0.5D / 256D);
+		assertEquals(expected.posY, actual.posY, 0.5D / 256D);
+		assertEquals(expected.posZ, actual.posZ, 0.5D / 256D);
+		assertEquals(expected.yaw, actual.yaw, 0.5F * 360F / 65536F + 1E-4F);
+		assertEquals(expected.pitch, actual.pitch, 0.5F * 360F / 65536F + 1E-4F);
+		assertEquals(expected.roll, actual.roll, 0.5F * 360F / 65536F + 1E-4F);
+		assertEquals(expected.motX, actual.motX, 0.5D / 1024D);
+		assertEquals(expected.motY, actual.motY, 0.5D / 1024D);
+		assertEquals(expected.motZ, actual.motZ, 0.5D / 1024D);
+		assertEquals(expected.throttle, actual.throttle, 0F);
+		assertEquals(expected.fuelInTank, actual.fuelInTank, 0F);
+		assertEquals(expected.steeringYaw, actual.steeringYaw, 0.5F * 360F / 65536F + 1E-4F);
+	}
+	
+	@Test
+	public void firstPacketIsAFullKeyframe()
+	{
+		Link link = new Link();
+		State state = new State();
+		PacketDriveableControl received = link.sendAndReceive(state);
+		
+		assertEquals(KEYFRAME_SIZE, link.lastSize);
+		assertSameState(link.lastSent, received);
+		//Keyframes send the position exactly
+		assertEquals(state.posX, received.posX, 0D);
+		assertCloseTo(state, received);
+	}
+	
+	@Test
+	public void deltasOnlyCarryWhatChanged()
+	{
+		Link link = new Link();
+		State state = new State();
+		link.sendAndReceive(state);
+		
+		//Nothing changed
+		assertSameState(link.lastSent, link.sendAndReceive(state));
+		assertEquals(HEADER_SIZE, link.lastSize);
+		
+		//Moved along
+		state.move();
+		PacketDriveableControl received = link.sendAndReceive(state);
+		assertEquals(HEADER_SIZE + 6, link.lastSize);
+		assertSameState(link.lastSent, received);
+		assertCloseTo(state, received);
+		
+		//Moved and turned, with the throttle eased off
+		state.move();
+		state.yaw += 3F;
+		state.throttle = 0.5F;
+		received = link.sendAndReceive(state);
+		assertEquals(HEADER_SIZE + 6 + 6 + 4, link.lastSize);
+		assertSameState(link.lastSent, received);
+		assertCloseTo(state, received);
+		
+		//Only the fuel and steering
+		state.fuelInTank -= 1F;
+		state.steeringYaw = -20F;
+		received = link.sendAndReceive(state);
+		assertEquals(HEADER_SIZE + 4 + 2, link.lastSize);
+		assertSameState(link.lastSent, received);
+		assertCloseTo(state, received);
+	}
+	
+	@Test
+	public void keyframesAreSentRegularly()
+	{
+		Link link = new Link();
+		State state = new State();
+		link.sendAndReceive(state);
+		for(int i = 0; i < PacketDriveableControl.KEYFRAME_INTERVAL; i++)
+		{
+			state.move();
+			link.sendAndReceive(state);
+			assertEquals(HEADER_SIZE + 6, link.lastSize);
+		}
+		state.move();
+		link.sendAndReceive(state);
+		assertEquals(KEYFRAME_SIZE, link.lastSize);
+	}
+	
+	@Test
+	public void farMovesAreSentAsKeyframes()
+	{
+		Link link = new Link();
+		State state = new State();
+		link.sendAndReceive(state);
+		//Just inside what a delta can cover
+		state.posX += 127D;
+		link.sendAndReceive(state);
+		assertEquals(HEADER_SIZE + 6, link.lastSize);
+		//And well outside it, as when a driveable is teleported
+		state.posZ -= 500D;
+		PacketDriveableControl received = link.sendAndReceive(state);
+		assertEquals(KEYFRAME_SIZE, link.lastSize);
+		assertEquals(state.posZ, received.posZ, 0D);
+	}
+	
+	@Test
+	public void randomStatesRoundTrip()
+	{
+		Random random = new Random(6L);
+		Link link = new Link();
+		State state = new State();
+		for(int tick = 0; tick < 1000; tick++)
+		{
+			state.motX = random.nextGaussian();
+			state.motY = random.nextGaussian() * 0.2D;
+			state.motZ = random.nextGaussian();
+			state.move();
+			if(random.nextInt(4) == 0)
+			{
+				state.yaw = random.nextFloat() * 360F - 180F;
+				state.pitch = random.nextFloat() * 180F - 90F;
+				state.roll = random.nextFloat() * 360F - 180F;
+			}
+			if(random.nextInt(4) == 0)
+			{
+				state.avelx = random.nextFloat();
+				state.avely = random.nextFloat();
+				state.avelz = random.nextFloat();
+			}
+			if(random.nextInt(4) == 0)
+				state.throttle = random.nextFloat() * 2F - 1F;
+			if(random.nextInt(4) == 0)
+				state.fuelInTank = random.nextFloat() * 1000F;
+			if(random.nextInt(4) == 0)
+				state.steeringYaw = random.nextFloat() * 60F - 30F;
+			
+			PacketDriveableControl received = link.sendAndReceive(state);
+			assertSameState(link.lastSent, received);
+			assertCloseTo(state, received);
+			assertTrue(link.lastSize <= KEYFRAME_SIZE);
+		}
+	}
+	
+	@Test
+	public void missedPacketsDropDeltasUntilTheNextKeyframe()
+	{
+		Link link = new Link();
+		State state = new State();
+		link.sendAndReceive(state);
+		state.move();
+		link.sendAndReceive(state);
+		
+		//Lost on the way
+		state.move();
+		link.send(state);
+		
+		//The rest of the deltas before the next keyframe would be applied to the wrong base
+		for(int i = 2; i < PacketDriveableControl.KEYFRAME_INTERVAL; i++)
+		{
+			state.move();
+			assertNull(link.sendAndReceive(state));
+		}
+		
+		state.move();
+		PacketDriveableControl received = link.sendAndReceive(state);
+		assertEquals(KEYFRAME_SIZE, link.lastSize);
+		assertSameState(link.lastSent, received);
+		state.move();
+		received = link.sendAndReceive(state);
+		assertEquals(HEADER_SIZE + 6, link.lastSize);
+		assertSameState(link.lastSent, received);
+		assertCloseTo(state, received);
+	}
+	
+	@Test
+	public void deltasFromAnotherStreamAreDropped()
+	{
+		Link link = new Link();
+		State state = new State();
+		link.sendAndReceive(state);
+		
+		//As if from another sender for the same driveable, such as a new driver taking over
+		state.move();
+		ByteBuf data = link.send(state);
+		int streamIdIndex = HEADER_SIZE - 2;
+		data.setByte(streamIdIndex, data.getUnsignedByte(streamIdIndex) + 1);
+		assertNull(link.receive(data));
+		
+		//Having lost track, the original stream is dropped too until its next keyframe
+		state.move();
+		assertNull(link.sendAndReceive(state));
+	}
+}